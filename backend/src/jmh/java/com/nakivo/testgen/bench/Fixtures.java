@@ -0,0 +1,230 @@
+package com.nakivo.testgen.bench;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/* Synthetic inputs shaped like the real generator inputs and outputs, for the JMH benchmarks. */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    private static final String[] VERBS = {"create", "run", "wait", "verify", "remove", "select", "go", "validate", "edit", "restore"};
+    private static final String[] OBJECTS = {"vmware", "proxmox", "hyperv", "backup", "replication", "job", "repository",
+        "recovery", "point", "dashboard", "page", "schedule", "retention", "destination", "options", "mode", "transporter"};
+
+    public static String testId(int i) {
+        return String.format("TC_%05d", i);
+    }
+
+    /* A test method as rendered by method_template.ftl, with a few braces hidden in literals and comments. */
+    public static String manualTestMethod(String id, int steps) {
+        StringBuilder sb = new StringBuilder(512 + steps * 120);
+        sb.append("@FrameworkAnnotation(\n")
+            .append("      author = {AuthorType.NKV_USER},\n")
+            .append("      category = {CategoryType.DEBUG},\n")
+            .append("      date = \"\",\n")
+            .append("      features = {ProductType.VMWARE},\n")
+            .append("      product = {Product.CORE},\n")
+            .append("      status = {Status.DONE},\n")
+            .append("      service = {},\n")
+            .append("      repository = {Repository.ONBOARD},\n")
+            .append("      testcaseId = \"").append(id).append("\")\n")
+            .append("    @Test(\n")
+            .append("      groups = {\"DIET_DEBUG\", \"regression\"},\n")
+            .append("      description = \"").append(id).append(" - Create and run VMware backup job {local}\")\n")
+            .append("    public void ").append(id).append("() {\n")
+            .append("        try {\n")
+            .append("            testData = TestData.getTestDataManual(\"DIET_DEBUG\", \"").append(id).append("\").get(0);\n\n");
+        for (int s = 1; s <= steps; s++) {
+            sb.append("            reportInfo(\"Step ").append(s).append(": Run job '}'\");\n")
+                .append("            dashboardPage().runJob(testData); // {\n");
+        }
+        sb.append("\n            reportPassed(\"Test case passed: ").append(id).append("\");\n")
+            .append("        } catch (Exception e) {\n")
+            .append("            reportFail(\"Test case failed: \" + e.getMessage());\n")
+            .append("        }\n")
+            .append("    }\n");
+        return sb.toString();
+    }
+
+    public static String manualTestClass(String className, int methods) {
+        StringBuilder sb = new StringBuilder(methods * 1600 + 1024);
+        sb.append("package com.nakivo.tests.manual;\n\n")
+            .append("import com.nakivo.anotations.FrameworkAnnotation;\n")
+            .append("import org.testng.annotations.Test;\n\n")
+            .append("public class ").append(className).append(" extends VMwareBackupPage {\n");
+        for (int i = 0; i < methods; i++) {
+            sb.append("\n    ").append(manualTestMethod(testId(i), 5));
+        }
+        sb.append("\n}\n");
+        return sb.toString();
+    }
+
+    /* A manual test class of at least the given size in chars. */
+    public static String manualTestClassOfSize(String className, int minChars) {
+        int perMethod = manualTestMethod(testId(0), 5).length() + 5;
+        return manualTestClass(className, minChars / perMethod + 1);
+    }
+
+    /* A step-mappings.csv with the given number of distinct rows (plus header), in the format of the real file. */
+    public static String stepMappingsCsv(int rows) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(rows * 80);
+        sb.append("# pattern,methodCall\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(stepPhrase(random, i)).append(", page").append(i % 50).append("().action").append(i).append("(testData);\n");
+        }
+        return sb.toString();
+    }
+
+    /* Step text for the i-th mapping row (same seed as stepMappingsCsv), optionally with some noise words. */
+    public static String stepPhrase(Random random, int i) {
+        StringBuilder sb = new StringBuilder(VERBS[random.nextInt(VERBS.length)]);
+        int words = 2 + random.nextInt(4);
+        for (int w = 0; w < words; w++) {
+            sb.append(' ').append(OBJECTS[random.nextInt(OBJECTS.length)]);
+        }
+        // a unique token keeps rows distinct, as real mappings are
+        return sb.append(" t").append(i).toString();
+    }
+
+    /* Input text in the format TextParser expects, using steps from the real step-mappings.csv. */
+    public static String testDescription(String id, int steps) {
+        String[] real = {"Create VMware Backup job", "Run job", "Wait for job to finish", "Verify backup object", "Remove the job"};
+        StringBuilder sb = new StringBuilder(256 + steps * 40);
+        sb.append("id: ").append(id).append('\n')
+            .append("title: Create and run VMware backup job to local repository successfully\n")
+            .append("groups: DIET_DEBUG, regression\n")
+            .append("category: VMwareBackup\n")
+            .append("feature: VMWARE\n");
+        for (int s = 0; s < steps; s++) {
+            sb.append("step ").append(s + 1).append(": ").append(real[s % real.length]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /* JSON test data as sent by the frontend: an array with one object of the given number of columns. */
+    public static String testDataJson(String id, int columns) {
+        StringBuilder sb = new StringBuilder("[{\"testCaseId\":\"").append(id).append('"');
+        for (int c = 0; c < columns; c++) {
+            sb.append(",\"field").append(c).append("\":\"value ").append(c).append(" for ").append(id).append('"');
+        }
+        return sb.append("}]").toString();
+    }
+
+    /* dataInputManual.xlsx-like workbook: sheets of header + rows of string cells. */
+    public static byte[] workbook(int sheets, int rowsPerSheet, int columns) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = workbook.createSheet("GROUP_" + s);
+                Row header = sheet.createRow(0);
+                for (int c = 0; c < columns; c++) header.createCell(c).setCellValue("field" + c);
+                for (int r = 1; r <= rowsPerSheet; r++) {
+                    Row row = sheet.createRow(r);
+                    for (int c = 0; c < columns; c++) row.createCell(c).setCellValue("value " + c + " for TC_" + r);
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /* A dataInputManual.xlsx-like workbook of at least minBytes on disk, written part by part without POI
+       (a workbook model of that size would not fit a benchmark heap). Sheets GROUP_0.. of shared-string cells;
+       the strings are random, so the file does not compress down to nothing. */
+    public static void largeWorkbook(Path file, long minBytes, int sheets) throws IOException {
+        Random random = new Random(42);
+        int columns = 15;
+        long rowsPerSheet = Math.max(20, minBytes / sheets / (columns * 7L));
+        int strings = 50_000;
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file));
+             ZipOutputStream zip = new ZipOutputStream(fileOut)) {
+            Writer w = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+            for (int s = 1; s <= sheets; s++) {
+                w.write("<Override PartName=\"/xl/worksheets/sheet" + s + ".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            }
+            w.write("</Types>");
+            w.flush();
+
+            zip.putNextEntry(new ZipEntry("_rels/.rels"));
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+            w.flush();
+
+            zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+            for (int s = 1; s <= sheets; s++) {
+                w.write("<sheet name=\"GROUP_" + (s - 1) + "\" sheetId=\"" + s + "\" r:id=\"rId" + s + "\"/>");
+            }
+            w.write("</sheets></workbook>");
+            w.flush();
+
+            zip.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+            for (int s = 1; s <= sheets; s++) {
+                w.write("<Relationship Id=\"rId" + s + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet" + s + ".xml\"/>");
+            }
+            w.write("<Relationship Id=\"rId" + (sheets + 1) + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+            w.write("</Relationships>");
+            w.flush();
+
+            zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"" + strings + "\" uniqueCount=\"" + strings + "\">");
+            for (int i = 0; i < strings; i++) {
+                w.write("<si><t>value " + i + " " + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + "</t></si>");
+            }
+            w.write("</sst>");
+            w.flush();
+
+            for (int s = 1; s <= sheets; s++) {
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + s + ".xml"));
+                w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+                for (long r = 1; r <= rowsPerSheet; r++) {
+                    w.write("<row r=\"" + r + "\">");
+                    for (int c = 0; c < columns; c++) {
+                        // numbers and shared strings, like a filled-in test data sheet
+                        String ref = (char) ('A' + c) + Long.toString(r);
+                        if (c % 3 == 2) {
+                            w.write("<c r=\"" + ref + "\"><v>" + random.nextInt() + "</v></c>");
+                        } else {
+                            w.write("<c r=\"" + ref + "\" t=\"s\"><v>" + random.nextInt(strings) + "</v></c>");
+                        }
+                    }
+                    w.write("</row>");
+                }
+                w.write("</sheetData></worksheet>");
+                w.flush();
+            }
+        }
+    }
+}
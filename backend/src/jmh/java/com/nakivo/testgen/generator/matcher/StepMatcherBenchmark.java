@@ -0,0 +1,52 @@
+package com.nakivo.testgen.generator.matcher;
+
+import com.nakivo.testgen.bench.Fixtures;
+import com.nakivo.testgen.generator.service.StepMappingsAccess;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* Step -> method mapping against a 10k-row mapping CSV. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StepMatcherBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private String csv;
+    private StepMatcher matcher;
+    private String[] steps;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        csv = Fixtures.stepMappingsCsv(rows);
+        Map<String, String> mappings = StepMappingsAccess.parse(new StringReader(csv));
+        matcher = new StepMatcher(mappings);
+
+        // steps phrased like mapping rows, with the unique row token dropped so several keys compete
+        Random random = new Random(42);
+        steps = new String[1024];
+        for (int i = 0; i < steps.length; i++) {
+            String phrase = Fixtures.stepPhrase(random, i);
+            steps[i] = phrase.substring(0, phrase.lastIndexOf(' '));
+        }
+    }
+
+    @Benchmark
+    public String match() {
+        String step = steps[next++ & (steps.length - 1)];
+        return matcher.match(step);
+    }
+
+    @Benchmark
+    public StepMatcher loadAndIndex() throws IOException {
+        return new StepMatcher(StepMappingsAccess.parse(new StringReader(csv)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.config.GeneratorConfig;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.generator.template.TestTemplateEngine;
+import com.nakivo.testgen.github.backend.RestRepositoryBackend;
+import com.nakivo.testgen.github.client.GitHubClient;
+import com.nakivo.testgen.github.model.GitHubFile;
+import com.nakivo.testgen.github.service.GitHubFileService;
+import com.nakivo.testgen.github.service.GithubExcelUpdaterService;
+import com.nakivo.testgen.github.service.WorkbookCache;
+import com.nakivo.testgen.utils.GitBlobSha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/* Wiring of the generator for benchmarks, with GitHub replaced by in-process stubs. */
+final class BenchServices {
+
+    private BenchServices() {
+    }
+
+    static TestFileGeneratorService generator(GitHubFileService gitHub, SourceIndexCache cache) throws IOException {
+        return generator(gitHub, cache, TestFileGeneratorService.PIPELINE_MEMORY);
+    }
+
+    static TestFileGeneratorService generator(GitHubFileService gitHub, SourceIndexCache cache, String pipelineMode) throws IOException {
+        GeneratorConfig config = new GeneratorConfig();
+        config.getExecution().setMode(GenerationExecutor.MODE_DIRECT);
+        config.getPipeline().setMode(pipelineMode);
+        config.getPipeline().setMaxFileBytes(0);
+        config.getPipeline().setCommit(false);
+        return new TestFileGeneratorService(gitHub, excelUpdater(),
+            new GenerationExecutor(config), cache, new TestTemplateEngine(config, null), null, config);
+    }
+
+    static GithubExcelUpdaterService excelUpdater() {
+        RestRepositoryBackend backend = new RestRepositoryBackend(gitHubClient());
+        return new GithubExcelUpdaterService(backend, new WorkbookCache(new GitHubConfig(), backend));
+    }
+
+    /* A client that is never used to send: the services under test only touch stubbed methods. */
+    static GitHubClient gitHubClient() {
+        return new GitHubClient(new GitHubConfig(), null, new HttpConfig(), null, null);
+    }
+
+    /* Serves one fixed class file: every fetch sees the same upstream content, like GitHub without commits. */
+    static final class StubGitHubFileService extends GitHubFileService {
+        private final String content;
+        private final String sha;
+        private final Path file;
+
+        StubGitHubFileService(String content) throws IOException {
+            super(new RestRepositoryBackend(gitHubClient()));
+            this.content = content;
+            this.sha = GitBlobSha.of(content);
+            this.file = Files.createTempFile("bench_", ".java");
+        }
+
+        @Override
+        public GitHubFile fetchFile(String filePath, long maxBytes) {
+            return new GitHubFile(filePath, sha, content.length(), content);
+        }
+
+        @Override
+        public File getFileFromGithub(String filePath) throws IOException {
+            Files.writeString(file, content, StandardCharsets.UTF_8);
+            return file.toFile();
+        }
+
+        void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import freemarker.template.TemplateException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/* generateFromText end to end - parse, map, render, fetch, upsert - with GitHub stubbed in process.
+   pipeline=temp-file is the legacy flow through a local temp copy; compare gc.alloc.rate.norm for the per-request footprint. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GenerationPipelineBenchmark {
+
+    @Param({"5000"})
+    public int methods;
+
+    @Param({TestFileGeneratorService.PIPELINE_MEMORY, TestFileGeneratorService.PIPELINE_TEMP_FILE})
+    public String pipeline;
+
+    private BenchServices.StubGitHubFileService gitHub;
+    private TestFileGeneratorService generator;
+    private String replaceInput;
+    private String appendInput;
+
+    @Setup
+    public void setUp() throws IOException {
+        gitHub = new BenchServices.StubGitHubFileService(Fixtures.manualTestClass("VMwareBackupManualTest", methods));
+        generator = BenchServices.generator(gitHub, new SourceIndexCache(), pipeline);
+        replaceInput = Fixtures.testDescription(Fixtures.testId(methods / 2), 5);
+        appendInput = Fixtures.testDescription(Fixtures.testId(methods + 1), 5);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        gitHub.close();
+    }
+
+    @Benchmark
+    public Map<String, String> replaceExisting() throws IOException, TemplateException {
+        return generator.generateFromText(replaceInput);
+    }
+
+    @Benchmark
+    public Map<String, String> appendNew() throws IOException, TemplateException {
+        return generator.generateFromText(appendInput);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nakivo.testgen.generator.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/* Exposes the package-private CSV parser of TestFileGeneratorService to benchmarks in other packages. */
+public final class StepMappingsAccess {
+
+    private StepMappingsAccess() {
+    }
+
+    public static Map<String, String> parse(Reader reader) throws IOException {
+        return TestFileGeneratorService.parseStepMappings(reader);
+    }
+}
@@ -0,0 +1,39 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import com.nakivo.testgen.utils.TextParser;
+import freemarker.template.TemplateException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/* FreeMarker rendering of the method and class templates, including step -> method mapping. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TemplateRenderBenchmark {
+
+    private TestFileGeneratorService generator;
+    private Map<String, Object> data;
+    private List<String> methods;
+
+    @Setup
+    public void setUp() throws IOException, TemplateException {
+        generator = BenchServices.generator(null, null);
+        data = TextParser.parseInputText(Fixtures.testDescription("TC_00001", 10));
+        methods = List.of(generator.renderMethod(data));
+    }
+
+    @Benchmark
+    public String renderMethod() throws IOException, TemplateException {
+        return generator.renderMethod(data);
+    }
+
+    @Benchmark
+    public String renderClass() throws IOException, TemplateException {
+        return generator.renderClass("VMwareBackupManualTest", "VMwareBackup", methods);
+    }
+}
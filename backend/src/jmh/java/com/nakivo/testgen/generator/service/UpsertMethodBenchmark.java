@@ -0,0 +1,58 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* Replace / append a test method in a class with 5k methods. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpsertMethodBenchmark {
+
+    private static final String CLASS_NAME = "VMwareBackupManualTest";
+
+    @Param({"5000"})
+    public int methods;
+
+    // false: the source index is rebuilt on every call (first request after a restart or an upstream change)
+    @Param({"true", "false"})
+    public boolean warmIndex;
+
+    private SourceIndexCache cache;
+    private TestFileGeneratorService generator;
+    private String content;
+    private String existingId;
+    private String replacement;
+    private String newId;
+    private String appended;
+
+    @Setup
+    public void setUp() throws IOException {
+        cache = new SourceIndexCache();
+        generator = BenchServices.generator(null, cache);
+        content = Fixtures.manualTestClass(CLASS_NAME, methods);
+        existingId = Fixtures.testId(methods / 2);
+        replacement = Fixtures.manualTestMethod(existingId, 8);
+        newId = Fixtures.testId(methods + 1);
+        appended = Fixtures.manualTestMethod(newId, 5);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetIndex() {
+        if (!warmIndex) cache.clear();
+    }
+
+    @Benchmark
+    public String replaceExisting() {
+        return generator.upsertMethod(content, replacement, existingId, CLASS_NAME);
+    }
+
+    @Benchmark
+    public String appendNew() {
+        return generator.upsertMethod(content, appended, newId, CLASS_NAME);
+    }
+}
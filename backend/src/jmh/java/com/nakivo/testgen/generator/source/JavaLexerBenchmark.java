@@ -0,0 +1,80 @@
+package com.nakivo.testgen.generator.source;
+
+import com.nakivo.testgen.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* JavaLexer against the brace scanners it replaced, on a 5 MB manual test class. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JavaLexerBenchmark {
+
+    private static final String CLASS_NAME = "VMwareBackupManualTest";
+    private static final Pattern SIGNATURE = Pattern.compile("public\\s+void\\s+(\\w+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private String content;
+    private int classOpen;
+    private int lastSignature;
+    private OffsetBuffer members;
+
+    @Setup
+    public void setUp() {
+        content = Fixtures.manualTestClassOfSize(CLASS_NAME, 5 * 1024 * 1024);
+        classOpen = content.indexOf('{', content.indexOf("class " + CLASS_NAME));
+        lastSignature = content.lastIndexOf("public void ");
+        members = new OffsetBuffer(1 << 16);
+    }
+
+    // --- whole-file indexing: regex + per-method brace scan vs one lexer pass ---
+
+    @Benchmark
+    public int legacyIndexMethods() {
+        Matcher m = SIGNATURE.matcher(content);
+        int from = 0;
+        int count = 0;
+        while (m.find(from)) {
+            int end = LegacyBraceScanner.findMethodEnd(content, m.start());
+            if (end < 0) break;
+            count++;
+            from = end + 1;
+        }
+        return count + LegacyBraceScanner.findMatchingBrace(content, classOpen);
+    }
+
+    @Benchmark
+    public int lexerScanMembers() {
+        members.clear();
+        return JavaLexer.scanMembers(content, classOpen, members) + members.size();
+    }
+
+    @Benchmark
+    public int lexerBuildIndex() {
+        return JavaSourceIndex.build(content, CLASS_NAME).size();
+    }
+
+    // --- single locate operations ---
+
+    @Benchmark
+    public int legacyFindClassEnd() {
+        return LegacyBraceScanner.findMatchingBrace(content, classOpen);
+    }
+
+    @Benchmark
+    public int lexerFindClassEnd() {
+        return JavaLexer.matchingBrace(content, classOpen);
+    }
+
+    @Benchmark
+    public int legacyFindMethodEnd() {
+        return LegacyBraceScanner.findMethodEnd(content, lastSignature);
+    }
+
+    @Benchmark
+    public int lexerFindMethodEnd() {
+        return JavaLexer.methodEnd(content, lastSignature);
+    }
+}
@@ -0,0 +1,113 @@
+package com.nakivo.testgen.generator.source;
+
+/* Copy of the brace scanners that JavaLexer replaced, kept as the benchmark baseline. */
+final class LegacyBraceScanner {
+
+    private LegacyBraceScanner() {
+    }
+
+    /* Find the index of the '}' that closes the method that starts at the method signature position.
+       Returns index of the closing '}' (0-based), or -1 if not found. */
+    static int findMethodEnd(String content, int signaturePos) {
+        int len = content.length();
+        // find first '{' after signaturePos
+        int bracePos = content.indexOf('{', signaturePos);
+        if (bracePos < 0) return -1;
+
+        int depth = 0;
+        boolean inSingle = false;
+        boolean inDouble = false;
+        boolean inLineComment = false;
+        boolean inBlockComment = false;
+
+        for (int i = bracePos; i < len; i++) {
+            char c = content.charAt(i);
+            char next = (i + 1 < len) ? content.charAt(i + 1) : '\0';
+
+            // handle exiting line comment
+            if (inLineComment) {
+                if (c == '\n') inLineComment = false;
+                continue;
+            }
+            // handle exiting block comment
+            if (inBlockComment) {
+                if (c == '*' && next == '/') { inBlockComment = false; i++; continue; }
+                else continue;
+            }
+            // handle string/char escapes
+            if (inSingle) {
+                if (c == '\\' && i + 1 < len) { i++; continue; }
+                if (c == '\'') inSingle = false;
+                continue;
+            }
+            if (inDouble) {
+                if (c == '\\' && i + 1 < len) { i++; continue; }
+                if (c == '"') inDouble = false;
+                continue;
+            }
+
+            // not in any special state
+            if (c == '/' && next == '/') { inLineComment = true; i++; continue; }
+            if (c == '/' && next == '*') { inBlockComment = true; i++; continue; }
+            if (c == '\'') { inSingle = true; continue; }
+            if (c == '"') { inDouble = true; continue; }
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) return i;
+            }
+        }
+        return -1;
+    }
+
+    /* Find the matching closing brace index for an opening brace at openPos.
+       Returns index of matching '}', or -1 if not found. Uses same quote/comment-aware scan. */
+    static int findMatchingBrace(String content, int openPos) {
+        int len = content.length();
+        if (openPos < 0 || openPos >= len || content.charAt(openPos) != '{') return -1;
+
+        int depth = 1;
+        boolean inSingle = false;
+        boolean inDouble = false;
+        boolean inLineComment = false;
+        boolean inBlockComment = false;
+
+        for (int i = openPos + 1; i < len; i++) {
+            char c = content.charAt(i);
+            char next = (i + 1 < len) ? content.charAt(i + 1) : '\0';
+
+            if (inLineComment) {
+                if (c == '\n') inLineComment = false;
+                continue;
+            }
+            if (inBlockComment) {
+                if (c == '*' && next == '/') { inBlockComment = false; i++; continue; }
+                else continue;
+            }
+            if (inSingle) {
+                if (c == '\\' && i + 1 < len) { i++; continue; }
+                if (c == '\'') inSingle = false;
+                continue;
+            }
+            if (inDouble) {
+                if (c == '\\' && i + 1 < len) { i++; continue; }
+                if (c == '"') inDouble = false;
+                continue;
+            }
+
+            if (c == '/' && next == '/') { inLineComment = true; i++; continue; }
+            if (c == '/' && next == '*') { inBlockComment = true; i++; continue; }
+            if (c == '\'') { inSingle = true; continue; }
+            if (c == '"') { inDouble = true; continue; }
+
+            if (c == '{') depth++;
+            else if (c == '}') {
+                depth--;
+                if (depth == 0) return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.nakivo.testgen.github.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/* Contents reads against a local stub of the GitHub API: the shared client vs. a new HttpClient per call (the old behaviour),
+   and the shared client with the ETag cache (the stub answers 304 to a matching If-None-Match).
+   Run with -t to see the effect under concurrent load. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GitHubClientBenchmark {
+
+    @Param({"shared", "perCall", "cached"})
+    public String client;
+
+    private HttpServer server;
+    private GitHubConfig config;
+    private HttpConfig httpConfig;
+    private HttpClient sharedHttpClient;
+    private GitHubClient sharedClient;
+    private GitHubClient cachedClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = ("{\"sha\":\"0123456789abcdef0123456789abcdef01234567\",\"size\":11,\"encoding\":\"base64\",\"content\":\""
+            + Base64.getEncoder().encodeToString("hello world".getBytes(StandardCharsets.UTF_8)) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        String etag = "\"stub-etag\"";
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        config = new GitHubConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.setPat("token");
+        httpConfig = new HttpConfig();
+
+        sharedHttpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        sharedClient = new GitHubClient(config, sharedHttpClient, httpConfig, null, null);
+        cachedClient = new GitHubClient(config, sharedHttpClient, httpConfig, new ContentsCache(config), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharedHttpClient.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public JsonNode getContents() throws IOException, InterruptedException {
+        if ("shared".equals(client)) {
+            return sharedClient.getContents("src/test/java/Example.java");
+        }
+        if ("cached".equals(client)) {
+            return cachedClient.getContents("src/test/java/Example.java");
+        }
+        try (HttpClient perCall = HttpClient.newHttpClient()) {
+            return new GitHubClient(config, perCall, httpConfig, null, null).getContents("src/test/java/Example.java");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.nakivo.testgen.github.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* One interactive reader next to six batch readers against a local GitHub stub with a simulated quota:
+   QUOTA requests per WINDOW_MS window (X-RateLimit-* headers, 403 once it is used up) and a secondary limit
+   (429 with Retry-After above SECONDARY_PER_SECOND). "on" puts the rate limiter with its lanes in front,
+   "off" sends directly like before. The aux counters count reads refused by GitHub or by the limiter;
+   without the limiter the batch threads use up each window and the interactive reads are refused with them. */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GitHubRateLimiterBenchmark {
+
+    private static final int QUOTA = 400;
+    private static final long WINDOW_MS = 4000;
+    private static final int SECONDARY_PER_SECOND = 250;
+
+    @Param({"on", "off"})
+    public String limiter;
+
+    private HttpServer server;
+    private HttpClient httpClient;
+    private GitHubClient client;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // simulated quota, shared by all requests to the stub
+    private long windowStart;
+    private int used;
+    private long secondStart;
+    private int inSecond;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Refused {
+        public long interactiveRefused;
+        public long batchRefused;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::answer);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        GitHubConfig config = new GitHubConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.setPat("token");
+        GitHubConfig.RateLimit rateLimit = config.getRateLimit();
+        rateLimit.setEnabled("on".equals(limiter));
+        rateLimit.setRequestsPerSecond(200);
+        rateLimit.setBurst(20);
+        rateLimit.setBatchReserve(60);
+        rateLimit.setMaxWaitMs(WINDOW_MS);
+        rateLimit.setMaxRetries(2);
+        rateLimit.setSecondaryBackoffMs(500);
+        rateLimit.setMaxBackoffMs(2000);
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        client = new GitHubClient(config, httpClient, new HttpConfig(), null, new GitHubRateLimiter(config));
+        windowStart = System.currentTimeMillis();
+        secondStart = windowStart;
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        int status;
+        long reset;
+        int remaining;
+        boolean secondary;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= WINDOW_MS) {
+                windowStart = now;
+                used = 0;
+            }
+            if (now - secondStart >= 1000) {
+                secondStart = now;
+                inSecond = 0;
+            }
+            secondary = ++inSecond > SECONDARY_PER_SECOND;
+            status = secondary ? 429 : used < QUOTA ? 200 : 403;
+            if (status == 200) used++;
+            remaining = QUOTA - used;
+            reset = (windowStart + WINDOW_MS + 999) / 1000;
+        }
+
+        exchange.getResponseHeaders().add("X-RateLimit-Limit", String.valueOf(QUOTA));
+        exchange.getResponseHeaders().add("X-RateLimit-Remaining", String.valueOf(remaining));
+        exchange.getResponseHeaders().add("X-RateLimit-Reset", String.valueOf(reset));
+        if (secondary) exchange.getResponseHeaders().add("Retry-After", "1");
+        byte[] body = (status == 200
+            ? "{\"sha\":\"0123456789abcdef0123456789abcdef01234567\",\"size\":0,\"encoding\":\"base64\",\"content\":\"\"}"
+            : "{\"message\":\"API rate limit exceeded\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // distinct paths, so concurrent reads are not coalesced into one request
+    private JsonNode read() throws IOException, InterruptedException {
+        return client.getContents("src/test/java/Example" + sequence.incrementAndGet() + ".java");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public JsonNode interactive(Refused refused) throws IOException, InterruptedException {
+        try {
+            return read();
+        } catch (GitHubApiException e) {
+            refused.interactiveRefused++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public JsonNode batch(Refused refused) throws Exception {
+        try {
+            return GitHubRateLimiter.callAs(GitHubRateLimiter.Lane.BATCH, this::read);
+        } catch (GitHubApiException e) {
+            refused.batchRefused++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/* Test-data sheet update on a dataInputManual.xlsx-like workbook with 100 sheets. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExcelFillBenchmark {
+
+    @Param({"100"})
+    public int sheets;
+
+    private byte[] xlsx;
+    private Workbook workbook;
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        xlsx = Fixtures.workbook(sheets, 20, 15);
+        workbook = new XSSFWorkbook(new ByteArrayInputStream(xlsx));
+        json = Fixtures.testDataJson("TC_00001", 15);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public Workbook fillSheetFromJson() throws IOException {
+        WorkbookModelFill.fillSheetFromJson(workbook.getSheet("GROUP_" + sheets / 2), json);
+        return workbook;
+    }
+
+    /* What updateExcelOnGithub does between download and upload: parse, fill, serialize, base64. */
+    @Benchmark
+    public String updateRoundTrip() throws IOException {
+        try (Workbook wb = new XSSFWorkbook(new ByteArrayInputStream(xlsx))) {
+            WorkbookModelFill.fillSheetFromJson(wb.getSheet("GROUP_" + sheets / 2), json);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(xlsx.length + 4096);
+            wb.write(out);
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.nakivo.testgen.github.backend.RestRepositoryBackend;
+import com.nakivo.testgen.github.client.GitHubClient;
+import com.nakivo.testgen.utils.GitBlobSha;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/* A whole WorkbookCache flush of `records` test data records into a large workbook (sizeMb on disk) over the REST
+   backend, against a local stub of the GitHub API that serves the workbook from disk and drains the uploaded blob:
+   SHA lookup, blob download to a temp file, streaming sheet update, streamed Base64 blob upload, tree, commit and ref
+   update. The cache is disabled, so every flush downloads. Neither the download nor the upload is buffered: a flush
+   of the 50 MB workbook also runs in a 40 MB heap (-Xmx40m), where reading it into a byte[] would not. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkbookFlushBenchmark {
+
+    private static final String REPO = "/repos/owner/repo";
+    private static final String PATH = "data/TestData.xlsx";
+
+    @Param({"50"})
+    public int sizeMb;
+
+    @Param({"1", "1000"})
+    public int records;
+
+    private Path workbook;
+    private String sha;
+    private HttpServer server;
+    private HttpClient httpClient;
+    private WorkbookCache cache;
+    private Map<String, List<Map<String, String>>> recordsBySheet;
+
+    @Setup
+    public void setUp() throws IOException {
+        workbook = Files.createTempFile("bench_", ".xlsx");
+        Fixtures.largeWorkbook(workbook, sizeMb * 1024L * 1024L, 20);
+        sha = GitBlobSha.of(workbook);
+        StringJoiner cases = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < records; i++) {
+            String one = Fixtures.testDataJson(String.format("TC_%05d", i), 15);
+            cases.add(one.substring(1, one.length() - 1));
+        }
+        recordsBySheet = Map.of("GROUP_10", GithubExcelUpdaterService.testDataRecords(cases.toString()));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(REPO + "/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        GitHubConfig config = new GitHubConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.setPat("token");
+        config.getWorkbookCache().setEnabled(false);
+        httpClient = HttpClient.newHttpClient();
+        cache = new WorkbookCache(config, new RestRepositoryBackend(
+            new GitHubClient(config, httpClient, new HttpConfig(), null, null)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+        Files.deleteIfExists(workbook);
+    }
+
+    @Benchmark
+    public String flush() throws Exception {
+        return cache.flush(PATH, recordsBySheet);
+    }
+
+    // the branch never moves: every flush sees the same workbook and commits on the same head
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath().substring(REPO.length());
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (method.equals("GET") && path.equals("/git/blobs/" + sha)) {
+            exchange.sendResponseHeaders(200, Files.size(workbook));
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(workbook, out);
+            }
+            return;
+        }
+        String answer = switch (method + " " + path) {
+            case "GET /contents/" + PATH -> "{\"sha\":\"" + sha + "\",\"size\":" + Files.size(workbook) + ",\"encoding\":\"none\",\"content\":\"\"}";
+            case "POST /git/blobs" -> "{\"sha\":\"blob-updated\"}";
+            case "GET /git/ref/heads/main" -> "{\"object\":{\"sha\":\"commit-head\"}}";
+            case "GET /git/commits/commit-head" -> "{\"tree\":{\"sha\":\"tree-head\"}}";
+            case "GET /git/trees/tree-head" -> "{\"truncated\":false,\"tree\":[{\"path\":\"" + PATH + "\",\"type\":\"blob\",\"sha\":\"" + sha + "\"}]}";
+            case "POST /git/trees" -> "{\"sha\":\"tree-new\"}";
+            case "POST /git/commits" -> "{\"sha\":\"commit-new\"}";
+            case "PATCH /git/refs/heads/main" -> "{\"object\":{\"sha\":\"commit-new\"}}";
+            default -> null;
+        };
+        byte[] body = (answer == null ? "{\"message\":\"Not Found\"}" : answer).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(answer == null ? 404 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
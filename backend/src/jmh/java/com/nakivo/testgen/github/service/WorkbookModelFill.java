@@ -0,0 +1,54 @@
+package com.nakivo.testgen.github.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/* The test data upsert on a POI workbook model, which the service used before XlsxSheetUpdater; kept as the baseline
+   the streaming update is measured against. Same table logic, applied with createRow/createCell. */
+final class WorkbookModelFill {
+
+    private WorkbookModelFill() {
+    }
+
+    static void fillSheetFromJson(Sheet sheet, String jsonString) throws IOException {
+        SheetTable table = new SheetTable(sheet.getSheetName());
+        DataFormatter formatter = new DataFormatter();
+        Row headerRow = sheet.getRow(0);
+        if (headerRow != null) {
+            for (Cell cell : headerRow) table.headerCell(cell.getColumnIndex(), formatter.formatCellValue(cell));
+        }
+        for (Row row : sheet) {
+            Cell first = row.getCell(0);
+            table.row(row.getRowNum() + 1, first == null ? null : formatter.formatCellValue(first));
+        }
+        table.upsertAll(GithubExcelUpdaterService.testDataRecords(jsonString));
+
+        // New header cells, then the added and replaced rows
+        List<String> header = table.getHeader();
+        if (table.isHeaderChanged()) {
+            Row row = headerRow != null ? headerRow : sheet.createRow(0);
+            for (int c = table.getHeaderColumns(); c < header.size(); c++) {
+                row.createCell(c).setCellValue(header.get(c));
+            }
+        }
+        for (Map.Entry<Integer, List<String>> e : table.getChangedRows().entrySet()) {
+            Row row = sheet.createRow(e.getKey() - 1);
+            List<String> values = e.getValue();
+            for (int c = 0; c < values.size(); c++) {
+                if (values.get(c) != null) row.createCell(c).setCellValue(values.get(c));
+            }
+        }
+
+        // Estimated column widths, only ever grown
+        double[] widths = table.widths();
+        for (int c = 0; c < widths.length; c++) {
+            if (widths[c] > 0) sheet.setColumnWidth(c, Math.max(sheet.getColumnWidth(c), (int) Math.round(widths[c] * 256)));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.bench.Fixtures;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/* Upserting the test data of `records` cases into one sheet of a large workbook (sizeMb on disk, 20 sheets, about
+   25k rows per sheet): the zip-level streaming update against the workbook model (XSSFWorkbook, fill, write)
+   updateExcelOnGithub used before. Compare gc.alloc.rate.norm; the streaming update also runs in a 64 MB heap
+   (-Xmx64m), the model needs several GB. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XlsxSheetUpdaterBenchmark {
+
+    @Param({"50"})
+    public int sizeMb;
+
+    @Param({"1", "1000"})
+    public int records;
+
+    private Path workbook;
+    private String json;
+    private Map<String, List<Map<String, String>>> recordsBySheet;
+
+    @Setup
+    public void setUp() throws IOException {
+        workbook = Files.createTempFile("bench_", ".xlsx");
+        Fixtures.largeWorkbook(workbook, sizeMb * 1024L * 1024L, 20);
+        StringJoiner cases = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < records; i++) {
+            String one = Fixtures.testDataJson(String.format("TC_%05d", i), 15);
+            cases.add(one.substring(1, one.length() - 1));
+        }
+        json = cases.toString();
+        recordsBySheet = Map.of("GROUP_10", GithubExcelUpdaterService.testDataRecords(json));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(workbook);
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        XlsxSheetUpdater.update(workbook, OutputStream.nullOutputStream(), recordsBySheet);
+    }
+
+    @Benchmark
+    public void workbookModel() throws IOException {
+        try (InputStream in = Files.newInputStream(workbook); Workbook wb = new XSSFWorkbook(in)) {
+            Sheet sheet = wb.getSheet("GROUP_10");
+            WorkbookModelFill.fillSheetFromJson(sheet, json);
+            wb.write(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.nakivo.testgen.jira.service;
+
+import com.nakivo.testgen.config.JiraConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Load test of the epic-sized Jira push against a local stub that answers after a fixed latency and, with
+   throttled=true, answers every 10th request 429. "serial" is what the frontend did through POST /api/jira/update
+   (description then attachment, one ticket after the other; a 429 loses that ticket), "bulk" is JiraBulkService.
+   The benchmark returns the number of tickets updated. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JiraBulkBenchmark {
+
+    @Param({"serial", "bulk"})
+    public String mode;
+
+    @Param({"50"})
+    public int tickets;
+
+    @Param({"false", "true"})
+    public boolean throttled;
+
+    @Param({"20"})
+    public int latencyMs;
+
+    private HttpServer server;
+    private HttpClient httpClient;
+    private JiraService jiraService;
+    private JiraBulkService bulkService;
+    private List<Map<String, Object>> entries;
+
+    @Setup
+    public void setUp() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (throttled && requests.incrementAndGet() % 10 == 0) {
+                exchange.sendResponseHeaders(429, -1);
+            } else {
+                exchange.sendResponseHeaders(exchange.getRequestMethod().equals("PUT") ? 204 : 200, -1);
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        JiraConfig config = new JiraConfig();
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setToken("token");
+        config.getBulk().setBaseBackoffMs(10);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        jiraService = new JiraService(config, httpClient, null);
+        bulkService = new JiraBulkService(config, jiraService, httpClient);
+
+        entries = new ArrayList<>();
+        for (int i = 0; i < tickets; i++) {
+            entries.add(Map.of("ticket", "QA-" + i, "description", "Step " + i,
+                "json", "[{\"stepText\":\"Open node " + i + "\",\"parameters\":{}}]"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public int pushEpic() {
+        if ("bulk".equals(mode)) {
+            return (Integer) bulkService.update(entries).get("updated");
+        }
+        int updated = 0;
+        for (Map<String, Object> entry : entries) {
+            String ticket = (String) entry.get("ticket");
+            try {
+                jiraService.updateDescription(ticket, (String) entry.get("description"));
+                jiraService.attachJsonFile(ticket, (String) entry.get("json"));
+                updated++;
+            } catch (RuntimeException e) {
+                // the request failed for this ticket; the frontend moved on to the next one
+            }
+        }
+        return updated;
+    }
+}
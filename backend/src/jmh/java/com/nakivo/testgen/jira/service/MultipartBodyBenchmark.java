@@ -0,0 +1,109 @@
+package com.nakivo.testgen.jira.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/* The Jira attachment body as the HttpClient consumes it: the old way (JSON written to a temp file, read back and
+   copied into one array with the multipart framing) vs. MultipartBody streaming it from the string, plain and
+   gzipped. Compare gc.alloc.rate.norm across sizes: the old body allocates several times the payload. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultipartBodyBenchmark {
+
+    @Param({"16384", "4194304"})
+    public int size;
+
+    @Param({"tempFile", "streaming", "gzip"})
+    public String body;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("{\"stepText\":\"Open the dashboard of node ").append(i).append("\",\"parameters\":{\"name\":\"vm-")
+                .append(i % 97).append("\"}},");
+        }
+        sb.setLength(size - 1);
+        json = sb.append(']').toString();
+    }
+
+    @Benchmark
+    public long publish() throws Exception {
+        HttpRequest.BodyPublisher publisher;
+        if ("tempFile".equals(body)) {
+            publisher = HttpRequest.BodyPublishers.ofByteArray(tempFileBody("----JiraBoundary" + System.nanoTime(), json));
+        } else if ("gzip".equals(body)) {
+            publisher = new MultipartBody().addFile("file", "testData_QA-1.json.gz", "application/gzip",
+                MultipartBody.gzip(MultipartBody.utf8(json)), -1).publisher();
+        } else {
+            publisher = new MultipartBody().addFile("file", "testData_QA-1.json", "application/json",
+                MultipartBody.utf8(json), MultipartBody.utf8Length(json)).publisher();
+        }
+        return drain(publisher);
+    }
+
+    /* Bytes published, read the way the HttpClient reads a request body. */
+    static long drain(HttpRequest.BodyPublisher publisher) throws Exception {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private long bytes;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                bytes += item.remaining();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(bytes);
+            }
+        });
+        return done.get();
+    }
+
+    // what JiraService.attachJsonFile did before
+    private static byte[] tempFileBody(String boundary, String jsonContent) throws IOException {
+        File tempFile = new File(System.getProperty("java.io.tmpdir"), "testData_bench_" + Thread.currentThread().getId() + ".json");
+        try {
+            try (FileWriter writer = new FileWriter(tempFile)) {
+                writer.write(jsonContent);
+            }
+            String header = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + tempFile.getName() + "\"\r\n"
+                + "Content-Type: application/json\r\n\r\n";
+            byte[] fileBytes = Files.readAllBytes(tempFile.toPath());
+            byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+            byte[] footerBytes = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+            byte[] result = new byte[headerBytes.length + fileBytes.length + footerBytes.length];
+            System.arraycopy(headerBytes, 0, result, 0, headerBytes.length);
+            System.arraycopy(fileBytes, 0, result, headerBytes.length, fileBytes.length);
+            System.arraycopy(footerBytes, 0, result, headerBytes.length + fileBytes.length, footerBytes.length);
+            return result;
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nakivo.testgen.utils;
+
+import com.nakivo.testgen.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextParserBenchmark {
+
+    @Param({"5", "50"})
+    public int steps;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        input = Fixtures.testDescription("TC_00001", steps);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseInputText() throws IOException {
+        return TextParser.parseInputText(input);
+    }
+}
@@ -1,13 +1,17 @@
 package com.nakivo.testgen;
 
+import com.nakivo.testgen.config.GeneratorConfig;
 import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
 import com.nakivo.testgen.config.JiraConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties({GitHubConfig.class, JiraConfig.class})
+@EnableScheduling
+@EnableConfigurationProperties({GitHubConfig.class, JiraConfig.class, GeneratorConfig.class, HttpConfig.class})
 public class TestGenApplication {
     public static void main(String[] args) {
         SpringApplication.run(TestGenApplication.class, args);
@@ -0,0 +1,77 @@
+package com.nakivo.testgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "generator")
+public class GeneratorConfig {
+    private Execution execution = new Execution();
+    private Templates templates = new Templates();
+    private Pipeline pipeline = new Pipeline();
+
+    public Execution getExecution() { return execution; }
+    public void setExecution(final Execution execution) { this.execution = execution; }
+
+    public Templates getTemplates() { return templates; }
+    public void setTemplates(final Templates templates) { this.templates = templates; }
+
+    public Pipeline getPipeline() { return pipeline; }
+    public void setPipeline(final Pipeline pipeline) { this.pipeline = pipeline; }
+
+    public static class Execution {
+        // "virtual": generation stages run on virtual threads, "direct": on the calling thread
+        private String mode = "virtual";
+        private int maxConcurrency = 16;
+
+        public String getMode() { return mode; }
+        public void setMode(final String mode) { this.mode = mode; }
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(final int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+    }
+
+    public static class Templates {
+        // Per-category overrides live in <dir>/<Category>/<template>.ftl; the directory wins over the repo path
+        private String overrideDir;
+        private String overrideRepoPath;
+        private long reloadIntervalMs = 30000;
+        // categories whose overrides are tracked; the least recently rendered one is dropped beyond this
+        private int maxCategories = 64;
+        // a repo override that is not there is not asked for again for this long
+        private long missTtlMs = 600000;
+
+        public String getOverrideDir() { return overrideDir; }
+        public void setOverrideDir(final String overrideDir) { this.overrideDir = overrideDir; }
+
+        public String getOverrideRepoPath() { return overrideRepoPath; }
+        public void setOverrideRepoPath(final String overrideRepoPath) { this.overrideRepoPath = overrideRepoPath; }
+
+        public long getReloadIntervalMs() { return reloadIntervalMs; }
+        public void setReloadIntervalMs(final long reloadIntervalMs) { this.reloadIntervalMs = reloadIntervalMs; }
+
+        public int getMaxCategories() { return maxCategories; }
+        public void setMaxCategories(final int maxCategories) { this.maxCategories = maxCategories; }
+
+        public long getMissTtlMs() { return missTtlMs; }
+        public void setMissTtlMs(final long missTtlMs) { this.missTtlMs = missTtlMs; }
+    }
+
+    public static class Pipeline {
+        // "memory": class files stay in memory from fetch to result, "temp-file": legacy flow through a local temp copy
+        private String mode = "memory";
+        // largest class file (in bytes) that is loaded for an upsert; 0 = no limit
+        private long maxFileBytes = 8L * 1024 * 1024;
+        // memory mode: land the class file(s) and the test data workbook in one Git Data API commit, guarded by the
+        // blob SHAs they were read at; off: the class is only generated and the workbook uploaded on its own
+        private boolean commit = false;
+
+        public String getMode() { return mode; }
+        public void setMode(final String mode) { this.mode = mode; }
+
+        public long getMaxFileBytes() { return maxFileBytes; }
+        public void setMaxFileBytes(final long maxFileBytes) { this.maxFileBytes = maxFileBytes; }
+
+        public boolean isCommit() { return commit; }
+        public void setCommit(final boolean commit) { this.commit = commit; }
+    }
+
+}
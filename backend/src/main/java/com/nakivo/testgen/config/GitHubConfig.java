@@ -8,6 +8,17 @@ public class GitHubConfig {
     private String repo;
     private String branch;
     private String pat;
+    private String apiUrl = "https://api.github.com";
+    // rest: every read and commit goes to the GitHub API; mirror: local clone of the branch (see Mirror);
+    // workspace: a checked-out QA repo edited in place, nothing is committed (see Workspace)
+    private String backend = "rest";
+    private Cache cache = new Cache();
+    private WriteBehind writeBehind = new WriteBehind();
+    private RateLimit rateLimit = new RateLimit();
+    private Mirror mirror = new Mirror();
+    private Workspace workspace = new Workspace();
+    private WorkbookCache workbookCache = new WorkbookCache();
+    private TestDataIndex testDataIndex = new TestDataIndex();
 
     public String getOwner() { return owner; }
     public void setOwner(final String owner) { this.owner = owner; }
@@ -21,4 +32,182 @@ public class GitHubConfig {
     public String getPat() { return pat; }
     public void setPat(final String pat) { this.pat = pat; }
 
+    public String getApiUrl() { return apiUrl; }
+    public void setApiUrl(final String apiUrl) { this.apiUrl = apiUrl; }
+
+    public String getBackend() { return backend; }
+    public void setBackend(final String backend) { this.backend = backend; }
+
+    public Cache getCache() { return cache; }
+    public void setCache(final Cache cache) { this.cache = cache; }
+
+    public WriteBehind getWriteBehind() { return writeBehind; }
+    public void setWriteBehind(final WriteBehind writeBehind) { this.writeBehind = writeBehind; }
+
+    public RateLimit getRateLimit() { return rateLimit; }
+    public void setRateLimit(final RateLimit rateLimit) { this.rateLimit = rateLimit; }
+
+    public Mirror getMirror() { return mirror; }
+    public void setMirror(final Mirror mirror) { this.mirror = mirror; }
+
+    public Workspace getWorkspace() { return workspace; }
+    public void setWorkspace(final Workspace workspace) { this.workspace = workspace; }
+
+    public WorkbookCache getWorkbookCache() { return workbookCache; }
+    public void setWorkbookCache(final WorkbookCache workbookCache) { this.workbookCache = workbookCache; }
+
+    public TestDataIndex getTestDataIndex() { return testDataIndex; }
+    public void setTestDataIndex(final TestDataIndex testDataIndex) { this.testDataIndex = testDataIndex; }
+
+    public static class Cache {
+        // conditional (If-None-Match) reads of the contents API, answered from memory on 304
+        private boolean enabled = true;
+        private int maxEntries = 256;
+        private long maxBytes = 64L * 1024 * 1024;
+        // optional directory the entries are written to, so they survive a restart
+        private String persistDir;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(final boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(final int maxEntries) { this.maxEntries = maxEntries; }
+
+        public long getMaxBytes() { return maxBytes; }
+        public void setMaxBytes(final long maxBytes) { this.maxBytes = maxBytes; }
+
+        public String getPersistDir() { return persistDir; }
+        public void setPersistDir(final String persistDir) { this.persistDir = persistDir; }
+    }
+
+    public static class WriteBehind {
+        // edits to the same file within the window are merged and land as one commit; the generate response then
+        // only carries an edit id to poll, so it is opt-in. Only takes effect with generator.pipeline.commit=true
+        private boolean enabled = false;
+        private long windowMs = 10000;
+        // commit attempts per flush when the branch or a file changed underneath (409 / 422)
+        private int maxAttempts = 3;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(final boolean enabled) { this.enabled = enabled; }
+
+        public long getWindowMs() { return windowMs; }
+        public void setWindowMs(final long windowMs) { this.windowMs = windowMs; }
+
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(final int maxAttempts) { this.maxAttempts = maxAttempts; }
+    }
+
+    public static class RateLimit {
+        private boolean enabled = true;
+        // token bucket in front of every GitHub call
+        private double requestsPerSecond = 10;
+        private int burst = 20;
+        // part of the hourly quota (X-RateLimit-Remaining) only interactive requests may use
+        private int batchReserve = 500;
+        // an interactive request fails instead of waiting longer than this for the quota
+        private long maxWaitMs = 30000;
+        // retries of a request answered 403/429 for rate limiting; without Retry-After the wait doubles from the base
+        private int maxRetries = 3;
+        private long secondaryBackoffMs = 60000;
+        private long maxBackoffMs = 300000;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(final boolean enabled) { this.enabled = enabled; }
+
+        public double getRequestsPerSecond() { return requestsPerSecond; }
+        public void setRequestsPerSecond(final double requestsPerSecond) { this.requestsPerSecond = requestsPerSecond; }
+
+        public int getBurst() { return burst; }
+        public void setBurst(final int burst) { this.burst = burst; }
+
+        public int getBatchReserve() { return batchReserve; }
+        public void setBatchReserve(final int batchReserve) { this.batchReserve = batchReserve; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(final long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public int getMaxRetries() { return maxRetries; }
+        public void setMaxRetries(final int maxRetries) { this.maxRetries = maxRetries; }
+
+        public long getSecondaryBackoffMs() { return secondaryBackoffMs; }
+        public void setSecondaryBackoffMs(final long secondaryBackoffMs) { this.secondaryBackoffMs = secondaryBackoffMs; }
+
+        public long getMaxBackoffMs() { return maxBackoffMs; }
+        public void setMaxBackoffMs(final long maxBackoffMs) { this.maxBackoffMs = maxBackoffMs; }
+    }
+
+    public static class Mirror {
+        // working tree of the clone; reused across restarts (default: <tmp>/testgen-mirror/<owner>-<repo>)
+        private String dir;
+        // default: https://github.com/<owner>/<repo>.git, authenticated with the PAT
+        private String remoteUrl;
+        private long fetchIntervalMs = 60000;
+        private String authorName = "testgen";
+        private String authorEmail = "testgen@users.noreply.github.com";
+
+        public String getDir() { return dir; }
+        public void setDir(final String dir) { this.dir = dir; }
+
+        public String getRemoteUrl() { return remoteUrl; }
+        public void setRemoteUrl(final String remoteUrl) { this.remoteUrl = remoteUrl; }
+
+        public long getFetchIntervalMs() { return fetchIntervalMs; }
+        public void setFetchIntervalMs(final long fetchIntervalMs) { this.fetchIntervalMs = fetchIntervalMs; }
+
+        public String getAuthorName() { return authorName; }
+        public void setAuthorName(final String authorName) { this.authorName = authorName; }
+
+        public String getAuthorEmail() { return authorEmail; }
+        public void setAuthorEmail(final String authorEmail) { this.authorEmail = authorEmail; }
+    }
+
+    public static class Workspace {
+        // root of the checkout; repository paths (e.g. src/test/java/...) resolve against it
+        private String root;
+        // keep read/written files in memory and drop them when a WatchService sees them change on disk
+        private boolean watch = true;
+
+        public String getRoot() { return root; }
+        public void setRoot(final String root) { this.root = root; }
+
+        public boolean isWatch() { return watch; }
+        public void setWatch(final boolean watch) { this.watch = watch; }
+    }
+
+    public static class WorkbookCache {
+        // test data uploads of dataInputManual.xlsx are queued and written together; the workbook last uploaded
+        // is kept on disk, so a flush does not download it again
+        private boolean enabled = true;
+        // a flush runs once this many records are queued, or when the oldest has waited this long
+        private int flushRecords = 50;
+        private long flushIntervalMs = 15000;
+        // uploads per flush when the workbook changed underneath (409 / 422)
+        private int maxAttempts = 3;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(final boolean enabled) { this.enabled = enabled; }
+
+        public int getFlushRecords() { return flushRecords; }
+        public void setFlushRecords(final int flushRecords) { this.flushRecords = flushRecords; }
+
+        public long getFlushIntervalMs() { return flushIntervalMs; }
+        public void setFlushIntervalMs(final long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(final int maxAttempts) { this.maxAttempts = maxAttempts; }
+    }
+
+    public static class TestDataIndex {
+        // GET /api/testdata/{sheet}/{id} answered from an in-memory index of dataInputManual.xlsx
+        private boolean enabled = true;
+        // how often the workbook's SHA is checked once the index is in use
+        private long refreshIntervalMs = 60000;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(final boolean enabled) { this.enabled = enabled; }
+
+        public long getRefreshIntervalMs() { return refreshIntervalMs; }
+        public void setRefreshIntervalMs(final long refreshIntervalMs) { this.refreshIntervalMs = refreshIntervalMs; }
+    }
 }
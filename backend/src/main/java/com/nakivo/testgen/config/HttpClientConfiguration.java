@@ -0,0 +1,30 @@
+package com.nakivo.testgen.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * The one HttpClient of the application. A client owns a selector thread and a connection pool, so creating
+ * one per call throws away keep-alive connections and TLS sessions; all outbound calls (GitHub, Jira) share this one.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public HttpClient httpClient(HttpConfig config) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()));
+        if ("virtual".equalsIgnoreCase(config.getExecutor())) {
+            builder.executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory()));
+        }
+        System.out.println("[INFO] Shared HttpClient: HTTP/2, connect timeout " + config.getConnectTimeoutMs()
+            + " ms, executor: " + config.getExecutor());
+        return builder.build();
+    }
+}
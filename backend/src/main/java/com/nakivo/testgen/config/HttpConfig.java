@@ -0,0 +1,21 @@
+package com.nakivo.testgen.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "http")
+public class HttpConfig {
+    private long connectTimeoutMs = 5000;
+    private long requestTimeoutMs = 30000;
+    // "virtual": response handling runs on virtual threads, "default": the HttpClient's own pool
+    private String executor = "virtual";
+
+    public long getConnectTimeoutMs() { return connectTimeoutMs; }
+    public void setConnectTimeoutMs(final long connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+
+    public long getRequestTimeoutMs() { return requestTimeoutMs; }
+    public void setRequestTimeoutMs(final long requestTimeoutMs) { this.requestTimeoutMs = requestTimeoutMs; }
+
+    public String getExecutor() { return executor; }
+    public void setExecutor(final String executor) { this.executor = executor; }
+
+}
@@ -8,6 +8,11 @@ public class JiraConfig {
     private String baseUrl;
     private String username;
     private String token;
+    // JSON attachments of at least this many bytes are uploaded gzipped (.json.gz); 0 never
+    private long attachmentGzipThresholdBytes = 0;
+    private Bulk bulk = new Bulk();
+    private Ledger ledger = new Ledger();
+    private IssueImport issueImport = new IssueImport();
 
     public String getBaseUrl() {
         return baseUrl;
@@ -32,4 +37,123 @@ public class JiraConfig {
     public void setToken(String token) {
         this.token = token;
     }
+
+    public long getAttachmentGzipThresholdBytes() {
+        return attachmentGzipThresholdBytes;
+    }
+
+    public void setAttachmentGzipThresholdBytes(long attachmentGzipThresholdBytes) {
+        this.attachmentGzipThresholdBytes = attachmentGzipThresholdBytes;
+    }
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public void setBulk(Bulk bulk) {
+        this.bulk = bulk;
+    }
+
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    public void setLedger(Ledger ledger) {
+        this.ledger = ledger;
+    }
+
+    public IssueImport getIssueImport() {
+        return issueImport;
+    }
+
+    public void setIssueImport(IssueImport issueImport) {
+        this.issueImport = issueImport;
+    }
+
+    public static class Bulk {
+        // requests in flight per Jira host for POST /api/jira/bulk-update
+        private int maxConcurrencyPerHost = 8;
+        // retries of a request answered 429 or 5xx (or not answered); without Retry-After the wait doubles from the base
+        private int maxRetries = 4;
+        private long baseBackoffMs = 500;
+        private long maxBackoffMs = 30000;
+
+        public int getMaxConcurrencyPerHost() {
+            return maxConcurrencyPerHost;
+        }
+
+        public void setMaxConcurrencyPerHost(int maxConcurrencyPerHost) {
+            this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public long getBaseBackoffMs() {
+            return baseBackoffMs;
+        }
+
+        public void setBaseBackoffMs(long baseBackoffMs) {
+            this.baseBackoffMs = baseBackoffMs;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+    }
+
+    public static class Ledger {
+        // skip description updates and attachments whose content hash matches what was last sent
+        private boolean enabled = true;
+        // after this long a match is checked against the issue once before it is trusted again
+        private long verifyAfterMs = 86400000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getVerifyAfterMs() {
+            return verifyAfterMs;
+        }
+
+        public void setVerifyAfterMs(long verifyAfterMs) {
+            this.verifyAfterMs = verifyAfterMs;
+        }
+    }
+
+    public static class IssueImport {
+        // issues per JQL search page; each page is generated as one batch
+        private int pageSize = 50;
+        // pages fetched but not yet generated; the search waits for one to finish before asking for more
+        private int maxInFlightPages = 4;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getMaxInFlightPages() {
+            return maxInFlightPages;
+        }
+
+        public void setMaxInFlightPages(int maxInFlightPages) {
+            this.maxInFlightPages = maxInFlightPages;
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.nakivo.testgen.config;
+
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.github.backend.GitMirrorBackend;
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.github.backend.RestRepositoryBackend;
+import com.nakivo.testgen.github.backend.WorkspaceBackend;
+import com.nakivo.testgen.github.client.GitHubClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Where repository reads and generated commits go (github.backend): "rest" calls the GitHub API for every read,
+ * "mirror" keeps a local clone of the branch, reads the working tree and pushes commits, "workspace" edits a
+ * checked-out QA repo in place without any network calls. Status checks
+ * against the REST API (cache, rate limit) are not affected by the choice.
+ */
+@Configuration
+public class RepositoryBackendConfiguration {
+
+    @Bean
+    public RepositoryBackend repositoryBackend(GitHubConfig config, GitHubClient gitHubClient, SourceIndexCache sourceIndexCache) {
+        String backend = config.getBackend() == null ? RestRepositoryBackend.NAME : config.getBackend().trim().toLowerCase();
+        switch (backend) {
+            case RestRepositoryBackend.NAME:
+                System.out.println("[INFO] Repository backend: GitHub REST API");
+                return new RestRepositoryBackend(gitHubClient);
+            case GitMirrorBackend.NAME:
+                return new GitMirrorBackend(config);
+            case WorkspaceBackend.NAME:
+                return new WorkspaceBackend(config, sourceIndexCache);
+            default:
+                throw new IllegalArgumentException("Unknown github.backend: " + config.getBackend() + " (rest | mirror | workspace)");
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/files")
@@ -19,12 +20,13 @@ public class CsvProxyController {
     }
 
     @GetMapping(value = "/{filename}", produces = "text/csv")
-    public ResponseEntity<String> getCsv(@PathVariable String filename) {
+    public ResponseEntity<StreamingResponseBody> getCsv(@PathVariable String filename) {
 //        if (!filename.equals("step-mappings.csv") && !filename.equals("test-data-fields.csv")) {
 //            return ResponseEntity.badRequest().build();
 //        }
 
-        String csvData = csvProxyService.getCsvContent(filename);
+        // streamed from GitHub into the response, never held in memory as a whole
+        StreamingResponseBody csvData = out -> csvProxyService.streamCsv(filename, out);
         return ResponseEntity.ok(csvData);
     }
 
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.*;
 
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -24,13 +25,8 @@ public class TestFileGeneratorController {
     public ResponseEntity<?> generateTest(@RequestBody TestGenRequest req) {
         try {
 
-            // Generate test files based on the description
-            Map<String, String> result = testFileGeneratorService.generateFromText(req.getDescription());
-
-            // Generate test data file if testData is provided
-            if (req.getTestData() != null && !req.getTestData().isEmpty()) {
-                testFileGeneratorService.uploadDataInputManualToQARepo(req.getDescription(), req.getTestData());
-            }
+            // Generate the test class (and test data, if provided) based on the description
+            Map<String, String> result = testFileGeneratorService.generate(req);
 
             return ResponseEntity.ok(result);
         } catch (IOException | TemplateException e) {
@@ -42,4 +38,18 @@ public class TestFileGeneratorController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> generateBatch(@RequestBody List<TestGenRequest> reqs) {
+        if (reqs == null || reqs.isEmpty()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "No test cases provided"));
+        }
+        try {
+            return ResponseEntity.ok(testFileGeneratorService.generateBatch(reqs));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
 }
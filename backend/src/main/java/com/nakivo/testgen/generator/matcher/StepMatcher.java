@@ -0,0 +1,133 @@
+package com.nakivo.testgen.generator.matcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted-index matcher for step mappings.
+ * Mapping keys are tokenized once at load time into token -> posting list of key ids,
+ * so a step only scores the keys that share at least one token with it.
+ * Scoring is the same Dice coefficient as the former linear scan: 2 * common / (|a| + |b|)
+ * over the distinct whitespace-separated tokens; ties go to the key that was loaded first.
+ */
+public class StepMatcher {
+
+    public static final double DEFAULT_THRESHOLD = 0.5;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String[] methodCalls;
+    private final int[] keyTokenCounts;
+    private final Map<String, Integer> tokenIds;
+    private final int[][] postings;
+    private final double threshold;
+
+    private final int keyCount;
+    // scratch buffers sized to the number of keys, reused across calls; batch work runs one virtual thread per task,
+    // so a per-thread buffer would be allocated per task - the pool only grows to the number of concurrent matches
+    private final ConcurrentLinkedQueue<Scratch> scratch = new ConcurrentLinkedQueue<>();
+
+    public StepMatcher(Map<String, String> mappings) {
+        this(mappings, DEFAULT_THRESHOLD);
+    }
+
+    /* mappings: normalized (lower-cased, trimmed) key -> method call, in priority order */
+    public StepMatcher(Map<String, String> mappings, double threshold) {
+        int keyCount = mappings.size();
+        this.keyCount = keyCount;
+        this.methodCalls = new String[keyCount];
+        this.keyTokenCounts = new int[keyCount];
+        this.tokenIds = new HashMap<>();
+        this.threshold = threshold;
+
+        int[] postingSizes = new int[16];
+        int[][] keyTokens = new int[keyCount][];
+        int keyId = 0;
+        for (Map.Entry<String, String> e : mappings.entrySet()) {
+            Set<String> distinct = new HashSet<>(Arrays.asList(WHITESPACE.split(e.getKey())));
+            int[] ids = new int[distinct.size()];
+            int n = 0;
+            for (String token : distinct) {
+                Integer id = tokenIds.get(token);
+                if (id == null) {
+                    id = tokenIds.size();
+                    tokenIds.put(token, id);
+                    if (id == postingSizes.length) postingSizes = Arrays.copyOf(postingSizes, id * 2);
+                }
+                postingSizes[id]++;
+                ids[n++] = id;
+            }
+            methodCalls[keyId] = e.getValue();
+            keyTokenCounts[keyId] = distinct.size();
+            keyTokens[keyId] = ids;
+            keyId++;
+        }
+
+        // key ids are appended in ascending order, so each posting list is sorted
+        this.postings = new int[tokenIds.size()][];
+        for (int t = 0; t < postings.length; t++) postings[t] = new int[postingSizes[t]];
+        int[] fill = new int[postings.length];
+        for (int k = 0; k < keyCount; k++) {
+            for (int t : keyTokens[k]) postings[t][fill[t]++] = k;
+        }
+    }
+
+    public int size() {
+        return methodCalls.length;
+    }
+
+    /* Returns the mapped method call for a normalized step description, or null when no key reaches the threshold. */
+    public String match(String stepDesc) {
+        String[] queryTokens = WHITESPACE.split(stepDesc);
+        // sorted, so a repeated token is next to its first occurrence and is skipped without a set
+        if (queryTokens.length > 1) Arrays.sort(queryTokens);
+        Scratch s = scratch.poll();
+        if (s == null) s = new Scratch(keyCount);
+        int[] counts = s.counts;
+        int[] touched = s.touched;
+        int touchedCount = 0;
+
+        int distinctQueryTokens = 0;
+        for (int q = 0; q < queryTokens.length; q++) {
+            String token = queryTokens[q];
+            if (q > 0 && token.equals(queryTokens[q - 1])) continue;
+            distinctQueryTokens++;
+            Integer tokenId = tokenIds.get(token);
+            if (tokenId == null) continue;
+            for (int key : postings[tokenId]) {
+                if (counts[key]++ == 0) touched[touchedCount++] = key;
+            }
+        }
+
+        int bestKey = -1;
+        double bestScore = 0.0;
+        for (int i = 0; i < touchedCount; i++) {
+            int key = touched[i];
+            double score = (2.0 * counts[key]) / (keyTokenCounts[key] + distinctQueryTokens);
+            if (score > bestScore || (score == bestScore && bestKey >= 0 && key < bestKey)) {
+                bestScore = score;
+                bestKey = key;
+            }
+            counts[key] = 0;
+        }
+        // every touched count is back to zero
+        scratch.offer(s);
+
+        return bestKey >= 0 && bestScore >= threshold ? methodCalls[bestKey] : null;
+    }
+
+    private static final class Scratch {
+        final int[] counts;
+        final int[] touched;
+
+        Scratch(int keyCount) {
+            this.counts = new int[keyCount];
+            this.touched = new int[keyCount];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nakivo.testgen.generator.model;
+
+
+public class BatchCaseResult {
+    private int index;
+    private String jiranumber;
+    private String id;
+    private String path;
+    private String status = "ok";
+    private String error;
+    private long durationNanos;
+
+    public BatchCaseResult(int index, String jiranumber) {
+        this.index = index;
+        this.jiranumber = jiranumber;
+    }
+
+    public void fail(String error) {
+        this.status = "error";
+        this.error = error;
+    }
+
+    public boolean isOk() { return "ok".equals(status); }
+
+    public void addDuration(long nanos) { this.durationNanos += nanos; }
+
+    // Getters and Setters
+    public int getIndex() { return index; }
+
+    public String getJiranumber() { return jiranumber; }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public String getStatus() { return status; }
+
+    public String getError() { return error; }
+
+    public double getDurationMs() { return durationNanos / 1_000_000.0; }
+}
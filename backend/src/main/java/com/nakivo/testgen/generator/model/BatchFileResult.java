@@ -0,0 +1,33 @@
+package com.nakivo.testgen.generator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchFileResult {
+    private String path;
+    private String content;
+    // blob SHA the class was read at; null when the batch created it
+    private String baseSha;
+    private List<String> ids = new ArrayList<>();
+    private long durationMs;
+
+    public BatchFileResult(String path) {
+        this.path = path;
+    }
+
+    public void addCase(String id) { ids.add(id); }
+
+    // Getters and Setters
+    public String getPath() { return path; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public String getBaseSha() { return baseSha; }
+    public void setBaseSha(String baseSha) { this.baseSha = baseSha; }
+
+    public List<String> getIds() { return ids; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+}
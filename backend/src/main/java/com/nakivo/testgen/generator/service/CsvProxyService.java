@@ -4,6 +4,7 @@ import com.nakivo.testgen.github.service.GitHubFileService;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 @Service
 public class CsvProxyService {
@@ -16,20 +17,13 @@ public class CsvProxyService {
         this.gitHubFileService = gitHubFileService;
     }
 
-    public String getCsvContent(String fileName) {
-        String fileContent;
+    /* Copy the CSV from the QA repo straight into out; a missing file gives an empty body, as before. */
+    public void streamCsv(String fileName, OutputStream out) throws IOException {
         String filePath = FOLDER_PATH + "/" + fileName;
         try {
-            fileContent = gitHubFileService.getFileContentFromGithub(filePath);
-            if (fileContent != null) {
-                return fileContent;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            gitHubFileService.copyFile(filePath, out);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-
-        return "";
     }
 }
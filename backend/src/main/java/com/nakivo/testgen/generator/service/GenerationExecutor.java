@@ -0,0 +1,151 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.config.GeneratorConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs generation work with per-file serialization and a global concurrency limit.
+ * Every read-modify-write of a repository file goes through {@link #runLocked}, so two
+ * requests for the same class file (or the shared workbook) cannot lose each other's update,
+ * while work on different files never waits on a shared lock.
+ */
+@Component
+public class GenerationExecutor {
+
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_DIRECT = "direct";
+
+    private final boolean parallel;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    // one lock per repository path; the set of target files is small (one per category + workbook)
+    private final ConcurrentHashMap<String, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
+
+    public GenerationExecutor(GeneratorConfig config) {
+        GeneratorConfig.Execution execution = config.getExecution();
+        this.parallel = MODE_VIRTUAL.equalsIgnoreCase(execution.getMode());
+        this.permits = new Semaphore(Math.max(1, execution.getMaxConcurrency()), true);
+        this.executor = parallel
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("testgen-", 0).factory())
+            : null;
+        System.out.println("[INFO] Generation execution mode: " + (parallel ? MODE_VIRTUAL : MODE_DIRECT)
+            + ", max concurrency: " + permits.availablePermits());
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /* Run a task while holding the lock for the given repository path and one concurrency permit. */
+    public <T> T runLocked(String path, Callable<T> task) throws Exception {
+        ReentrantLock lock = fileLocks.computeIfAbsent(path, k -> new ReentrantLock());
+        lock.lockInterruptibly();
+        try {
+            permits.acquire();
+            try {
+                return task.call();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Run a task while holding the locks of several paths (e.g. a class file and the workbook that are committed together).
+       Locks are taken in sorted order, so overlapping sets cannot deadlock; one permit covers the whole task. */
+    public <T> T runLocked(List<String> paths, Callable<T> task) throws Exception {
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (String path : new TreeSet<>(paths)) {
+            locks.add(fileLocks.computeIfAbsent(path, k -> new ReentrantLock()));
+        }
+
+        int held = 0;
+        try {
+            for (ReentrantLock lock : locks) {
+                lock.lockInterruptibly();
+                held++;
+            }
+            permits.acquire();
+            try {
+                return task.call();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            for (int i = held - 1; i >= 0; i--) locks.get(i).unlock();
+        }
+    }
+
+    /* Run tasks that each target one path: in parallel on virtual threads in virtual mode,
+       one after the other in direct mode. Results keep the order of the input. */
+    public <T> List<T> invokeAll(List<String> paths, List<Callable<T>> tasks) throws Exception {
+        if (paths.size() != tasks.size()) {
+            throw new IllegalArgumentException("Each task needs a target path");
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        if (!parallel || tasks.size() == 1) {
+            for (int i = 0; i < tasks.size(); i++) {
+                results.add(runLocked(paths.get(i), tasks.get(i)));
+            }
+            return results;
+        }
+
+        List<Callable<T>> locked = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            String path = paths.get(i);
+            Callable<T> task = tasks.get(i);
+            locked.add(() -> runLocked(path, task));
+        }
+        return collect(locked);
+    }
+
+    /* Run tasks whose paths the caller already holds (see runLocked(List, ...)): in parallel in virtual mode,
+       sequentially otherwise, without taking locks or permits. Results keep the order of the input. */
+    public <T> List<T> forkAll(List<Callable<T>> tasks) throws Exception {
+        if (!parallel || tasks.size() == 1) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) results.add(task.call());
+            return results;
+        }
+        return collect(tasks);
+    }
+
+    private <T> List<T> collect(List<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
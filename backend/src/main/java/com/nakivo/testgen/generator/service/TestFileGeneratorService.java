@@ -1,20 +1,34 @@
 package com.nakivo.testgen.generator.service;
 
 
+import com.nakivo.testgen.config.GeneratorConfig;
+import com.nakivo.testgen.generator.matcher.StepMatcher;
+import com.nakivo.testgen.generator.model.BatchCaseResult;
+import com.nakivo.testgen.generator.model.BatchFileResult;
+import com.nakivo.testgen.generator.model.TestGenRequest;
+import com.nakivo.testgen.generator.source.JavaSourceIndex;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.generator.source.SourceNormalizer;
+import com.nakivo.testgen.generator.template.TestTemplateEngine;
+import com.nakivo.testgen.github.client.CommitQueue;
+import com.nakivo.testgen.github.client.GitCommitBuilder;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.GitHubRateLimiter;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.github.model.GitHubFile;
 import com.nakivo.testgen.github.service.GitHubFileService;
 import com.nakivo.testgen.github.service.GithubExcelUpdaterService;
+import com.nakivo.testgen.github.service.WorkbookCache;
+import com.nakivo.testgen.utils.Constants;
+import com.nakivo.testgen.utils.GitBlobSha;
 import com.nakivo.testgen.utils.TextParser;
-import freemarker.template.Configuration;
-import freemarker.template.Template;
 import freemarker.template.TemplateException;
-import freemarker.template.Version;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 
@@ -23,23 +37,146 @@ public class TestFileGeneratorService {
 
     private final GitHubFileService gitHubFileService;
     private final GithubExcelUpdaterService githubExcelUpdaterService;
+    private final GenerationExecutor generationExecutor;
+    private final SourceIndexCache sourceIndexCache;
+    private final TestTemplateEngine templateEngine;
+    private final CommitQueue commitQueue;
+    private final boolean inMemory;
+    private final long maxFileBytes;
+    private final boolean commit;
+
+    public static final String PIPELINE_MEMORY = "memory";
+    public static final String PIPELINE_TEMP_FILE = "temp-file";
 
-    private static final String TEMPLATE_DIR = "templates";
     private static final String OUTPUT_DIR = "src/test/java/com/nakivo/tests/manual";
-    private static final String DATA_INPUT_MANUAL_PATH = "propertyfiles/ui/dataInputManual.xlsx";
+    private static final String DATA_INPUT_MANUAL_PATH = Constants.DATA_INPUT_MANUAL_PATH;
+    // a single generation whose files changed since they were read is redone on the new content this often
+    private static final int COMMIT_ATTEMPTS = 3;
 
-    public TestFileGeneratorService(GitHubFileService gitHubFileService, GithubExcelUpdaterService githubExcelUpdaterService) {
+    public TestFileGeneratorService(GitHubFileService gitHubFileService, GithubExcelUpdaterService githubExcelUpdaterService,
+                                    GenerationExecutor generationExecutor, SourceIndexCache sourceIndexCache,
+                                    TestTemplateEngine templateEngine, CommitQueue commitQueue, GeneratorConfig generatorConfig) {
         this.gitHubFileService = gitHubFileService;
         this.githubExcelUpdaterService = githubExcelUpdaterService;
+        this.generationExecutor = generationExecutor;
+        this.sourceIndexCache = sourceIndexCache;
+        this.templateEngine = templateEngine;
+        this.commitQueue = commitQueue;
+        this.inMemory = !PIPELINE_TEMP_FILE.equalsIgnoreCase(generatorConfig.getPipeline().getMode());
+        this.maxFileBytes = generatorConfig.getPipeline().getMaxFileBytes();
+        // commits need the updated class in memory; the temp-file flow keeps its separate workbook upload
+        this.commit = inMemory && generatorConfig.getPipeline().isCommit();
+    }
+
+    /* Generate one test case. When committing, the class file and the test data land in one commit - with the
+       write-behind queue enabled, the commit of the current window, shared with any other edits queued in it;
+       otherwise the class is only generated and the test data is uploaded on its own. */
+    public Map<String, String> generate(TestGenRequest req) throws IOException, TemplateException {
+        boolean hasTestData = hasTestData(req);
+        if (!commit) {
+            Map<String, String> result = new LinkedHashMap<>(generateFromText(req.getDescription()));
+            if (hasTestData) {
+                WorkbookCache.Submission upload = uploadDataInputManualToQARepo(req.getDescription(), req.getTestData());
+                // queued: poll GET /api/github/workbook-cache/uploads/{id}; it reports the commit or dropped records
+                result.put("testData", upload.isQueued() ? "queued" : "uploaded");
+                result.put("testDataUpload", upload.getId());
+            }
+            return result;
+        }
+
+        Map<String, Object> data = TextParser.parseInputText(req.getDescription());
+        String id = (String) data.get("id");
+        String category = (String) data.getOrDefault("category", "VMwareBackup");
+        String methodContent = renderMethod(data);
+        String className = category + "ManualTest";
+        String targetFilePath = OUTPUT_DIR + "/" + className + ".java";
+        String sheetName = hasTestData ? sheetNameOf(data) : null;
+
+        if (commitQueue != null && commitQueue.isEnabled()) {
+            return queue(req, targetFilePath, className, category, id, methodContent, sheetName);
+        }
+
+        // Both files stay locked from read to commit, so no other request of this instance can commit in between;
+        // a change from elsewhere since the read rejects the commit (409), and the files are read and edited again
+        List<String> paths = hasTestData ? List.of(targetFilePath, DATA_INPUT_MANUAL_PATH) : List.of(targetFilePath);
+        try {
+            return generationExecutor.runLocked(paths, () -> {
+                for (int attempt = 1; ; attempt++) {
+                    GitHubFile current = gitHubFileService.fetchFile(targetFilePath, maxFileBytes);
+                    String content = upsertClass(current, targetFilePath, className, category, id, methodContent);
+                    GitCommitBuilder commitBuilder = gitHubFileService.newCommit("Add manual test " + id)
+                        .putText(targetFilePath, content, current == null ? null : current.getSha());
+                    if (hasTestData) {
+                        RepoFile workbook = githubExcelUpdaterService.readWorkbook(DATA_INPUT_MANUAL_PATH);
+                        commitBuilder.putBinary(DATA_INPUT_MANUAL_PATH,
+                            githubExcelUpdaterService.applyTestData(workbook.toBytes(), sheetName, req.getTestData()),
+                            workbook.getSha());
+                    }
+                    try {
+                        String commitSha = commitBuilder.push();
+                        return Map.of("path", targetFilePath, "content", content, "commit", commitSha);
+                    } catch (GitHubApiException e) {
+                        if ((e.getStatusCode() != 409 && e.getStatusCode() != 422) || attempt >= COMMIT_ATTEMPTS) throw e;
+                        System.out.println("[INFO] " + e.getMessage() + "; regenerating " + id + " on the current content");
+                    }
+                }
+            });
+        } catch (IOException | TemplateException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The response carries the class as it will be committed; the commit itself follows when the window closes
+    private Map<String, String> queue(TestGenRequest req, String targetFilePath, String className, String category,
+                                      String id, String methodContent, String sheetName) throws IOException, TemplateException {
+        String message = "Add manual test " + id;
+        try {
+            CommitQueue.QueuedEdit classEdit = commitQueue.submit(targetFilePath, false, message, current -> {
+                String content = current == null
+                    ? renderClass(className, category, Arrays.asList(methodContent))
+                    : checkSize(targetFilePath, upsertMethod(new String(current, StandardCharsets.UTF_8), methodContent, id, className));
+                return content.getBytes(StandardCharsets.UTF_8);
+            });
+            Map<String, String> result = new LinkedHashMap<>();
+            result.put("path", targetFilePath);
+            result.put("content", new String(classEdit.getContent(), StandardCharsets.UTF_8));
+            result.put("commit", "queued");
+            // poll GET /api/github/commit-queue/edits/{id} for the commit or the failure
+            result.put("edit", classEdit.getId());
+            if (sheetName != null) {
+                CommitQueue.QueuedEdit dataEdit = commitQueue.submit(DATA_INPUT_MANUAL_PATH, true, message, current -> {
+                    if (current == null) {
+                        throw new RuntimeException("Failed to fetch file metadata: 404");
+                    }
+                    return githubExcelUpdaterService.applyTestData(current, sheetName, req.getTestData());
+                });
+                result.put("dataEdit", dataEdit.getId());
+            }
+            return result;
+        } catch (IOException | TemplateException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean hasTestData(TestGenRequest req) {
+        return req.getTestData() != null && !req.getTestData().isEmpty();
+    }
+
+    private static String sheetNameOf(Map<String, Object> data) {
+        return data.get("groups").toString()
+            .split(",")[0]
+            .replace("\"", "").trim();
     }
 
-    public void uploadDataInputManualToQARepo(String description, String testDataInput) {
+    public WorkbookCache.Submission uploadDataInputManualToQARepo(String description, String testDataInput) {
         try {
-            String sheetName = TextParser
-                .parseInputText(description).get("groups").toString()
-                .split(",")[0]
-                .replace("\"", "").trim();
-            githubExcelUpdaterService.updateExcelOnGithub(DATA_INPUT_MANUAL_PATH, sheetName, testDataInput);
+            String sheetName = sheetNameOf(TextParser.parseInputText(description));
+            return generationExecutor.runLocked(DATA_INPUT_MANUAL_PATH,
+                () -> githubExcelUpdaterService.updateExcelOnGithub(DATA_INPUT_MANUAL_PATH, sheetName, testDataInput));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -53,24 +190,297 @@ public class TestFileGeneratorService {
     private Map<String, String> generateTestContent(Map<String, Object> data)
         throws IOException, TemplateException {
 
-        Map<String, String> result = new HashMap<>();
+        String id = (String) data.get("id");
+        String category = (String) data.getOrDefault("category", "VMwareBackup");
+
+        String methodContent = renderMethod(data);
+
+        // --- Write or update the test class file ---
+        String className = category + "ManualTest";
+        String targetFilePath = OUTPUT_DIR + "/" + className + ".java";
+
+        // Serialize read-modify-write per class file so concurrent requests don't drop each other's method
+        String updatedContent;
+        try {
+            updatedContent = generationExecutor.runLocked(targetFilePath,
+                () -> upsertClassFile(targetFilePath, className, category, id, methodContent));
+        } catch (IOException | TemplateException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return Map.of("path", targetFilePath, "content", updatedContent);
+    }
+
+    // Current class with the method upserted, or a new class when the file does not exist yet
+    private String upsertClassFile(String targetFilePath, String className, String category, String id, String methodContent)
+        throws IOException, InterruptedException, TemplateException {
+
+        if (inMemory) {
+            return upsertClass(gitHubFileService.fetchFile(targetFilePath, maxFileBytes), targetFilePath, className, category,
+                id, methodContent);
+        } else {
+            File file = gitHubFileService.getFileFromGithub(targetFilePath);
+            if (file != null && file.exists()) {
+                return updateOrAppendMethod(file, methodContent, id, className);
+            }
+        }
+
+        // Create a new class using template
+        String created = renderClass(className, category, Arrays.asList(methodContent));
+        System.out.println("[INFO] Created new test class: " + className);
+        return created;
+    }
+
+    // The fetched class (null: not there yet) with the method upserted
+    private String upsertClass(GitHubFile file, String targetFilePath, String className, String category, String id,
+                               String methodContent) throws IOException, TemplateException {
+        if (file != null) {
+            return checkSize(targetFilePath, upsertMethod(file.getContent(), file.getSha(), methodContent, id, className));
+        }
+        String created = renderClass(className, category, Arrays.asList(methodContent));
+        System.out.println("[INFO] Created new test class: " + className);
+        return created;
+    }
+
+    /* Generate many test cases at once.
+       Cases are grouped by target class file; each file is fetched once, all method upserts
+       are applied in memory, and the result is written once - when committing, all class files and
+       the workbook with every case's test data land in a single commit. Cases that fail to parse or
+       render are reported individually and do not abort the rest of the batch.
+       Its GitHub calls go through the batch lane, behind interactive requests and within the quota reserve. */
+    public Map<String, Object> generateBatch(List<TestGenRequest> requests) throws IOException {
+        try {
+            return GitHubRateLimiter.callAs(GitHubRateLimiter.Lane.BATCH, () -> runBatch(requests));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Map<String, Object> runBatch(List<TestGenRequest> requests) throws IOException {
+        Map<String, List<PendingCase>> byPath = new LinkedHashMap<>();
+        List<BatchCaseResult> results = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TestGenRequest req = requests.get(i);
+            BatchCaseResult caseResult = new BatchCaseResult(i, req.getJiranumber());
+            results.add(caseResult);
+
+            long start = System.nanoTime();
+            try {
+                Map<String, Object> data = TextParser.parseInputText(req.getDescription());
+                String category = (String) data.getOrDefault("category", "VMwareBackup");
+                String className = category + "ManualTest";
+                String path = OUTPUT_DIR + "/" + className + ".java";
+
+                caseResult.setId((String) data.get("id"));
+                caseResult.setPath(path);
+                String methodContent = renderMethod(data);
+
+                byPath.computeIfAbsent(path, k -> new ArrayList<>())
+                    .add(new PendingCase(req, caseResult, className, category, methodContent, hasTestData(req) ? sheetNameOf(data) : null));
+            } catch (Exception e) {
+                caseResult.fail(e.getMessage());
+            } finally {
+                caseResult.addDuration(System.nanoTime() - start);
+            }
+        }
+
+        // Class files are independent of each other, so they are processed in parallel (virtual mode)
+        List<String> paths = new ArrayList<>(byPath.keySet());
+        List<Callable<BatchFileResult>> tasks = new ArrayList<>();
+        for (String path : paths) {
+            List<PendingCase> cases = byPath.get(path);
+            tasks.add(() -> applyBatchToFile(path, cases));
+        }
+        if (commit) {
+            return commitBatch(results, byPath, paths, tasks);
+        }
+
+        List<BatchFileResult> files;
+        try {
+            files = generationExecutor.invokeAll(paths, tasks);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // Test data of all cases is uploaded in one workbook update, after the class files are settled
+        List<PendingCase> withTestData = new ArrayList<>();
+        for (List<PendingCase> cases : byPath.values()) {
+            for (PendingCase pc : cases) {
+                if (pc.result.isOk() && hasTestData(pc.request)) withTestData.add(pc);
+            }
+        }
+        Map<String, List<Map<String, String>>> recordsBySheet = testDataBySheet(withTestData);
+        if (!recordsBySheet.isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                generationExecutor.runLocked(DATA_INPUT_MANUAL_PATH, () -> {
+                    githubExcelUpdaterService.updateExcelOnGithub(DATA_INPUT_MANUAL_PATH, recordsBySheet);
+                    return null;
+                });
+            } catch (Exception e) {
+                for (PendingCase pc : withTestData) {
+                    if (pc.result.isOk()) pc.result.fail("Test data upload failed: " + e.getMessage());
+                }
+            } finally {
+                long shared = (System.nanoTime() - start) / withTestData.size();
+                for (PendingCase pc : withTestData) pc.result.addDuration(shared);
+            }
+        }
+
+        return Map.of("results", results, "files", files);
+    }
+
+    private Map<String, Object> commitBatch(List<BatchCaseResult> results, Map<String, List<PendingCase>> byPath,
+                                            List<String> paths, List<Callable<BatchFileResult>> tasks) throws IOException {
+        List<PendingCase> withTestData = new ArrayList<>();
+        for (List<PendingCase> cases : byPath.values()) {
+            for (PendingCase pc : cases) {
+                if (hasTestData(pc.request)) withTestData.add(pc);
+            }
+        }
+        List<String> lockedPaths = new ArrayList<>(paths);
+        if (!withTestData.isEmpty()) lockedPaths.add(DATA_INPUT_MANUAL_PATH);
+
+        try {
+            return generationExecutor.runLocked(lockedPaths, () -> {
+                List<BatchFileResult> files = generationExecutor.forkAll(tasks);
+
+                GitCommitBuilder commitBuilder = gitHubFileService.newCommit("Add " + results.size() + " manual test(s)");
+                for (BatchFileResult file : files) {
+                    if (file.getContent() != null && !file.getIds().isEmpty()) {
+                        commitBuilder.putText(file.getPath(), file.getContent(), file.getBaseSha());
+                    }
+                }
+                addTestData(commitBuilder, withTestData);
+
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("results", results);
+                response.put("files", files);
+                if (!commitBuilder.isEmpty()) {
+                    try {
+                        response.put("commit", commitBuilder.push());
+                    } catch (Exception e) {
+                        // nothing of the batch landed
+                        for (BatchCaseResult r : results) {
+                            if (r.isOk()) r.fail("Commit failed: " + e.getMessage());
+                        }
+                    }
+                }
+                return response;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // All test data of the batch goes into one pass over the workbook; a case whose data cannot be parsed fails alone
+    private void addTestData(GitCommitBuilder commitBuilder, List<PendingCase> cases) {
+        List<PendingCase> pending = new ArrayList<>();
+        for (PendingCase pc : cases) {
+            if (pc.result.isOk()) pending.add(pc);
+        }
+        if (pending.isEmpty()) return;
 
+        Map<String, List<Map<String, String>>> recordsBySheet = testDataBySheet(pending);
+        if (recordsBySheet.isEmpty()) return;
+
+        try {
+            RepoFile workbook = githubExcelUpdaterService.readWorkbook(DATA_INPUT_MANUAL_PATH);
+            commitBuilder.putBinary(DATA_INPUT_MANUAL_PATH,
+                githubExcelUpdaterService.applyTestData(workbook.toBytes(), recordsBySheet), workbook.getSha());
+        } catch (Exception e) {
+            for (PendingCase pc : pending) {
+                if (pc.result.isOk()) pc.result.fail("Test data upload failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // sheet -> records of all cases, upserted by test ID in case order; a case whose data cannot be parsed fails alone
+    private static Map<String, List<Map<String, String>>> testDataBySheet(List<PendingCase> cases) {
+        Map<String, List<Map<String, String>>> recordsBySheet = new LinkedHashMap<>();
+        for (PendingCase pc : cases) {
+            long start = System.nanoTime();
+            try {
+                List<Map<String, String>> records = GithubExcelUpdaterService.testDataRecords(pc.request.getTestData());
+                recordsBySheet.computeIfAbsent(pc.sheetName, k -> new ArrayList<>()).addAll(records);
+            } catch (Exception e) {
+                pc.result.fail("Test data upload failed: " + e.getMessage());
+            } finally {
+                pc.result.addDuration(System.nanoTime() - start);
+            }
+        }
+        return recordsBySheet;
+    }
+
+    private BatchFileResult applyBatchToFile(String path, List<PendingCase> cases) throws IOException {
+        long start = System.nanoTime();
+        BatchFileResult fileResult = new BatchFileResult(path);
+
+        File file = null;
+        String content = null;
+        String sha = null;
+        try {
+            if (inMemory) {
+                GitHubFile fetched = gitHubFileService.fetchFile(path, maxFileBytes);
+                if (fetched != null) {
+                    content = fetched.getContent();
+                    sha = fetched.getSha();
+                    fileResult.setBaseSha(sha);
+                }
+            } else {
+                file = gitHubFileService.getFileFromGithub(path);
+                if (file != null) content = readFile(file.getPath());
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        for (PendingCase pc : cases) {
+            long caseStart = System.nanoTime();
+            try {
+                if (content == null) {
+                    content = renderClass(pc.className, pc.category, Arrays.asList(pc.methodContent));
+                    System.out.println("[INFO] Created new test class: " + pc.className);
+                } else {
+                    // the fetched SHA keys the source index of the first upsert; later ones hash their own result
+                    content = checkSize(path, upsertMethod(content, sha, pc.methodContent, pc.result.getId(), pc.className));
+                    sha = null;
+                }
+                fileResult.addCase(pc.result.getId());
+            } catch (Exception e) {
+                pc.result.fail(e.getMessage());
+            } finally {
+                pc.result.addDuration(System.nanoTime() - caseStart);
+            }
+        }
+
+        if (file != null && content != null) {
+            writeFile(file.getPath(), content);
+        }
+
+        fileResult.setContent(content);
+        fileResult.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        return fileResult;
+    }
+
+    String renderMethod(Map<String, Object> data) throws IOException, TemplateException {
         String title = (String) data.get("title");
         String groups = (String) data.get("groups");
         String id = (String) data.get("id");
-        String category = (String) data.getOrDefault("category", "VMwareBackup");
         String feature = (String) data.getOrDefault("feature", "VMWAREBACKUP");
+        String category = (String) data.getOrDefault("category", "VMwareBackup");
         @SuppressWarnings("unchecked")
         List<String> steps = (List<String>) data.get("steps");
 
-        // Setup FreeMarker
-        Configuration cfg = new Configuration(new Version("2.3.29"));
-        cfg.setClassLoaderForTemplateLoading(getClass().getClassLoader(), TEMPLATE_DIR);
-        cfg.setDefaultEncoding("UTF-8");
-
-        Template classTemplate = cfg.getTemplate("class_template.ftl");
-        Template methodTemplate = cfg.getTemplate("method_template.ftl");
-
         // Prepare step data
         List<Map<String, String>> stepData = new ArrayList<>();
         for (String s : steps) {
@@ -89,45 +499,42 @@ public class TestFileGeneratorService {
         methodCtx.put("feature", feature);
         methodCtx.put("steps", stepData);
 
-        StringWriter methodOut = new StringWriter();
-        methodTemplate.process(methodCtx, methodOut);
-        String methodContent = methodOut.toString();
-
-        // --- Write or update the test class file ---
-        String className = category + "ManualTest";
-        File file = null;
-        String targetFilePath = OUTPUT_DIR + "/" + className + ".java";
-        try {
-            file = gitHubFileService.getFileFromGithub(targetFilePath);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        return templateEngine.render(category, TestTemplateEngine.METHOD_TEMPLATE, methodCtx);
+    }
 
-        String updatedContent = null;
+    String renderClass(String className, String category, List<String> methods) throws IOException, TemplateException {
+        Map<String, Object> classCtx = new HashMap<>();
+        classCtx.put("packageName", "com.nakivo.tests.manual");
+        classCtx.put("className", className);
+        classCtx.put("category", category);
+        classCtx.put("testMethods", methods);
 
-        if (file.exists()) {
-            updatedContent = updateOrAppendMethod(file, methodContent, id, className);
-        } else {
-            // Create a new class using template
-            Map<String, Object> classCtx = new HashMap<>();
-            classCtx.put("packageName", "com.nakivo.tests.manual");
-            classCtx.put("className", className);
-            classCtx.put("category", category);
-            classCtx.put("testMethods", Arrays.asList(methodContent));
+        return templateEngine.render(category, TestTemplateEngine.CLASS_TEMPLATE, classCtx);
+    }
 
-            StringWriter classOut = new StringWriter();
-            classTemplate.process(classCtx, classOut);
-            updatedContent = classOut.toString();
-            System.out.println("[INFO] Created new test class: " + className);
-            writeFile(file.getPath(), updatedContent);
+    private static final class PendingCase {
+        final TestGenRequest request;
+        final BatchCaseResult result;
+        final String className;
+        final String category;
+        final String methodContent;
+        final String sheetName;
+
+        PendingCase(TestGenRequest request, BatchCaseResult result, String className, String category, String methodContent,
+                    String sheetName) {
+            this.request = request;
+            this.result = result;
+            this.className = className;
+            this.category = category;
+            this.methodContent = methodContent;
+            this.sheetName = sheetName;
         }
-
-        return Map.of("path", targetFilePath, "content", updatedContent);
     }
 
     // --- New: CSV path + loader replacing the hardcoded map ---
     private static final String STEP_MAPPINGS_CSV_PATH = "step-mappings.csv";
     private final Map<String, String> STEP_MAPPINGS = loadStepMappings();
+    private final StepMatcher stepMatcher = new StepMatcher(STEP_MAPPINGS);
 
     // --- CSV Loader Implementation ---
     private Map<String, String> loadStepMappings() {
@@ -135,8 +542,19 @@ public class TestFileGeneratorService {
         if (csvStream == null) {
             throw new IllegalStateException("Step mappings CSV not found at: " + STEP_MAPPINGS_CSV_PATH);
         }
+        try (Reader reader = new InputStreamReader(csvStream, StandardCharsets.UTF_8)) {
+            Map<String, String> map = parseStepMappings(reader);
+            System.out.println("[INFO] Loaded " + map.size() + " step mappings from CSV.");
+            return map;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read step mappings CSV: " + e.getMessage(), e);
+        }
+    }
+
+    /* Parse "pattern,methodCall" lines into normalized key -> method call, in file order. */
+    static Map<String, String> parseStepMappings(Reader reader) throws IOException {
         Map<String, String> map = new LinkedHashMap<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(csvStream, StandardCharsets.UTF_8))) {
+        try (BufferedReader br = new BufferedReader(reader)) {
             String line;
             int lineNum = 0;
             while ((line = br.readLine()) != null) {
@@ -166,13 +584,10 @@ public class TestFileGeneratorService {
                 }
                 map.put(key, value.endsWith(";") ? value : value + ";");
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read step mappings CSV: " + e.getMessage(), e);
         }
         if (map.isEmpty()) {
             throw new IllegalStateException("Step mappings CSV is empty.");
         }
-        System.out.println("[INFO] Loaded " + map.size() + " step mappings from CSV.");
         return Collections.unmodifiableMap(map);
     }
 
@@ -194,118 +609,74 @@ public class TestFileGeneratorService {
         return s;
     }
 
-    private String mapToMethod(String step) {
+    String mapToMethod(String step) {
         String stepDesc = step.replaceFirst("Step \\d+:\\s*", "").trim().toLowerCase();
-        String bestKey = null;
-        double bestScore = 0.0;
-
-        for (String key : STEP_MAPPINGS.keySet()) {
-            double score = tokenOverlap(key, stepDesc);
-            if (score > bestScore) {
-                bestScore = score;
-                bestKey = key;
-            }
-        }
+        String methodCall = stepMatcher.match(stepDesc);
 
-        if (bestScore >= 0.5) {
-            return STEP_MAPPINGS.get(bestKey);
+        if (methodCall != null) {
+            return methodCall;
         } else {
             throw new RuntimeException("Cannot detect method mapping for step: " + step);
         }
     }
 
-    private static double tokenOverlap(String a, String b) {
-        Set<String> sa = new HashSet<String>(Arrays.asList(a.split("\\s+")));
-        Set<String> sb = new HashSet<String>(Arrays.asList(b.split("\\s+")));
-        int common = 0;
-        for (String s : sa) {
-            if (sb.contains(s)) common++;
-        }
-        return (2.0 * common) / (sa.size() + sb.size());
-    }
-
     /* Replace / append test method safely (brace-aware).
        file: File object for the target Java file
        methodContent: full method text (including annotations and body)
        id: test case id (e.g. "TC_001")
        className: the Java class name (e.g. "VMwareBackupManualTest")
     */
-    private static String updateOrAppendMethod(File file, String methodContent, String id, String className) throws IOException {
-        String existing = readFile(file.getPath());
-        String updated = existing;
-        boolean replaced = false;
-
-        // 1) Try to find annotation-based method: find the annotation preceding the id literal
-        int idLiteralPos = existing.indexOf("\"" + id + "\"");
-        if (idLiteralPos != -1) {
-            int annStart = existing.lastIndexOf("@FrameworkAnnotation", idLiteralPos);
-            if (annStart != -1) {
-                // find method signature after the annotation (search from annStart)
-                Pattern sigPattern = Pattern.compile("public\\s+void\\s+" + Pattern.quote(id) + "\\s*\\(", Pattern.CASE_INSENSITIVE);
-                Matcher sigMatcher = sigPattern.matcher(existing);
-                if (sigMatcher.find(idLiteralPos)) {
-                    int sigPos = sigMatcher.start();
-                    int methodEnd = findMethodEnd(existing, sigPos);
-                    if (methodEnd != -1) {
-                        // replace from annotation start to methodEnd (inclusive)
-                        updated = existing.substring(0, annStart) + methodContent + existing.substring(methodEnd + 1);
-                        replaced = true;
-                        System.out.println("[INFO] Replaced annotated method for id: " + id);
-                    }
-                } else {
-                    // last resort: search signature after annStart
-                    sigMatcher = sigPattern.matcher(existing.substring(annStart));
-                    if (sigMatcher.find()) {
-                        int sigPos = annStart + sigMatcher.start();
-                        int methodEnd = findMethodEnd(existing, sigPos);
-                        if (methodEnd != -1) {
-                            updated = existing.substring(0, annStart) + methodContent + existing.substring(methodEnd + 1);
-                            replaced = true;
-                            System.out.println("[INFO] Replaced annotated method (fallback) for id: " + id);
-                        }
-                    }
-                }
-            }
-        }
+    private String updateOrAppendMethod(File file, String methodContent, String id, String className) throws IOException {
+        String updated = upsertMethod(readFile(file.getPath()), methodContent, id, className);
 
-        // 2) Fallback: find method signature only (public void ID(...){ ... })
-        if (!replaced) {
-            Pattern sigOnly = Pattern.compile("public\\s+void\\s+" + Pattern.quote(id) + "\\s*\\(", Pattern.CASE_INSENSITIVE);
-            Matcher m = sigOnly.matcher(existing);
-            if (m.find()) {
-                int sigPos = m.start();
-                // if there is an annotation before signature, prefer to remove annotation block too
-                int annBefore = existing.lastIndexOf("@FrameworkAnnotation", sigPos);
-                int replaceStart = annBefore >= 0 ? annBefore : sigPos;
-
-                int methodEnd = findMethodEnd(existing, sigPos);
-                if (methodEnd != -1) {
-                    updated = existing.substring(0, replaceStart) + methodContent + existing.substring(methodEnd + 1);
-                    replaced = true;
-                    System.out.println("[INFO] Replaced existing method by signature for id: " + id);
-                }
-            }
-        }
+        // Persist
+        writeFile(file.getPath(), updated);
 
-        // 3) If not found, append before the class closing brace (preserve it)
-        if (!replaced) {
-            int classPos = existing.indexOf("class " + className);
-            int insertPos = -1;
-            if (classPos >= 0) {
-                int openBrace = existing.indexOf('{', classPos);
-                if (openBrace >= 0) {
-                    int classEnd = findMatchingBrace(existing, openBrace);
-                    if (classEnd >= 0) insertPos = classEnd;
-                }
-            }
+        return updated;
+    }
+
+    /* In-memory part of updateOrAppendMethod: returns the normalized class content with the method replaced or appended.
+       Method offsets come from the source index cached under the content's blob SHA; the index is carried
+       forward to the new content so the next upsert on it is a lookup plus one splice. */
+    String upsertMethod(String existing, String methodContent, String id, String className) {
+        return upsertMethod(existing, null, methodContent, id, className);
+    }
+
+    /* sha: blob SHA of existing when already known (e.g. reported by GitHub), or null to compute it */
+    String upsertMethod(String existing, String sha, String methodContent, String id, String className) {
+        JavaSourceIndex index = sourceIndexCache.get(sha != null ? sha : GitBlobSha.of(existing), existing, className);
+        JavaSourceIndex updatedIndex = null;
+        String updated;
+
+        int slot = index.find(id);
+        if (slot >= 0) {
+            // 1) Replace from the annotation (or signature) to the method's closing brace
+            int start = index.start(slot);
+            int end = index.end(slot);
+            updated = new StringBuilder(existing.length() + methodContent.length())
+                .append(existing, 0, start)
+                .append(methodContent)
+                .append(existing, end + 1, existing.length())
+                .toString();
+            updatedIndex = index.replaced(slot, id, methodContent);
+            System.out.println("[INFO] Replaced existing method for id: " + id);
+        } else {
+            // 2) If not found, append before the class closing brace (preserve it)
+            int insertPos = index.classEnd();
             if (insertPos < 0) {
                 // fallback: last '}' in file
                 insertPos = existing.lastIndexOf('}');
             }
             if (insertPos >= 0) {
-                String before = existing.substring(0, insertPos);
-                String after = existing.substring(insertPos); // includes the final brace
-                updated = before + "\n\n" + methodContent + "\n" + after;
+                String inserted = "\n\n" + methodContent + "\n";
+                updated = new StringBuilder(existing.length() + inserted.length())
+                    .append(existing, 0, insertPos)
+                    .append(inserted)
+                    .append(existing, insertPos, existing.length()) // includes the final brace
+                    .toString();
+                if (index.classEnd() >= 0) {
+                    updatedIndex = index.appended(id, insertPos, inserted, 2, methodContent);
+                }
                 System.out.println("[INFO] Appended new test method before class end: " + id);
             } else {
                 // completely malformed, append and add a closing brace
@@ -314,120 +685,23 @@ public class TestFileGeneratorService {
             }
         }
 
-        // Normalize newlines and remove redundant trailing lines
-        updated = updated.replaceAll("\r\n", "\n")
-            .replaceAll("(?m)^[ \t]*\n{3,}", "\n\n")   // collapse >2 blank lines
-            .replaceAll("[ \t]+$", "");               // trim trailing spaces
-
-        // Persist
-        writeFile(file.getPath(), updated.trim() + "\n");
-
-        return updated.trim() + "\n";
-    }
-
-    /* Find the index of the '}' that closes the method that starts at the method signature position.
-       Returns index of the closing '}' (0-based), or -1 if not found. */
-    private static int findMethodEnd(String content, int signaturePos) {
-        int len = content.length();
-        // find first '{' after signaturePos
-        int bracePos = content.indexOf('{', signaturePos);
-        if (bracePos < 0) return -1;
-
-        int depth = 0;
-        boolean inSingle = false;
-        boolean inDouble = false;
-        boolean inLineComment = false;
-        boolean inBlockComment = false;
-
-        for (int i = bracePos; i < len; i++) {
-            char c = content.charAt(i);
-            char next = (i + 1 < len) ? content.charAt(i + 1) : '\0';
-
-            // handle exiting line comment
-            if (inLineComment) {
-                if (c == '\n') inLineComment = false;
-                continue;
-            }
-            // handle exiting block comment
-            if (inBlockComment) {
-                if (c == '*' && next == '/') { inBlockComment = false; i++; continue; }
-                else continue;
-            }
-            // handle string/char escapes
-            if (inSingle) {
-                if (c == '\\' && i + 1 < len) { i++; continue; }
-                if (c == '\'') inSingle = false;
-                continue;
-            }
-            if (inDouble) {
-                if (c == '\\' && i + 1 < len) { i++; continue; }
-                if (c == '"') inDouble = false;
-                continue;
-            }
+        String normalized = SourceNormalizer.normalize(updated);
 
-            // not in any special state
-            if (c == '/' && next == '/') { inLineComment = true; i++; continue; }
-            if (c == '/' && next == '*') { inBlockComment = true; i++; continue; }
-            if (c == '\'') { inSingle = true; continue; }
-            if (c == '"') { inDouble = true; continue; }
-
-            if (c == '{') {
-                depth++;
-            } else if (c == '}') {
-                depth--;
-                if (depth == 0) return i;
-            }
+        // Normalization usually only collapses blank lines at the seam; if it moved an indexed offset, the next call re-indexes
+        if (updatedIndex != null) {
+            updatedIndex = updatedIndex.rebased(updated, normalized);
+            if (updatedIndex != null) sourceIndexCache.put(GitBlobSha.of(normalized), updatedIndex);
         }
-        return -1;
+        return normalized;
     }
 
-    /* Find the matching closing brace index for an opening brace at openPos.
-       Returns index of matching '}', or -1 if not found. Uses same quote/comment-aware scan. */
-    private static int findMatchingBrace(String content, int openPos) {
-        int len = content.length();
-        if (openPos < 0 || openPos >= len || content.charAt(openPos) != '{') return -1;
-
-        int depth = 1;
-        boolean inSingle = false;
-        boolean inDouble = false;
-        boolean inLineComment = false;
-        boolean inBlockComment = false;
-
-        for (int i = openPos + 1; i < len; i++) {
-            char c = content.charAt(i);
-            char next = (i + 1 < len) ? content.charAt(i + 1) : '\0';
-
-            if (inLineComment) {
-                if (c == '\n') inLineComment = false;
-                continue;
-            }
-            if (inBlockComment) {
-                if (c == '*' && next == '/') { inBlockComment = false; i++; continue; }
-                else continue;
-            }
-            if (inSingle) {
-                if (c == '\\' && i + 1 < len) { i++; continue; }
-                if (c == '\'') inSingle = false;
-                continue;
-            }
-            if (inDouble) {
-                if (c == '\\' && i + 1 < len) { i++; continue; }
-                if (c == '"') inDouble = false;
-                continue;
-            }
-
-            if (c == '/' && next == '/') { inLineComment = true; i++; continue; }
-            if (c == '/' && next == '*') { inBlockComment = true; i++; continue; }
-            if (c == '\'') { inSingle = true; continue; }
-            if (c == '"') { inDouble = true; continue; }
-
-            if (c == '{') depth++;
-            else if (c == '}') {
-                depth--;
-                if (depth == 0) return i;
-            }
+    // Keeps the in-memory working set bounded: a class that outgrew the limit is not carried any further
+    private String checkSize(String path, String content) {
+        if (maxFileBytes > 0 && (long) content.length() > maxFileBytes) {
+            throw new IllegalStateException("Generated class exceeds the in-memory limit: " + path
+                + " (" + content.length() + " chars, limit " + maxFileBytes + ")");
         }
-        return -1;
+        return content;
     }
 
     private static String readFile(String path) throws IOException {
@@ -0,0 +1,187 @@
+package com.nakivo.testgen.generator.source;
+
+/**
+ * Minimal single-pass Java lexer for locating braces and class members.
+ * Comments, string literals, text blocks and char literals are skipped as a whole, so braces inside them
+ * (e.g. '{' in an annotation value or a "}" in a message) never affect depth. It works on any CharSequence
+ * and allocates nothing while scanning; results are plain offsets.
+ */
+public final class JavaLexer {
+
+    /* Members are emitted as triples: start of the member, end of its header ('{' of the body or ';'),
+       and its last char ('}' of the body or ';'). */
+    public static final int MEMBER_STRIDE = 3;
+
+    private JavaLexer() {
+    }
+
+    /* If a comment or literal starts at i, returns the index right after it; otherwise returns i. */
+    static int skipNonCode(CharSequence s, int i, int len) {
+        char c = s.charAt(i);
+        if (c == '/' && i + 1 < len) {
+            char next = s.charAt(i + 1);
+            if (next == '/') {
+                int j = i + 2;
+                while (j < len && s.charAt(j) != '\n') j++;
+                return j;
+            }
+            if (next == '*') {
+                int j = i + 2;
+                while (j + 1 < len && !(s.charAt(j) == '*' && s.charAt(j + 1) == '/')) j++;
+                return Math.min(j + 2, len);
+            }
+            return i;
+        }
+        if (c == '"') {
+            if (i + 2 < len && s.charAt(i + 1) == '"' && s.charAt(i + 2) == '"') {
+                return skipTextBlock(s, i + 3, len);
+            }
+            return skipQuoted(s, i + 1, len, '"');
+        }
+        if (c == '\'') {
+            return skipQuoted(s, i + 1, len, '\'');
+        }
+        return i;
+    }
+
+    // String or char literal body; literals cannot span lines, so an unterminated one ends at the newline
+    private static int skipQuoted(CharSequence s, int j, int len, char quote) {
+        while (j < len) {
+            char c = s.charAt(j);
+            if (c == '\\') {
+                j += 2;
+                continue;
+            }
+            if (c == quote) return j + 1;
+            if (c == '\n') return j;
+            j++;
+        }
+        return len;
+    }
+
+    private static int skipTextBlock(CharSequence s, int j, int len) {
+        while (j < len) {
+            char c = s.charAt(j);
+            if (c == '\\') {
+                j += 2;
+                continue;
+            }
+            if (c == '"' && j + 2 < len && s.charAt(j + 1) == '"' && s.charAt(j + 2) == '"') return j + 3;
+            j++;
+        }
+        return len;
+    }
+
+    /* Index of the first '{' in code (not in a comment or literal) at or after from, or -1. */
+    public static int nextOpenBrace(CharSequence s, int from) {
+        int len = s.length();
+        for (int i = Math.max(0, from); i < len; ) {
+            int skipped = skipNonCode(s, i, len);
+            if (skipped != i) {
+                i = skipped;
+                continue;
+            }
+            if (s.charAt(i) == '{') return i;
+            i++;
+        }
+        return -1;
+    }
+
+    /* Index of the '}' matching the '{' at openPos, or -1. */
+    public static int matchingBrace(CharSequence s, int openPos) {
+        int len = s.length();
+        if (openPos < 0 || openPos >= len || s.charAt(openPos) != '{') return -1;
+
+        int depth = 0;
+        for (int i = openPos; i < len; ) {
+            int skipped = skipNonCode(s, i, len);
+            if (skipped != i) {
+                i = skipped;
+                continue;
+            }
+            char c = s.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /* Index of the '}' that closes the body of the method whose signature starts at signaturePos, or -1. */
+    public static int methodEnd(CharSequence s, int signaturePos) {
+        return matchingBrace(s, nextOpenBrace(s, signaturePos));
+    }
+
+    /**
+     * Scans a class body in one pass, starting at its opening brace, and appends a triple per member
+     * (see {@link #MEMBER_STRIDE}) to out. Braces inside parentheses at member level (annotation arrays,
+     * lambdas in initializers) do not open a body. Returns the index of the class's closing brace, or -1.
+     */
+    public static int scanMembers(CharSequence s, int bodyOpen, OffsetBuffer out) {
+        int len = s.length();
+        if (bodyOpen < 0 || bodyOpen >= len || s.charAt(bodyOpen) != '{') return -1;
+
+        int depth = 1;       // 1 = directly inside the class body
+        int parens = 0;      // parenthesis depth at member level
+        int memberStart = -1;
+        int headerEnd = -1;
+
+        for (int i = bodyOpen + 1; i < len; ) {
+            int skipped = skipNonCode(s, i, len);
+            if (skipped != i) {
+                i = skipped;
+                continue;
+            }
+            char c = s.charAt(i);
+
+            if (depth > 1) {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}' && --depth == 1) {
+                    out.add(memberStart);
+                    out.add(headerEnd);
+                    out.add(i);
+                    memberStart = -1;
+                    parens = 0;
+                }
+                i++;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (memberStart < 0) {
+                if (c == '}') return i;
+                memberStart = i;
+            }
+
+            if (c == '(') {
+                parens++;
+            } else if (c == ')') {
+                if (parens > 0) parens--;
+            } else if (parens == 0) {
+                if (c == '{') {
+                    headerEnd = i;
+                    depth = 2;
+                } else if (c == ';') {
+                    out.add(memberStart);
+                    out.add(i);
+                    out.add(i);
+                    memberStart = -1;
+                    parens = 0;
+                } else if (c == '}') {
+                    // stray close at member level: the class ends inside an unfinished member
+                    return i;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+}
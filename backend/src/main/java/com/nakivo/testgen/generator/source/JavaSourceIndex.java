@@ -0,0 +1,216 @@
+package com.nakivo.testgen.generator.source;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offset table of the test methods in a manual test class: test id -> (start, end).
+ * start is the method's "@FrameworkAnnotation" (or the start of the member when there is none),
+ * end is the index of the method's closing brace. The table is built once per file content and then
+ * carried forward across edits with {@link #replaced} / {@link #appended}, so an upsert is a lookup plus a splice.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class JavaSourceIndex {
+
+    private static final String ANNOTATION = "@FrameworkAnnotation";
+    private static final Pattern SIGNATURE = Pattern.compile("public\\s+void\\s+(\\w+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private final String className;
+    private final String[] ids;
+    private final int[] starts;
+    private final int[] ends;
+    private final Map<String, Integer> slots;
+    private final int classEnd;
+
+    private JavaSourceIndex(String className, String[] ids, int[] starts, int[] ends, int classEnd) {
+        this(className, ids, starts, ends, classEnd, slotsOf(ids));
+    }
+
+    private JavaSourceIndex(String className, String[] ids, int[] starts, int[] ends, int classEnd, Map<String, Integer> slots) {
+        this.className = className;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.classEnd = classEnd;
+        this.slots = slots;
+    }
+
+    private static Map<String, Integer> slotsOf(String[] ids) {
+        Map<String, Integer> slots = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            slots.putIfAbsent(key(ids[i]), i);
+        }
+        return slots;
+    }
+
+    public static JavaSourceIndex build(String content, String className) {
+        // One lexer pass over the class body yields every member; only method headers are inspected further
+        int classPos = content.indexOf("class " + className);
+        int bodyOpen = JavaLexer.nextOpenBrace(content, Math.max(classPos, 0));
+        OffsetBuffer members = new OffsetBuffer(256);
+        int closeBrace = JavaLexer.scanMembers(content, bodyOpen, members);
+
+        int count = members.size() / JavaLexer.MEMBER_STRIDE;
+        String[] ids = new String[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int n = 0;
+
+        Matcher m = SIGNATURE.matcher(content);
+        for (int i = 0; i < members.size(); i += JavaLexer.MEMBER_STRIDE) {
+            int memberStart = members.get(i);
+            int headerEnd = members.get(i + 1);
+            int memberEnd = members.get(i + 2);
+            if (headerEnd == memberEnd) continue; // field or other ';'-terminated member
+
+            m.region(memberStart, headerEnd);
+            if (!m.find()) continue;
+
+            int annStart = indexOf(content, ANNOTATION, memberStart, m.start());
+            ids[n] = m.group(1);
+            starts[n] = annStart >= 0 ? annStart : memberStart;
+            ends[n] = memberEnd;
+            n++;
+        }
+
+        return new JavaSourceIndex(className,
+            Arrays.copyOf(ids, n), Arrays.copyOf(starts, n), Arrays.copyOf(ends, n),
+            classPos >= 0 ? closeBrace : -1);
+    }
+
+    // indexOf bounded to [from, to)
+    private static int indexOf(String content, String needle, int from, int to) {
+        for (int i = from, last = to - needle.length(); i <= last; i++) {
+            if (content.startsWith(needle, i)) return i;
+        }
+        return -1;
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase(Locale.ROOT);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /* Slot of the method for the given test id (case-insensitive, like the signature match), or -1. */
+    public int find(String id) {
+        Integer slot = slots.get(key(id));
+        return slot != null ? slot : -1;
+    }
+
+    public int start(int slot) {
+        return starts[slot];
+    }
+
+    public int end(int slot) {
+        return ends[slot];
+    }
+
+    /* Index of the closing brace of the class, or -1 when it could not be located. */
+    public int classEnd() {
+        return classEnd;
+    }
+
+    /* Index after the method in slot has been replaced by methodContent (spliced at start(slot)). */
+    public JavaSourceIndex replaced(int slot, String id, String methodContent) {
+        int oldLength = ends[slot] - starts[slot] + 1;
+        int delta = methodContent.length() - oldLength;
+
+        String[] newIds = ids.clone();
+        int[] newStarts = starts.clone();
+        int[] newEnds = ends.clone();
+        newIds[slot] = id;
+        newEnds[slot] = starts[slot] + methodContent.lastIndexOf('}');
+        shift(newStarts, newEnds, slot + 1, delta);
+
+        // same id in the same slot: the id -> slot table is unchanged and can be shared
+        Map<String, Integer> newSlots = key(id).equals(key(ids[slot])) ? slots : slotsOf(newIds);
+        return new JavaSourceIndex(className, newIds, newStarts, newEnds, shifted(classEnd, starts[slot], delta), newSlots);
+    }
+
+    /* Index after text was inserted at insertPos, with the method beginning methodOffset chars into that text. */
+    public JavaSourceIndex appended(String id, int insertPos, String insertedText, int methodOffset, String methodContent) {
+        int delta = insertedText.length();
+        int slot = 0;
+        while (slot < starts.length && starts[slot] < insertPos) slot++;
+
+        int n = ids.length;
+        String[] newIds = new String[n + 1];
+        int[] newStarts = new int[n + 1];
+        int[] newEnds = new int[n + 1];
+        System.arraycopy(ids, 0, newIds, 0, slot);
+        System.arraycopy(starts, 0, newStarts, 0, slot);
+        System.arraycopy(ends, 0, newEnds, 0, slot);
+        System.arraycopy(ids, slot, newIds, slot + 1, n - slot);
+        System.arraycopy(starts, slot, newStarts, slot + 1, n - slot);
+        System.arraycopy(ends, slot, newEnds, slot + 1, n - slot);
+
+        newIds[slot] = id;
+        newStarts[slot] = insertPos + methodOffset;
+        newEnds[slot] = insertPos + methodOffset + methodContent.lastIndexOf('}');
+        shift(newStarts, newEnds, slot + 1, delta);
+
+        Map<String, Integer> newSlots;
+        if (slot == n) {
+            // appended after the last method (the usual case): existing slots keep their numbers
+            newSlots = new HashMap<>(slots);
+            newSlots.putIfAbsent(key(id), slot);
+        } else {
+            newSlots = slotsOf(newIds);
+        }
+        return new JavaSourceIndex(className, newIds, newStarts, newEnds, shifted(classEnd, insertPos - 1, delta), newSlots);
+    }
+
+    /* Carry this index (built for text) over to edited text, when the edit is a single contiguous change that
+       does not touch any indexed offset - e.g. blank lines collapsed at a seam. Returns null when that is not the case. */
+    public JavaSourceIndex rebased(String text, String edited) {
+        if (text.equals(edited)) return this;
+
+        int prefix = 0;
+        int limit = Math.min(text.length(), edited.length());
+        while (prefix < limit && text.charAt(prefix) == edited.charAt(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix
+            && text.charAt(text.length() - 1 - suffix) == edited.charAt(edited.length() - 1 - suffix)) suffix++;
+
+        int changedEnd = text.length() - suffix; // exclusive
+        int delta = edited.length() - text.length();
+        int[] newStarts = starts.clone();
+        int[] newEnds = ends.clone();
+        for (int i = 0; i < ids.length; i++) {
+            if (inside(starts[i], prefix, changedEnd) || inside(ends[i], prefix, changedEnd)) return null;
+            if (starts[i] >= changedEnd) newStarts[i] += delta;
+            if (ends[i] >= changedEnd) newEnds[i] += delta;
+        }
+        if (inside(classEnd, prefix, changedEnd)) return null;
+        int newClassEnd = classEnd >= changedEnd ? classEnd + delta : classEnd;
+
+        return new JavaSourceIndex(className, ids, newStarts, newEnds, newClassEnd, slots);
+    }
+
+    private static boolean inside(int offset, int from, int to) {
+        return offset >= from && offset < to;
+    }
+
+    private static void shift(int[] starts, int[] ends, int fromSlot, int delta) {
+        if (delta == 0) return;
+        for (int i = fromSlot; i < starts.length; i++) {
+            starts[i] += delta;
+            ends[i] += delta;
+        }
+    }
+
+    private static int shifted(int offset, int editPos, int delta) {
+        return offset > editPos ? offset + delta : offset;
+    }
+}
@@ -0,0 +1,36 @@
+package com.nakivo.testgen.generator.source;
+
+import java.util.Arrays;
+
+/* Growable int array used by the lexer to emit offsets without boxing. */
+public final class OffsetBuffer {
+
+    private int[] data;
+    private int size;
+
+    public OffsetBuffer() {
+        this(64);
+    }
+
+    public OffsetBuffer(int capacity) {
+        this.data = new int[Math.max(4, capacity)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nakivo.testgen.generator.source;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of {@link JavaSourceIndex} keyed by git blob SHA of the indexed content.
+ * A SHA identifies the exact bytes, so an entry never goes stale; after an edit the carried-forward
+ * index is stored under the SHA of the new content.
+ */
+@Component
+public class SourceIndexCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private final Map<String, JavaSourceIndex> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JavaSourceIndex> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private long hits;
+    private long misses;
+
+    /* Cached index for this blob, or a freshly built one (which is then cached). */
+    public JavaSourceIndex get(String sha, String content, String className) {
+        synchronized (entries) {
+            JavaSourceIndex index = entries.get(sha);
+            if (index != null && index.getClassName().equals(className)) {
+                hits++;
+                return index;
+            }
+            misses++;
+        }
+
+        JavaSourceIndex built = JavaSourceIndex.build(content, className);
+        put(sha, built);
+        return built;
+    }
+
+    public void put(String sha, JavaSourceIndex index) {
+        synchronized (entries) {
+            entries.put(sha, index);
+        }
+    }
+
+    public void remove(String sha) {
+        synchronized (entries) {
+            entries.remove(sha);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nakivo.testgen.generator.source;
+
+/**
+ * Single-pass equivalent of the generator's regex normalization:
+ * <pre>
+ *   content.replaceAll("\r\n", "\n")
+ *          .replaceAll("(?m)^[ \t]*\n{3,}", "\n\n")
+ *          .replaceAll("[ \t]+$", "")
+ *          .trim() + "\n"
+ * </pre>
+ * The chained version copies the whole class four times and runs two regex scans over it; this walks the
+ * input once into one buffer sized to the result.
+ */
+public final class SourceNormalizer {
+
+    private SourceNormalizer() {
+    }
+
+    public static String normalize(CharSequence s) {
+        int len = s.length();
+
+        // trim(): leading / trailing chars <= ' ' are dropped; the rules below only ever touch such chars,
+        // so they can be applied to the trimmed region alone
+        int from = 0;
+        while (from < len && s.charAt(from) <= ' ') from++;
+        int to = len;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        if (from == to) return "\n";
+
+        // "[ \t]+$" without MULTILINE only matters when the text ends in a line terminator that trim() keeps
+        int tail = to;
+        boolean keepTerminator = to == len && isWideLineTerminator(s.charAt(to - 1));
+        if (keepTerminator) {
+            tail = to - 1;
+            while (tail > from && isBlank(s.charAt(tail - 1))) tail--;
+        }
+
+        StringBuilder out = new StringBuilder(to - from + 1);
+        boolean lineStart = from == 0 || isLineStartAfter(s, from - 1);
+        int i = from;
+        while (i < tail) {
+            if (lineStart) {
+                // "^[ \t]*\n{3,}" -> "\n\n", with "\r\n" already counted as "\n"
+                int j = i;
+                while (j < tail && isBlank(s.charAt(j))) j++;
+                int newlines = 0;
+                int k = j;
+                while (k < tail) {
+                    if (s.charAt(k) == '\n') {
+                        k++;
+                    } else if (s.charAt(k) == '\r' && k + 1 < tail && s.charAt(k + 1) == '\n') {
+                        k += 2;
+                    } else {
+                        break;
+                    }
+                    newlines++;
+                }
+                if (newlines >= 3) {
+                    out.append("\n\n");
+                    i = k;
+                    continue; // still at a line start
+                }
+            }
+
+            char c = s.charAt(i);
+            if (c == '\r' && i + 1 < tail && s.charAt(i + 1) == '\n') {
+                out.append('\n');
+                i += 2;
+                lineStart = true;
+                continue;
+            }
+            out.append(c);
+            // '^' also matches after a lone '\r' and the Unicode line separators, but not between '\r' and a '\n'
+            lineStart = c == '\r' ? !foldsToNewline(s, i + 1, len) : isLineTerminator(c);
+            i++;
+        }
+        if (keepTerminator) out.append(s.charAt(to - 1));
+        return out.append('\n').toString();
+    }
+
+    private static boolean isLineStartAfter(CharSequence s, int prev) {
+        char c = s.charAt(prev);
+        return c == '\r' ? !foldsToNewline(s, prev + 1, s.length()) : isLineTerminator(c);
+    }
+
+    // after "\r\n" -> "\n", is the char at i a '\n'? (a lone '\r' is never followed by a raw '\n')
+    private static boolean foldsToNewline(CharSequence s, int i, int len) {
+        return i + 1 < len && s.charAt(i) == '\r' && s.charAt(i + 1) == '\n';
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || isWideLineTerminator(c);
+    }
+
+    // line terminators above ' ', which trim() does not remove
+    private static boolean isWideLineTerminator(char c) {
+        return c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
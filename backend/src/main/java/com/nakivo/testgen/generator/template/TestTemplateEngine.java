@@ -0,0 +1,204 @@
+package com.nakivo.testgen.generator.template;
+
+import com.nakivo.testgen.config.GeneratorConfig;
+import com.nakivo.testgen.github.client.GitHubRateLimiter;
+import com.nakivo.testgen.github.service.GitHubFileService;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateExceptionHandler;
+import freemarker.template.Version;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the generator templates from one shared FreeMarker Configuration.
+ * The bundled templates are compiled once at startup; per-category overrides (from a local directory or
+ * the QA repo) are compiled when first needed and recompiled only when their content hash changes.
+ * Configuration and Template are thread-safe once set up, so render() only allocates the output.
+ * Only categories that are plain identifiers are looked up, at most max-categories of them (least recently rendered
+ * dropped first), and an override missing from the repo is not asked for again within miss-ttl-ms.
+ */
+@Component
+public class TestTemplateEngine {
+
+    public static final String CLASS_TEMPLATE = "class_template.ftl";
+    public static final String METHOD_TEMPLATE = "method_template.ftl";
+    private static final String[] TEMPLATE_NAMES = {CLASS_TEMPLATE, METHOD_TEMPLATE};
+
+    private static final String TEMPLATE_DIR = "templates";
+    // the category names a class (<Category>ManualTest) and a folder; anything else gets the bundled templates
+    private static final Pattern CATEGORY = Pattern.compile("[A-Za-z][A-Za-z0-9_]{0,63}");
+
+    private final GeneratorConfig.Templates settings;
+    private final GitHubFileService gitHubFileService;
+    private final Configuration cfg;
+    private final Map<String, Template> defaults = new ConcurrentHashMap<>();
+
+    // key: <Category>/<template name>
+    private final Map<String, CompiledOverride> overrides = new ConcurrentHashMap<>();
+    // category -> when it was last rendered
+    private final Map<String, Long> knownCategories = new ConcurrentHashMap<>();
+    // key -> until when a missing repo override is not fetched again
+    private final Map<String, Long> missingUntil = new ConcurrentHashMap<>();
+
+    public TestTemplateEngine(GeneratorConfig config, GitHubFileService gitHubFileService) throws IOException {
+        this.settings = config.getTemplates();
+        this.gitHubFileService = gitHubFileService;
+
+        // Setup FreeMarker once
+        cfg = new Configuration(new Version("2.3.29"));
+        cfg.setClassLoaderForTemplateLoading(getClass().getClassLoader(), TEMPLATE_DIR);
+        cfg.setDefaultEncoding("UTF-8");
+        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        cfg.setLogTemplateExceptions(false);
+        // bundled templates never change at runtime; overrides are tracked by content hash instead
+        cfg.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+
+        for (String name : TEMPLATE_NAMES) {
+            defaults.put(name, cfg.getTemplate(name));
+        }
+    }
+
+    public String render(String category, String templateName, Map<String, Object> model)
+        throws IOException, TemplateException {
+
+        StringWriter out = new StringWriter(1024);
+        resolve(category, templateName).process(model, out);
+        return out.toString();
+    }
+
+    private Template resolve(String category, String templateName) throws IOException {
+        if (category != null && hasOverrideSource() && CATEGORY.matcher(category).matches()) {
+            if (knownCategories.put(category, System.currentTimeMillis()) == null) {
+                evictIdleCategories();
+                reloadCategory(category);
+            }
+            CompiledOverride override = overrides.get(category + "/" + templateName);
+            if (override != null) return override.template;
+        }
+
+        Template template = defaults.get(templateName);
+        if (template == null) {
+            template = cfg.getTemplate(templateName);
+            defaults.put(templateName, template);
+        }
+        return template;
+    }
+
+    private boolean hasOverrideSource() {
+        return isSet(settings.getOverrideDir()) || isSet(settings.getOverrideRepoPath());
+    }
+
+    /* Re-read override sources for every category seen so far; unchanged content is not recompiled. */
+    @Scheduled(fixedDelayString = "${generator.templates.reload-interval-ms:30000}",
+        initialDelayString = "${generator.templates.reload-interval-ms:30000}")
+    public void reloadOverrides() {
+        if (!hasOverrideSource()) return;
+        // background polling must not take quota from interactive requests
+        GitHubRateLimiter.runAs(GitHubRateLimiter.Lane.BATCH, () -> {
+            for (String category : knownCategories.keySet()) {
+                reloadCategory(category);
+            }
+        });
+    }
+
+    // Drops the least recently rendered categories beyond max-categories, with their overrides
+    private void evictIdleCategories() {
+        int max = Math.max(1, settings.getMaxCategories());
+        while (knownCategories.size() > max) {
+            String oldest = null;
+            long oldestAt = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> e : knownCategories.entrySet()) {
+                if (e.getValue() < oldestAt) {
+                    oldest = e.getKey();
+                    oldestAt = e.getValue();
+                }
+            }
+            if (oldest == null || knownCategories.remove(oldest) == null) continue;
+            for (String name : TEMPLATE_NAMES) {
+                overrides.remove(oldest + "/" + name);
+                missingUntil.remove(oldest + "/" + name);
+            }
+        }
+    }
+
+    private void reloadCategory(String category) {
+        for (String name : TEMPLATE_NAMES) {
+            String key = category + "/" + name;
+            Long missing = missingUntil.get(key);
+            if (missing != null && missing > System.currentTimeMillis()) continue;
+            try {
+                String source = loadOverrideSource(category, name);
+                if (source == null) {
+                    if (!isSet(settings.getOverrideDir())) {
+                        // a local directory is cheap to check again; the repo costs a request
+                        missingUntil.put(key, System.currentTimeMillis() + settings.getMissTtlMs());
+                    }
+                    if (overrides.remove(key) != null) {
+                        System.out.println("[INFO] Template override removed: " + key);
+                    }
+                    continue;
+                }
+                missingUntil.remove(key);
+
+                String hash = sha256(source);
+                CompiledOverride current = overrides.get(key);
+                if (current != null && current.hash.equals(hash)) continue;
+
+                overrides.put(key, new CompiledOverride(hash, new Template(key, source, cfg)));
+                System.out.println("[INFO] Template override " + (current == null ? "loaded" : "reloaded") + ": " + key);
+            } catch (Exception e) {
+                // keep serving the previous version (or the bundled template)
+                System.err.println("[WARN] Failed to load template override " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private String loadOverrideSource(String category, String name) throws IOException, InterruptedException {
+        if (isSet(settings.getOverrideDir())) {
+            Path file = Paths.get(settings.getOverrideDir(), category, name);
+            return Files.isRegularFile(file) ? Files.readString(file, StandardCharsets.UTF_8) : null;
+        }
+        if (isSet(settings.getOverrideRepoPath()) && gitHubFileService != null) {
+            return gitHubFileService.getFileContentFromGithub(settings.getOverrideRepoPath() + "/" + category + "/" + name);
+        }
+        return null;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static String sha256(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class CompiledOverride {
+        final String hash;
+        final Template template;
+
+        CompiledOverride(String hash, Template template) {
+            this.hash = hash;
+            this.template = template;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.RepoFile;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local clone of the configured branch. Reads map the working tree file (no API call, no quota); the branch is
+ * fetched on a schedule or on demand and the working tree reset to it. A commit is made locally and pushed as a
+ * fast-forward; a rejected push resets the clone to the remote branch and fails with 422, like a REST ref update
+ * that is not a fast-forward, so the commit queue re-reads and retries. The working tree only ever holds
+ * the remote branch plus the commit being pushed.
+ */
+public class GitMirrorBackend implements RepositoryBackend, AutoCloseable {
+
+    public static final String NAME = "mirror";
+    // written into .git after cloning: only a clone made here is ever reset and cleaned
+    private static final String MARKER = "testgen-mirror";
+
+    private final String branch;
+    private final String remoteUrl;
+    private final Path workTree;
+    private final CredentialsProvider credentials;
+    private final PersonIdent author;
+    private final Git git;
+    private final Repository repository;
+
+    // reads share the working tree; reset and commit/push change it. A fetch only moves the tracking ref, so it runs
+    // without it and reads go on meanwhile
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // one fetch or push at a time (both update the tracking ref); taken before the working tree lock
+    private final ReentrantLock remoteLock = new ReentrantLock();
+    // HEAD of the working tree, for blob SHAs of reads
+    private volatile RevCommit head;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong fetchFailures = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong rejectedPushes = new AtomicLong();
+    private volatile long lastFetchMs;
+
+    public GitMirrorBackend(GitHubConfig config) {
+        GitHubConfig.Mirror settings = config.getMirror();
+        this.branch = config.getBranch();
+        this.remoteUrl = isSet(settings.getRemoteUrl())
+            ? settings.getRemoteUrl()
+            : "https://github.com/" + config.getOwner() + "/" + config.getRepo() + ".git";
+        this.workTree = (isSet(settings.getDir())
+            ? Paths.get(settings.getDir())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "testgen-mirror", config.getOwner() + "-" + config.getRepo()))
+            .toAbsolutePath().normalize();
+        this.credentials = isSet(config.getPat()) ? new UsernamePasswordCredentialsProvider("x-access-token", config.getPat()) : null;
+        this.author = new PersonIdent(settings.getAuthorName(), settings.getAuthorEmail());
+
+        try {
+            this.git = open();
+            this.repository = git.getRepository();
+            this.head = resolve(Constants.HEAD);
+            this.lastFetchMs = System.currentTimeMillis();
+        } catch (IOException | GitAPIException e) {
+            throw new RuntimeException("Failed to open repository mirror in " + workTree + ": " + e.getMessage(), e);
+        }
+        System.out.println("[INFO] Repository mirror of " + remoteUrl + " (" + branch + ") in " + workTree
+            + " at " + (head == null ? "empty branch" : head.name()));
+    }
+
+    // a clone made by this backend is reused and brought up to date; otherwise only the configured branch is cloned
+    private Git open() throws IOException, GitAPIException {
+        Path marker = workTree.resolve(".git").resolve(MARKER);
+        if (Files.isDirectory(workTree.resolve(".git"))) {
+            // reuse hard-resets and cleans the working tree, which must not happen to somebody's own checkout
+            String clonedFrom = Files.isRegularFile(marker) ? Files.readString(marker, StandardCharsets.UTF_8).trim() : null;
+            if (!remoteUrl.equals(clonedFrom)) {
+                throw new IllegalStateException(workTree + " is " + (clonedFrom == null
+                    ? "a repository the mirror did not clone" : "a mirror of " + clonedFrom)
+                    + "; refusing to reset it. Remove it or set github.mirror.dir to another directory");
+            }
+            Git existing = Git.open(workTree.toFile());
+            try {
+                String origin = existing.getRepository().getConfig().getString("remote", "origin", "url");
+                if (!remoteUrl.equals(origin)) {
+                    throw new IllegalStateException(workTree + " fetches from " + origin + ", not " + remoteUrl
+                        + "; refusing to reset it");
+                }
+                fetch(existing);
+                reset(existing, true);
+            } catch (IOException | GitAPIException | RuntimeException e) {
+                existing.close();
+                throw e;
+            }
+            return existing;
+        }
+        Files.createDirectories(workTree);
+        Git cloned = Git.cloneRepository()
+            .setURI(remoteUrl)
+            .setDirectory(workTree.toFile())
+            .setBranch(Constants.R_HEADS + branch)
+            .setBranchesToClone(List.of(Constants.R_HEADS + branch))
+            .setCredentialsProvider(credentials)
+            .call();
+        Files.writeString(marker, remoteUrl + "\n", StandardCharsets.UTF_8);
+        return cloned;
+    }
+
+    @Override
+    public RepoFile readFile(String path, long maxBytes) throws IOException {
+        Path file = resolvePath(path);
+        lock.readLock().lock();
+        try {
+            if (!Files.isRegularFile(file)) return null;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (maxBytes > 0 && size > maxBytes) {
+                    throw new IllegalStateException("File too large to load into memory: " + path + " (" + size + " bytes)");
+                }
+                // the mapping stays valid after the channel is closed; checkout and commit replace files by rename,
+                // so a buffer handed out keeps the content it was read with
+                ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                reads.incrementAndGet();
+                return new RepoFile(path, blobSha(path), content);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String fileSha(String path) throws IOException {
+        return blobSha(path);
+    }
+
+    @Override
+    public InputStream openRaw(String path) throws IOException {
+        RepoFile file = readFile(path, 0);
+        return file == null ? null : file.openStream();
+    }
+
+    /* Straight from the object database: objects are immutable, so no lock is needed. */
+    @Override
+    public InputStream openBlob(String path, String sha) throws IOException {
+        try {
+            return repository.open(ObjectId.fromString(sha), Constants.OBJ_BLOB).openStream();
+        } catch (MissingObjectException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String commitFiles(String message, Map<String, Object> files, Map<String, String> baseShas) throws IOException {
+        remoteLock.lock();
+        try {
+            Exception failure;
+            lock.writeLock().lock();
+            try {
+                // a fetch since the read may have moved the working tree; the commit must not undo what it brought
+                for (Map.Entry<String, String> base : baseShas.entrySet()) {
+                    String now = blobSha(base.getKey());
+                    if (!Objects.equals(now, base.getValue())) {
+                        throw new GitHubApiException(409, base.getKey() + " changed on " + branch + " since it was read (read at "
+                            + base.getValue() + ", now " + now + ")");
+                    }
+                }
+                try {
+                    for (Map.Entry<String, Object> entry : files.entrySet()) {
+                        write(resolvePath(entry.getKey()), entry.getValue());
+                        git.add().addFilepattern(gitPath(entry.getKey())).call();
+                    }
+                    RevCommit commit = git.commit().setMessage(message).setAuthor(author).setCommitter(author).call();
+                    push(commit);
+                    head = commit;
+                    commits.incrementAndGet();
+                    System.out.println("[INFO] Pushed " + commit.name() + " (" + files.size() + " file(s)) to " + branch);
+                    return commit.name();
+                } catch (IOException | GitAPIException | RuntimeException e) {
+                    failure = e;
+                    // drop the local commit / staged files: back to the branch as last fetched, without the network
+                    restore();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // the branch may have moved on the remote: catch up, with reads going on during the fetch
+            resync();
+            if (failure instanceof GitAPIException) throw new IOException("Commit to mirror failed: " + failure.getMessage(), failure);
+            if (failure instanceof IOException io) throw io;
+            throw (RuntimeException) failure;
+        } finally {
+            remoteLock.unlock();
+        }
+    }
+
+    private void push(RevCommit commit) throws GitAPIException {
+        Iterable<PushResult> results = git.push()
+            .setRemote(Constants.DEFAULT_REMOTE_NAME)
+            .setRefSpecs(new RefSpec(Constants.R_HEADS + branch + ":" + Constants.R_HEADS + branch))
+            .setCredentialsProvider(credentials)
+            .call();
+        for (PushResult result : results) {
+            for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                switch (update.getStatus()) {
+                    case OK, UP_TO_DATE -> { }
+                    case REJECTED_NONFASTFORWARD, REJECTED_REMOTE_CHANGED -> {
+                        rejectedPushes.incrementAndGet();
+                        throw new GitHubApiException(422, "Push of " + commit.name() + " rejected: " + branch
+                            + " moved on the remote (" + update.getStatus() + ")");
+                    }
+                    default -> throw new RuntimeException("Push of " + commit.name() + " failed: " + update.getStatus()
+                        + (update.getMessage() != null ? " - " + update.getMessage() : ""));
+                }
+            }
+        }
+    }
+
+    /* Fetch the branch and move the working tree to it. */
+    @Override
+    @Scheduled(fixedDelayString = "${github.mirror.fetch-interval-ms:60000}",
+        initialDelayString = "${github.mirror.fetch-interval-ms:60000}")
+    public void refresh() throws IOException {
+        remoteLock.lock();
+        try {
+            fetch(git);
+            resetWorkTree();
+        } catch (GitAPIException e) {
+            fetchFailures.incrementAndGet();
+            throw new IOException("Fetch of " + branch + " failed: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            fetchFailures.incrementAndGet();
+            throw e;
+        } finally {
+            remoteLock.unlock();
+        }
+    }
+
+    // called with remoteLock held
+    private void resync() {
+        try {
+            fetch(git);
+            resetWorkTree();
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            fetchFailures.incrementAndGet();
+            System.err.println("[WARN] Could not reset mirror to origin/" + branch + ": " + e.getMessage());
+        }
+    }
+
+    // back to the tracking ref (a failed push leaves it where it was), under the write lock already held
+    private void restore() {
+        try {
+            reset(git, false);
+            head = resolve(Constants.HEAD);
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            System.err.println("[WARN] Could not reset mirror to origin/" + branch + ": " + e.getMessage());
+        }
+    }
+
+    private void resetWorkTree() throws IOException, GitAPIException {
+        lock.writeLock().lock();
+        try {
+            reset(git, false);
+            head = resolve(Constants.HEAD);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // incremental: only objects missing locally are transferred. Only the tracking ref moves, so reads of the
+    // working tree are not held up by the round trip
+    private void fetch(Git target) throws GitAPIException {
+        target.fetch()
+            .setRemote(Constants.DEFAULT_REMOTE_NAME)
+            .setRefSpecs(new RefSpec("+" + Constants.R_HEADS + branch + ":" + tracking()))
+            .setCredentialsProvider(credentials)
+            .call();
+        fetches.incrementAndGet();
+        lastFetchMs = System.currentTimeMillis();
+    }
+
+    // the working tree to the tracking ref. It is only changed under the write lock and reset after a failed commit,
+    // so it is checked for leftovers only when a clone is reopened
+    private void reset(Git target, boolean verifyClean) throws IOException, GitAPIException {
+        Repository repo = target.getRepository();
+        ObjectId remote = repo.resolve(tracking());
+        if (remote == null) return;
+        ObjectId local = repo.resolve(Constants.HEAD);
+        if (remote.equals(local) && (!verifyClean || target.status().call().isClean())) return;
+        target.reset().setMode(ResetCommand.ResetType.HARD).setRef(remote.name()).call();
+        target.clean().setCleanDirectories(true).call();
+        updates.incrementAndGet();
+        System.out.println("[INFO] Mirror updated to " + remote.name() + " (" + branch + ")");
+    }
+
+    private String tracking() {
+        return Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch;
+    }
+
+    private RevCommit resolve(String revision) throws IOException {
+        ObjectId id = repository.resolve(revision);
+        if (id == null) return null;
+        try (RevWalk walk = new RevWalk(repository)) {
+            return walk.parseCommit(id);
+        }
+    }
+
+    // blob SHA of the path in HEAD: the same value the contents API reports, so SHA comparisons work across backends
+    private String blobSha(String path) throws IOException {
+        RevCommit commit = head;
+        if (commit == null) return null;
+        try (TreeWalk walk = TreeWalk.forPath(repository, gitPath(path), commit.getTree())) {
+            return walk == null ? null : walk.getObjectId(0).name();
+        }
+    }
+
+    private Path resolvePath(String path) {
+        Path file = workTree.resolve(gitPath(path)).normalize();
+        if (!file.startsWith(workTree) || file.startsWith(workTree.resolve(".git"))) {
+            throw new IllegalArgumentException("Path outside the repository: " + path);
+        }
+        return file;
+    }
+
+    private static String gitPath(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    // written next to the target and moved over it, so mapped readers of the old file are not affected
+    private static void write(Path file, Object content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), ".testgen-", ".tmp");
+        try {
+            if (content instanceof Path source) {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.write(temp, content instanceof byte[] bytes ? bytes : String.valueOf(content).getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        RevCommit commit = head;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", NAME);
+        stats.put("remote", remoteUrl);
+        stats.put("branch", branch);
+        stats.put("dir", workTree.toString());
+        stats.put("head", commit == null ? null : commit.name());
+        stats.put("lastFetchAgoMs", System.currentTimeMillis() - lastFetchMs);
+        stats.put("reads", reads.get());
+        stats.put("fetches", fetches.get());
+        stats.put("fetchFailures", fetchFailures.get());
+        stats.put("updates", updates.get());
+        stats.put("commits", commits.get());
+        stats.put("rejectedPushes", rejectedPushes.get());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        git.close();
+    }
+}
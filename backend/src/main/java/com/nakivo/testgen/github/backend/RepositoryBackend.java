@@ -0,0 +1,59 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.github.client.GitCommitBuilder;
+import com.nakivo.testgen.github.client.RepoFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Read / commit access to the configured repository branch. Implementations: {@link RestRepositoryBackend}
+ * (GitHub REST API), {@link GitMirrorBackend} (local clone, fetched and pushed with JGit) and
+ * {@link WorkspaceBackend} (a checkout edited in place, no commits); selected with github.backend.
+ */
+public interface RepositoryBackend {
+
+    /* File content and blob SHA, or null if it does not exist. Files larger than maxBytes (when > 0) are rejected. */
+    RepoFile readFile(String path, long maxBytes) throws IOException, InterruptedException;
+
+    /* Blob SHA of the file on the branch, or null if it does not exist; backends answer it without the content
+       where they can. */
+    default String fileSha(String path) throws IOException, InterruptedException {
+        RepoFile file = readFile(path, 0);
+        return file == null ? null : file.getSha();
+    }
+
+    /* File bytes as a stream, or null if it does not exist. The caller must close the stream. */
+    InputStream openRaw(String path) throws IOException, InterruptedException;
+
+    /* Bytes of the blob with the given SHA (what fileSha reported for the path) as a stream, or null if the path no
+       longer holds it. The content always matches the SHA. The caller must close the stream. */
+    default InputStream openBlob(String path, String sha) throws IOException, InterruptedException {
+        RepoFile file = readFile(path, 0);
+        return file == null || !file.getSha().equals(sha) ? null : file.openStream();
+    }
+
+    /* Start a commit of several files on the branch. */
+    default GitCommitBuilder newCommit(String message) {
+        return new GitCommitBuilder(this, message);
+    }
+
+    /* Land files (path -> String for UTF-8 text, byte[] for binary, Path for a local file copied as is) as one commit on top of the branch head and
+       return its SHA. baseShas maps a path to the blob SHA its new content was derived from (null: the file did not
+       exist); when the branch holds a different blob there, nothing is written and GitHubApiException (409) is
+       thrown, so a change made since the read is never overwritten. A branch that moved in a way that is not a
+       fast-forward gives GitHubApiException (422). */
+    String commitFiles(String message, Map<String, Object> files, Map<String, String> baseShas)
+        throws IOException, InterruptedException;
+
+    /* True when commits are plain local writes, so there is nothing to gain from batching them. */
+    default boolean isLocal() {
+        return false;
+    }
+
+    /* Bring reads up to date with the remote branch, where reads can be behind it. */
+    void refresh() throws IOException;
+
+    Map<String, Object> stats();
+}
@@ -0,0 +1,58 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.github.client.GitHubClient;
+import com.nakivo.testgen.github.client.RepoFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/* Every read and commit goes to the GitHub REST API; reads are always current (subject to the ETag cache revalidating). */
+public class RestRepositoryBackend implements RepositoryBackend {
+
+    public static final String NAME = "rest";
+
+    private final GitHubClient client;
+
+    public RestRepositoryBackend(GitHubClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public RepoFile readFile(String path, long maxBytes) throws IOException, InterruptedException {
+        return client.readFile(path, maxBytes);
+    }
+
+    @Override
+    public String fileSha(String path) throws IOException, InterruptedException {
+        return client.fileSha(path);
+    }
+
+    /* Streams the raw bytes from GitHub; only small files are held (in the contents cache, for conditional reads). */
+    @Override
+    public InputStream openRaw(String path) throws IOException, InterruptedException {
+        return client.openRaw(path);
+    }
+
+    /* Streams the blob from the Git Data API; nothing is buffered. */
+    @Override
+    public InputStream openBlob(String path, String sha) throws IOException, InterruptedException {
+        return client.openBlob(sha);
+    }
+
+    @Override
+    public String commitFiles(String message, Map<String, Object> files, Map<String, String> baseShas)
+        throws IOException, InterruptedException {
+        return client.commitFiles(message, files, baseShas);
+    }
+
+    @Override
+    public void refresh() {
+        // nothing is kept locally
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        return Map.of("backend", NAME);
+    }
+}
@@ -0,0 +1,309 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.utils.GitBlobSha;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A checked-out QA repository edited in place: paths resolve against github.workspace.root, reads and writes
+ * go through file channels, and generated files are written straight into the working tree (nothing is committed
+ * or pushed, so no network is involved). Files read or written are kept in memory with their blob SHA, so a repeated
+ * upsert on a class is a map lookup plus a cached source index; a WatchService on their directories drops an entry
+ * (and its source index) as soon as the file is changed outside the generator, e.g. by an IDE or a git pull.
+ * Watch events arrive late, so every cache hit is also checked against the file's modification time and size.
+ */
+public class WorkspaceBackend implements RepositoryBackend, AutoCloseable {
+
+    public static final String NAME = "workspace";
+    /* Returned in place of a commit SHA: the files are in the working tree, committing them is up to the user. */
+    public static final String WRITTEN = "workspace";
+
+    private final Path root;
+    private final SourceIndexCache sourceIndexCache;
+    private final WatchService watcher;
+    private final Thread watchThread;
+
+    // relative path -> content as last read or written; only used while a watcher keeps it current
+    private final Map<Path, Entry> files = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchedDirs = new ConcurrentHashMap<>();
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong externalChanges = new AtomicLong();
+
+    public WorkspaceBackend(GitHubConfig config, SourceIndexCache sourceIndexCache) {
+        GitHubConfig.Workspace settings = config.getWorkspace();
+        if (settings.getRoot() == null || settings.getRoot().isBlank()) {
+            throw new IllegalArgumentException("github.workspace.root is required for github.backend=workspace");
+        }
+        this.root = Paths.get(settings.getRoot()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Workspace root is not a directory: " + root);
+        }
+        this.sourceIndexCache = sourceIndexCache;
+
+        WatchService watchService = null;
+        if (settings.isWatch()) {
+            try {
+                watchService = root.getFileSystem().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                System.err.println("[WARN] No file watching in " + root + ", workspace files are read on every use: " + e.getMessage());
+            }
+        }
+        this.watcher = watchService;
+        this.watchThread = watchService == null ? null
+            : Thread.ofPlatform().name("workspace-watch").daemon().start(this::watchLoop);
+        System.out.println("[INFO] Repository backend: workspace " + root + (watcher != null ? " (watched)" : ""));
+    }
+
+    @Override
+    public RepoFile readFile(String path, long maxBytes) throws IOException {
+        Path relative = relativize(path);
+        reads.incrementAndGet();
+        Entry cached = files.get(relative);
+        if (cached != null) {
+            if (isCurrent(relative, cached)) {
+                checkSize(path, cached.content.remaining(), maxBytes);
+                cacheHits.incrementAndGet();
+                return new RepoFile(path, cached.sha, cached.content);
+            }
+            // changed (or deleted) before its watch event arrived
+            if (files.remove(relative, cached)) {
+                dropIndex(cached);
+                externalChanges.incrementAndGet();
+            }
+        }
+
+        Path file = root.resolve(relative);
+        // watched before it is read, so a change made while reading is not missed
+        boolean watched = watch(file.getParent());
+        ByteBuffer content;
+        FileTime modified;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            checkSize(path, size, maxBytes);
+            modified = Files.getLastModifiedTime(file);
+            content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) { }
+            content.flip();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String sha = GitBlobSha.of(content.limit() == content.capacity()
+            ? content.array() : Arrays.copyOf(content.array(), content.limit()));
+        if (watched) remember(relative, new Entry(content, sha, modified));
+        return new RepoFile(path, sha, content);
+    }
+
+    @Override
+    public InputStream openRaw(String path) throws IOException {
+        RepoFile file = readFile(path, 0);
+        return file == null ? null : file.openStream();
+    }
+
+    /* Writes every file into the working tree (each replaced atomically, so an open editor never sees half a file).
+       Nothing is written when a file no longer holds the content its change was derived from. */
+    @Override
+    public String commitFiles(String message, Map<String, Object> changes, Map<String, String> baseShas) throws IOException {
+        for (Map.Entry<String, String> base : baseShas.entrySet()) {
+            RepoFile current = readFile(base.getKey(), 0);
+            String now = current == null ? null : current.getSha();
+            if (!Objects.equals(now, base.getValue())) {
+                throw new GitHubApiException(409, base.getKey() + " changed in the workspace since it was read (read at "
+                    + base.getValue() + ", now " + now + ")");
+            }
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Path relative = relativize(change.getKey());
+            // a local copy either way: the content is kept in memory for the reads that follow
+            byte[] bytes = change.getValue() instanceof byte[] b ? b
+                : change.getValue() instanceof Path source ? Files.readAllBytes(source)
+                : String.valueOf(change.getValue()).getBytes(StandardCharsets.UTF_8);
+            Path file = root.resolve(relative);
+
+            Files.createDirectories(file.getParent());
+            boolean watched = watch(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), ".testgen-", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                }
+                // the rename keeps the modification time, so the watch event of this write is recognised as ours
+                if (watched) remember(relative, new Entry(ByteBuffer.wrap(bytes), GitBlobSha.of(bytes), Files.getLastModifiedTime(temp)));
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                forget(relative);
+                throw e;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            writes.incrementAndGet();
+        }
+        System.out.println("[INFO] Wrote " + changes.size() + " file(s) to workspace " + root + ": " + message.lines().findFirst().orElse(""));
+        return WRITTEN;
+    }
+
+    /* Drop everything held in memory; the next read of each file goes to disk. */
+    @Override
+    public void refresh() {
+        for (Path relative : files.keySet()) forget(relative);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    // only directories files were read from or written to are watched, not the whole checkout
+    private boolean watch(Path dir) {
+        if (watcher == null) return false;
+        if (watchedDirs.containsKey(dir)) return true;
+        try {
+            watchedDirs.computeIfAbsent(dir, d -> {
+                try {
+                    return d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("[WARN] Cannot watch " + dir + ", not caching files in it: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void remember(Path relative, Entry entry) {
+        Entry previous = files.put(relative, entry);
+        if (previous != null && !previous.sha.equals(entry.sha)) dropIndex(previous);
+    }
+
+    private void forget(Path relative) {
+        Entry removed = files.remove(relative);
+        if (removed != null) dropIndex(removed);
+    }
+
+    // the index is keyed by SHA and would never be hit again; free it instead of waiting for LRU eviction
+    private void dropIndex(Entry entry) {
+        if (sourceIndexCache != null) sourceIndexCache.remove(entry.sha);
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        System.err.println("[WARN] Workspace watch overflow, dropping all cached files");
+                        refresh();
+                        continue;
+                    }
+                    onChange(root.relativize(dir.resolve((Path) event.context())));
+                }
+                if (!key.reset()) watchedDirs.remove(dir, key);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    // events for our own writes arrive too: those files still carry the modification time recorded when written
+    private void onChange(Path relative) {
+        Entry entry = files.get(relative);
+        if (entry == null || isCurrent(relative, entry)) return;
+        if (files.remove(relative, entry)) {
+            dropIndex(entry);
+            externalChanges.incrementAndGet();
+            System.out.println("[INFO] Workspace file changed outside the generator: " + relative);
+        }
+    }
+
+    // one stat: the file still has the modification time and size the entry was read or written with
+    private boolean isCurrent(Path relative, Entry entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(root.resolve(relative), BasicFileAttributes.class);
+            return attributes.lastModifiedTime().equals(entry.modified) && attributes.size() == entry.content.remaining();
+        } catch (IOException e) {
+            return false; // deleted
+        }
+    }
+
+    private Path relativize(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        Path relative = Paths.get(trimmed).normalize();
+        if (relative.isAbsolute() || relative.startsWith("..") || !root.resolve(relative).normalize().startsWith(root)) {
+            throw new IllegalArgumentException("Path outside the workspace: " + path);
+        }
+        return relative;
+    }
+
+    private static void checkSize(String path, long size, long maxBytes) {
+        if (maxBytes > 0 && size > maxBytes) {
+            throw new IllegalStateException("File too large to load into memory: " + path + " (" + size + " bytes)");
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", NAME);
+        stats.put("root", root.toString());
+        stats.put("watching", watcher != null);
+        stats.put("watchedDirs", watchedDirs.size());
+        stats.put("cachedFiles", files.size());
+        stats.put("reads", reads.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("writes", writes.get());
+        stats.put("externalChanges", externalChanges.get());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) watcher.close();
+        if (watchThread != null) watchThread.interrupt();
+    }
+
+    private static final class Entry {
+        final ByteBuffer content;
+        final String sha;
+        final FileTime modified;
+
+        Entry(ByteBuffer content, String sha, FileTime modified) {
+            this.content = content;
+            this.sha = sha;
+            this.modified = modified;
+        }
+    }
+}
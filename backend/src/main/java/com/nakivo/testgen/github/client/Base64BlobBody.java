@@ -0,0 +1,78 @@
+package com.nakivo.testgen.github.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * JSON body of a blob creation ({"encoding":"base64","content":"..."}) read from a content stream and encoded chunk by
+ * chunk as it is sent, so a large file is never held in memory, raw or encoded. The body length is known up front
+ * from the content size ({@link #length}).
+ */
+final class Base64BlobBody extends InputStream {
+
+    private static final byte[] PREFIX = "{\"encoding\":\"base64\",\"content\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    // a multiple of 3, so every chunk but the last encodes without padding
+    private static final int CHUNK = 48 * 1024;
+
+    private final InputStream content;
+    private final byte[] raw = new byte[CHUNK];
+    private final byte[] encoded = new byte[CHUNK / 3 * 4];
+    private byte[] out = PREFIX;
+    private int outLength = PREFIX.length;
+    private int pos;
+    private boolean contentDone;
+    private boolean suffixSent;
+
+    Base64BlobBody(InputStream content) {
+        this.content = content;
+    }
+
+    /* Bytes in the body for content of the given size. */
+    static long length(long size) {
+        return PREFIX.length + 4 * ((size + 2) / 3) + SUFFIX.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return out[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+        int n = Math.min(len, outLength - pos);
+        System.arraycopy(out, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    // next bytes to send in out[pos, outLength); false at the end of the body
+    private boolean fill() throws IOException {
+        while (pos >= outLength) {
+            if (suffixSent) return false;
+            if (contentDone) {
+                out = SUFFIX;
+                outLength = SUFFIX.length;
+                suffixSent = true;
+            } else {
+                int n = content.readNBytes(raw, 0, CHUNK);
+                if (n < CHUNK) contentDone = true;
+                out = encoded;
+                outLength = Base64.getEncoder().encode(n == CHUNK ? raw : Arrays.copyOf(raw, n), encoded);
+            }
+            pos = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
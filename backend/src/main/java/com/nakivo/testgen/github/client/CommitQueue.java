@@ -0,0 +1,415 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.utils.GitBlobSha;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for repository files. An edit is applied at once to a staged copy of its file, so the caller
+ * gets the result immediately, and is committed later: everything queued within one window lands as a single commit,
+ * so regenerating the same test five times in a minute costs one commit instead of five.
+ * Before committing, each file is re-read (conditionally, so usually a 304); when it changed since its edits were
+ * staged, the edits are replayed on the current content. Every file is committed guarded by the blob SHA it was just
+ * read at, so a change landing between that read and the push rejects the commit (409) instead of being overwritten;
+ * a commit rejected with 409/422 is rebuilt the same way, up to the configured number of attempts.
+ * Each queued edit gets an id whose outcome (queued, committed, unchanged, failed) can be polled with {@link #status}.
+ */
+@Component
+public class CommitQueue {
+
+    private final RepositoryBackend backend;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxAttempts;
+    // one thread: flushes run one after another, each on top of the previous one's commit
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    // guarded by queueLock
+    private Map<String, PendingFile> pending = new LinkedHashMap<>();
+    private final Map<String, PendingFile> flushing = new HashMap<>();
+    private boolean flushScheduled;
+
+    private final AtomicInteger queuedEdits = new AtomicInteger();
+    private final AtomicInteger flushingEdits = new AtomicInteger();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong lastLatencyMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private final AtomicLong lastCommitMs = new AtomicLong();
+    private volatile String lastFlushError;
+
+    // most recent edits by id, for status polling; the oldest are forgotten first
+    private static final int MAX_TRACKED_EDITS = 1000;
+    private final AtomicLong editIds = new AtomicLong();
+    private final Map<String, PendingEdit> tracked = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PendingEdit> eldest) {
+            return size() > MAX_TRACKED_EDITS;
+        }
+    };
+
+    public CommitQueue(GitHubConfig config, RepositoryBackend backend) {
+        GitHubConfig.WriteBehind settings = config.getWriteBehind();
+        this.backend = backend;
+        // a workspace write is as cheap as staging it, and the file should be on disk right away
+        this.enabled = settings.isEnabled() && !backend.isLocal();
+        this.windowMs = Math.max(0, settings.getWindowMs());
+        this.maxAttempts = Math.max(1, settings.getMaxAttempts());
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> Thread.ofPlatform().name("commit-queue").daemon().unstarted(r));
+        // on shutdown the queue is flushed immediately instead of waiting for the window
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Queue an edit of one file. The edit runs right away against the file's staged content (the branch content plus
+       edits already queued), and its result is returned together with a future of the commit that will carry it.
+       An edit that fails here is not queued; its exception is thrown to the caller. */
+    public QueuedEdit submit(String path, boolean binary, String message, FileEdit edit) throws Exception {
+        while (true) {
+            PendingFile file;
+            queueLock.lock();
+            try {
+                file = pending.get(path);
+                if (file == null) {
+                    file = new PendingFile(path, binary, flushing.get(path));
+                    pending.put(path, file);
+                }
+                if (!flushScheduled) {
+                    scheduler.schedule(this::flushInteractive, windowMs, TimeUnit.MILLISECONDS);
+                    flushScheduled = true;
+                }
+            } finally {
+                queueLock.unlock();
+            }
+
+            file.lock.lockInterruptibly();
+            try {
+                if (file.closed) continue; // a flush took it meanwhile; this edit goes into the next window
+                if (!file.loaded) file.load();
+
+                byte[] staged = edit.apply(file.staged);
+                PendingEdit queued = new PendingEdit("edit-" + editIds.incrementAndGet(), path, message, edit);
+                file.edits.add(queued);
+                file.staged = staged;
+                queuedEdits.incrementAndGet();
+                synchronized (tracked) {
+                    tracked.put(queued.id, queued);
+                }
+                return new QueuedEdit(queued.id, path, staged, queued.commit);
+            } finally {
+                file.lock.unlock();
+            }
+        }
+    }
+
+    // a flush lands the edits of interactive requests, whatever lane the scheduler thread inherited
+    private void flushInteractive() {
+        GitHubRateLimiter.runAs(GitHubRateLimiter.Lane.INTERACTIVE, this::flush);
+    }
+
+    private void flush() {
+        List<PendingFile> batch = new ArrayList<>();
+        queueLock.lock();
+        try {
+            flushScheduled = false;
+            for (PendingFile file : pending.values()) {
+                file.lock.lock();
+                try {
+                    file.closed = true;
+                    if (!file.edits.isEmpty()) batch.add(file);
+                } finally {
+                    file.lock.unlock();
+                }
+            }
+            pending = new LinkedHashMap<>();
+            // the next window's edits of these files start from the staged content, not from the branch
+            for (PendingFile file : batch) flushing.put(file.path, file);
+        } finally {
+            queueLock.unlock();
+        }
+        if (batch.isEmpty()) return;
+
+        int edits = 0;
+        long oldest = Long.MAX_VALUE;
+        for (PendingFile file : batch) {
+            edits += file.edits.size();
+            for (PendingEdit e : file.edits) oldest = Math.min(oldest, e.queuedAt);
+        }
+        queuedEdits.addAndGet(-edits);
+        flushingEdits.addAndGet(edits);
+        flushes.incrementAndGet();
+
+        long start = System.nanoTime();
+        try {
+            String sha = commit(batch);
+            long latencyMs = (System.nanoTime() - oldest) / 1_000_000;
+            lastCommitMs.set((System.nanoTime() - start) / 1_000_000);
+            if (sha != null) {
+                commits.incrementAndGet();
+                totalLatencyMs.addAndGet(latencyMs);
+                lastLatencyMs.set(latencyMs);
+                maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+            }
+            for (PendingFile file : batch) {
+                for (PendingEdit e : file.edits) e.commit.complete(sha);
+            }
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            lastFlushError = e.getMessage();
+            System.err.println("[WARN] Write-behind commit of " + batch.size() + " file(s) failed: " + e.getMessage());
+            for (PendingFile file : batch) {
+                for (PendingEdit pe : file.edits) pe.commit.completeExceptionally(e);
+            }
+        } finally {
+            flushingEdits.addAndGet(-edits);
+            queueLock.lock();
+            try {
+                for (PendingFile file : batch) flushing.remove(file.path, file);
+            } finally {
+                queueLock.unlock();
+            }
+        }
+    }
+
+    /* One commit with every file of the batch; null when nothing differs from the branch. */
+    private String commit(List<PendingFile> batch) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            GitCommitBuilder builder = backend.newCommit(messageOf(batch));
+            for (PendingFile file : batch) {
+                Remote remote = read(file.path);
+                byte[] content = Objects.equals(remote.sha, file.baseSha) ? file.staged : file.replay(remote);
+                if (content == null || Arrays.equals(content, remote.content)) continue;
+                // the commit only lands while the file is still at the blob just read
+                if (file.binary) {
+                    builder.putBinary(file.path, content, remote.sha);
+                } else {
+                    builder.putText(file.path, new String(content, StandardCharsets.UTF_8), remote.sha);
+                }
+            }
+            if (builder.isEmpty()) return null;
+
+            try {
+                return builder.push();
+            } catch (GitHubApiException e) {
+                if ((e.getStatusCode() != 409 && e.getStatusCode() != 422) || attempt >= maxAttempts) throw e;
+                retries.incrementAndGet();
+                System.out.println("[INFO] Commit rejected (" + e.getStatusCode() + "), re-reading " + batch.size()
+                    + " file(s) for attempt " + (attempt + 1));
+            }
+        }
+    }
+
+    private static String messageOf(List<PendingFile> batch) {
+        Set<String> messages = new LinkedHashSet<>();
+        int edits = 0;
+        for (PendingFile file : batch) {
+            for (PendingEdit e : file.edits) {
+                messages.add(e.message);
+                edits++;
+            }
+        }
+        if (messages.size() == 1) return messages.iterator().next();
+        return "Update " + batch.size() + " file(s) from " + edits + " queued edit(s)\n\n" + String.join("\n", messages);
+    }
+
+    private Remote read(String path) throws IOException, InterruptedException {
+        RepoFile file = backend.readFile(path, 0);
+        return file == null ? new Remote(null, null) : new Remote(file.toBytes(), file.getSha());
+    }
+
+    /* Queue depth, flush counters and the time from an edit being queued to its commit landing. */
+    public Map<String, Object> stats() {
+        int queuedFiles;
+        queueLock.lock();
+        try {
+            queuedFiles = pending.size();
+        } finally {
+            queueLock.unlock();
+        }
+        long committed = commits.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", windowMs);
+        stats.put("queuedEdits", queuedEdits.get());
+        stats.put("queuedFiles", queuedFiles);
+        stats.put("flushingEdits", flushingEdits.get());
+        stats.put("flushes", flushes.get());
+        stats.put("commits", committed);
+        stats.put("retries", retries.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("lastFlushLatencyMs", lastLatencyMs.get());
+        stats.put("avgFlushLatencyMs", committed == 0 ? 0 : totalLatencyMs.get() / committed);
+        stats.put("maxFlushLatencyMs", maxLatencyMs.get());
+        stats.put("lastCommitMs", lastCommitMs.get());
+        stats.put("lastFlushError", lastFlushError);
+        return stats;
+    }
+
+    /* Outcome of a queued edit: queued until its window is flushed, then committed (with the commit SHA), unchanged
+       (the file already had that content) or failed (with the error). */
+    public Map<String, Object> status(String id) {
+        PendingEdit edit;
+        synchronized (tracked) {
+            edit = tracked.get(id);
+        }
+        if (edit == null) {
+            throw new IllegalArgumentException("Unknown queued edit: " + id);
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("id", edit.id);
+        status.put("path", edit.path);
+        status.put("message", edit.message);
+        if (!edit.commit.isDone()) {
+            status.put("state", "queued");
+        } else if (edit.commit.isCompletedExceptionally()) {
+            status.put("state", "failed");
+            status.put("error", edit.commit.exceptionNow().getMessage());
+        } else {
+            String sha = edit.commit.resultNow();
+            status.put("state", sha == null ? "unchanged" : "committed");
+            status.put("commit", sha);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.execute(this::flushInteractive);
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(60, TimeUnit.SECONDS)) {
+            System.err.println("[WARN] Commit queue did not finish flushing on shutdown");
+        }
+    }
+
+    /* Result of a queued edit: its id for {@link #status}, the file content including it, and the commit that will
+       carry it (completes with null when the file ended up unchanged). */
+    public static final class QueuedEdit {
+        private final String id;
+        private final String path;
+        private final byte[] content;
+        private final CompletableFuture<String> commit;
+
+        QueuedEdit(String id, String path, byte[] content, CompletableFuture<String> commit) {
+            this.id = id;
+            this.path = path;
+            this.content = content;
+            this.commit = commit;
+        }
+
+        public String getId() { return id; }
+
+        public String getPath() { return path; }
+
+        public byte[] getContent() { return content; }
+
+        public CompletableFuture<String> getCommit() { return commit; }
+    }
+
+    private static final class PendingEdit {
+        final String id;
+        final String path;
+        final String message;
+        final FileEdit edit;
+        final long queuedAt = System.nanoTime();
+        final CompletableFuture<String> commit = new CompletableFuture<>();
+
+        PendingEdit(String id, String path, String message, FileEdit edit) {
+            this.id = id;
+            this.path = path;
+            this.message = message;
+            this.edit = edit;
+        }
+    }
+
+    private final class PendingFile {
+        final String path;
+        final boolean binary;
+        final ReentrantLock lock = new ReentrantLock();
+        final List<PendingEdit> edits = new ArrayList<>();
+        // file of the flush in progress, whose staged content this one builds on (dropped once loaded)
+        PendingFile previous;
+        boolean loaded;
+        boolean closed;
+        // read by the next window's file while a flush may replace it
+        volatile byte[] staged;
+        // blob SHA the staged content is based on (null: the file did not exist)
+        String baseSha;
+
+        PendingFile(String path, boolean binary, PendingFile previous) {
+            this.path = path;
+            this.binary = binary;
+            this.previous = previous;
+        }
+
+        void load() throws IOException, InterruptedException {
+            if (previous != null) {
+                staged = previous.staged;
+                baseSha = staged == null ? null : GitBlobSha.of(staged);
+                previous = null;
+            } else {
+                Remote remote = read(path);
+                staged = remote.content;
+                baseSha = remote.sha;
+            }
+            loaded = true;
+        }
+
+        /* The file changed underneath: apply the queued edits again on its current content.
+           An edit that no longer applies fails on its own and is dropped. */
+        byte[] replay(Remote remote) {
+            byte[] content = remote.content;
+            for (Iterator<PendingEdit> it = edits.iterator(); it.hasNext(); ) {
+                PendingEdit e = it.next();
+                try {
+                    content = e.edit.apply(content);
+                } catch (Exception ex) {
+                    System.err.println("[WARN] Queued edit of " + path + " no longer applies: " + ex.getMessage());
+                    it.remove();
+                    e.commit.completeExceptionally(ex);
+                }
+            }
+            staged = content;
+            baseSha = remote.sha;
+            return content;
+        }
+    }
+
+    private static final class Remote {
+        final byte[] content;
+        final String sha;
+
+        Remote(byte[] content, String sha) {
+            this.content = content;
+            this.sha = sha;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.nakivo.testgen.github.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nakivo.testgen.config.GitHubConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of contents API responses keyed by (path, ref), kept with their ETag so reads can be made conditional.
+ * A 304 answer does not count against the rate limit and carries no body; the cached body is served instead.
+ * Bounded by entry count and total body bytes. With a persist directory every entry is also written to disk
+ * (one file per key) and reloaded on startup.
+ */
+@Component
+public class ContentsCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Path persistDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+
+    public ContentsCache(GitHubConfig config) {
+        GitHubConfig.Cache cache = config.getCache();
+        this.enabled = cache.isEnabled();
+        this.maxEntries = Math.max(1, cache.getMaxEntries());
+        this.maxBytes = cache.getMaxBytes();
+        String dir = cache.getPersistDir();
+        this.persistDir = enabled && dir != null && !dir.isBlank() ? Paths.get(dir) : null;
+        if (persistDir != null) load();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String key(String path, String ref) {
+        return path + "@" + ref;
+    }
+
+    public Entry get(String key) {
+        if (!enabled) return null;
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /* A conditional read came back 304: the cached body is current. */
+    public void recordHit() {
+        synchronized (entries) {
+            hits++;
+        }
+    }
+
+    /* Count a read that could not be served from cache (no entry, or changed upstream). */
+    public void recordMiss() {
+        synchronized (entries) {
+            misses++;
+        }
+    }
+
+    public void put(String key, String etag, String sha, byte[] body) {
+        if (!enabled) return;
+        if (etag == null || (maxBytes > 0 && body.length > maxBytes)) {
+            // the cached version is outdated and will never be served again
+            remove(key);
+            return;
+        }
+
+        Entry entry = new Entry(key, etag, sha, body);
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) totalBytes -= previous.body.length;
+            totalBytes += body.length;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (eldest.hasNext() && (entries.size() > maxEntries || (maxBytes > 0 && totalBytes > maxBytes))) {
+                Entry e = eldest.next();
+                if (e == entry) break;
+                eldest.remove();
+                totalBytes -= e.body.length;
+                evicted.add(e);
+            }
+        }
+
+        if (persistDir != null) {
+            write(entry);
+            for (Entry e : evicted) delete(e.key);
+        }
+    }
+
+    public void remove(String key) {
+        synchronized (entries) {
+            Entry removed = entries.remove(key);
+            if (removed == null) return;
+            totalBytes -= removed.body.length;
+        }
+        if (persistDir != null) delete(key);
+    }
+
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (entries) {
+            return Map.of(
+                "entries", entries.size(),
+                "bytes", totalBytes,
+                "hits", hits,
+                "misses", misses
+            );
+        }
+    }
+
+    // --- persistence: <persistDir>/<sha256 of key>.json = {key, etag, sha, body (Base64)} ---
+
+    private void load() {
+        try {
+            Files.createDirectories(persistDir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(persistDir, "*.json")) {
+                stream.forEach(files::add);
+            }
+            // oldest first, so the most recently written entries end up most recently used
+            files.sort(Comparator.comparing(ContentsCache::lastModified));
+
+            int loaded = 0;
+            for (Path file : files) {
+                try {
+                    JsonNode json = objectMapper.readTree(file.toFile());
+                    Entry entry = new Entry(json.path("key").asText(), json.path("etag").asText(),
+                        json.path("sha").asText(), json.path("body").binaryValue());
+                    synchronized (entries) {
+                        Entry previous = entries.put(entry.key, entry);
+                        if (previous != null) totalBytes -= previous.body.length;
+                        totalBytes += entry.body.length;
+                    }
+                    loaded++;
+                } catch (IOException e) {
+                    System.err.println("[WARN] Skipping unreadable cache entry " + file + ": " + e.getMessage());
+                }
+            }
+            trimLoaded();
+            System.out.println("[INFO] Loaded " + loaded + " GitHub contents cache entries from " + persistDir);
+        } catch (IOException e) {
+            System.err.println("[WARN] GitHub contents cache directory not usable: " + persistDir + " - " + e.getMessage());
+        }
+    }
+
+    private void trimLoaded() {
+        synchronized (entries) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (eldest.hasNext() && (entries.size() > maxEntries || (maxBytes > 0 && totalBytes > maxBytes))) {
+                Entry e = eldest.next();
+                eldest.remove();
+                totalBytes -= e.body.length;
+                delete(e.key);
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("key", entry.key);
+        json.put("etag", entry.etag);
+        json.put("sha", entry.sha);
+        json.put("body", entry.body);
+        Path file = fileOf(entry.key);
+        try {
+            // unique temp name: two readers of the same path may store it at the same time
+            Path tmp = Files.createTempFile(persistDir, "entry_", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), json);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to persist cache entry " + entry.key + ": " + e.getMessage());
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(fileOf(key));
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to delete cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileOf(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return persistDir.resolve(HexFormat.of().formatHex(digest) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /* Raw contents API response body (JSON) with the validators that came with it. */
+    public static final class Entry {
+        final String key;
+        final String etag;
+        final String sha;
+        final byte[] body;
+
+        Entry(String key, String etag, String sha, byte[] body) {
+            this.key = key;
+            this.etag = etag;
+            this.sha = sha;
+            this.body = body;
+        }
+
+        public String getEtag() { return etag; }
+
+        public String getSha() { return sha; }
+
+        public byte[] getBody() { return body; }
+    }
+}
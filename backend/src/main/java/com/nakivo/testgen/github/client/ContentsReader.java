@@ -0,0 +1,74 @@
+package com.nakivo.testgen.github.client;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Reads a contents API response with a streaming parser, pulling out only the fields the services use.
+ * The Base64 "content" (wrapped by GitHub every 60 chars) is either skipped or decoded straight into a sink;
+ * neither a JSON tree nor a String copy of it is ever built.
+ */
+public final class ContentsReader {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private ContentsReader() {
+    }
+
+    /* sha, size, encoding and download_url; the content is skipped. */
+    public static Meta meta(byte[] body) throws IOException {
+        return read(body, null);
+    }
+
+    /* Metadata, with the decoded content written to sink (nothing is written when the API left the content out). */
+    public static Meta read(byte[] body, OutputStream sink) throws IOException {
+        Meta meta = new Meta();
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected contents API response: not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "sha" -> meta.sha = parser.getValueAsString();
+                    case "size" -> meta.size = parser.getValueAsLong();
+                    case "encoding" -> meta.encoding = parser.getValueAsString();
+                    case "download_url" -> meta.downloadUrl = parser.getValueAsString();
+                    case "content" -> {
+                        if (sink != null && value == JsonToken.VALUE_STRING) {
+                            parser.readBinaryValue(Base64Variants.MIME, sink);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return meta;
+    }
+
+    public static final class Meta {
+        private String sha;
+        private long size;
+        private String encoding;
+        private String downloadUrl;
+
+        public String getSha() { return sha; }
+
+        public long getSize() { return size; }
+
+        public String getEncoding() { return encoding; }
+
+        public String getDownloadUrl() { return downloadUrl; }
+
+        /* false for files over 1 MB, whose content the contents API leaves out ("encoding": "none") */
+        public boolean isInline() {
+            return "base64".equals(encoding);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.nakivo.testgen.github.client;
+
+/* A change to one repository file, expressed as a function of its current content so it can be re-applied
+   when the file turns out to have changed underneath (see {@link CommitQueue}). */
+@FunctionalInterface
+public interface FileEdit {
+
+    /* current: the file's bytes, or null when it does not exist; returns the new bytes */
+    byte[] apply(byte[] current) throws Exception;
+}
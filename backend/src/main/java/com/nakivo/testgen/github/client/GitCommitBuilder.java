@@ -0,0 +1,62 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects file changes and lands them as one commit on the configured branch: either every file lands or none does.
+ * Over the REST API that is blobs for binary files, one tree on top of the head commit's tree (text files go inline
+ * in the tree), one commit and a single non-forced ref update - a fixed number of round trips plus one per binary
+ * file, however many files change. A file put with the blob SHA it was read at is only written while the branch
+ * still holds that blob; otherwise the push fails with 409 and nothing lands.
+ */
+public class GitCommitBuilder {
+
+    private final RepositoryBackend backend;
+    private final String message;
+    // path -> String (UTF-8 text) or byte[] (binary)
+    private final Map<String, Object> files = new LinkedHashMap<>();
+    // path -> blob SHA the content was derived from (null: the file did not exist)
+    private final Map<String, String> baseShas = new LinkedHashMap<>();
+
+    public GitCommitBuilder(RepositoryBackend backend, String message) {
+        this.backend = backend;
+        this.message = message;
+    }
+
+    /* baseSha: blob SHA of the file the content was derived from, null when it was created from scratch */
+    public GitCommitBuilder putText(String path, String content, String baseSha) {
+        files.put(path, content);
+        baseShas.put(path, baseSha);
+        return this;
+    }
+
+    public GitCommitBuilder putBinary(String path, byte[] content, String baseSha) {
+        files.put(path, content);
+        baseShas.put(path, baseSha);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    public List<String> getPaths() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    /* Create the commit and fast-forward the branch to it; returns the new commit SHA.
+       Throws GitHubApiException (409) when a file changed since it was read, (422) when the branch moved in a way
+       that is not a fast-forward. */
+    public String push() throws IOException, InterruptedException {
+        if (files.isEmpty()) {
+            throw new IllegalStateException("Nothing to commit");
+        }
+        return backend.commitFiles(message, files, baseShas);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nakivo.testgen.github.client;
+
+/* Non-2xx answer from the GitHub API, with its status code (e.g. 409/422 when a ref update is not a fast-forward). */
+public class GitHubApiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public GitHubApiException(int statusCode, String body) {
+        super("GitHub API error: " + statusCode + " - " + body);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
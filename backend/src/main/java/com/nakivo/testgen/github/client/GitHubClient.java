@@ -0,0 +1,499 @@
+package com.nakivo.testgen.github.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.nakivo.testgen.utils.GitBlobSha;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GitHub REST access for the configured repository, on the application's shared HttpClient.
+ * Every request carries the token, the API media type and the configured request timeout; the typed helpers cover
+ * the endpoints the services use (contents, blobs, trees, commits). Non-2xx answers surface as
+ * {@link GitHubApiException}, except 404 on reads, which is returned as null. Requests are admitted by the
+ * {@link GitHubRateLimiter} in the caller's lane and retried when GitHub answers with a rate limit.
+ */
+@Component
+public class GitHubClient {
+
+    private static final String MEDIA_TYPE = "application/vnd.github+json";
+    // contents / blob endpoints answer with the file bytes themselves (up to 100 MB)
+    private static final String RAW_MEDIA_TYPE = "application/vnd.github.raw";
+    // raw reads up to this size are cached for conditional requests (the contents API's own inline limit)
+    private static final long RAW_CACHE_MAX_BYTES = 1024 * 1024;
+    private static final String RAW_KEY_SUFFIX = "#raw";
+
+    private final GitHubConfig config;
+    private final HttpClient httpClient;
+    private final ContentsCache contentsCache;
+    private final GitHubRateLimiter rateLimiter;
+    private final Duration requestTimeout;
+    private final SingleFlight<String, byte[]> contentReads;
+    private final SingleFlight<String, byte[]> downloads;
+    // commits from this instance are applied to the branch one at a time, so they never race each other's ref update
+    private final ReentrantLock refLock = new ReentrantLock();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public GitHubClient(GitHubConfig config, HttpClient httpClient, HttpConfig httpConfig, ContentsCache contentsCache,
+                        GitHubRateLimiter rateLimiter) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.contentsCache = contentsCache;
+        this.rateLimiter = rateLimiter;
+        this.contentReads = new SingleFlight<>(rateLimiter);
+        this.downloads = new SingleFlight<>(rateLimiter);
+        this.requestTimeout = Duration.ofMillis(httpConfig.getRequestTimeoutMs());
+    }
+
+    public GitHubConfig getConfig() {
+        return config;
+    }
+
+    /* https://api.github.com/repos/<owner>/<repo><suffix> */
+    public String repoUrl(String suffix) {
+        return config.getApiUrl() + "/repos/" + config.getOwner() + "/" + config.getRepo() + suffix;
+    }
+
+    /* Request builder with auth, media type and timeout set. */
+    public HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(requestTimeout)
+            .header("Authorization", "token " + config.getPat())
+            .header("Accept", MEDIA_TYPE);
+    }
+
+    /* Send through the rate limiter; a rate-limited answer is retried (the limiter waits out the pause) up to
+       max-retries times, after which it is returned to the caller as is. */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        if (rateLimiter == null || !rateLimiter.isEnabled()) {
+            return httpClient.send(request, handler);
+        }
+
+        // read on every acquire: a shared read's lane goes up when an interactive caller joins it
+        GitHubRateLimiter.LaneHolder lane = GitHubRateLimiter.currentHolder();
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire(lane);
+            HttpResponse<T> response = httpClient.send(request, handler);
+            String errorBody = response.statusCode() == 403 ? errorText(response.body()) : null;
+            long retryInMs = rateLimiter.onResponse(response.statusCode(), response.headers(), errorBody);
+            if (retryInMs < 0 || attempt >= rateLimiter.getMaxRetries()) {
+                // a streamed 403 was read to classify it; its text goes to the caller in the exception instead
+                if (errorBody != null && response.body() instanceof InputStream) {
+                    throw new GitHubApiException(response.statusCode(), errorBody);
+                }
+                return response;
+            }
+            if (response.body() instanceof Closeable body) body.close(); // streamed bodies hold the connection
+            System.out.println("[INFO] GitHub rate limit hit (" + response.statusCode() + "), retrying "
+                + request.method() + " " + request.uri().getPath() + " in " + retryInMs + " ms");
+        }
+    }
+
+    // text of a 403 answer, which tells a secondary rate limit from a permission error; a streamed body is consumed
+    private static String errorText(Object body) throws IOException {
+        if (body instanceof byte[] bytes) return new String(bytes, StandardCharsets.UTF_8);
+        if (body instanceof InputStream in) {
+            try (in) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return body == null ? null : body.toString();
+    }
+
+    public Map<String, Object> rateLimitStats() {
+        return rateLimiter != null ? rateLimiter.stats() : Map.of("enabled", false);
+    }
+
+    // --- Contents API ---
+
+    public String contentsUrl(String path) {
+        return repoUrl("/contents/" + path + "?ref=" + config.getBranch());
+    }
+
+    /* Metadata and Base64 content of a file on the configured branch, or null if it does not exist.
+       Builds a JSON tree of the whole response; reads that only need the content should use readFile or openRaw. */
+    public JsonNode getContents(String path) throws IOException, InterruptedException {
+        byte[] body = getContentsBody(path);
+        return body == null ? null : objectMapper.readTree(body);
+    }
+
+    /* Raw contents API response (JSON bytes), or null if the file does not exist.
+       With the contents cache enabled the read is conditional on the cached ETag, and a 304 is answered from the cache.
+       Concurrent reads of the same (path, ref) share one request; callers must not modify the returned array. */
+    public byte[] getContentsBody(String path) throws IOException, InterruptedException {
+        String key = ContentsCache.key(path, config.getBranch());
+        return contentReads.execute(key, () -> readContents(path, key));
+    }
+
+    private byte[] readContents(String path, String key) throws IOException, InterruptedException {
+        if (contentsCache == null || !contentsCache.isEnabled()) {
+            HttpResponse<byte[]> response = send(request(contentsUrl(path)).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 404) return null;
+            checkStatus(response);
+            return response.body();
+        }
+
+        ContentsCache.Entry cached = contentsCache.get(key);
+        HttpRequest.Builder builder = request(contentsUrl(path)).GET();
+        if (cached != null) builder.header("If-None-Match", cached.getEtag());
+
+        HttpResponse<byte[]> response = send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 304 && cached != null) {
+            contentsCache.recordHit();
+            return cached.getBody();
+        }
+        contentsCache.recordMiss();
+        if (response.statusCode() == 404) {
+            contentsCache.remove(key);
+            return null;
+        }
+
+        checkStatus(response);
+        byte[] body = response.body();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        // without an ETag (or too large to keep) the put drops the cached version
+        contentsCache.put(key, etag, etag == null ? null : ContentsReader.meta(body).getSha(), body);
+        return body;
+    }
+
+    /* Blob SHA of a file on the configured branch, or null if it does not exist. Only the metadata fields of the
+       (cached) contents response are parsed; the Base64 content is skipped. */
+    public String fileSha(String path) throws IOException, InterruptedException {
+        byte[] body = getContentsBody(path);
+        return body == null ? null : ContentsReader.meta(body).getSha();
+    }
+
+    /* A file's content in one buffer sized from its reported size: decoded from the (cached) contents response while
+       it is parsed, or streamed from the blob when the contents API left it out (files over 1 MB).
+       Files larger than maxBytes (when > 0) are rejected before anything is decoded. Returns null if the file does not exist. */
+    public RepoFile readFile(String path, long maxBytes) throws IOException, InterruptedException {
+        byte[] body = getContentsBody(path);
+        if (body == null) return null;
+
+        ContentsReader.Meta meta = ContentsReader.meta(body);
+        if (maxBytes > 0 && meta.getSize() > maxBytes) {
+            throw new IllegalStateException("File too large to load into memory: " + path
+                + " (" + meta.getSize() + " bytes, limit " + maxBytes + ")");
+        }
+
+        RepoFile.Buffer content = new RepoFile.Buffer(meta.getSize());
+        if (meta.isInline() || meta.getSize() == 0) {
+            ContentsReader.read(body, content);
+        } else {
+            try (InputStream in = openBlob(meta.getSha())) {
+                in.transferTo(content);
+            }
+        }
+        return new RepoFile(path, meta.getSha(), content.view());
+    }
+
+    /* The file's bytes as a stream straight from the contents API (raw media type: no JSON, no Base64), or null if it
+       does not exist. Nothing is buffered except files up to RAW_CACHE_MAX_BYTES, which are kept in the contents cache
+       with their ETag so the next read is conditional (a 304 is answered from the cache); larger files are streamed
+       through every time. The caller must close the stream. */
+    public InputStream openRaw(String path) throws IOException, InterruptedException {
+        boolean caching = contentsCache != null && contentsCache.isEnabled();
+        String key = ContentsCache.key(path, config.getBranch()) + RAW_KEY_SUFFIX;
+        ContentsCache.Entry cached = caching ? contentsCache.get(key) : null;
+
+        HttpRequest.Builder builder = request(contentsUrl(path)).setHeader("Accept", RAW_MEDIA_TYPE).GET();
+        if (cached != null) builder.header("If-None-Match", cached.getEtag());
+        HttpResponse<InputStream> response = send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 304 && cached != null) {
+            response.body().close();
+            contentsCache.recordHit();
+            return new ByteArrayInputStream(cached.getBody());
+        }
+        if (caching) contentsCache.recordMiss();
+        if (response.statusCode() / 100 != 2) {
+            try (InputStream error = response.body()) {
+                if (response.statusCode() == 404) {
+                    if (caching) contentsCache.remove(key);
+                    return null;
+                }
+                throw new GitHubApiException(response.statusCode(), new String(error.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        if (!caching) return response.body();
+
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (etag == null || length < 0 || length > RAW_CACHE_MAX_BYTES) {
+            contentsCache.remove(key);
+            return response.body();
+        }
+        byte[] body;
+        try (InputStream in = response.body()) {
+            body = in.readAllBytes();
+        }
+        contentsCache.put(key, etag, GitBlobSha.of(body), body);
+        return new ByteArrayInputStream(body);
+    }
+
+    /* A blob's bytes as a stream, by SHA; the content always matches the SHA. The caller must close the stream. */
+    public InputStream openBlob(String sha) throws IOException, InterruptedException {
+        return openStream(repoUrl("/git/blobs/" + sha));
+    }
+
+    private InputStream openStream(String url) throws IOException, InterruptedException {
+        HttpRequest request = request(url).setHeader("Accept", RAW_MEDIA_TYPE).GET().build();
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 == 2) {
+            return response.body();
+        }
+        try (InputStream error = response.body()) {
+            if (response.statusCode() == 404) return null;
+            throw new GitHubApiException(response.statusCode(), new String(error.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /* Plain download (e.g. a contents "download_url"); concurrent downloads of the same URL share one request. */
+    public byte[] download(String url) throws IOException, InterruptedException {
+        return downloads.execute(url, () -> fetch(url));
+    }
+
+    private byte[] fetch(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(requestTimeout)
+            .GET()
+            .build();
+        HttpResponse<byte[]> response = send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("GitHub download failed: " + response.statusCode() + " - " + url);
+        }
+        return response.body();
+    }
+
+    /* Counters of the request coalescing: requests sent vs. callers served by a request already in flight. */
+    public Map<String, Object> coalescingStats() {
+        return Map.of(
+            "contentsExecuted", contentReads.getExecuted(),
+            "contentsCoalesced", contentReads.getCoalesced(),
+            "downloadsExecuted", downloads.getExecuted(),
+            "downloadsCoalesced", downloads.getCoalesced()
+        );
+    }
+
+    // --- Git Data API: blobs and trees ---
+
+    /* Blob by SHA (Base64 content plus size), or null if it does not exist. */
+    public JsonNode getBlob(String sha) throws IOException, InterruptedException {
+        return getJson(repoUrl("/git/blobs/" + sha));
+    }
+
+    /* Store content as a blob and return its SHA. */
+    public String createBlob(byte[] content) throws IOException, InterruptedException {
+        Map<String, Object> body = Map.of(
+            "content", Base64.getEncoder().encodeToString(content),
+            "encoding", "base64"
+        );
+        return postJson(repoUrl("/git/blobs"), body).path("sha").asText();
+    }
+
+    /* Store a file's content as a blob and return its SHA. The file is Base64-encoded while the request body is sent,
+       so neither the content nor its encoding is held in memory; a retried request reads the file again. */
+    public String createBlob(Path file) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+            HttpRequest.BodyPublishers.ofInputStream(() -> {
+                try {
+                    return new Base64BlobBody(Files.newInputStream(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }),
+            Base64BlobBody.length(Files.size(file)));
+        return sendJson(request(repoUrl("/git/blobs"))
+            .header("Content-Type", "application/json")
+            .POST(body)
+            .build()).path("sha").asText();
+    }
+
+    /* Tree by SHA (or by branch name), optionally with all subtrees; null if it does not exist. */
+    public JsonNode getTree(String treeish, boolean recursive) throws IOException, InterruptedException {
+        return getJson(repoUrl("/git/trees/" + treeish + (recursive ? "?recursive=1" : "")));
+    }
+
+    /* Create a tree from entries (path, mode, type, sha) on top of baseTree and return its SHA. */
+    public String createTree(String baseTree, List<Map<String, Object>> entries) throws IOException, InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        if (baseTree != null) body.put("base_tree", baseTree);
+        body.put("tree", entries);
+        return postJson(repoUrl("/git/trees"), body).path("sha").asText();
+    }
+
+    // --- Git Data API: commits and refs ---
+
+    /* Commit SHA the configured branch points to. */
+    public String getBranchHead() throws IOException, InterruptedException {
+        JsonNode ref = getJson(repoUrl("/git/ref/heads/" + config.getBranch()));
+        if (ref == null) {
+            throw new IllegalStateException("Branch not found: " + config.getBranch());
+        }
+        return ref.path("object").path("sha").asText();
+    }
+
+    /* One commit with the given files (path -> String for text, byte[] for binary, Path for a local file whose content
+       is streamed) on the configured branch.
+       Blobs are content-addressed, so they are stored before the branch head is read; text goes inline in the tree.
+       baseShas: path -> blob SHA its new content was derived from (null: the file did not exist); a path whose blob
+       in the head differs fails the commit with 409 instead of overwriting the change made since. */
+    public String commitFiles(String message, Map<String, Object> files, Map<String, String> baseShas)
+        throws IOException, InterruptedException {
+        List<Map<String, Object>> entries = new ArrayList<>(files.size());
+        for (Map.Entry<String, Object> file : files.entrySet()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("path", file.getKey());
+            entry.put("mode", "100644");
+            entry.put("type", "blob");
+            if (file.getValue() instanceof byte[] bytes) {
+                entry.put("sha", createBlob(bytes));
+            } else if (file.getValue() instanceof Path content) {
+                entry.put("sha", createBlob(content));
+            } else {
+                entry.put("content", file.getValue());
+            }
+            entries.add(entry);
+        }
+        return commitTree(message, entries, baseShas);
+    }
+
+    /* Tree entries on top of the branch head's tree -> commit -> fast-forward of the branch. Returns the commit SHA. */
+    private String commitTree(String message, List<Map<String, Object>> entries, Map<String, String> baseShas)
+        throws IOException, InterruptedException {
+        refLock.lockInterruptibly();
+        try {
+            String head = getBranchHead();
+            JsonNode headCommit = getJson(repoUrl("/git/commits/" + head));
+            if (headCommit == null) {
+                throw new IllegalStateException("Head commit not found: " + head);
+            }
+            String headTree = headCommit.path("tree").path("sha").asText();
+            // the new tree is built on the head as it is now, so content read from an older head must still be current
+            if (!baseShas.isEmpty()) {
+                Map<String, String> current = blobShas(headTree, baseShas.keySet());
+                for (Map.Entry<String, String> base : baseShas.entrySet()) {
+                    String now = current.get(base.getKey());
+                    if (!Objects.equals(now, base.getValue())) {
+                        throw new GitHubApiException(409, base.getKey() + " changed on " + config.getBranch()
+                            + " since it was read (read at " + base.getValue() + ", now " + now + ")");
+                    }
+                }
+            }
+            String tree = createTree(headTree, entries);
+
+            Map<String, Object> commit = new HashMap<>();
+            commit.put("message", message);
+            commit.put("tree", tree);
+            commit.put("parents", List.of(head));
+            String sha = postJson(repoUrl("/git/commits"), commit).path("sha").asText();
+
+            patchJson(repoUrl("/git/refs/heads/" + config.getBranch()), Map.of("sha", sha, "force", false));
+            System.out.println("[INFO] Committed " + entries.size() + " file(s) to " + config.getBranch() + ": " + sha);
+            return sha;
+        } finally {
+            refLock.unlock();
+        }
+    }
+
+    /* Blob SHA of each path in the tree; paths that are not there are left out. One recursive listing, or a walk
+       down each path's directories when the listing is too large for GitHub to return whole. */
+    Map<String, String> blobShas(String treeSha, Set<String> paths) throws IOException, InterruptedException {
+        Map<String, String> shas = new HashMap<>();
+        JsonNode tree = getTree(treeSha, true);
+        if (tree != null && !tree.path("truncated").asBoolean(false)) {
+            for (JsonNode entry : tree.path("tree")) {
+                String path = entry.path("path").asText();
+                if ("blob".equals(entry.path("type").asText()) && paths.contains(path)) shas.put(path, entry.path("sha").asText());
+            }
+            return shas;
+        }
+        Map<String, JsonNode> listings = new HashMap<>();
+        for (String path : paths) {
+            String[] names = path.split("/");
+            String current = treeSha;
+            for (int i = 0; i < names.length && current != null; i++) {
+                String dir = String.join("/", Arrays.copyOf(names, i));
+                JsonNode listing = listings.get(dir);
+                if (listing == null) {
+                    listing = getTree(current, false);
+                    listings.put(dir, listing);
+                }
+                String type = i == names.length - 1 ? "blob" : "tree";
+                current = null;
+                if (listing == null) break;
+                for (JsonNode entry : listing.path("tree")) {
+                    if (names[i].equals(entry.path("path").asText()) && type.equals(entry.path("type").asText())) {
+                        current = entry.path("sha").asText();
+                        break;
+                    }
+                }
+            }
+            if (current != null) shas.put(path, current);
+        }
+        return shas;
+    }
+
+    // --- JSON plumbing ---
+
+    public JsonNode getJson(String url) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = send(request(url).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 404) return null;
+        return readBody(response);
+    }
+
+    public JsonNode postJson(String url, Object body) throws IOException, InterruptedException {
+        return sendJson(request(url)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build());
+    }
+
+    public JsonNode patchJson(String url, Object body) throws IOException, InterruptedException {
+        return sendJson(request(url)
+            .header("Content-Type", "application/json")
+            .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build());
+    }
+
+    private JsonNode sendJson(HttpRequest request) throws IOException, InterruptedException {
+        return readBody(send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    private JsonNode readBody(HttpResponse<byte[]> response) throws IOException {
+        checkStatus(response);
+        return objectMapper.readTree(response.body());
+    }
+
+    private static void checkStatus(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new GitHubApiException(response.statusCode(), new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpHeaders;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for GitHub calls. Every request takes a token from a bucket (requests per second with a burst),
+ * and the quota GitHub reports (X-RateLimit-Remaining / -Reset) is tracked from the responses.
+ * Requests run in one of two lanes: interactive requests are always served before waiting batch requests, and
+ * batch requests stop at the reserve so a bulk job cannot use up the hour's quota. A 403/429 rate-limit answer
+ * pauses every lane for Retry-After, until the quota reset, or for a doubling backoff; a 403 without quota headers
+ * pointing at it is told from a permission error by its message / documentation_url (secondary rate limits).
+ * The lane is taken from the calling thread (see {@link #callAs}); threads started from it inherit it. A call whose
+ * result other callers share runs in the highest lane among them (see {@link SingleFlight}).
+ */
+@Component
+public class GitHubRateLimiter {
+
+    public enum Lane { INTERACTIVE, BATCH }
+
+    private static final InheritableThreadLocal<LaneHolder> LANE = new InheritableThreadLocal<>();
+
+    private final boolean enabled;
+    private final double tokensPerNano;
+    private final int burst;
+    private final int batchReserve;
+    private final long maxWaitNanos;
+    private final int maxRetries;
+    private final long secondaryBackoffMs;
+    private final long maxBackoffMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // guarded by lock
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private int remaining = -1;     // -1: not known yet
+    private int limit = -1;
+    private long resetAtMs;         // epoch millis of the quota reset
+    private long pausedUntil = System.nanoTime(); // deadline after a rate-limit answer
+    private int consecutiveLimited;
+    private int interactiveWaiting;
+    private int batchWaiting;
+
+    private final AtomicLong interactiveGranted = new AtomicLong();
+    private final AtomicLong batchGranted = new AtomicLong();
+    private final AtomicLong interactiveWaitMs = new AtomicLong();
+    private final AtomicLong batchWaitMs = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public GitHubRateLimiter(GitHubConfig config) {
+        GitHubConfig.RateLimit settings = config.getRateLimit();
+        this.enabled = settings.isEnabled();
+        this.tokensPerNano = Math.max(0.001, settings.getRequestsPerSecond()) / 1_000_000_000d;
+        this.burst = Math.max(1, settings.getBurst());
+        this.batchReserve = Math.max(0, settings.getBatchReserve());
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(settings.getMaxWaitMs());
+        this.maxRetries = Math.max(0, settings.getMaxRetries());
+        this.secondaryBackoffMs = settings.getSecondaryBackoffMs();
+        this.maxBackoffMs = settings.getMaxBackoffMs();
+        this.tokens = burst;
+    }
+
+    /* Run a task with its GitHub calls in the given lane. */
+    public static <T> T callAs(Lane lane, Callable<T> task) throws Exception {
+        return callIn(new LaneHolder(lane), task);
+    }
+
+    public static void runAs(Lane lane, Runnable task) {
+        LaneHolder previous = LANE.get();
+        LANE.set(new LaneHolder(lane));
+        try {
+            task.run();
+        } finally {
+            if (previous == null) LANE.remove();
+            else LANE.set(previous);
+        }
+    }
+
+    /* Run a task in a lane that may be raised while it runs. */
+    static <T> T callIn(LaneHolder lane, Callable<T> task) throws Exception {
+        LaneHolder previous = LANE.get();
+        LANE.set(lane);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) LANE.remove();
+            else LANE.set(previous);
+        }
+    }
+
+    public static Lane currentLane() {
+        LaneHolder lane = LANE.get();
+        return lane != null ? lane.get() : Lane.INTERACTIVE;
+    }
+
+    static LaneHolder currentHolder() {
+        LaneHolder lane = LANE.get();
+        return lane != null ? lane : new LaneHolder(Lane.INTERACTIVE);
+    }
+
+    /* The lane of a running task; raised when an interactive caller starts waiting for its result. */
+    static final class LaneHolder {
+        private volatile Lane lane;
+
+        LaneHolder(Lane lane) {
+            this.lane = lane;
+        }
+
+        Lane get() {
+            return lane;
+        }
+
+        /* true when the lane went up (INTERACTIVE is above BATCH) */
+        synchronized boolean raise(Lane to) {
+            if (to.ordinal() >= lane.ordinal()) return false;
+            lane = to;
+            return true;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /* Wait until a request of the given lane may be sent. An interactive request that would have to wait longer
+       than max-wait-ms for the quota fails with a 429 GitHubApiException instead. */
+    public void acquire(Lane lane) throws InterruptedException {
+        acquire(new LaneHolder(lane));
+    }
+
+    /* Same, in the holder's lane as it is while waiting: a batch request raised to interactive stops yielding. */
+    void acquire(LaneHolder holder) throws InterruptedException {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        lock.lockInterruptibly();
+        Lane lane = holder.get();
+        try {
+            if (lane == Lane.INTERACTIVE) interactiveWaiting++;
+            else batchWaiting++;
+            try {
+                while (true) {
+                    if (holder.get() != lane) {
+                        batchWaiting--;
+                        interactiveWaiting++;
+                        lane = holder.get();
+                    }
+                    long now = System.nanoTime();
+                    refill(now);
+                    long blocked = blockedNanos(lane, now);
+                    boolean yields = lane == Lane.BATCH && interactiveWaiting > 0;
+
+                    if (blocked <= 0 && tokens >= 1 && !yields) {
+                        tokens -= 1;
+                        if (remaining > 0) remaining--;
+                        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+                        if (lane == Lane.INTERACTIVE) {
+                            interactiveGranted.incrementAndGet();
+                            interactiveWaitMs.addAndGet(waitedMs);
+                        } else {
+                            batchGranted.incrementAndGet();
+                            batchWaitMs.addAndGet(waitedMs);
+                        }
+                        return;
+                    }
+                    if (lane == Lane.INTERACTIVE && blocked > maxWaitNanos) {
+                        rejected.incrementAndGet();
+                        throw new GitHubApiException(429, "GitHub rate limit: next request allowed in "
+                            + TimeUnit.NANOSECONDS.toMillis(blocked) + " ms");
+                    }
+
+                    long wait;
+                    if (blocked > 0) wait = blocked;
+                    else if (tokens < 1) wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                    else wait = TimeUnit.MILLISECONDS.toNanos(50); // woken earlier when the interactive lane drains
+                    available.awaitNanos(wait);
+                }
+            } finally {
+                if (lane == Lane.INTERACTIVE) {
+                    if (--interactiveWaiting == 0 && batchWaiting > 0) available.signalAll();
+                } else {
+                    batchWaiting--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* A waiting request's lane was raised: let it re-check its turn now. */
+    void laneRaised() {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    // how long the lane has to wait for a pause or for the quota to reset (<= 0: not blocked)
+    private long blockedNanos(Lane lane, long now) {
+        long until = pausedUntil;
+        if (remaining >= 0) {
+            long toReset = TimeUnit.MILLISECONDS.toNanos(resetAtMs - System.currentTimeMillis());
+            if (toReset <= 0) {
+                remaining = -1; // new window; the next response tells the new quota
+            } else if (remaining == 0 || (lane == Lane.BATCH && remaining <= batchReserve)) {
+                until = Math.max(until, now + toReset);
+            }
+        }
+        return until - now;
+    }
+
+    /* Record the quota headers of a response. Returns the delay after which a rate-limited request (403/429) may be
+       retried, or -1 when the response was not rate limited. errorBody: text of a 403 answer (may be null). */
+    public long onResponse(int statusCode, HttpHeaders headers, String errorBody) {
+        if (!enabled) return -1;
+
+        OptionalLong headerRemaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+        OptionalLong headerLimit = headers.firstValueAsLong("X-RateLimit-Limit");
+        OptionalLong headerReset = headers.firstValueAsLong("X-RateLimit-Reset");
+        OptionalLong retryAfter = headers.firstValueAsLong("Retry-After");
+
+        lock.lock();
+        try {
+            if (headerRemaining.isPresent() && headerReset.isPresent()) {
+                long reset = headerReset.getAsLong() * 1000;
+                // responses can arrive out of order: within one window the quota only goes down
+                remaining = reset != resetAtMs || remaining < 0
+                    ? (int) headerRemaining.getAsLong()
+                    : Math.min(remaining, (int) headerRemaining.getAsLong());
+                resetAtMs = reset;
+                if (headerLimit.isPresent()) limit = (int) headerLimit.getAsLong();
+            }
+
+            boolean limited = statusCode == 429
+                || (statusCode == 403 && (retryAfter.isPresent() || remaining == 0 || isRateLimitMessage(errorBody)));
+            if (!limited) {
+                if (statusCode / 100 == 2) consecutiveLimited = 0;
+                return -1;
+            }
+
+            long delayMs;
+            if (retryAfter.isPresent()) {
+                delayMs = retryAfter.getAsLong() * 1000;
+            } else if (remaining == 0 && resetAtMs > 0) {
+                delayMs = Math.max(0, resetAtMs - System.currentTimeMillis()) + 1000;
+            } else {
+                // secondary limit without a hint: back off, doubling while it keeps happening
+                delayMs = Math.min(maxBackoffMs, secondaryBackoffMs << Math.min(consecutiveLimited, 16));
+            }
+            consecutiveLimited++;
+            rateLimited.incrementAndGet();
+            pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+            return delayMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // secondary limits answer 403 with quota left and often no Retry-After; only the message says so, e.g.
+    // "You have exceeded a secondary rate limit" with a documentation_url ending in #about-secondary-rate-limits
+    static boolean isRateLimitMessage(String errorBody) {
+        if (errorBody == null) return false;
+        String text = errorBody.toLowerCase(Locale.ROOT);
+        return text.contains("secondary rate limit") || text.contains("rate limit exceeded")
+            || text.contains("secondary-rate-limits") || text.contains("abuse");
+    }
+
+    /* Quota as last reported by GitHub, bucket level, queue lengths per lane and throttling counters. */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            stats.put("enabled", enabled);
+            stats.put("remaining", remaining);
+            stats.put("limit", limit);
+            stats.put("resetAt", resetAtMs / 1000);
+            stats.put("tokens", (int) tokens);
+            stats.put("pausedForMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - now)));
+            stats.put("interactiveWaiting", interactiveWaiting);
+            stats.put("batchWaiting", batchWaiting);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("interactiveGranted", interactiveGranted.get());
+        stats.put("batchGranted", batchGranted.get());
+        stats.put("interactiveWaitMs", interactiveWaitMs.get());
+        stats.put("batchWaitMs", batchWaitMs.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,144 @@
+package com.nakivo.testgen.github.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A repository file held in one buffer: a heap buffer sized from the reported file size, or a read-only mapping
+ * of a working tree file. Text and stream views read that buffer directly, so the content is held once.
+ */
+public class RepoFile {
+
+    private final String path;
+    private final String sha;
+    private final long size;
+    private final ByteBuffer content;
+
+    public RepoFile(String path, String sha, ByteBuffer content) {
+        this.path = path;
+        this.sha = sha;
+        this.size = content.remaining();
+        // never handed out, so a view of the caller's buffer is as safe as a read-only one and keeps its array
+        this.content = content.slice();
+    }
+
+    public String getPath() { return path; }
+
+    public String getSha() { return sha; }
+
+    public long getSize() { return size; }
+
+    /* UTF-8 text decoded from the buffer. */
+    public String toText() {
+        if (content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + content.position(), content.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(content.duplicate()).toString();
+    }
+
+    /* Stream over the buffer itself (no copy). */
+    public InputStream openStream() {
+        if (content.hasArray()) {
+            return new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        ByteBuffer view = content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) return 0;
+                if (!view.hasRemaining()) return -1;
+                int n = Math.min(len, view.remaining());
+                view.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+
+    /* Read-only seekable channel over the buffer itself (no copy), e.g. for a ZipFile. */
+    public SeekableByteChannel openChannel() {
+        ByteBuffer view = content.duplicate();
+        return new SeekableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws ClosedChannelException {
+                if (!open) throw new ClosedChannelException();
+                if (!view.hasRemaining()) return -1;
+                int n = Math.min(dst.remaining(), view.remaining());
+                dst.put(view.slice(view.position(), n));
+                view.position(view.position() + n);
+                return n;
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public long position() {
+                return view.position();
+            }
+
+            @Override
+            public SeekableByteChannel position(long newPosition) {
+                view.position((int) Math.min(newPosition, view.limit()));
+                return this;
+            }
+
+            @Override
+            public long size() {
+                return view.limit();
+            }
+
+            @Override
+            public SeekableByteChannel truncate(long size) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    /* Copy of the content. */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /* Heap buffer that a download or a Base64 decode writes into, then viewed without a copy. */
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer(long expectedSize) {
+            super((int) Math.max(32, Math.min(expectedSize, Integer.MAX_VALUE - 8)));
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nakivo.testgen.github.client;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the load, callers arriving while it is
+ * in flight wait for the same CompletableFuture and get its result (or its exception). Nothing is kept once the
+ * load completes, so a call that starts afterwards loads again.
+ * The load's GitHub calls run in the highest rate-limiter lane among the callers waiting for it, so an interactive
+ * caller joining a batch read is not held back by the batch reserve.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    // woken when a waiting load's lane is raised; null: lanes only change between requests
+    private final GitHubRateLimiter rateLimiter;
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SingleFlight() {
+        this(null);
+    }
+
+    public SingleFlight(GitHubRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public V execute(K key, Callable<V> load) throws IOException, InterruptedException {
+        Flight<V> mine = new Flight<>(GitHubRateLimiter.currentLane());
+        Flight<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            if (running.lane.raise(GitHubRateLimiter.currentLane()) && rateLimiter != null) rateLimiter.laneRaised();
+            return await(running.result);
+        }
+
+        executed.incrementAndGet();
+        try {
+            V value = GitHubRateLimiter.callIn(mine.lane, load);
+            mine.result.complete(value);
+            return value;
+        } catch (Exception e) {
+            mine.result.completeExceptionally(e);
+            if (e instanceof IOException io) throw io;
+            if (e instanceof InterruptedException ie) throw ie;
+            if (e instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e);
+        } catch (Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) throws IOException, InterruptedException {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            // the leader was interrupted; that is not this caller's interrupt
+            throw new IOException("Shared request failed: " + cause, cause);
+        }
+    }
+
+    /* Loads actually run. */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /* Calls that were served by another caller's in-flight load. */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final GitHubRateLimiter.LaneHolder lane;
+
+        Flight(GitHubRateLimiter.Lane lane) {
+            this.lane = new GitHubRateLimiter.LaneHolder(lane);
+        }
+    }
+}
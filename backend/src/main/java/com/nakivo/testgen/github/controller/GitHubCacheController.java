@@ -0,0 +1,106 @@
+package com.nakivo.testgen.github.controller;
+
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.github.client.CommitQueue;
+import com.nakivo.testgen.github.client.ContentsCache;
+import com.nakivo.testgen.github.client.GitHubClient;
+import com.nakivo.testgen.github.service.GithubExcelUpdaterService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/github")
+public class GitHubCacheController {
+
+    private final ContentsCache contentsCache;
+    private final GitHubClient gitHubClient;
+    private final CommitQueue commitQueue;
+    private final RepositoryBackend backend;
+    private final GithubExcelUpdaterService excelUpdaterService;
+
+    public GitHubCacheController(ContentsCache contentsCache, GitHubClient gitHubClient, CommitQueue commitQueue,
+                                 RepositoryBackend backend, GithubExcelUpdaterService excelUpdaterService) {
+        this.contentsCache = contentsCache;
+        this.gitHubClient = gitHubClient;
+        this.commitQueue = commitQueue;
+        this.backend = backend;
+        this.excelUpdaterService = excelUpdaterService;
+    }
+
+    // Entry count, cached bytes and hit/miss counters of the contents cache
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(contentsCache.stats());
+    }
+
+    // How many reads were sent upstream vs. served by an identical read already in flight
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getCoalescingStats() {
+        return ResponseEntity.ok(gitHubClient.coalescingStats());
+    }
+
+    // Queue depth and flush latency of the write-behind commit queue
+    @GetMapping("/commit-queue")
+    public ResponseEntity<Map<String, Object>> getCommitQueueStats() {
+        return ResponseEntity.ok(commitQueue.stats());
+    }
+
+    // Whether a queued edit (id from the generate response) was committed, left the file unchanged or failed
+    @GetMapping("/commit-queue/edits/{id}")
+    public ResponseEntity<?> getQueuedEdit(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(commitQueue.status(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Quota reported by GitHub, token bucket level and per-lane waiting / throttling counters
+    @GetMapping("/rate-limit")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        return ResponseEntity.ok(gitHubClient.rateLimitStats());
+    }
+
+    // Which repository backend serves reads and commits; for the local mirror its HEAD and last fetch
+    @GetMapping("/backend")
+    public ResponseEntity<Map<String, Object>> getBackendStats() {
+        return ResponseEntity.ok(backend.stats());
+    }
+
+    // Fetch the branch now instead of waiting for the next scheduled fetch
+    @PostMapping("/backend/refresh")
+    public ResponseEntity<Map<String, Object>> refreshBackend() throws IOException {
+        backend.refresh();
+        return ResponseEntity.ok(backend.stats());
+    }
+
+    // Test data records queued for the workbook upload, cached workbook SHAs and flush / rebase counters
+    @GetMapping("/workbook-cache")
+    public ResponseEntity<Map<String, Object>> getWorkbookCacheStats() {
+        return ResponseEntity.ok(excelUpdaterService.getWorkbookCache().stats());
+    }
+
+    // Whether a test data submission (id from the generate response) was committed or dropped
+    @GetMapping("/workbook-cache/uploads/{id}")
+    public ResponseEntity<?> getWorkbookUpload(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(excelUpdaterService.getWorkbookCache().status(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Upload the queued test data now instead of waiting for the count or interval trigger
+    @PostMapping("/workbook-cache/flush")
+    public ResponseEntity<Map<String, Object>> flushWorkbookCache() throws Exception {
+        excelUpdaterService.getWorkbookCache().flushAll();
+        return ResponseEntity.ok(excelUpdaterService.getWorkbookCache().stats());
+    }
+}
@@ -0,0 +1,64 @@
+package com.nakivo.testgen.github.controller;
+
+import com.nakivo.testgen.github.service.TestDataIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/testdata")
+public class TestDataController {
+
+    private final TestDataIndex testDataIndex;
+
+    public TestDataController(TestDataIndex testDataIndex) {
+        this.testDataIndex = testDataIndex;
+    }
+
+    // Column -> value of one test case in dataInputManual.xlsx, answered from the in-memory index
+    @GetMapping("/{sheet}/{id}")
+    public ResponseEntity<Map<String, Object>> getTestData(@PathVariable String sheet, @PathVariable String id) {
+        if (!testDataIndex.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test data index is disabled"));
+        }
+        try {
+            Map<String, String> values = testDataIndex.find(sheet, id);
+            if (values == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No test data for " + id + " in sheet " + sheet));
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("sheet", sheet);
+            body.put("id", id);
+            body.put("sha", testDataIndex.getSha());
+            body.put("values", values);
+            return ResponseEntity.ok(body);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body(Map.of("error", "Interrupted"));
+        }
+    }
+
+    // Indexed SHA, sheet and row counts, lookup and refresh counters
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getIndexStats() {
+        return ResponseEntity.ok(testDataIndex.stats());
+    }
+
+    // Check the workbook's SHA now and re-index changed sheets instead of waiting for the scheduled check
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refreshIndex() throws IOException, InterruptedException {
+        testDataIndex.refresh();
+        return ResponseEntity.ok(testDataIndex.stats());
+    }
+}
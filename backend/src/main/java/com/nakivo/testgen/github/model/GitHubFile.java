@@ -0,0 +1,25 @@
+package com.nakivo.testgen.github.model;
+
+/* A file read from the QA repo, held in memory: decoded text plus the blob SHA GitHub reports for it. */
+public class GitHubFile {
+    private final String path;
+    private final String sha;
+    private final long size;
+    private final String content;
+
+    public GitHubFile(String path, String sha, long size, String content) {
+        this.path = path;
+        this.sha = sha;
+        this.size = size;
+        this.content = content;
+    }
+
+    public String getPath() { return path; }
+
+    public String getSha() { return sha; }
+
+    // size in bytes, as stored in the repository
+    public long getSize() { return size; }
+
+    public String getContent() { return content; }
+}
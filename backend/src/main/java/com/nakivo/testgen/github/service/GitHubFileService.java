@@ -1,90 +1,94 @@
 package com.nakivo.testgen.github.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.nakivo.testgen.config.GitHubConfig;
-import com.nakivo.testgen.utils.Constants;
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.github.client.GitCommitBuilder;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.github.model.GitHubFile;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.Base64;
+import java.nio.file.StandardCopyOption;
 
 @Service
 public class GitHubFileService {
 
-    private final GitHubConfig config;
+    private final RepositoryBackend backend;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    public GitHubFileService(GitHubConfig config) {
-        this.config = config;
+    public GitHubFileService(RepositoryBackend backend) {
+        this.backend = backend;
     }
 
     public File getFileFromGithub(String filePath) throws IOException, InterruptedException {
-        String apiUrl = "https://api.github.com/repos/" + config.getOwner() + "/" + config.getRepo() + "/contents/" + filePath + "?ref=" + config.getBranch();
-
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(apiUrl))
-            .header("Authorization", "token " + config.getPat())
-            .header("Accept", "application/vnd.github+json")
-            .GET()
-            .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JsonNode json = objectMapper.readTree(response.body());
-            String contentBase64 = json.get("content").asText().replaceAll("\n", "");
-            byte[] decodedBytes = Base64.getDecoder().decode(contentBase64);
-
-            // Create a temporary file
-            File tempFile = Files.createTempFile("github_", "_" + new File(filePath).getName()).toFile();
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                fos.write(decodedBytes);
+        try (InputStream in = backend.openRaw(filePath)) {
+            if (in == null) {
+                System.out.println("File not found in repository: " + filePath);
+                return null;
             }
 
+            // Create a temporary file; the raw bytes are copied through a small buffer
+            File tempFile = Files.createTempFile("github_", "_" + new File(filePath).getName()).toFile();
+            tempFile.deleteOnExit();
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             return tempFile;
-        } else if (response.statusCode() == 404) {
+        }
+    }
+
+    /* Read a file into memory without touching the disk, for callers that need all of it (the in-memory generation
+       pipeline); copyFile and getFileFromGithub stream instead. Over REST the Base64 payload is decoded while the
+       contents API response is parsed, into one buffer of the file's size (files over 1 MB are streamed from their
+       blob); with the local mirror the working tree file is mapped. Returns null when the file does not exist.
+       Files larger than maxBytes (when > 0) are rejected before their content is decoded. */
+    public GitHubFile fetchFile(String filePath, long maxBytes) throws IOException, InterruptedException {
+        RepoFile file = backend.readFile(filePath, maxBytes);
+        if (file == null) {
             System.out.println("File not found in repository: " + filePath);
             return null;
-        } else {
-            throw new RuntimeException("GitHub API error: " + response.statusCode() + " - " + response.body());
         }
+        return new GitHubFile(filePath, file.getSha(), file.getSize(), file.toText());
     }
 
     public String getFileContentFromGithub(String filePath) throws IOException, InterruptedException {
-        String apiUrl = "https://api.github.com/repos/" + config.getOwner() + "/" + config.getRepo() + "/contents/" + filePath + "?ref=" + config.getBranch();
-
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(apiUrl))
-            .header("Authorization", "token " + config.getPat())
-            .header("Accept", "application/vnd.github+json")
-            .GET()
-            .build();
+        GitHubFile file = fetchFile(filePath, 0);
+        return file == null ? null : file.getContent();
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    /* Stream a file's bytes to out (e.g. a proxied response) without holding it in memory.
+       Returns false when the file does not exist. */
+    public boolean copyFile(String filePath, OutputStream out) throws IOException, InterruptedException {
+        try (InputStream in = backend.openRaw(filePath)) {
+            if (in == null) {
+                System.out.println("File not found in repository: " + filePath);
+                return false;
+            }
+            in.transferTo(out);
+            return true;
+        }
+    }
 
-        if (response.statusCode() == 200) {
-            JsonNode json = objectMapper.readTree(response.body());
-            String contentBase64 = json.get("content").asText().replaceAll("\n", "");
-            byte[] decodedBytes = Base64.getDecoder().decode(contentBase64);
-            return new String(decodedBytes, StandardCharsets.UTF_8);
-        } else if (response.statusCode() == 404) {
-            System.out.println("File not found in repository: " + filePath);
-            return null;
-        } else {
-            throw new RuntimeException("GitHub API error: " + response.statusCode() + " - " + response.body());
+    /* Same as copyFile(String, OutputStream), decoding UTF-8 text into a Writer. */
+    public boolean copyFile(String filePath, Writer out) throws IOException, InterruptedException {
+        try (InputStream in = backend.openRaw(filePath)) {
+            if (in == null) {
+                System.out.println("File not found in repository: " + filePath);
+                return false;
+            }
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            reader.transferTo(out);
+            return true;
         }
     }
 
+    /* Start a commit that lands several files on the branch at once. */
+    public GitCommitBuilder newCommit(String message) {
+        return backend.newCommit(message);
+    }
+
 }
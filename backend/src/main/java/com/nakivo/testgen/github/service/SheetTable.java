@@ -0,0 +1,135 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.utils.ColumnWidthEstimator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A test data sheet seen as a table: row 1 names the columns and every further row is one test case, identified by
+ * its first column (the test ID TestData.getTestDataManual looks up). The header is kept as a name -> column map and
+ * the IDs as an ID -> row map, so an upsert is two lookups however long the sheet is. All records of a request or
+ * batch are applied here first; the sheet is then written once, touching only the rows that changed.
+ * Row numbers are 1-based, as in the sheet XML.
+ */
+public final class SheetTable {
+
+    private final String sheetName;
+    private final List<String> header = new ArrayList<>();
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final TreeMap<Integer, List<String>> changedRows = new TreeMap<>();
+    private int headerColumns;  // header cells the sheet already has
+    private int lastRow;
+
+    public SheetTable(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    /* While reading the sheet: a cell of row 1. */
+    void headerCell(int column, String name) {
+        while (header.size() <= column) header.add("");
+        header.set(column, name == null ? "" : name);
+        if (name != null && !name.isEmpty()) columns.putIfAbsent(name, column);
+        headerColumns = header.size();
+        lastRow = Math.max(lastRow, 1);
+    }
+
+    /* While reading the sheet: a data row and its first cell. With duplicate IDs the first row wins, the one
+       TestData.getTestDataManual returns. */
+    void row(int rowNumber, String id) {
+        lastRow = Math.max(lastRow, rowNumber);
+        if (rowNumber > 1 && id != null && !id.isEmpty()) rowsById.putIfAbsent(id, rowNumber);
+    }
+
+    public void upsertAll(List<Map<String, String>> records) {
+        for (Map<String, String> record : records) upsert(record);
+    }
+
+    /* Replace the row of the record's test ID, or add one below the last row. Keys the header does not have yet
+       become new columns. The ID is the record's value for the first column, or its first value if it has none. */
+    public void upsert(Map<String, String> record) {
+        if (record.isEmpty()) {
+            throw new IllegalArgumentException("Empty test data record for sheet " + sheetName);
+        }
+        if (header.isEmpty()) lastRow = Math.max(lastRow, 1);
+        String idColumn = header.isEmpty() ? record.keySet().iterator().next() : header.get(0);
+        String id = record.containsKey(idColumn) ? record.get(idColumn) : record.values().iterator().next();
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Test data record without a test ID in sheet " + sheetName + ": " + record.keySet());
+        }
+
+        List<String> cells = new ArrayList<>(Collections.nCopies(header.size(), (String) null));
+        for (Map.Entry<String, String> e : record.entrySet()) {
+            Integer column = columns.get(e.getKey());
+            if (column == null) {
+                column = header.size();
+                header.add(e.getKey());
+                columns.put(e.getKey(), column);
+                cells.add(null);
+            }
+            cells.set(column, e.getValue());
+        }
+        cells.set(0, id);
+
+        Integer rowNumber = rowsById.get(id);
+        if (rowNumber == null) {
+            rowNumber = ++lastRow;
+            rowsById.put(id, rowNumber);
+        }
+        changedRows.put(rowNumber, cells);
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public List<String> getHeader() {
+        return Collections.unmodifiableList(header);
+    }
+
+    /* Header cells to write after the ones the sheet has; all of them for a sheet without a header row. */
+    public int getHeaderColumns() {
+        return headerColumns;
+    }
+
+    public boolean isHeaderChanged() {
+        return header.size() > headerColumns;
+    }
+
+    /* Row number -> cell texts by column (null: no cell), for every row added or replaced. */
+    public SortedMap<Integer, List<String>> getChangedRows() {
+        return Collections.unmodifiableSortedMap(changedRows);
+    }
+
+    public Integer rowOf(String id) {
+        return rowsById.get(id);
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getRowCount() {
+        return rowsById.size();
+    }
+
+    /* Estimated width per column of the texts written (0 for columns nothing is written to). */
+    public double[] widths() {
+        double[] widths = new double[header.size()];
+        for (int c = headerColumns; c < header.size(); c++) {
+            widths[c] = ColumnWidthEstimator.width(header.get(c));
+        }
+        for (List<String> cells : changedRows.values()) {
+            for (int c = 0; c < cells.size(); c++) {
+                if (cells.get(c) != null) widths[c] = Math.max(widths[c], ColumnWidthEstimator.width(cells.get(c)));
+            }
+        }
+        return widths;
+    }
+}
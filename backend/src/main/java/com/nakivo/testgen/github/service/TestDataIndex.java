@@ -0,0 +1,345 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.github.client.GitHubRateLimiter;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.utils.Constants;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read side of dataInputManual.xlsx: sheet -> column names -> row by test ID, held in memory so a lookup is two hash
+ * lookups and no GitHub call. Values are stored per sheet as a dictionary of distinct texts plus one int array of
+ * dictionary codes per column, which keeps the repeated values of a test data sheet small.
+ * The index is built on first use by streaming the sheets' cells (no workbook model), then kept current from the
+ * workbook cache's uploads and a scheduled SHA check. When the SHA changes, only sheets whose zip entry CRC changed
+ * (or that use shared strings, when the shared string table changed) are read again.
+ */
+@Component
+public class TestDataIndex {
+
+    private static final String PATH = Constants.DATA_INPUT_MANUAL_PATH;
+
+    private final RepositoryBackend backend;
+    private final boolean enabled;
+    // a lock rather than a monitor: it is held across the workbook read, which may block on the network
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong rebuiltSheets = new AtomicLong();
+    private final AtomicLong reusedSheets = new AtomicLong();
+    private volatile long lastRefreshMs;
+
+    public TestDataIndex(GitHubConfig config, RepositoryBackend backend, GithubExcelUpdaterService excelUpdaterService) {
+        this.backend = backend;
+        this.enabled = config.getTestDataIndex().isEnabled();
+        if (enabled) {
+            // an upload we made is the new version already on disk; no need to download it again
+            excelUpdaterService.getWorkbookCache().setUploadListener((path, sha, file) -> {
+                if (PATH.equals(path) && snapshot != null) update(sha, file);
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Column name -> value ("" for an empty cell) of the row with this test ID, or null if the sheet or ID is not
+       there. The first lookup builds the index. Sheet names are case-insensitive, like Workbook.getSheet. */
+    public Map<String, String> find(String sheet, String id) throws IOException, InterruptedException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        lookups.incrementAndGet();
+        SheetIndex index = current.sheets.get(sheet.toLowerCase(Locale.ROOT));
+        Map<String, String> values = index == null ? null : index.find(id);
+        if (values != null) hits.incrementAndGet();
+        return values;
+    }
+
+    /* SHA of the workbook version lookups are answered from, or null before the first lookup. */
+    public String getSha() {
+        Snapshot current = snapshot;
+        return current == null ? null : current.sha;
+    }
+
+    /* Check the workbook's SHA and re-index if it changed. Polling starts once the index is in use. */
+    @Scheduled(fixedDelayString = "${github.test-data-index.refresh-interval-ms:60000}",
+        initialDelayString = "${github.test-data-index.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        if (!enabled || snapshot == null) return;
+        // background polling must not take quota from interactive requests
+        GitHubRateLimiter.runAs(GitHubRateLimiter.Lane.BATCH, () -> {
+            try {
+                refresh();
+            } catch (IOException e) {
+                System.err.println("[WARN] Test data index refresh failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    public void refresh() throws IOException, InterruptedException {
+        refreshLock.lockInterruptibly();
+        try {
+            // the SHA alone (usually a 304) decides; the workbook is only read when it changed
+            String sha = backend.fileSha(PATH);
+            Snapshot current = snapshot;
+            if (sha != null && current != null && sha.equals(current.sha)) return;
+            RepoFile file = sha == null ? null : backend.readFile(PATH, 0);
+            if (file == null) {
+                snapshot = new Snapshot(null, -1, Collections.emptyMap());
+                return;
+            }
+            // the zip is read in place from the buffer readFile returned, indexed under the SHA of that content
+            try (SeekableByteChannel channel = file.openChannel()) {
+                update(file.getSha(), channel);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void update(String sha, Path file) throws IOException {
+        refreshLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current != null && sha.equals(current.sha)) return;
+            try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+                update(sha, channel);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /* Caller holds refreshLock. */
+    private void update(String sha, SeekableByteChannel source) throws IOException {
+        long start = System.currentTimeMillis();
+        Snapshot previous = snapshot;
+        int rebuilt = 0;
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(source).get()) {
+            XlsxSheetUpdater.Layout layout = XlsxSheetUpdater.Layout.read(zip);
+            ZipArchiveEntry sstEntry = layout.sharedStringsPart == null ? null : zip.getEntry(layout.sharedStringsPart);
+            long sstCrc = sstEntry == null ? -1 : sstEntry.getCrc();
+            Map<Integer, String> sharedStrings = null;
+
+            Map<String, SheetIndex> sheets = new HashMap<>();
+            for (Map.Entry<String, String> e : layout.sheetParts.entrySet()) {
+                ZipArchiveEntry entry = zip.getEntry(e.getValue());
+                if (entry == null) continue;
+                String key = e.getKey().toLowerCase(Locale.ROOT);
+                SheetIndex old = previous == null ? null : previous.sheets.get(key);
+                if (old != null && old.name.equals(e.getKey()) && old.crc == entry.getCrc()
+                    && (!old.usesSharedStrings || previous.sharedStringsCrc == sstCrc)) {
+                    sheets.put(key, old);
+                    reusedSheets.incrementAndGet();
+                    continue;
+                }
+                if (sharedStrings == null) {
+                    sharedStrings = XlsxSheetUpdater.readSharedStrings(zip, layout.sharedStringsPart, null);
+                }
+                try (InputStream in = new BufferedInputStream(zip.getInputStream(entry), 64 * 1024)) {
+                    sheets.put(key, SheetIndex.read(e.getKey(), entry.getCrc(), in, sharedStrings));
+                } catch (XMLStreamException ex) {
+                    throw new IOException("Cannot read sheet " + e.getKey() + " of " + PATH + ": " + ex.getMessage(), ex);
+                }
+                rebuilt++;
+            }
+            snapshot = new Snapshot(sha, sstCrc, sheets);
+        }
+        rebuiltSheets.addAndGet(rebuilt);
+        refreshes.incrementAndGet();
+        lastRefreshMs = System.currentTimeMillis() - start;
+        System.out.println("[INFO] Test data index at " + sha + ": " + rebuilt + " sheet(s) re-read in " + lastRefreshMs + " ms");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Snapshot current = snapshot;
+        stats.put("enabled", enabled);
+        stats.put("sha", current == null ? null : current.sha);
+        stats.put("sheets", current == null ? 0 : current.sheets.size());
+        stats.put("rows", current == null ? 0 : current.sheets.values().stream().mapToInt(s -> s.ids.length).sum());
+        stats.put("lookups", lookups.get());
+        stats.put("hits", hits.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("rebuiltSheets", rebuiltSheets.get());
+        stats.put("reusedSheets", reusedSheets.get());
+        stats.put("lastRefreshMs", lastRefreshMs);
+        return stats;
+    }
+
+    private static final class Snapshot {
+        final String sha;
+        final long sharedStringsCrc;
+        // lower-cased sheet name -> index
+        final Map<String, SheetIndex> sheets;
+
+        Snapshot(String sha, long sharedStringsCrc, Map<String, SheetIndex> sheets) {
+            this.sha = sha;
+            this.sharedStringsCrc = sharedStringsCrc;
+            this.sheets = sheets;
+        }
+    }
+
+    /* One sheet, immutable once read. Rows are numbered 0.. in sheet order; codes[column][row] indexes values,
+       -1 for an empty cell. */
+    static final class SheetIndex {
+        final String name;
+        final long crc;
+        final boolean usesSharedStrings;
+        final String[] columns;
+        final String[] ids;
+        final Map<String, Integer> rowById;
+        final int[][] codes;
+        final String[] values;
+
+        private SheetIndex(String name, long crc, boolean usesSharedStrings, String[] columns, String[] ids,
+                           Map<String, Integer> rowById, int[][] codes, String[] values) {
+            this.name = name;
+            this.crc = crc;
+            this.usesSharedStrings = usesSharedStrings;
+            this.columns = columns;
+            this.ids = ids;
+            this.rowById = rowById;
+            this.codes = codes;
+            this.values = values;
+        }
+
+        Map<String, String> find(String id) {
+            Integer row = rowById.get(id);
+            if (row == null) return null;
+            Map<String, String> result = new LinkedHashMap<>();
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c] == null || result.containsKey(columns[c])) continue;
+                int code = row < codes[c].length ? codes[c][row] : -1;
+                result.put(columns[c], code < 0 ? "" : values[code]);
+            }
+            return result;
+        }
+
+        /* Row 1 is the header; every later row with a first-column value is a test case. With duplicate IDs the
+           first row wins, the one TestData.getTestDataManual returns. */
+        static SheetIndex read(String name, long crc, InputStream in, Map<Integer, String> sharedStrings)
+            throws XMLStreamException {
+            Builder builder = new Builder(sharedStrings);
+            XlsxSheetUpdater.readCells(in, true, builder);
+            builder.endRow();
+            return builder.build(name, crc);
+        }
+    }
+
+    private static final class Builder implements XlsxSheetUpdater.CellVisitor {
+        private final Map<Integer, String> sharedStrings;
+        private final List<String> header = new ArrayList<>();
+        private final List<String> ids = new ArrayList<>();
+        private final Map<String, Integer> rowById = new HashMap<>();
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<int[]> codes = new ArrayList<>();
+        private boolean usesSharedStrings;
+
+        // the row being read: its number, ID and cells as column, code pairs
+        private int row;
+        private String id;
+        private int[] cells = new int[32];
+        private int cellCount;
+
+        Builder(Map<Integer, String> sharedStrings) {
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void row(int rowNumber) {
+            endRow();
+            row = rowNumber;
+        }
+
+        @Override
+        public void cell(int rowNumber, int column, String text, int sharedString) {
+            if (sharedString >= 0) {
+                usesSharedStrings = true;
+                text = sharedStrings.get(sharedString);
+            }
+            if (text == null || text.isEmpty()) return;
+            if (rowNumber == 1) {
+                while (header.size() <= column) header.add(null);
+                header.set(column, text);
+                return;
+            }
+            if (column == 0) id = text;
+            if (cellCount * 2 == cells.length) cells = Arrays.copyOf(cells, cells.length * 2);
+            cells[cellCount * 2] = column;
+            cells[cellCount * 2 + 1] = dictionary.computeIfAbsent(text, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+            cellCount++;
+        }
+
+        void endRow() {
+            if (row > 1 && id != null && !rowById.containsKey(id)) {
+                int index = ids.size();
+                ids.add(id);
+                rowById.put(id, index);
+                for (int i = 0; i < cellCount; i++) {
+                    int column = cells[i * 2];
+                    while (codes.size() <= column) codes.add(new int[0]);
+                    int[] columnCodes = codes.get(column);
+                    if (columnCodes.length <= index) {
+                        int old = columnCodes.length;
+                        columnCodes = Arrays.copyOf(columnCodes, Math.max(16, Math.max(index + 1, old * 2)));
+                        Arrays.fill(columnCodes, old, columnCodes.length, -1);
+                        codes.set(column, columnCodes);
+                    }
+                    columnCodes[index] = cells[i * 2 + 1];
+                }
+            }
+            id = null;
+            cellCount = 0;
+        }
+
+        SheetIndex build(String name, long crc) {
+            int rows = ids.size();
+            int width = Math.max(header.size(), codes.size());
+            String[] columns = new String[width];
+            int[][] trimmed = new int[width][];
+            for (int c = 0; c < width; c++) {
+                columns[c] = c < header.size() ? header.get(c) : null;
+                int[] columnCodes = c < codes.size() ? codes.get(c) : new int[0];
+                trimmed[c] = columnCodes.length > rows ? Arrays.copyOf(columnCodes, rows) : columnCodes;
+            }
+            return new SheetIndex(name, crc, usesSharedStrings, columns, ids.toArray(new String[0]),
+                new HashMap<>(rowById), trimmed, values.toArray(new String[0]));
+        }
+    }
+}
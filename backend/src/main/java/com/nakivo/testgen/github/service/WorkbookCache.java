@@ -0,0 +1,462 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.backend.RepositoryBackend;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.GitHubRateLimiter;
+import com.nakivo.testgen.utils.GitBlobSha;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Test data uploads of a workbook, deferred and batched. Upserts are queued as deltas (records by sheet) and written
+ * in one streaming pass and one commit through the repository backend when a flush is triggered: by the number of
+ * queued records, by the age of the oldest one, or explicitly. The workbook as last committed is kept in a temp file
+ * with its blob SHA, so a flush costs a SHA lookup (usually a 304) and the commit instead of a download, a rewrite
+ * and an upload per request. When the branch's SHA is not the cached one the workbook changed outside this cache:
+ * the cached copy is dropped, the current file read and the deltas applied on top of it, which is safe because they
+ * are upserts by test ID. The commit is guarded by the SHA the deltas were applied to, and one rejected with 409/422
+ * is rebased the same way.
+ * Each submit gets an id whose outcome (queued, uploaded, dropped) can be polled with {@link #status}.
+ */
+@Component
+public class WorkbookCache implements AutoCloseable {
+
+    // most recent submissions by id, for status polling; the oldest are forgotten first
+    private static final int MAX_TRACKED_SUBMISSIONS = 1000;
+
+    private final RepositoryBackend backend;
+    private final boolean enabled;
+    private final int flushRecords;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    // one thread: scheduled flushes run one after another
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile UploadListener uploadListener;
+
+    private final AtomicLong submissionIds = new AtomicLong();
+    private final Map<String, Submission> tracked = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Submission> eldest) {
+            return size() > MAX_TRACKED_SUBMISSIONS;
+        }
+    };
+
+    private final AtomicLong queuedRecords = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong rebases = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+
+    public WorkbookCache(GitHubConfig config, RepositoryBackend backend) {
+        GitHubConfig.WorkbookCache settings = config.getWorkbookCache();
+        this.backend = backend;
+        // a workspace write is as cheap as queueing it, and the file should be on disk right away
+        this.enabled = settings.isEnabled() && !backend.isLocal();
+        this.flushRecords = Math.max(1, settings.getFlushRecords());
+        this.flushIntervalMs = Math.max(0, settings.getFlushIntervalMs());
+        this.maxAttempts = Math.max(1, settings.getMaxAttempts());
+        if (enabled) {
+            this.scheduler = new ScheduledThreadPoolExecutor(1, r -> Thread.ofPlatform().name("workbook-cache").daemon().unstarted(r));
+            // on close the deltas are flushed immediately instead of waiting for the interval
+            scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setUploadListener(UploadListener uploadListener) {
+        this.uploadListener = uploadListener;
+    }
+
+    /* Queue upserts; they are uploaded by a later flush, whose outcome the returned submission reports.
+       Disabled, this is an immediate flush of just these and the submission is already complete. */
+    public Submission submit(String path, Map<String, List<Map<String, String>>> recordsBySheet) throws Exception {
+        int records = 0;
+        for (List<Map<String, String>> sheet : recordsBySheet.values()) records += sheet.size();
+        Submission submission = new Submission("upload-" + submissionIds.incrementAndGet(), path, records);
+        synchronized (tracked) {
+            tracked.put(submission.id, submission);
+        }
+        if (!enabled) {
+            try {
+                submission.result.complete(flush(path, recordsBySheet));
+            } catch (Exception e) {
+                submission.result.completeExceptionally(e);
+                throw e;
+            }
+            return submission;
+        }
+        Entry entry = entries.computeIfAbsent(path, Entry::new);
+        boolean flushNow;
+        synchronized (entry) {
+            int added = merge(entry.pending, recordsBySheet);
+            entry.pendingRecords += added;
+            entry.submissions.add(submission);
+            queuedRecords.addAndGet(added);
+            flushNow = entry.pendingRecords >= flushRecords;
+            if (!flushNow) scheduleFlush(entry);
+        }
+        if (flushNow) scheduler.execute(() -> flushQuietly(path));
+        return submission;
+    }
+
+    /* Outcome of a submission: queued until a flush commits it, then uploaded (with the commit SHA) or dropped
+       (with the error; its records are not in the workbook). */
+    public Map<String, Object> status(String id) {
+        Submission submission;
+        synchronized (tracked) {
+            submission = tracked.get(id);
+        }
+        if (submission == null) {
+            throw new IllegalArgumentException("Unknown test data upload: " + id);
+        }
+        return submission.status();
+    }
+
+    /* Upload everything queued for the path together with these records, now; returns the commit SHA (null when
+       there was nothing to upload). When it fails the given records are not kept (the caller gets the exception);
+       queued ones stay for the next flush. */
+    public String flush(String path, Map<String, List<Map<String, String>>> recordsBySheet) throws Exception {
+        Entry entry = entries.computeIfAbsent(path, Entry::new);
+        entry.flushLock.lockInterruptibly();
+        try {
+            Map<String, List<Map<String, String>>> taken;
+            int takenRecords;
+            List<Submission> submissions;
+            synchronized (entry) {
+                taken = entry.pending;
+                takenRecords = entry.pendingRecords;
+                submissions = entry.submissions;
+                entry.pending = new LinkedHashMap<>();
+                entry.pendingRecords = 0;
+                entry.submissions = new ArrayList<>();
+            }
+            queuedRecords.addAndGet(-takenRecords);
+            Map<String, List<Map<String, String>>> deltas = new LinkedHashMap<>();
+            int records = merge(deltas, taken) + merge(deltas, recordsBySheet);
+            if (records == 0) return null;
+
+            flushes.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                String commit = upload(entry, deltas, records);
+                synchronized (entry) {
+                    entry.failures = 0;
+                }
+                for (Submission s : submissions) s.result.complete(commit);
+                return commit;
+            } catch (IllegalArgumentException e) {
+                // a record that can never apply (e.g. no test ID); retrying would fail the same way
+                failedFlushes.incrementAndGet();
+                droppedRecords.addAndGet(takenRecords);
+                System.err.println("[WARN] Dropped " + takenRecords + " queued test data record(s) of " + path + ": " + e.getMessage());
+                for (Submission s : submissions) s.result.completeExceptionally(e);
+                throw e;
+            } catch (Exception e) {
+                failedFlushes.incrementAndGet();
+                requeue(entry, taken, takenRecords, submissions, e);
+                throw e;
+            } finally {
+                lastFlushMs.set((System.nanoTime() - start) / 1_000_000);
+                if (!enabled) discard(entry);
+            }
+        } finally {
+            entry.flushLock.unlock();
+        }
+    }
+
+    /* Flush every path with queued records. */
+    public void flushAll() throws Exception {
+        for (String path : new ArrayList<>(entries.keySet())) flush(path, Map.of());
+    }
+
+    /* Drop the cached workbook copies (queued records are kept); the next flush downloads the current blob. */
+    public void invalidate() throws InterruptedException {
+        for (Entry entry : entries.values()) {
+            entry.flushLock.lockInterruptibly();
+            try {
+                discard(entry);
+            } finally {
+                entry.flushLock.unlock();
+            }
+        }
+    }
+
+    // caller holds the entry's monitor
+    private void scheduleFlush(Entry entry) {
+        if (entry.flushScheduled || entry.pendingRecords == 0) return;
+        entry.flushScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (entry) {
+                entry.flushScheduled = false;
+            }
+            flushQuietly(entry.path);
+        }, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // a flush lands the test data of interactive requests, whatever lane the scheduler thread inherited
+    private void flushQuietly(String path) {
+        GitHubRateLimiter.runAs(GitHubRateLimiter.Lane.INTERACTIVE, () -> {
+            try {
+                flush(path, Map.of());
+            } catch (Exception e) {
+                System.err.println("[WARN] Test data upload of " + path + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // the deltas of a failed flush go back in front of what was queued meanwhile, and are retried after the interval;
+    // after maxAttempts failed flushes in a row they are dropped, which their submissions report
+    private void requeue(Entry entry, Map<String, List<Map<String, String>>> taken, int takenRecords,
+                         List<Submission> submissions, Exception cause) {
+        if (takenRecords == 0) return;
+        synchronized (entry) {
+            entry.failures++;
+            if (entry.failures >= maxAttempts || !enabled) {
+                droppedRecords.addAndGet(takenRecords);
+                System.err.println("[WARN] Dropped " + takenRecords + " queued test data record(s) of " + entry.path
+                    + " after " + entry.failures + " failed upload(s)");
+                entry.failures = 0;
+                for (Submission s : submissions) s.result.completeExceptionally(cause);
+                return;
+            }
+            Map<String, List<Map<String, String>>> pending = new LinkedHashMap<>();
+            merge(pending, taken);
+            merge(pending, entry.pending);
+            entry.pending = pending;
+            List<Submission> waiting = new ArrayList<>(submissions);
+            waiting.addAll(entry.submissions);
+            entry.submissions = waiting;
+            entry.pendingRecords += takenRecords;
+            queuedRecords.addAndGet(takenRecords);
+            scheduleFlush(entry);
+        }
+    }
+
+    // caller holds the entry's flush lock; returns the commit SHA
+    private String upload(Entry entry, Map<String, List<Map<String, String>>> deltas, int records) throws Exception {
+        String message = "Auto update: " + records + " test data row(s) in " + String.join(", ", deltas.keySet());
+        for (int attempt = 1; ; attempt++) {
+            String upstream = backend.fileSha(entry.path);
+            if (upstream == null) {
+                throw new RuntimeException("Workbook not found in repository: " + entry.path);
+            }
+            if (!upstream.equals(entry.sha)) {
+                if (entry.sha != null) {
+                    rebases.incrementAndGet();
+                    System.out.println("[INFO] " + entry.path + " changed upstream, rebasing " + records + " queued record(s)");
+                }
+                download(entry, upstream);
+            }
+
+            Path updated = Files.createTempFile("workbook_", ".xlsx");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(updated))) {
+                    XlsxSheetUpdater.update(entry.file, out, deltas);
+                }
+                // the file itself is committed: streamed to the backend, never read into memory
+                String commit = backend.commitFiles(message, Map.of(entry.path, updated), Map.of(entry.path, entry.sha));
+                uploads.incrementAndGet();
+
+                // the committed file is the next base
+                String sha = GitBlobSha.of(updated);
+                notifyUploaded(entry.path, sha, updated);
+                discard(entry);
+                entry.file = updated;
+                entry.sha = sha;
+                updated = null;
+                System.out.println("✅ " + records + " test data record(s) uploaded to " + entry.path);
+                return commit;
+            } catch (GitHubApiException e) {
+                if ((e.getStatusCode() != 409 && e.getStatusCode() != 422) || attempt >= maxAttempts) throw e;
+                System.out.println("[INFO] Upload of " + entry.path + " rejected (" + e.getStatusCode() + "), rebasing for attempt " + (attempt + 1));
+                rebases.incrementAndGet();
+                discard(entry);
+            } finally {
+                if (updated != null) Files.deleteIfExists(updated);
+            }
+        }
+    }
+
+    private void notifyUploaded(String path, String sha, Path file) {
+        UploadListener listener = uploadListener;
+        if (listener == null) return;
+        try {
+            listener.uploaded(path, sha, file);
+        } catch (Exception e) {
+            System.err.println("[WARN] Upload listener failed for " + path + ": " + e.getMessage());
+        }
+    }
+
+    // the blob of the SHA just looked up, streamed to the temp file: the commit is guarded by the SHA of the bytes
+    // the deltas go on, and the workbook is never held in memory
+    private void download(Entry entry, String sha) throws IOException, InterruptedException {
+        discard(entry);
+        Path file = Files.createTempFile("workbook_", ".xlsx");
+        try (InputStream in = backend.openBlob(entry.path, sha)) {
+            if (in == null) {
+                throw new RuntimeException("Workbook not found in repository: " + entry.path + " (" + sha + ")");
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        downloads.incrementAndGet();
+        entry.file = file;
+        entry.sha = sha;
+    }
+
+    private static void discard(Entry entry) {
+        if (entry.file != null) {
+            try {
+                Files.deleteIfExists(entry.file);
+            } catch (IOException e) {
+                System.err.println("[WARN] Cannot delete cached workbook " + entry.file + ": " + e.getMessage());
+            }
+        }
+        entry.file = null;
+        entry.sha = null;
+    }
+
+    // appends the records sheet by sheet, keeping their order; returns how many were added
+    private static int merge(Map<String, List<Map<String, String>>> into, Map<String, List<Map<String, String>>> from) {
+        int added = 0;
+        for (Map.Entry<String, List<Map<String, String>>> e : from.entrySet()) {
+            into.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+            added += e.getValue().size();
+        }
+        return added;
+    }
+
+    /* Queued records, cached workbooks and flush counters. */
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> workbooks = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            Map<String, Object> w = new LinkedHashMap<>();
+            w.put("path", entry.path);
+            w.put("sha", entry.sha);
+            synchronized (entry) {
+                w.put("queuedRecords", entry.pendingRecords);
+            }
+            workbooks.add(w);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("flushRecords", flushRecords);
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("queuedRecords", queuedRecords.get());
+        stats.put("flushes", flushes.get());
+        stats.put("uploads", uploads.get());
+        stats.put("downloads", downloads.get());
+        stats.put("rebases", rebases.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("droppedRecords", droppedRecords.get());
+        stats.put("lastFlushMs", lastFlushMs.get());
+        stats.put("workbooks", workbooks);
+        return stats;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws InterruptedException {
+        if (scheduler == null) return;
+        scheduler.execute(() -> {
+            for (String path : new ArrayList<>(entries.keySet())) flushQuietly(path);
+        });
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(60, TimeUnit.SECONDS)) {
+            System.err.println("[WARN] Workbook cache did not finish flushing on shutdown");
+        }
+        for (Entry entry : entries.values()) discard(entry);
+    }
+
+    /* Records of one submit and the commit that carries them (completes exceptionally when they were dropped). */
+    public static final class Submission {
+        private final String id;
+        private final String path;
+        private final int records;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Submission(String id, String path, int records) {
+            this.id = id;
+            this.path = path;
+            this.records = records;
+        }
+
+        public String getId() { return id; }
+
+        public CompletableFuture<String> getResult() { return result; }
+
+        public boolean isQueued() { return !result.isDone(); }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("id", id);
+            status.put("path", path);
+            status.put("records", records);
+            if (!result.isDone()) {
+                status.put("state", "queued");
+            } else if (result.isCompletedExceptionally()) {
+                status.put("state", "dropped");
+                status.put("error", result.exceptionNow().getMessage());
+            } else {
+                status.put("state", "uploaded");
+                status.put("commit", result.resultNow());
+            }
+            return status;
+        }
+    }
+
+    /* Told about every upload, with the workbook as uploaded; the file is only valid during the call. */
+    public interface UploadListener {
+        void uploaded(String path, String sha, Path file) throws Exception;
+    }
+
+    private static final class Entry {
+        final String path;
+        // held for a whole flush; guards file and sha
+        final ReentrantLock flushLock = new ReentrantLock();
+        Path file;
+        String sha;
+        // guarded by the entry's monitor
+        int failures;
+        Map<String, List<Map<String, String>>> pending = new LinkedHashMap<>();
+        List<Submission> submissions = new ArrayList<>();
+        int pendingRecords;
+        boolean flushScheduled;
+
+        Entry(String path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,825 @@
+package com.nakivo.testgen.github.service;
+
+import com.nakivo.testgen.utils.ColumnWidthEstimator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.namespace.QName;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * Test data upserts on an .xlsx without loading it into a workbook model. Zip entries that do not change are copied
+ * still compressed; only the XML of the target sheets is rewritten, one event at a time (plus the workbook,
+ * its relationships and the content types when a sheet is added). A target sheet is read twice: once for its header
+ * and test IDs (a {@link SheetTable}; shared strings are looked up only for those cells), once to copy it with the
+ * changed rows swapped in. Memory use depends on the number of test IDs, not on the workbook size.
+ * Written cells are inline strings, so the shared string table is copied untouched too. Column widths come from
+ * {@link ColumnWidthEstimator} and only ever grow.
+ */
+public class XlsxSheetUpdater {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String OFFICE_DOCUMENT = REL_NS + "/officeDocument";
+    private static final String WORKSHEET = REL_NS + "/worksheet";
+    private static final String SHARED_STRINGS = REL_NS + "/sharedStrings";
+    private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    // a new sheet is this, with columns and rows added by the same rewrite as an existing one
+    private static final String EMPTY_SHEET = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+        + "<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheetData/>"
+        + "<pageMargins left=\"0.7\" right=\"0.7\" top=\"0.75\" bottom=\"0.75\" header=\"0.3\" footer=\"0.3\"/></worksheet>";
+    private static final Pattern ESCAPED_CHAR = Pattern.compile("_x[0-9A-Fa-f]{4}_");
+    private static final Pattern CELL_REF = Pattern.compile("\\$?([A-Za-z]+)\\$?(\\d+)");
+
+    private static final XMLInputFactory INPUT = XMLInputFactory.newFactory();
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newFactory();
+    private static final XMLEventFactory EVENTS = XMLEventFactory.newFactory();
+
+    static {
+        INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private XlsxSheetUpdater() {
+    }
+
+    /* recordsBySheet: sheet name -> test data records, upserted by test ID in that order; missing sheets are added. */
+    public static Map<String, SheetTable> update(Path source, OutputStream out, Map<String, List<Map<String, String>>> recordsBySheet)
+        throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(source, StandardOpenOption.READ)) {
+            return update(channel, out, recordsBySheet);
+        }
+    }
+
+    public static byte[] update(byte[] source, Map<String, List<Map<String, String>>> recordsBySheet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(source.length + 8192);
+        update(new SeekableInMemoryByteChannel(source), out, recordsBySheet);
+        return out.toByteArray();
+    }
+
+    private static Map<String, SheetTable> update(SeekableByteChannel source, OutputStream out,
+                                                  Map<String, List<Map<String, String>>> recordsBySheet) throws IOException {
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(source).get()) {
+            Layout layout = Layout.read(zip);
+
+            Map<String, SheetTable> tables = new LinkedHashMap<>();   // part name -> table with the upserts applied
+            Map<String, NewSheet> added = new LinkedHashMap<>();      // part name -> new sheet
+            Map<SheetTable, List<CellText>> scanned = new LinkedHashMap<>();
+            Set<Integer> sharedStrings = new HashSet<>();
+            int nextSheetId = layout.maxSheetId + 1;
+            for (Map.Entry<String, List<Map<String, String>>> e : recordsBySheet.entrySet()) {
+                String part = layout.sheetParts.get(e.getKey());
+                if (tables.containsKey(part)) continue; // the same sheet, named in another case
+                SheetTable table;
+                if (part == null) {
+                    NewSheet sheet = layout.newSheet(zip, validSheetName(e.getKey()), nextSheetId++);
+                    part = sheet.part;
+                    added.put(part, sheet);
+                    layout.sheetParts.put(e.getKey(), part);
+                    table = new SheetTable(e.getKey());
+                } else {
+                    table = new SheetTable(e.getKey());
+                    ZipArchiveEntry entry = zip.getEntry(part);
+                    if (entry == null) throw new IOException("No sheet part " + part);
+                    try (InputStream in = new BufferedInputStream(zip.getInputStream(entry), 64 * 1024)) {
+                        scanned.put(table, scanSheet(in, table, sharedStrings));
+                    } catch (XMLStreamException x) {
+                        throw new IOException("Cannot read " + part + ": " + x.getMessage(), x);
+                    }
+                }
+                tables.put(part, table);
+            }
+
+            // IDs and header names in the shared string table are resolved in one pass over it, then the records applied
+            Map<Integer, String> strings = readSharedStrings(zip, layout.sharedStringsPart, sharedStrings);
+            for (Map.Entry<SheetTable, List<CellText>> e : scanned.entrySet()) {
+                SheetTable table = e.getKey();
+                for (CellText cell : e.getValue()) {
+                    String text = cell.sharedString >= 0 ? strings.get(cell.sharedString) : cell.text;
+                    if (cell.row == 1) table.headerCell(cell.column, text);
+                    else table.row(cell.row, text);
+                }
+            }
+            for (Map.Entry<String, List<Map<String, String>>> e : recordsBySheet.entrySet()) {
+                tables.get(layout.sheetParts.get(e.getKey())).upsertAll(e.getValue());
+            }
+
+            ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush(); // the caller owns the stream
+                }
+            });
+            for (Iterator<ZipArchiveEntry> it = zip.getEntriesInPhysicalOrder().asIterator(); it.hasNext(); ) {
+                ZipArchiveEntry entry = it.next();
+                String name = entry.getName();
+                SheetTable table = tables.get(name);
+                if (table != null) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        putSheet(zos, name, in, table);
+                    }
+                } else if (!added.isEmpty() && layout.isIndexPart(name)) {
+                    putEntry(zos, name, layout.withAddedSheets(name, readText(zip, entry), added.values()).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    zos.addRawArchiveEntry(entry, zip.getRawInputStream(entry));
+                }
+            }
+            for (NewSheet sheet : added.values()) {
+                putSheet(zos, sheet.part, new ByteArrayInputStream(EMPTY_SHEET.getBytes(StandardCharsets.UTF_8)), tables.get(sheet.part));
+            }
+            zos.finish();
+            zos.close();
+
+            Map<String, SheetTable> bySheet = new LinkedHashMap<>();
+            for (SheetTable table : tables.values()) bySheet.put(table.getSheetName(), table);
+            return bySheet;
+        }
+    }
+
+    private static void putSheet(ZipArchiveOutputStream zos, String name, InputStream in, SheetTable table) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        zos.putArchiveEntry(entry);
+        // StAX reads and writes a few bytes at a time; unbuffered, every write is a deflater call
+        BufferedOutputStream out = new BufferedOutputStream(zos, 64 * 1024);
+        try {
+            rewriteSheet(new BufferedInputStream(in, 64 * 1024), out, table);
+            out.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot rewrite " + name + ": " + e.getMessage(), e);
+        }
+        zos.closeArchiveEntry();
+    }
+
+    private static void putEntry(ZipArchiveOutputStream zos, String name, byte[] content) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        zos.putArchiveEntry(entry);
+        zos.write(content);
+        zos.closeArchiveEntry();
+    }
+
+    /* The header cells and first-column cells of a sheet, in document order; shared string cells carry their index,
+       which is added to sharedStrings. Every row number goes to the table, so it knows where new rows start. */
+    static List<CellText> scanSheet(InputStream in, SheetTable table, Set<Integer> sharedStrings) throws XMLStreamException {
+        List<CellText> cells = new ArrayList<>();
+        readCells(in, false, new CellVisitor() {
+            @Override
+            public void row(int row) {
+                table.row(row, null);
+            }
+
+            @Override
+            public void cell(int row, int column, String text, int sharedString) {
+                if (sharedString >= 0) sharedStrings.add(sharedString);
+                cells.add(new CellText(row, column, text, sharedString));
+            }
+        });
+        return cells;
+    }
+
+    /* Streams the cells of a sheet's XML to the visitor, in document order: all of them, or only those of row 1 and
+       of the first column. A shared string cell is passed with its index (text null), any other with its text. */
+    static void readCells(InputStream in, boolean allCells, CellVisitor visitor) throws XMLStreamException {
+        XMLStreamReader reader = INPUT.createXMLStreamReader(in, StandardCharsets.UTF_8.name());
+        int row = 0;
+        int column = -1;
+        String type = null;
+        boolean wanted = false;
+        boolean phonetic = false;
+        StringBuilder text = null;   // collecting while inside <v> or <t>
+        StringBuilder value = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "row" -> {
+                        String r = reader.getAttributeValue(null, "r");
+                        row = r != null ? Integer.parseInt(r) : row + 1;
+                        column = -1;
+                        visitor.row(row);
+                    }
+                    case "c" -> {
+                        String r = reader.getAttributeValue(null, "r");
+                        column = r != null ? columnIndex(r) : column + 1;
+                        type = reader.getAttributeValue(null, "t");
+                        wanted = allCells || row == 1 || column == 0;
+                        value.setLength(0);
+                    }
+                    case "v", "t" -> {
+                        if (wanted && !phonetic) text = value;
+                    }
+                    case "rPh" -> phonetic = true;
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE) {
+                if (text != null) text.append(reader.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "v", "t" -> text = null;
+                    case "rPh" -> phonetic = false;
+                    case "c" -> {
+                        if (!wanted) break;
+                        if ("s".equals(type)) {
+                            visitor.cell(row, column, null, Integer.parseInt(value.toString().trim()));
+                        } else {
+                            String s = value.toString();
+                            visitor.cell(row, column, "b".equals(type) ? ("1".equals(s) ? "TRUE" : "FALSE") : unescapeText(s), -1);
+                        }
+                    }
+                    case "sheetData" -> {
+                        reader.close();
+                        return; // nothing after it holds cells
+                    }
+                    default -> { }
+                }
+            }
+        }
+        reader.close();
+    }
+
+    /* The texts of the given shared string indexes (null: all of them); the table is read only up to the last one
+       asked for. */
+    static Map<Integer, String> readSharedStrings(ZipFile zip, String part, Set<Integer> wanted) throws IOException {
+        Map<Integer, String> strings = new HashMap<>();
+        ZipArchiveEntry entry = part == null ? null : zip.getEntry(part);
+        if ((wanted != null && wanted.isEmpty()) || entry == null) return strings;
+        int last = wanted == null ? Integer.MAX_VALUE : Collections.max(wanted);
+        try (InputStream in = new BufferedInputStream(zip.getInputStream(entry), 64 * 1024)) {
+            XMLStreamReader reader = INPUT.createXMLStreamReader(in, StandardCharsets.UTF_8.name());
+            int index = -1;
+            boolean phonetic = false;
+            boolean inText = false;
+            StringBuilder text = new StringBuilder();
+            while (reader.hasNext() && index <= last) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "si" -> {
+                            index++;
+                            text.setLength(0);
+                        }
+                        case "t" -> inText = !phonetic && (wanted == null || wanted.contains(index));
+                        case "rPh" -> phonetic = true;
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                    if (inText) text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "t" -> inText = false;
+                        case "rPh" -> phonetic = false;
+                        case "si" -> {
+                            if (wanted == null || wanted.contains(index)) strings.put(index, unescapeText(text.toString()));
+                        }
+                        default -> { }
+                    }
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read " + part + ": " + e.getMessage(), e);
+        }
+        return strings;
+    }
+
+    /* Copies the sheet XML event by event with the table's changed rows swapped in (or added in row order), new header
+       cells appended to row 1, <cols> widened for the written columns and <dimension> grown to the new extent. */
+    static void rewriteSheet(InputStream in, OutputStream out, SheetTable table) throws XMLStreamException {
+        XMLEventReader reader = INPUT.createXMLEventReader(in, StandardCharsets.UTF_8.name());
+        XMLEventWriter writer = OUTPUT.createXMLEventWriter(out, StandardCharsets.UTF_8.name());
+        double[] widths = table.widths();
+        List<String> header = table.getHeader();
+
+        TreeMap<Integer, List<String>> writes = new TreeMap<>(table.getChangedRows());
+        boolean appendHeader = table.isHeaderChanged() && table.getHeaderColumns() > 0;
+        if (table.isHeaderChanged() && !appendHeader) writes.put(1, header);
+        boolean changed = !writes.isEmpty() || appendHeader;
+
+        int depth = 0;
+        int skip = 0;              // > 0 while inside a replaced row
+        int row = 0;
+        List<StartElement> cols = null;
+        boolean colsWritten = !hasWidths(widths);
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (skip > 0) {
+                if (event.isStartElement()) skip++;
+                else if (event.isEndElement()) skip--;
+                continue;
+            }
+            if (event.isStartElement()) {
+                StartElement start = event.asStartElement();
+                String name = start.getName().getLocalPart();
+                depth++;
+                if (cols != null) {
+                    if (name.equals("col")) cols.add(start);
+                    continue;
+                }
+                if (depth == 2 && name.equals("dimension") && changed) {
+                    event = dimension(start, header.size(), table.getLastRow());
+                }
+                if (depth == 2 && name.equals("cols") && !colsWritten) {
+                    cols = new ArrayList<>();
+                    continue;
+                }
+                if (depth == 2 && name.equals("sheetData") && !colsWritten) {
+                    writeCols(writer, start.getName(), List.of(), widths);
+                    colsWritten = true;
+                }
+                if (depth == 3 && name.equals("row")) {
+                    Attribute r = start.getAttributeByName(new QName("r"));
+                    row = r != null ? Integer.parseInt(r.getValue()) : row + 1;
+                    // rows of the table that come before this one
+                    while (!writes.isEmpty() && writes.firstKey() < row) {
+                        Map.Entry<Integer, List<String>> w = writes.pollFirstEntry();
+                        writeRow(writer, start.getName(), w.getKey(), w.getValue(), null, 0);
+                    }
+                    List<String> replacement = writes.remove(row);
+                    if (replacement != null) {
+                        writeRow(writer, start.getName(), row, replacement, start, 0);
+                        skip = 1;
+                        depth--;
+                        continue;
+                    }
+                    if (row == 1 && appendHeader) {
+                        // the existing header cells are copied, the new ones follow at the row's end tag
+                        event = withoutSpans(start);
+                    }
+                }
+            } else if (event.isEndElement()) {
+                QName qName = event.asEndElement().getName();
+                String name = qName.getLocalPart();
+                depth--;
+                if (cols != null) {
+                    if (depth == 1 && name.equals("cols")) {
+                        writeCols(writer, qName, cols, widths);
+                        cols = null;
+                        colsWritten = true;
+                    }
+                    continue;
+                }
+                if (depth == 2 && name.equals("row") && row == 1 && appendHeader) {
+                    writeCells(writer, qName, 1, header, table.getHeaderColumns());
+                }
+                if (depth == 1 && name.equals("sheetData")) {
+                    for (Map.Entry<Integer, List<String>> w : writes.entrySet()) {
+                        writeRow(writer, qName, w.getKey(), w.getValue(), null, 0);
+                    }
+                    writes.clear();
+                }
+            } else if (cols != null) {
+                continue; // whitespace between <col> elements
+            }
+            writer.add(event);
+        }
+        writer.flush();
+        writer.close();
+        reader.close();
+    }
+
+    private static boolean hasWidths(double[] widths) {
+        for (double w : widths) {
+            if (w > 0) return true;
+        }
+        return false;
+    }
+
+    // the ref grows to cover the header's columns and the last row; it never shrinks
+    private static StartElement dimension(StartElement start, int columns, int lastRow) {
+        Attribute ref = start.getAttributeByName(new QName("ref"));
+        int maxColumn = Math.max(columns, 1);
+        int maxRow = Math.max(lastRow, 1);
+        if (ref != null) {
+            String[] bounds = ref.getValue().split(":");
+            Matcher m = CELL_REF.matcher(bounds[bounds.length - 1]);
+            if (m.matches()) {
+                maxColumn = Math.max(maxColumn, columnIndex(m.group(1)) + 1);
+                maxRow = Math.max(maxRow, Integer.parseInt(m.group(2)));
+            }
+        }
+        List<Attribute> attributes = new ArrayList<>();
+        for (Iterator<Attribute> it = start.getAttributes(); it.hasNext(); ) {
+            Attribute a = it.next();
+            if (!a.getName().getLocalPart().equals("ref")) attributes.add(a);
+        }
+        attributes.add(EVENTS.createAttribute("ref", "A1:" + columnName(maxColumn - 1) + maxRow));
+        return EVENTS.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+    }
+
+    // spans is a hint of the row's cell range, stale once cells are added
+    private static StartElement withoutSpans(StartElement start) {
+        List<Attribute> attributes = new ArrayList<>();
+        for (Iterator<Attribute> it = start.getAttributes(); it.hasNext(); ) {
+            Attribute a = it.next();
+            if (!a.getName().getLocalPart().equals("spans")) attributes.add(a);
+        }
+        return EVENTS.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+    }
+
+    /* Existing <col> ranges are kept; a written column takes the larger of its width and the estimate, and keeps its
+       other attributes (style), so a range it falls in is split around it. */
+    private static void writeCols(XMLEventWriter writer, QName sibling, List<StartElement> existing, double[] widths)
+        throws XMLStreamException {
+        String prefix = sibling.getPrefix();
+        String ns = sibling.getNamespaceURI();
+        int n = widths.length;
+        TreeMap<Integer, Map<String, String>> out = new TreeMap<>();
+        boolean[] covered = new boolean[n];
+
+        for (StartElement col : existing) {
+            Map<String, String> attrs = new LinkedHashMap<>();
+            for (Iterator<Attribute> it = col.getAttributes(); it.hasNext(); ) {
+                Attribute a = it.next();
+                attrs.put(a.getName().getLocalPart(), a.getValue());
+            }
+            int min = Integer.parseInt(attrs.get("min"));
+            int max = Integer.parseInt(attrs.get("max"));
+            for (int c = min; c <= max; ) {
+                Map<String, String> part = new LinkedHashMap<>(attrs);
+                if (written(widths, c)) {
+                    covered[c - 1] = true;
+                    part.put("min", String.valueOf(c));
+                    part.put("max", String.valueOf(c));
+                    widen(part, widths[c - 1]);
+                    out.put(c, part);
+                    c++;
+                } else {
+                    int end = c;
+                    while (end < max && !written(widths, end + 1)) end++;
+                    part.put("min", String.valueOf(c));
+                    part.put("max", String.valueOf(end));
+                    out.put(c, part);
+                    c = end + 1;
+                }
+            }
+        }
+        for (int c = 1; c <= n; c++) {
+            if (!written(widths, c) || covered[c - 1]) continue;
+            Map<String, String> attrs = new LinkedHashMap<>();
+            attrs.put("min", String.valueOf(c));
+            attrs.put("max", String.valueOf(c));
+            widen(attrs, widths[c - 1]);
+            out.put(c, attrs);
+        }
+
+        writer.add(EVENTS.createStartElement(prefix, ns, "cols"));
+        for (Map<String, String> attrs : out.values()) {
+            List<Attribute> attributes = new ArrayList<>();
+            attributes.add(EVENTS.createAttribute("min", attrs.remove("min")));
+            attributes.add(EVENTS.createAttribute("max", attrs.remove("max")));
+            attrs.forEach((k, v) -> attributes.add(EVENTS.createAttribute(k, v)));
+            writer.add(EVENTS.createStartElement(prefix, ns, "col", attributes.iterator(), null));
+            writer.add(EVENTS.createEndElement(prefix, ns, "col"));
+        }
+        writer.add(EVENTS.createEndElement(prefix, ns, "cols"));
+    }
+
+    private static boolean written(double[] widths, int column) {
+        return column <= widths.length && widths[column - 1] > 0;
+    }
+
+    private static void widen(Map<String, String> attrs, double estimate) {
+        double width = estimate;
+        String current = attrs.get("width");
+        if (current != null) {
+            try {
+                width = Math.max(width, Double.parseDouble(current));
+            } catch (NumberFormatException e) {
+                // keep the estimate
+            }
+        }
+        attrs.put("width", String.valueOf(Math.round(width * 100) / 100.0));
+        attrs.put("customWidth", "1");
+        attrs.remove("bestFit");
+    }
+
+    // a replaced row keeps the attributes of the one it replaces (height, style), except its cell span
+    private static void writeRow(XMLEventWriter writer, QName sibling, int rowNumber, List<String> cells,
+                                 StartElement replaced, int fromColumn) throws XMLStreamException {
+        String prefix = sibling.getPrefix();
+        String ns = sibling.getNamespaceURI();
+        List<Attribute> attributes = new ArrayList<>();
+        attributes.add(EVENTS.createAttribute("r", String.valueOf(rowNumber)));
+        if (replaced != null) {
+            for (Iterator<Attribute> it = replaced.getAttributes(); it.hasNext(); ) {
+                Attribute a = it.next();
+                String local = a.getName().getLocalPart();
+                if (!local.equals("r") && !local.equals("spans")) attributes.add(a);
+            }
+        }
+        writer.add(EVENTS.createStartElement(prefix, ns, "row", attributes.iterator(), null));
+        writeCells(writer, sibling, rowNumber, cells, fromColumn);
+        writer.add(EVENTS.createEndElement(prefix, ns, "row"));
+    }
+
+    private static void writeCells(XMLEventWriter writer, QName sibling, int rowNumber, List<String> cells, int fromColumn)
+        throws XMLStreamException {
+        String prefix = sibling.getPrefix();
+        String ns = sibling.getNamespaceURI();
+        for (int c = fromColumn; c < cells.size(); c++) {
+            String value = cells.get(c);
+            if (value == null) continue;
+            writer.add(EVENTS.createStartElement(prefix, ns, "c", List.of(
+                EVENTS.createAttribute("r", columnName(c) + rowNumber),
+                EVENTS.createAttribute("t", "inlineStr")).iterator(), null));
+            writer.add(EVENTS.createStartElement(prefix, ns, "is"));
+            List<Attribute> space = value.isEmpty() || value.strip().length() == value.length()
+                ? List.of()
+                : List.of(EVENTS.createAttribute("xml", XMLConstants.XML_NS_URI, "space", "preserve"));
+            writer.add(EVENTS.createStartElement(prefix, ns, "t", space.iterator(), null));
+            writer.add(EVENTS.createCharacters(escapeText(value)));
+            writer.add(EVENTS.createEndElement(prefix, ns, "t"));
+            writer.add(EVENTS.createEndElement(prefix, ns, "is"));
+            writer.add(EVENTS.createEndElement(prefix, ns, "c"));
+        }
+    }
+
+    static String columnName(int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+            sb.insert(0, (char) ('A' + (i - 1) % 26));
+        }
+        return sb.toString();
+    }
+
+    // 0-based column of a cell reference such as "AB12"
+    static int columnIndex(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char ch = Character.toUpperCase(ref.charAt(i));
+            if (ch < 'A' || ch > 'Z') {
+                if (ch == '$' && i == 0) continue;
+                break;
+            }
+            column = column * 26 + (ch - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    // OOXML escapes characters XML cannot carry as _xHHHH_ (and a literal "_xHHHH_" as _x005F_xHHHH_), like POI
+    private static String escapeText(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            boolean invalid = ch < 0x20 && ch != '\t' && ch != '\n' && ch != '\r' || ch == 0xFFFE || ch == 0xFFFF;
+            boolean literal = ch == '_' && i + 7 <= value.length() && ESCAPED_CHAR.matcher(value.substring(i, i + 7)).matches();
+            if (!invalid && !literal) {
+                if (sb != null) sb.append(ch);
+                continue;
+            }
+            if (sb == null) sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+            if (invalid) sb.append(String.format("_x%04X_", (int) ch));
+            else sb.append("_x005F_");
+        }
+        return sb == null ? value : sb.toString();
+    }
+
+    static String unescapeText(String value) {
+        if (value.indexOf("_x") < 0) return value;
+        Matcher m = ESCAPED_CHAR.matcher(value);
+        StringBuilder sb = new StringBuilder(value.length());
+        while (m.find()) {
+            m.appendReplacement(sb, Matcher.quoteReplacement(String.valueOf((char) Integer.parseInt(m.group().substring(2, 6), 16))));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String validSheetName(String name) {
+        if (name == null || name.isEmpty() || name.length() > 31 || name.matches(".*[\\\\/?*\\[\\]:].*")
+            || name.startsWith("'") || name.endsWith("'")) {
+            throw new IllegalArgumentException("Invalid sheet name: '" + name + "'");
+        }
+        return name;
+    }
+
+    private static String readText(ZipFile zip, ZipArchiveEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    // a header or first-column cell found by scanSheet; shared string cells are resolved later
+    static final class CellText {
+        final int row;
+        final int column;
+        final String text;
+        final int sharedString;
+
+        CellText(int row, int column, String text, int sharedString) {
+            this.row = row;
+            this.column = column;
+            this.text = text;
+            this.sharedString = sharedString;
+        }
+    }
+
+    private static final class NewSheet {
+        final String name;
+        final int sheetId;
+        final String relId;
+        final String part;
+        final String target;
+
+        NewSheet(String name, int sheetId, String relId, String part, String target) {
+            this.name = name;
+            this.sheetId = sheetId;
+            this.relId = relId;
+            this.part = part;
+            this.target = target;
+        }
+    }
+
+    interface CellVisitor {
+        void row(int row);
+
+        void cell(int row, int column, String text, int sharedString);
+    }
+
+    /* Where the workbook, its relationships and its sheets are, from the package's relationship parts. */
+    static final class Layout {
+        String workbookPart;
+        String workbookRels;
+        String sharedStringsPart;
+        String sheetsPrefix = "";
+        String relPrefix = "r";
+        int maxSheetId;
+        // sheet names are case-insensitive, like Workbook.getSheet
+        final Map<String, String> sheetParts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, String> relTargets = new LinkedHashMap<>();
+
+        static Layout read(ZipFile zip) throws IOException {
+            Layout layout = new Layout();
+            try {
+                Map<String, String[]> rootRels = relationships(zip, "_rels/.rels");
+                layout.workbookPart = "xl/workbook.xml";
+                for (String[] rel : rootRels.values()) {
+                    if (rel[0].equals(OFFICE_DOCUMENT)) layout.workbookPart = resolve("", rel[1]);
+                }
+                String dir = layout.workbookPart.substring(0, layout.workbookPart.lastIndexOf('/') + 1);
+                layout.workbookRels = dir + "_rels/" + layout.workbookPart.substring(dir.length()) + ".rels";
+                Map<String, String[]> rels = relationships(zip, layout.workbookRels);
+                rels.forEach((id, rel) -> {
+                    layout.relTargets.put(id, resolve(dir, rel[1]));
+                    if (rel[0].equals(SHARED_STRINGS)) layout.sharedStringsPart = resolve(dir, rel[1]);
+                });
+
+                ZipArchiveEntry workbook = zip.getEntry(layout.workbookPart);
+                if (workbook == null) throw new IOException("No workbook part " + layout.workbookPart);
+                try (InputStream in = zip.getInputStream(workbook)) {
+                    XMLEventReader reader = INPUT.createXMLEventReader(in);
+                    while (reader.hasNext()) {
+                        XMLEvent event = reader.nextEvent();
+                        if (!event.isStartElement()) continue;
+                        StartElement start = event.asStartElement();
+                        if (start.getName().getLocalPart().equals("sheets")) {
+                            layout.sheetsPrefix = start.getName().getPrefix();
+                        } else if (start.getName().getLocalPart().equals("sheet")) {
+                            String name = start.getAttributeByName(new QName("name")).getValue();
+                            Attribute sheetId = start.getAttributeByName(new QName("sheetId"));
+                            Attribute relId = start.getAttributeByName(new QName(REL_NS, "id"));
+                            if (sheetId != null) layout.maxSheetId = Math.max(layout.maxSheetId, Integer.parseInt(sheetId.getValue()));
+                            if (relId != null) {
+                                layout.relPrefix = relId.getName().getPrefix();
+                                String part = layout.relTargets.get(relId.getValue());
+                                if (part != null) layout.sheetParts.put(name, part);
+                            }
+                        }
+                    }
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Not a readable .xlsx package: " + e.getMessage(), e);
+            }
+            return layout;
+        }
+
+        // Id -> {Type, Target}
+        private static Map<String, String[]> relationships(ZipFile zip, String part) throws IOException, XMLStreamException {
+            Map<String, String[]> rels = new LinkedHashMap<>();
+            ZipArchiveEntry entry = zip.getEntry(part);
+            if (entry == null) return rels;
+            try (InputStream in = zip.getInputStream(entry)) {
+                XMLEventReader reader = INPUT.createXMLEventReader(in);
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement() && event.asStartElement().getName().getLocalPart().equals("Relationship")) {
+                        StartElement rel = event.asStartElement();
+                        rels.put(rel.getAttributeByName(new QName("Id")).getValue(), new String[]{
+                            rel.getAttributeByName(new QName("Type")).getValue(),
+                            rel.getAttributeByName(new QName("Target")).getValue()});
+                    }
+                }
+                reader.close();
+            }
+            return rels;
+        }
+
+        private static String resolve(String dir, String target) {
+            if (target.startsWith("/")) return target.substring(1);
+            String path = dir + target;
+            while (path.contains("/../")) path = path.replaceFirst("[^/]+/\\.\\./", "");
+            return path;
+        }
+
+        NewSheet newSheet(ZipFile zip, String name, int sheetId) {
+            String dir = workbookPart.substring(0, workbookPart.lastIndexOf('/') + 1);
+            int number = sheetParts.size() + 1;
+            while (zip.getEntry(dir + "worksheets/sheet" + number + ".xml") != null
+                || relTargets.containsValue(dir + "worksheets/sheet" + number + ".xml")) number++;
+            int rel = relTargets.size() + 1;
+            while (relTargets.containsKey("rId" + rel)) rel++;
+            String target = "worksheets/sheet" + number + ".xml";
+            relTargets.put("rId" + rel, dir + target);
+            return new NewSheet(name, sheetId, "rId" + rel, dir + target, target);
+        }
+
+        boolean isIndexPart(String name) {
+            return name.equals(workbookPart) || name.equals(workbookRels) || name.equals(CONTENT_TYPES);
+        }
+
+        // the small index parts get one element per added sheet before their closing tag
+        String withAddedSheets(String part, String xml, Iterable<NewSheet> sheets) {
+            StringBuilder insert = new StringBuilder();
+            String closing;
+            if (part.equals(workbookPart)) {
+                String p = sheetsPrefix.isEmpty() ? "" : sheetsPrefix + ":";
+                for (NewSheet s : sheets) {
+                    insert.append('<').append(p).append("sheet name=\"").append(escapeAttribute(s.name))
+                        .append("\" sheetId=\"").append(s.sheetId).append("\" ").append(relPrefix).append(":id=\"")
+                        .append(s.relId).append("\"/>");
+                }
+                closing = "sheets";
+            } else if (part.equals(workbookRels)) {
+                for (NewSheet s : sheets) {
+                    insert.append("<Relationship Id=\"").append(s.relId).append("\" Type=\"").append(WORKSHEET)
+                        .append("\" Target=\"").append(s.target).append("\"/>");
+                }
+                closing = "Relationships";
+            } else {
+                for (NewSheet s : sheets) {
+                    insert.append("<Override PartName=\"/").append(s.part).append("\" ContentType=\"")
+                        .append(WORKSHEET_CONTENT_TYPE).append("\"/>");
+                }
+                closing = "Types";
+            }
+            Matcher m = Pattern.compile("</(?:\\w+:)?" + closing + ">").matcher(xml);
+            int at = -1;
+            while (m.find()) at = m.start();
+            if (at < 0) throw new IllegalStateException("No </" + closing + "> in " + part);
+            return xml.substring(0, at) + insert + xml.substring(at);
+        }
+    }
+}
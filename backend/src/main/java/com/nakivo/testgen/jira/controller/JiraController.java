@@ -1,13 +1,19 @@
 package com.nakivo.testgen.jira.controller;
 
 
+import com.nakivo.testgen.jira.service.JiraBulkService;
+import com.nakivo.testgen.jira.service.JiraContentLedger;
+import com.nakivo.testgen.jira.service.JiraImportService;
 import com.nakivo.testgen.jira.service.JiraService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 
@@ -16,9 +22,16 @@ import java.util.Map;
 public class JiraController {
 
     private final JiraService jiraService;
+    private final JiraBulkService jiraBulkService;
+    private final JiraContentLedger contentLedger;
+    private final JiraImportService jiraImportService;
 
-    public JiraController(JiraService jiraService) {
+    public JiraController(JiraService jiraService, JiraBulkService jiraBulkService, JiraContentLedger contentLedger,
+                          JiraImportService jiraImportService) {
         this.jiraService = jiraService;
+        this.jiraBulkService = jiraBulkService;
+        this.contentLedger = contentLedger;
+        this.jiraImportService = jiraImportService;
     }
 
     @PostMapping("/update")
@@ -34,4 +47,73 @@ public class JiraController {
         return ResponseEntity.ok(Map.of("status", "updated"));
     }
 
+    // {"entries": [{ticket, description, json}, ...]}: all tickets updated concurrently, one result per entry
+    @PostMapping("/bulk-update")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<?> bulkUpdateJira(@RequestBody Map<String, Object> payload) {
+        if (!(payload.get("entries") instanceof List<?> entries)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing entries"));
+        }
+        for (Object entry : entries) {
+            if (!(entry instanceof Map)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Each entry must be an object with ticket, description and json"));
+            }
+        }
+        return ResponseEntity.ok(jiraBulkService.update((List<Map<String, Object>>) entries));
+    }
+
+    // Requests sent and retried by bulk updates, and requests in flight per Jira host
+    @GetMapping("/bulk-update")
+    public ResponseEntity<Map<String, Object>> getBulkUpdateStats() {
+        return ResponseEntity.ok(jiraBulkService.stats());
+    }
+
+    // Descriptions / attachments skipped as unchanged, and ledger entries recorded, verified against Jira or dropped
+    @GetMapping("/ledger")
+    public ResponseEntity<Map<String, Object>> getLedgerStats() {
+        return ResponseEntity.ok(contentLedger.stats());
+    }
+
+    // {"jql": "..."}: the matching issues' descriptions are generated in the background; poll the returned id
+    @PostMapping("/import")
+    public ResponseEntity<?> startImport(@RequestBody Map<String, Object> payload) {
+        if (!(payload.get("jql") instanceof String jql) || jql.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing jql"));
+        }
+        return ResponseEntity.ok(jiraImportService.start(jql));
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<List<Map<String, Object>>> listImports() {
+        return ResponseEntity.ok(jiraImportService.list());
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<?> getImport(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(jiraImportService.progress(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Continues at the first page not generated
+    @PostMapping("/import/{id}/resume")
+    public ResponseEntity<?> resumeImport(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(jiraImportService.resume(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/import/{id}/stop")
+    public ResponseEntity<?> stopImport(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(jiraImportService.stop(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
 }
@@ -0,0 +1,103 @@
+package com.nakivo.testgen.jira.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/* What was last sent to one field of a Jira issue ("description" or "attachment"): the SHA-256 of the content, and for
+   an attachment the id Jira gave it. verifiedAt is when the issue was last seen to still hold that content. */
+@Entity
+@Table(name = "jira_content_hash")
+@IdClass(JiraContentHash.Key.class)
+public class JiraContentHash {
+
+    public static final String DESCRIPTION = "description";
+    public static final String ATTACHMENT = "attachment";
+
+    @Id
+    @Column(name = "issue_key", length = 64)
+    private String issueKey;
+
+    @Id
+    @Column(name = "field", length = 32)
+    private String field;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    // bytes of the UTF-8 content
+    @Column(name = "content_size")
+    private long size;
+
+    @Column(name = "attachment_id", length = 32)
+    private String attachmentId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "updated_at")
+    private long updatedAt;
+
+    @Column(name = "verified_at")
+    private long verifiedAt;
+
+    protected JiraContentHash() {
+    }
+
+    public JiraContentHash(String issueKey, String field) {
+        this.issueKey = issueKey;
+        this.field = field;
+    }
+
+    public String getIssueKey() { return issueKey; }
+
+    public String getField() { return field; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getAttachmentId() { return attachmentId; }
+    public void setAttachmentId(String attachmentId) { this.attachmentId = attachmentId; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+
+    public long getVerifiedAt() { return verifiedAt; }
+    public void setVerifiedAt(long verifiedAt) { this.verifiedAt = verifiedAt; }
+
+    public static class Key implements Serializable {
+        private String issueKey;
+        private String field;
+
+        public Key() {
+        }
+
+        public Key(String issueKey, String field) {
+            this.issueKey = issueKey;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(issueKey, other.issueKey) && Objects.equals(field, other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(issueKey, field);
+        }
+    }
+}
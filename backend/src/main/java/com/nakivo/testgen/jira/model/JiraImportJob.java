@@ -0,0 +1,101 @@
+package com.nakivo.testgen.jira.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/* A JQL import and how far it got. nextStartAt is the search offset of the first page not yet fully generated, so a
+   resumed import starts there; the counts cover the issues before it. */
+@Entity
+@Table(name = "jira_import_job")
+public class JiraImportJob {
+
+    public static final String RUNNING = "running";
+    public static final String STOPPED = "stopped";
+    public static final String FAILED = "failed";
+    public static final String DONE = "done";
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Lob
+    @Column(name = "jql", nullable = false)
+    private String jql;
+
+    @Column(name = "page_size")
+    private int pageSize;
+
+    @Column(name = "next_start_at")
+    private int nextStartAt;
+
+    // issues the search matched when last asked; -1 if not known yet
+    @Column(name = "total_issues")
+    private int total = -1;
+
+    @Column(name = "generated_cases")
+    private int generated;
+
+    @Column(name = "failed_cases")
+    private int failed;
+
+    // issues without a description
+    @Column(name = "skipped_cases")
+    private int skipped;
+
+    @Column(name = "status", length = 16)
+    private String status;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    @Column(name = "created_at")
+    private long createdAt;
+
+    @Column(name = "updated_at")
+    private long updatedAt;
+
+    protected JiraImportJob() {
+    }
+
+    public JiraImportJob(String id, String jql, int pageSize) {
+        this.id = id;
+        this.jql = jql;
+        this.pageSize = pageSize;
+    }
+
+    public String getId() { return id; }
+
+    public String getJql() { return jql; }
+
+    public int getPageSize() { return pageSize; }
+
+    public int getNextStartAt() { return nextStartAt; }
+    public void setNextStartAt(int nextStartAt) { this.nextStartAt = nextStartAt; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getGenerated() { return generated; }
+    public void setGenerated(int generated) { this.generated = generated; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getSkipped() { return skipped; }
+    public void setSkipped(int skipped) { this.skipped = skipped; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,32 @@
+package com.nakivo.testgen.jira.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/* One page of a JQL search: the issues (as Jira returned them) from startAt on, and the search's total. */
+public final class JiraIssuePage {
+
+    private final int startAt;
+    private final int total;
+    private final List<JsonNode> issues;
+
+    public JiraIssuePage(int startAt, int total, List<JsonNode> issues) {
+        this.startAt = startAt;
+        this.total = total;
+        this.issues = issues;
+    }
+
+    public int getStartAt() { return startAt; }
+
+    // -1 if Jira did not say
+    public int getTotal() { return total; }
+
+    public List<JsonNode> getIssues() { return issues; }
+
+    public int getNextStartAt() { return startAt + issues.size(); }
+
+    public boolean isLast() {
+        return issues.isEmpty() || (total >= 0 && getNextStartAt() >= total);
+    }
+}
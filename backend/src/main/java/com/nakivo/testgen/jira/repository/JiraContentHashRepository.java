@@ -0,0 +1,7 @@
+package com.nakivo.testgen.jira.repository;
+
+import com.nakivo.testgen.jira.model.JiraContentHash;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JiraContentHashRepository extends JpaRepository<JiraContentHash, JiraContentHash.Key> {
+}
@@ -0,0 +1,7 @@
+package com.nakivo.testgen.jira.repository;
+
+import com.nakivo.testgen.jira.model.JiraImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JiraImportJobRepository extends JpaRepository<JiraImportJob, String> {
+}
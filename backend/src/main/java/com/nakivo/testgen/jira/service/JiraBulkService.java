@@ -0,0 +1,327 @@
+package com.nakivo.testgen.jira.service;
+
+import com.nakivo.testgen.config.JiraConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Description + JSON attachment updates for many tickets at once. Every ticket is its own chain of sendAsync calls
+ * on the shared HttpClient (description first, the attachment only once it is updated), so all tickets are in
+ * flight together, bounded by a number of request permits per Jira host. A request answered 429 or 5xx, or not
+ * answered at all, gives its permit back and is sent again after Retry-After or an exponential backoff with jitter.
+ * Content the ledger shows the issue already has is not sent ("unchanged"); the reads of the issue that check it
+ * take the same permits. One ticket failing does not stop the others; the report has a result per ticket, in the
+ * order given.
+ */
+@Service
+public class JiraBulkService {
+
+    private final JiraService jiraService;
+    private final HttpClient httpClient;
+    private final int maxConcurrencyPerHost;
+    private final int maxRetries;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    private final ConcurrentHashMap<String, HostPermits> hosts = new ConcurrentHashMap<>();
+    // ledger lookups and updates block on the datasource; their reads of Jira go through send, under the host's permits
+    private final ExecutorService ledgerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public JiraBulkService(JiraConfig jiraConfig, JiraService jiraService, HttpClient httpClient) {
+        JiraConfig.Bulk bulk = jiraConfig.getBulk();
+        this.jiraService = jiraService;
+        this.httpClient = httpClient;
+        this.maxConcurrencyPerHost = Math.max(1, bulk.getMaxConcurrencyPerHost());
+        this.maxRetries = Math.max(0, bulk.getMaxRetries());
+        this.baseBackoffMs = Math.max(1, bulk.getBaseBackoffMs());
+        this.maxBackoffMs = Math.max(baseBackoffMs, bulk.getMaxBackoffMs());
+    }
+
+    /* Entries are {ticket, description, json}; a missing description or json skips that request. Blocks until
+       every ticket is done. */
+    public Map<String, Object> update(List<Map<String, Object>> entries) {
+        long start = System.currentTimeMillis();
+        long retriesBefore = retries.get();
+
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(entries.size());
+        for (Map<String, Object> entry : entries) {
+            futures.add(updateTicket(entry));
+        }
+        List<Map<String, Object>> results = new ArrayList<>(futures.size());
+        int updated = 0;
+        for (CompletableFuture<Map<String, Object>> future : futures) {
+            Map<String, Object> result = future.join();
+            if ("updated".equals(result.get("status"))) updated++;
+            results.add(result);
+        }
+
+        long elapsedMs = System.currentTimeMillis() - start;
+        long retried = retries.get() - retriesBefore;
+        System.out.println("[INFO] Jira bulk update: " + updated + "/" + results.size() + " ticket(s) updated in "
+            + elapsedMs + " ms, " + retried + " retried request(s)");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", results.size());
+        report.put("updated", updated);
+        report.put("failed", results.size() - updated);
+        report.put("retries", retried);
+        report.put("elapsedMs", elapsedMs);
+        report.put("results", results);
+        return report;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("retries", retries.get());
+        stats.put("maxConcurrencyPerHost", maxConcurrencyPerHost);
+        Map<String, Object> inFlight = new LinkedHashMap<>();
+        hosts.forEach((host, permits) -> inFlight.put(host, permits.inUse()));
+        stats.put("inFlight", inFlight);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ledgerExecutor.shutdown();
+    }
+
+    private CompletableFuture<Map<String, Object>> updateTicket(Map<String, Object> entry) {
+        String ticket = text(entry.get("ticket"));
+        String description = text(entry.get("description"));
+        String json = text(entry.get("json"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticket", ticket);
+        if (ticket == null || ticket.isBlank()) {
+            result.put("status", "failed");
+            result.put("error", "Missing ticket");
+            return CompletableFuture.completedFuture(result);
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Boolean> described = description == null
+            ? skipped(result, "description")
+            : hashed(description).thenCompose(hash -> step(result, "description", attempts,
+                () -> jiraService.descriptionUnchanged(ticket, hash, this::sendAndWait),
+                () -> jiraService.descriptionRequest(ticket, description),
+                response -> jiraService.descriptionSent(ticket, hash, description)));
+        return described
+            .thenCompose(ok -> !ok ? skipped(result, "attachment").thenApply(v -> false)
+                : json == null ? skipped(result, "attachment")
+                : hashed(json).thenCompose(hash -> step(result, "attachment", attempts,
+                    () -> jiraService.attachmentUnchanged(ticket, hash, json, this::sendAndWait),
+                    () -> jiraService.attachmentRequest(ticket, json),
+                    response -> jiraService.attachmentSent(ticket, hash, json, response.body()))))
+            .thenApply(ok -> {
+                result.put("status", ok ? "updated" : "failed");
+                result.put("attempts", attempts.get());
+                return result;
+            });
+    }
+
+    private static CompletableFuture<Boolean> skipped(Map<String, Object> result, String name) {
+        result.put(name, "skipped");
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private CompletableFuture<String> hashed(String content) {
+        return CompletableFuture.supplyAsync(() -> JiraContentLedger.hash(content), ledgerExecutor);
+    }
+
+    /* One request of a ticket, with retries; the outcome goes into the ticket's result. The content ledger is asked
+       first (on a virtual thread: it may wait for a permit and read the issue) and told about a successful send. */
+    private CompletableFuture<Boolean> step(Map<String, Object> result, String name, AtomicInteger attempts,
+                                            Supplier<Boolean> unchanged, Supplier<HttpRequest> request,
+                                            Consumer<HttpResponse<String>> sent) {
+        return CompletableFuture.supplyAsync(unchanged, ledgerExecutor).exceptionally(e -> {
+            System.err.println("[WARN] Content ledger lookup failed, sending " + name + ": " + unwrap(e).getMessage());
+            return false;
+        }).thenCompose(isUnchanged -> {
+            if (isUnchanged) {
+                result.put(name, "unchanged");
+                return CompletableFuture.completedFuture(true);
+            }
+            CompletableFuture<HttpResponse<String>> response;
+            try {
+                response = send(request.get(), HttpResponse.BodyHandlers.ofString(), 0, attempts);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            return response.handleAsync((r, error) -> {
+                if (error != null) {
+                    result.put(name, "failed");
+                    result.put("error", name + ": " + unwrap(error).getMessage());
+                    return false;
+                }
+                if (r.statusCode() / 100 != 2) {
+                    result.put(name, "failed");
+                    result.put("error", name + ": " + r.statusCode() + " - " + abbreviate(r.body()));
+                    return false;
+                }
+                try {
+                    sent.accept(r);
+                } catch (RuntimeException e) {
+                    System.err.println("[WARN] Content ledger update failed for " + name + ": " + e.getMessage());
+                }
+                result.put(name, "ok");
+                return true;
+            }, ledgerExecutor);
+        });
+    }
+
+    /* A ledger check's read of the issue, for a virtual thread to wait on: bounded and retried like the updates, but
+       not counted in the ticket's attempts. */
+    private <T> HttpResponse<T> sendAndWait(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+        throws IOException, InterruptedException {
+        try {
+            return send(request, handler, 0, null).get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    // attempts: the ticket's counter of update requests, null for a ledger read
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                        int attempt, AtomicInteger attempts) {
+        HostPermits permits = hosts.computeIfAbsent(hostOf(request.uri()), h -> new HostPermits(maxConcurrencyPerHost));
+        return permits.acquire()
+            .thenCompose(v -> {
+                if (attempts != null) attempts.incrementAndGet();
+                requests.incrementAndGet();
+                return httpClient.sendAsync(request, handler);
+            })
+            .handle((response, error) -> {
+                // the wait before a retry does not hold a permit
+                permits.release();
+                long delayMs = retryDelayMs(response, error, attempt);
+                if (delayMs < 0) {
+                    return error == null
+                        ? CompletableFuture.completedFuture(response)
+                        : CompletableFuture.<HttpResponse<T>>failedFuture(unwrap(error));
+                }
+                retries.incrementAndGet();
+                if (response != null && response.body() instanceof Closeable body) closeQuietly(body); // a streamed body holds the connection
+                return CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(v -> send(request, handler, attempt + 1, attempts));
+            })
+            .thenCompose(Function.identity());
+    }
+
+    /* Milliseconds to wait before sending again, or -1 if the outcome is final. */
+    private long retryDelayMs(HttpResponse<?> response, Throwable error, int attempt) {
+        if (attempt >= maxRetries) return -1;
+        if (error != null) {
+            if (!(unwrap(error) instanceof IOException)) return -1;
+        } else if (response.statusCode() != 429 && response.statusCode() / 100 != 5) {
+            return -1;
+        }
+        if (response != null) {
+            OptionalLong retryAfter = response.headers().firstValueAsLong("Retry-After");
+            if (retryAfter.isPresent()) return Math.min(maxBackoffMs, retryAfter.getAsLong() * 1000);
+        }
+        long backoff = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 20));
+        // jitter, so tickets throttled together do not come back together
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private static void closeQuietly(Closeable body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // the answer is discarded anyway
+        }
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static String abbreviate(String body) {
+        if (body == null) return "";
+        return body.length() <= 300 ? body : body.substring(0, 300) + "...";
+    }
+
+    /* Request permits of one host. Waiting is a future completed by the release that frees a permit, so a ticket
+       waiting for a permit does not hold a thread. */
+    private static final class HostPermits {
+        private final int size;
+        private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int available;
+
+        HostPermits(int size) {
+            this.size = size;
+            this.available = size;
+        }
+
+        CompletableFuture<Void> acquire() {
+            synchronized (this) {
+                if (available > 0) {
+                    available--;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> permit = new CompletableFuture<>();
+                waiting.add(permit);
+                return permit;
+            }
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // the permit passes straight to the next waiter
+            next.complete(null);
+        }
+
+        synchronized int inUse() {
+            return size - available;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.nakivo.testgen.jira.service;
+
+import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.jira.model.JiraContentHash;
+import com.nakivo.testgen.jira.repository.JiraContentHashRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content hashes of what was last sent to each issue's description and test data attachment, kept in the
+ * application's datasource (table jira_content_hash). JiraService asks it before a request: a payload whose hash
+ * matches, seen on the issue within verify-after-ms, is skipped without a network call. Older matches, and
+ * attachments the ledger does not know about, are reconciled with the issue by JiraService.
+ */
+@Service
+public class JiraContentLedger {
+
+    private final JiraContentHashRepository repository;
+    private final boolean enabled;
+    private final long verifyAfterMs;
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong forgotten = new AtomicLong();
+
+    public JiraContentLedger(JiraConfig jiraConfig, JiraContentHashRepository repository) {
+        this.repository = repository;
+        this.enabled = jiraConfig.getLedger().isEnabled();
+        this.verifyAfterMs = jiraConfig.getLedger().getVerifyAfterMs();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* SHA-256 (hex) of the text's UTF-8 encoding, hashed a chunk at a time. */
+    public static String hash(CharSequence text) {
+        try (InputStream in = MultipartBody.utf8(text).get()) {
+            return hash(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String hash(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[16 * 1024];
+        for (int n; (n = in.read(buffer)) >= 0; ) {
+            digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /* The entry of an issue field, or null. */
+    public JiraContentHash find(String issueKey, String field) {
+        if (!enabled) return null;
+        return repository.findById(new JiraContentHash.Key(issueKey, field)).orElse(null);
+    }
+
+    /* True if the entry holds this hash and was seen on the issue recently enough to skip without asking Jira. */
+    public boolean isFresh(JiraContentHash entry, String hash) {
+        return entry != null && hash.equals(entry.getContentHash())
+            && System.currentTimeMillis() - entry.getVerifiedAt() < verifyAfterMs;
+    }
+
+    public void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    /* The content was sent (or found on the issue): remember it. */
+    public void record(String issueKey, String field, String hash, long size, String attachmentId, String fileName) {
+        if (!enabled) return;
+        JiraContentHash entry = new JiraContentHash(issueKey, field);
+        long now = System.currentTimeMillis();
+        entry.setContentHash(hash);
+        entry.setSize(size);
+        entry.setAttachmentId(attachmentId);
+        entry.setFileName(fileName);
+        entry.setUpdatedAt(now);
+        entry.setVerifiedAt(now);
+        repository.save(entry);
+        recorded.incrementAndGet();
+    }
+
+    /* The issue was seen to still hold the entry's content. */
+    public void verified(JiraContentHash entry) {
+        entry.setVerifiedAt(System.currentTimeMillis());
+        repository.save(entry);
+        verified.incrementAndGet();
+    }
+
+    /* The issue no longer holds the entry's content (e.g. the attachment was deleted). */
+    public void forget(JiraContentHash entry) {
+        repository.delete(entry);
+        forgotten.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("skipped", skipped.get());
+        stats.put("recorded", recorded.get());
+        stats.put("verified", verified.get());
+        stats.put("forgotten", forgotten.get());
+        return stats;
+    }
+}
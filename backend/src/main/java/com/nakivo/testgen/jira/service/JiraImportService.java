@@ -0,0 +1,345 @@
+package com.nakivo.testgen.jira.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.generator.model.BatchCaseResult;
+import com.nakivo.testgen.generator.model.TestGenRequest;
+import com.nakivo.testgen.generator.service.TestFileGeneratorService;
+import com.nakivo.testgen.jira.model.JiraImportJob;
+import com.nakivo.testgen.jira.model.JiraIssuePage;
+import com.nakivo.testgen.jira.repository.JiraImportJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Imports test cases from Jira: the issues a JQL search matches are read page by page (JiraService.search) and each
+ * page's descriptions are generated as one batch (TestFileGeneratorService.generateBatch), several pages at a time.
+ * At most jira.issue-import.max-in-flight-pages pages are fetched and not yet generated; the next page is only asked
+ * for once one of them is done. The job's cursor (table jira_import_job) moves past a page once it and every page
+ * before it are generated, so an import that was stopped, failed or cut short by a restart resumes at the first page
+ * not done. Pages after it that were already generated are generated again, which upserts the same test methods.
+ */
+@Service
+public class JiraImportService {
+
+    static final String FIELDS = "summary,description";
+    private static final int MAX_RECENT_ERRORS = 20;
+
+    private final JiraService jiraService;
+    private final TestFileGeneratorService generatorService;
+    private final JiraImportJobRepository repository;
+    private final int pageSize;
+    private final int maxInFlightPages;
+
+    // imports run since startup, finished ones included (for their recent errors)
+    private final ConcurrentHashMap<String, Run> runs = new ConcurrentHashMap<>();
+    // a page's batch blocks on GitHub
+    private final ExecutorService pageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public JiraImportService(JiraConfig jiraConfig, JiraService jiraService, TestFileGeneratorService generatorService,
+                             JiraImportJobRepository repository) {
+        this.jiraService = jiraService;
+        this.generatorService = generatorService;
+        this.repository = repository;
+        this.pageSize = Math.max(1, jiraConfig.getIssueImport().getPageSize());
+        this.maxInFlightPages = Math.max(1, jiraConfig.getIssueImport().getMaxInFlightPages());
+    }
+
+    /* Start importing the issues of a JQL search; returns at once with the job's progress. */
+    public Map<String, Object> start(String jql) {
+        JiraImportJob job = new JiraImportJob(UUID.randomUUID().toString(), jql, pageSize);
+        long now = System.currentTimeMillis();
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setStatus(JiraImportJob.RUNNING);
+        repository.save(job);
+        return launch(job).progress();
+    }
+
+    /* Continue a stopped, failed or interrupted import at its first page not done. */
+    public synchronized Map<String, Object> resume(String id) {
+        Run current = runs.get(id);
+        if (current != null && !current.finished) return current.progress();
+        JiraImportJob job = repository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown import " + id));
+        if (JiraImportJob.DONE.equals(job.getStatus())) {
+            throw new IllegalArgumentException("Import " + id + " is already done");
+        }
+        job.setStatus(JiraImportJob.RUNNING);
+        job.setError(null);
+        job.setUpdatedAt(System.currentTimeMillis());
+        repository.save(job);
+        return launch(job).progress();
+    }
+
+    /* No more pages are fetched; pages in flight are finished. */
+    public Map<String, Object> stop(String id) {
+        Run run = runs.get(id);
+        if (run == null) return progress(id);
+        if (!run.finished) run.stop(null);
+        return run.progress();
+    }
+
+    public Map<String, Object> progress(String id) {
+        Run run = runs.get(id);
+        if (run != null) return run.progress();
+        return repository.findById(id).map(JiraImportService::stored)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown import " + id));
+    }
+
+    /* All imports, newest first. */
+    public List<Map<String, Object>> list() {
+        List<JiraImportJob> jobs = new ArrayList<>(repository.findAll());
+        jobs.sort(Comparator.comparingLong(JiraImportJob::getCreatedAt).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(jobs.size());
+        for (JiraImportJob job : jobs) {
+            Run run = runs.get(job.getId());
+            result.add(run != null ? run.progress() : stored(job));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the cursors stay where they are; the imports can be resumed after the restart
+        runs.values().forEach(run -> run.stop(null));
+        pageExecutor.shutdown();
+    }
+
+    private Run launch(JiraImportJob job) {
+        Run run = new Run(job);
+        runs.put(job.getId(), run);
+        Thread.ofVirtual().name("jira-import-" + job.getId()).start(run::fetchPages);
+        return run;
+    }
+
+    // A stored job marked running that has no run here was cut short by a restart
+    private static Map<String, Object> stored(JiraImportJob job) {
+        Map<String, Object> progress = describe(job, job.getGenerated(), job.getFailed(), job.getSkipped());
+        if (JiraImportJob.RUNNING.equals(job.getStatus())) progress.put("status", "interrupted");
+        return progress;
+    }
+
+    private static Map<String, Object> describe(JiraImportJob job, int generated, int failed, int skipped) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", job.getId());
+        progress.put("jql", job.getJql());
+        progress.put("status", job.getStatus());
+        progress.put("total", job.getTotal());
+        progress.put("nextStartAt", job.getNextStartAt());
+        progress.put("generated", generated);
+        progress.put("failed", failed);
+        progress.put("skipped", skipped);
+        if (job.getError() != null) progress.put("error", job.getError());
+        progress.put("createdAt", job.getCreatedAt());
+        progress.put("updatedAt", job.getUpdatedAt());
+        return progress;
+    }
+
+    // Jira pages by offset; without a fixed order the offsets of a resumed search would not line up
+    static String ordered(String jql) {
+        return jql.toLowerCase().contains("order by") ? jql : jql + " ORDER BY key ASC";
+    }
+
+    /* One import running in this process. The fetching thread holds a page permit per page in flight; a page's
+       generation gives it back. */
+    private final class Run {
+        private final JiraImportJob job;
+        private final Semaphore inFlight = new Semaphore(maxInFlightPages);
+        // pages generated ahead of the cursor, by start offset
+        private final TreeMap<Integer, PageOutcome> ahead = new TreeMap<>();
+        private final ArrayDeque<Map<String, String>> recentErrors = new ArrayDeque<>();
+        private final long startedAt = System.currentTimeMillis();
+        private volatile boolean stopped;
+        private volatile String failure;
+        private volatile boolean finished;
+        private final AtomicInteger pagesInFlight = new AtomicInteger();
+        private int pagesDone;
+
+        Run(JiraImportJob job) {
+            this.job = job;
+        }
+
+        void fetchPages() {
+            System.out.println("[INFO] Jira import " + job.getId() + " from " + job.getNextStartAt() + ": " + job.getJql());
+            try (Stream<JiraIssuePage> pages = jiraService.search(ordered(job.getJql()), job.getNextStartAt(),
+                job.getPageSize(), FIELDS)) {
+                Iterator<JiraIssuePage> it = pages.iterator();
+                while (!stopped) {
+                    inFlight.acquire();
+                    boolean submitted = false;
+                    try {
+                        // hasNext asks Jira for the page
+                        if (stopped || !it.hasNext()) break;
+                        JiraIssuePage page = it.next();
+                        if (page.getTotal() >= 0) total(page.getTotal());
+                        pagesInFlight.incrementAndGet();
+                        pageExecutor.execute(() -> {
+                            try {
+                                generate(page);
+                            } finally {
+                                pagesInFlight.decrementAndGet();
+                                inFlight.release();
+                            }
+                        });
+                        submitted = true;
+                    } finally {
+                        if (!submitted) inFlight.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                stop(null);
+            } catch (RuntimeException e) {
+                stop(e.getMessage());
+            }
+            // let the pages in flight finish
+            inFlight.acquireUninterruptibly(maxInFlightPages);
+            finish();
+        }
+
+        void stop(String error) {
+            if (error != null && failure == null) failure = error;
+            stopped = true;
+        }
+
+        private void generate(JiraIssuePage page) {
+            List<TestGenRequest> requests = new ArrayList<>();
+            int skipped = 0;
+            for (JsonNode issue : page.getIssues()) {
+                JsonNode fields = issue.path("fields");
+                JsonNode description = fields.path("description");
+                if (!description.isTextual() || description.asText().isBlank()) {
+                    skipped++;
+                    continue;
+                }
+                TestGenRequest request = new TestGenRequest();
+                request.setJiranumber(issue.path("key").asText());
+                request.setSummary(fields.path("summary").asText(null));
+                request.setDescription(description.asText());
+                requests.add(request);
+            }
+
+            int generated = 0;
+            int failed = 0;
+            if (!requests.isEmpty()) {
+                List<?> results;
+                try {
+                    results = (List<?>) generatorService.generateBatch(requests).get("results");
+                } catch (Exception e) {
+                    // nothing of the page was generated; the cursor stays before it so a resume generates it again
+                    System.err.println("[WARN] Jira import " + job.getId() + ": page at " + page.getStartAt()
+                        + " failed: " + e.getMessage());
+                    stop("Page at " + page.getStartAt() + ": " + e.getMessage());
+                    return;
+                }
+                // a case that cannot be parsed or rendered fails alone, and is not retried on resume
+                for (Object result : results) {
+                    BatchCaseResult caseResult = (BatchCaseResult) result;
+                    if (caseResult.isOk()) {
+                        generated++;
+                    } else {
+                        failed++;
+                        recentError(caseResult.getJiranumber(), caseResult.getError());
+                    }
+                }
+            }
+            pageDone(page, new PageOutcome(page.getNextStartAt(), generated, failed, skipped));
+        }
+
+        private synchronized void pageDone(JiraIssuePage page, PageOutcome outcome) {
+            pagesDone++;
+            ahead.put(page.getStartAt(), outcome);
+            boolean moved = false;
+            PageOutcome next;
+            while ((next = ahead.remove(job.getNextStartAt())) != null) {
+                job.setNextStartAt(next.nextStartAt);
+                job.setGenerated(job.getGenerated() + next.generated);
+                job.setFailed(job.getFailed() + next.failed);
+                job.setSkipped(job.getSkipped() + next.skipped);
+                moved = true;
+            }
+            if (moved) save();
+        }
+
+        private synchronized void total(int total) {
+            job.setTotal(total);
+        }
+
+        private synchronized void recentError(String issueKey, String error) {
+            if (recentErrors.size() == MAX_RECENT_ERRORS) recentErrors.removeFirst();
+            Map<String, String> entry = new LinkedHashMap<>();
+            entry.put("issue", issueKey);
+            entry.put("error", error);
+            recentErrors.addLast(entry);
+        }
+
+        private synchronized void finish() {
+            if (failure != null) {
+                job.setStatus(JiraImportJob.FAILED);
+                job.setError(failure.length() <= 1000 ? failure : failure.substring(0, 1000));
+            } else {
+                job.setStatus(stopped ? JiraImportJob.STOPPED : JiraImportJob.DONE);
+                if (!stopped && job.getTotal() < 0) job.setTotal(job.getNextStartAt());
+            }
+            save();
+            finished = true;
+            System.out.println("[INFO] Jira import " + job.getId() + " " + job.getStatus() + " at " + job.getNextStartAt()
+                + ": " + job.getGenerated() + " generated, " + job.getFailed() + " failed, " + job.getSkipped()
+                + " skipped in " + (System.currentTimeMillis() - startedAt) + " ms");
+        }
+
+        private void save() {
+            job.setUpdatedAt(System.currentTimeMillis());
+            repository.save(job);
+        }
+
+        // Counts include pages generated ahead of the cursor
+        synchronized Map<String, Object> progress() {
+            int generated = job.getGenerated();
+            int failed = job.getFailed();
+            int skipped = job.getSkipped();
+            for (PageOutcome outcome : ahead.values()) {
+                generated += outcome.generated;
+                failed += outcome.failed;
+                skipped += outcome.skipped;
+            }
+            Map<String, Object> progress = describe(job, generated, failed, skipped);
+            if (stopped && JiraImportJob.RUNNING.equals(job.getStatus())) progress.put("status", "stopping");
+            progress.put("pagesDone", pagesDone);
+            progress.put("inFlightPages", pagesInFlight.get());
+            progress.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            progress.put("recentErrors", new ArrayList<>(recentErrors));
+            return progress;
+        }
+    }
+
+    private static final class PageOutcome {
+        final int nextStartAt;
+        final int generated;
+        final int failed;
+        final int skipped;
+
+        PageOutcome(int nextStartAt, int generated, int failed, int skipped) {
+            this.nextStartAt = nextStartAt;
+            this.generated = generated;
+            this.failed = failed;
+            this.skipped = skipped;
+        }
+    }
+}
@@ -1,40 +1,79 @@
 package com.nakivo.testgen.jira.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.jira.model.JiraContentHash;
+import com.nakivo.testgen.jira.model.JiraIssuePage;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 @Service
 public class JiraService {
 
     private final JiraConfig jiraConfig;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final HttpClient httpClient;
+    private final JiraContentLedger ledger;
 
-    public JiraService(JiraConfig jiraConfig) {
+    public JiraService(JiraConfig jiraConfig, HttpClient httpClient, JiraContentLedger ledger) {
         this.jiraConfig = jiraConfig;
+        this.httpClient = httpClient;
+        this.ledger = ledger;
     }
 
     /**
-     * Updates Jira issue description
+     * Updates Jira issue description. Skipped when the ledger shows the issue already has this description.
      */
     public void updateDescription(String issueKey, String newDescription) {
+        String hash = JiraContentLedger.hash(newDescription);
+        if (descriptionUnchanged(issueKey, hash)) {
+            System.out.println("[INFO] Jira description of " + issueKey + " unchanged, not sent");
+            return;
+        }
+        HttpRequest request = descriptionRequest(issueKey, newDescription);
+
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            throw new RuntimeException("Failed to update Jira description: " + response.statusCode() + " - " + response.body());
+        }
+        descriptionSent(issueKey, hash, newDescription);
+
+        System.out.println("Jira description updated successfully for " + issueKey);
+    }
+
+    /* PUT of the issue's description field; also sent by JiraBulkService. */
+    HttpRequest descriptionRequest(String issueKey, String newDescription) {
         String url = jiraConfig.getBaseUrl() + "/rest/api/2/issue/" + issueKey;
 
         Map<String, Object> body = Map.of(
@@ -48,12 +87,26 @@ public class JiraService {
             throw new RuntimeException(e);
         }
 
-        HttpRequest request = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
             .uri(URI.create(url))
             .header("Authorization", buildAuthHeader())
             .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
             .PUT(HttpRequest.BodyPublishers.ofString(jsonBody))
             .build();
+    }
+
+    /**
+     * Attaches JSON as file to Jira issue. The multipart body is streamed from the string (see MultipartBody);
+     * at or above jira.attachment-gzip-threshold-bytes it is attached gzipped, as .json.gz.
+     * Skipped when the issue already has an attachment with this content.
+     */
+    public void attachJsonFile(String issueKey, String jsonContent) {
+        String hash = JiraContentLedger.hash(jsonContent);
+        if (attachmentUnchanged(issueKey, hash, jsonContent)) {
+            System.out.println("[INFO] JSON attachment of " + issueKey + " unchanged, not sent");
+            return;
+        }
+        HttpRequest request = attachmentRequest(issueKey, jsonContent);
 
         HttpResponse<String> response = null;
         try {
@@ -65,69 +118,253 @@ public class JiraService {
         }
 
         if (response.statusCode() / 100 != 2) {
-            throw new RuntimeException("Failed to update Jira description: " + response.statusCode() + " - " + response.body());
+            throw new RuntimeException("Failed to attach JSON file: " + response.statusCode() + " - " + response.body());
         }
+        attachmentSent(issueKey, hash, jsonContent, response.body());
 
-        System.out.println("Jira description updated successfully for " + issueKey);
+        System.out.println("JSON file attached to " + issueKey);
     }
 
-    /**
-     * Attaches JSON as file to Jira issue
-     */
-    public void attachJsonFile(String issueKey, String jsonContent) {
+    /* POST of the JSON as a multipart attachment; the body can be sent again (retries). */
+    HttpRequest attachmentRequest(String issueKey, String jsonContent) {
         String url = jiraConfig.getBaseUrl() + "/rest/api/2/issue/" + issueKey + "/attachments";
 
-        File tempFile = null;
-        try {
+        long size = MultipartBody.utf8Length(jsonContent);
+        String fileName = attachmentFileName(issueKey, size);
+        MultipartBody body = fileName.endsWith(".gz")
+            ? new MultipartBody().addFile("file", fileName, "application/gzip",
+                MultipartBody.gzip(MultipartBody.utf8(jsonContent)), -1)
+            : new MultipartBody().addFile("file", fileName, "application/json", MultipartBody.utf8(jsonContent), size);
+
+        return HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Authorization", buildAuthHeader())
+            .header("X-Atlassian-Token", "no-check")
+            .header("Content-Type", body.contentType())
+            .POST(body.publisher())
+            .build();
+    }
+
+    private String attachmentFileName(String issueKey, long size) {
+        long gzipThreshold = jiraConfig.getAttachmentGzipThresholdBytes();
+        boolean gzip = gzipThreshold > 0 && size >= gzipThreshold;
+        return "testData_" + issueKey + (gzip ? ".json.gz" : ".json");
+    }
+
+    /* True if the description need not be sent. A match older than jira.ledger.verify-after-ms is compared with the
+       issue's current description first. */
+    boolean descriptionUnchanged(String issueKey, String hash) {
+        return descriptionUnchanged(issueKey, hash, httpClient::send);
+    }
+
+    /* Same, with the issue read through the given requester. */
+    boolean descriptionUnchanged(String issueKey, String hash, Requester requester) {
+        if (ledger == null || !ledger.isEnabled()) return false;
+        JiraContentHash entry = ledger.find(issueKey, JiraContentHash.DESCRIPTION);
+        if (entry == null || !hash.equals(entry.getContentHash())) return false;
+        if (!ledger.isFresh(entry, hash)) {
             try {
-//                tempFile = Files.createTempFile("testData-" + issueKey, ".json").toFile();
-                // Create a file with a fixed name instead of random suffix
-                String fileName = "testData_" + issueKey + ".json";
-                tempFile = new File(System.getProperty("java.io.tmpdir"), fileName);
+                JsonNode description = fetchFields(requester, issueKey, "description").path("description");
+                if (description.isNull() || !hash.equals(JiraContentLedger.hash(description.asText()))) return false;
+                ledger.verified(entry);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[WARN] Cannot check the description of " + issueKey + ", sending it: " + e.getMessage());
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        ledger.skipped();
+        return true;
+    }
 
-                try (FileWriter writer = new FileWriter(tempFile)) {
-                    writer.write(jsonContent);
-                }
+    void descriptionSent(String issueKey, String hash, String description) {
+        if (ledger == null) return;
+        ledger.record(issueKey, JiraContentHash.DESCRIPTION, hash, MultipartBody.utf8Length(description), null, null);
+    }
 
-            } catch (IOException e) {
-                System.err.println("Failed to create or write temporary JSON file: " + e.getMessage());
-                e.printStackTrace();
-                throw new RuntimeException("Error while creating temp JSON file", e);
+    /* True if the attachment need not be sent. A recent match is trusted as is. Otherwise the issue's attachment list
+       is read: a known attachment must still be there; with no ledger entry (first upload, or a ledger that was
+       reset), an attachment of the same name and size is downloaded and its hash compared. */
+    boolean attachmentUnchanged(String issueKey, String hash, String jsonContent) {
+        return attachmentUnchanged(issueKey, hash, jsonContent, httpClient::send);
+    }
+
+    /* Same, with the issue and attachment read through the given requester. */
+    boolean attachmentUnchanged(String issueKey, String hash, String jsonContent, Requester requester) {
+        if (ledger == null || !ledger.isEnabled()) return false;
+        JiraContentHash entry = ledger.find(issueKey, JiraContentHash.ATTACHMENT);
+        if (entry != null && !hash.equals(entry.getContentHash())) return false;
+        if (ledger.isFresh(entry, hash)) {
+            ledger.skipped();
+            return true;
+        }
+        long size = MultipartBody.utf8Length(jsonContent);
+        String fileName = attachmentFileName(issueKey, size);
+        try {
+            JsonNode attachments = fetchFields(requester, issueKey, "attachment").path("attachment");
+            if (entry != null) {
+                for (JsonNode attachment : attachments) {
+                    if (attachment.path("id").asText().equals(entry.getAttachmentId())) {
+                        ledger.verified(entry);
+                        ledger.skipped();
+                        return true;
+                    }
+                }
+                ledger.forget(entry);
+                return false;
             }
+            for (JsonNode attachment : attachments) {
+                if (!attachment.path("filename").asText().equals(fileName)) continue;
+                if (!fileName.endsWith(".gz") && attachment.path("size").asLong(-1) != size) continue;
+                if (hash.equals(downloadHash(requester, attachment.path("content").asText(), fileName.endsWith(".gz")))) {
+                    ledger.record(issueKey, JiraContentHash.ATTACHMENT, hash, size, attachment.path("id").asText(), fileName);
+                    ledger.skipped();
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[WARN] Cannot check the attachments of " + issueKey + ", sending it: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            // Create multipart body
-            var boundary = "----JiraBoundary" + System.currentTimeMillis();
-            byte[] byteArray = null;
-            try {
-                byteArray = buildMultipartBody(boundary, tempFile);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    /* Record the attachment Jira created (the response is the list of attachments added). */
+    void attachmentSent(String issueKey, String hash, String jsonContent, String responseBody) {
+        if (ledger == null) return;
+        String attachmentId = null;
+        try {
+            JsonNode created = objectMapper.readTree(responseBody == null ? "" : responseBody);
+            if (created != null && created.isArray() && !created.isEmpty()) attachmentId = created.get(0).path("id").asText(null);
+        } catch (JsonProcessingException e) {
+            // no id: the next reconciliation will not find it and send the attachment once more
+        }
+        long size = MultipartBody.utf8Length(jsonContent);
+        ledger.record(issueKey, JiraContentHash.ATTACHMENT, hash, size, attachmentId, attachmentFileName(issueKey, size));
+    }
+
+    /**
+     * Issues matching the JQL, from startAt on, as a lazy stream of pages: a page is only requested when the stream
+     * is advanced to it. A search answered 429 or 5xx (or not answered) is sent again with the jira.bulk retry
+     * settings; once those are spent the stream throws, and the search can be picked up again at that page.
+     */
+    public Stream<JiraIssuePage> search(String jql, int startAt, int pageSize, String fields) {
+        Spliterator<JiraIssuePage> pages = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int next = startAt;
+            private boolean last;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super JiraIssuePage> action) {
+                if (last) return false;
+                JiraIssuePage page = searchPage(jql, next, pageSize, fields);
+                // Jira may cap maxResults below the page size asked for; the next page starts after what came back
+                next = page.getNextStartAt();
+                last = page.isLast();
+                if (page.getIssues().isEmpty()) return false;
+                action.accept(page);
+                return true;
             }
+        };
+        return StreamSupport.stream(pages, false);
+    }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", buildAuthHeader())
-                .header("X-Atlassian-Token", "no-check")
-                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(byteArray))
-                .build();
+    private JiraIssuePage searchPage(String jql, int startAt, int pageSize, String fields) {
+        String url = jiraConfig.getBaseUrl() + "/rest/api/2/search"
+            + "?jql=" + URLEncoder.encode(jql, StandardCharsets.UTF_8)
+            + "&startAt=" + startAt + "&maxResults=" + pageSize
+            + "&fields=" + URLEncoder.encode(fields, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Authorization", buildAuthHeader())
+            .header("Accept", MediaType.APPLICATION_JSON_VALUE)
+            .GET()
+            .build();
 
+        JiraConfig.Bulk retry = jiraConfig.getBulk();
+        long backoffMs = Math.max(1, retry.getBaseBackoffMs());
+        for (int attempt = 0; ; attempt++) {
             HttpResponse<String> response = null;
+            IOException error = null;
             try {
                 response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             } catch (IOException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
+            }
+            boolean retryable = error != null || response.statusCode() == 429 || response.statusCode() / 100 == 5;
+            if (!retryable || attempt >= retry.getMaxRetries()) {
+                if (error != null) throw new RuntimeException("Jira search failed at " + startAt + ": " + error.getMessage(), error);
+                if (response.statusCode() / 100 != 2) {
+                    throw new RuntimeException("Jira search failed at " + startAt + ": " + response.statusCode() + " - " + response.body());
+                }
+                return toPage(response.body(), startAt);
+            }
+            long delayMs = response == null ? -1 : response.headers().firstValueAsLong("Retry-After").orElse(-1) * 1000;
+            try {
+                Thread.sleep(delayMs >= 0 ? Math.min(retry.getMaxBackoffMs(), delayMs) : backoffMs);
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
             }
+            backoffMs = Math.min(retry.getMaxBackoffMs(), backoffMs * 2);
+        }
+    }
 
+    private JiraIssuePage toPage(String body, int startAt) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable Jira search response at " + startAt, e);
+        }
+        List<JsonNode> issues = new ArrayList<>();
+        for (JsonNode issue : root.path("issues")) {
+            issues.add(issue);
+        }
+        return new JiraIssuePage(root.path("startAt").asInt(startAt), root.path("total").asInt(-1), issues);
+    }
+
+    /* How the ledger checks send their reads of an issue: straight on the HttpClient by default, through
+       JiraBulkService's per-host permits and retries during a bulk update. */
+    interface Requester {
+        <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException;
+    }
+
+    private JsonNode fetchFields(Requester requester, String issueKey, String fields) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(jiraConfig.getBaseUrl() + "/rest/api/2/issue/" + issueKey + "?fields=" + fields))
+            .header("Authorization", buildAuthHeader())
+            .header("Accept", MediaType.APPLICATION_JSON_VALUE)
+            .GET()
+            .build();
+        HttpResponse<String> response = requester.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Jira answered " + response.statusCode() + " for " + issueKey);
+        }
+        return objectMapper.readTree(response.body()).path("fields");
+    }
+
+    /* SHA-256 of an attachment's content, read as a stream. */
+    private String downloadHash(Requester requester, String contentUrl, boolean gzip) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(contentUrl))
+            .header("Authorization", buildAuthHeader())
+            .GET()
+            .build();
+        HttpResponse<InputStream> response = requester.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = gzip ? new GZIPInputStream(response.body()) : response.body()) {
             if (response.statusCode() / 100 != 2) {
-                throw new RuntimeException("Failed to attach JSON file: " + response.statusCode() + " - " + response.body());
+                throw new IOException("Jira answered " + response.statusCode() + " for " + contentUrl);
             }
-
-            System.out.println("JSON file attached to " + issueKey);
-        } finally {
-            if (tempFile != null && tempFile.exists()) tempFile.delete();
+            return JiraContentLedger.hash(in);
         }
     }
 
@@ -136,45 +373,6 @@ public class JiraService {
         return "Bearer " + jiraConfig.getToken();
     }
 
-//    private byte[] buildMultipartBody(String boundary, File file) throws IOException {
-//        String fileHeader = "--" + boundary + "\r\n"
-//            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n"
-//            + "Content-Type: application/json\r\n\r\n";
-//        String fileFooter = "\r\n--" + boundary + "--\r\n";
-//
-//        byte[] fileBytes = Files.readAllBytes(file.toPath());
-//        byte[] headerBytes = fileHeader.getBytes();
-//        byte[] footerBytes = fileFooter.getBytes();
-//
-//        byte[] result = new byte[headerBytes.length + fileBytes.length + footerBytes.length];
-//        System.arraycopy(headerBytes, 0, result, 0, headerBytes.length);
-//        System.arraycopy(fileBytes, 0, result, headerBytes.length, fileBytes.length);
-//        System.arraycopy(footerBytes, 0, result, headerBytes.length + fileBytes.length, footerBytes.length);
-//        return result;
-//    }
-
-    private byte[] buildMultipartBody(String boundary, File file) throws IOException {
-        final String LINE_FEED = "\r\n";
-
-        StringBuilder sb = new StringBuilder();
-        sb.append("--").append(boundary).append(LINE_FEED);
-        sb.append("Content-Disposition: form-data; name=\"file\"; filename=\"")
-            .append(file.getName()).append("\"").append(LINE_FEED);
-        sb.append("Content-Type: application/json").append(LINE_FEED);
-        sb.append(LINE_FEED); // Empty line before file content
-
-        byte[] fileBytes = Files.readAllBytes(file.toPath());
-        byte[] headerBytes = sb.toString().getBytes(StandardCharsets.UTF_8);
-        byte[] footerBytes = (LINE_FEED + "--" + boundary + "--" + LINE_FEED).getBytes(StandardCharsets.UTF_8);
-
-        byte[] result = new byte[headerBytes.length + fileBytes.length + footerBytes.length];
-        System.arraycopy(headerBytes, 0, result, 0, headerBytes.length);
-        System.arraycopy(fileBytes, 0, result, headerBytes.length, fileBytes.length);
-        System.arraycopy(footerBytes, 0, result, headerBytes.length + fileBytes.length, footerBytes.length);
-
-        return result;
-    }
-
 }
 
 
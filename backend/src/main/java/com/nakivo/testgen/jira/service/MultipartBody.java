@@ -0,0 +1,195 @@
+package com.nakivo.testgen.jira.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A multipart/form-data request body whose file parts are read from their source while the request is sent:
+ * boundaries and part headers are small byte arrays, a part's content is a stream pulled in fixed-size chunks
+ * (BodyPublishers.ofInputStream), so no temp file is written and memory held does not grow with the attachment.
+ * Content suppliers are called once per send, so the body can be re-sent (retries, redirects).
+ * With all part lengths known the request has a Content-Length; a gzipped part makes it chunked.
+ */
+public final class MultipartBody {
+
+    private static final int CHUNK = 16 * 1024;
+    private static final String CRLF = "\r\n";
+
+    private final String boundary = "----JiraBoundary" + UUID.randomUUID().toString().replace("-", "");
+    private final List<HttpRequest.BodyPublisher> publishers = new ArrayList<>();
+
+    /* A file part; length is the content's size in bytes, or -1 if unknown. */
+    public MultipartBody addFile(String name, String fileName, String contentType, Supplier<InputStream> content, long length) {
+        String header = (publishers.isEmpty() ? "" : CRLF) + "--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"" + quote(name) + "\"; filename=\"" + quote(fileName) + "\"" + CRLF
+            + "Content-Type: " + contentType + CRLF
+            + CRLF;
+        publishers.add(HttpRequest.BodyPublishers.ofByteArray(header.getBytes(StandardCharsets.UTF_8)));
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(content);
+        publishers.add(length >= 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream);
+        return this;
+    }
+
+    public String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    public HttpRequest.BodyPublisher publisher() {
+        List<HttpRequest.BodyPublisher> all = new ArrayList<>(publishers);
+        all.add(HttpRequest.BodyPublishers.ofByteArray((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8)));
+        return HttpRequest.BodyPublishers.concat(all.toArray(new HttpRequest.BodyPublisher[0]));
+    }
+
+    /* The text's UTF-8 encoding, produced a chunk at a time instead of as one String.getBytes array. */
+    public static Supplier<InputStream> utf8(CharSequence text) {
+        return () -> new Utf8InputStream(text);
+    }
+
+    /* Size of the text's UTF-8 encoding, without encoding it. Unpaired surrogates count as the one '?' they become. */
+    public static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /* The content gzip-compressed on the fly, one chunk at a time. */
+    public static Supplier<InputStream> gzip(Supplier<InputStream> content) {
+        return () -> {
+            try {
+                return new GzipInputStream(content.get());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static String quote(String value) {
+        return value.replace("\"", "%22").replace("\r", "").replace("\n", "");
+    }
+
+    private static final class Utf8InputStream extends InputStream {
+        private final CharBuffer chars;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK).flip();
+        private boolean flushed;
+
+        Utf8InputStream(CharSequence text) {
+            this.chars = CharBuffer.wrap(text);
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            while (!bytes.hasRemaining()) {
+                if (flushed) return -1;
+                bytes.clear();
+                if (chars.hasRemaining()) {
+                    encoder.encode(chars, bytes, true);
+                } else {
+                    encoder.flush(bytes);
+                    flushed = true;
+                }
+                bytes.flip();
+            }
+            int n = Math.min(len, bytes.remaining());
+            bytes.get(b, off, n);
+            return n;
+        }
+    }
+
+    private static final class GzipInputStream extends InputStream {
+        private final InputStream source;
+        private final Chunk compressed = new Chunk();
+        private final GZIPOutputStream gzip;
+        private final byte[] chunk = new byte[CHUNK];
+        private int position;
+        private boolean finished;
+
+        GzipInputStream(InputStream source) throws IOException {
+            this.source = source;
+            this.gzip = new GZIPOutputStream(compressed, CHUNK);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            // the deflater may swallow a whole chunk before it emits anything
+            while (position == compressed.size()) {
+                if (finished) return -1;
+                compressed.reset();
+                position = 0;
+                int n = source.read(chunk);
+                if (n < 0) {
+                    gzip.finish();
+                    finished = true;
+                } else {
+                    gzip.write(chunk, 0, n);
+                }
+            }
+            int n = Math.min(len, compressed.size() - position);
+            System.arraycopy(compressed.array(), position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                source.close();
+            } finally {
+                gzip.close();
+            }
+        }
+    }
+
+    // reset() keeps the array, so the compressed output reuses one buffer
+    private static final class Chunk extends ByteArrayOutputStream {
+        Chunk() {
+            super(CHUNK);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
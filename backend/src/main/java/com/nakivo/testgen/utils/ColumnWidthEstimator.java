@@ -0,0 +1,68 @@
+package com.nakivo.testgen.utils;
+
+/* Column width that fits a text in the default 11pt Calibri, estimated from character classes.
+   Sheet.autoSizeColumn lays out every cell of the column with AWT font metrics; this looks at the given
+   strings only and needs no fonts, so it is the same on a headless server. Widths are in characters,
+   the unit of <col width> (Sheet.setColumnWidth takes 1/256 of that). */
+public final class ColumnWidthEstimator {
+
+    private static final double MAX_WIDTH = 255;
+    // cell padding, roughly what Excel adds when a column is auto-fitted
+    private static final double PADDING = 0.75;
+
+    private ColumnWidthEstimator() {
+    }
+
+    public static double width(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        double widest = 0;
+        double line = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp == '\n') {
+                widest = Math.max(widest, line);
+                line = 0;
+            } else {
+                line += charWidth(cp);
+            }
+        }
+        return Math.min(MAX_WIDTH, Math.max(widest, line) + PADDING);
+    }
+
+    /* Widest of the texts, in 1/256 of a character, for Sheet.setColumnWidth. */
+    public static int widthUnits(String... texts) {
+        double widest = 0;
+        for (String text : texts) widest = Math.max(widest, width(text));
+        return (int) Math.round(widest * 256);
+    }
+
+    // relative to the width of a digit, which is what one "character" of column width means
+    private static double charWidth(int cp) {
+        if (cp >= 0x1100 && isWide(cp)) return 2.0;
+        switch (cp) {
+            case 'i': case 'j': case 'l': case '.': case ',': case ':': case ';': case '\'': case '|': case '!':
+            case 'I':
+                return 0.45;
+            case 'f': case 'r': case 't': case ' ': case '(': case ')': case '[': case ']': case '-': case '/':
+                return 0.6;
+            case 'm': case 'w': case 'M': case 'W': case '@': case '%':
+                return 1.45;
+            default:
+                if (cp >= 'A' && cp <= 'Z') return 1.1;
+                return 1.0;
+        }
+    }
+
+    // CJK, Hangul and full-width forms take two columns
+    private static boolean isWide(int cp) {
+        return (cp <= 0x115F)
+            || (cp >= 0x2E80 && cp <= 0xA4CF)
+            || (cp >= 0xAC00 && cp <= 0xD7A3)
+            || (cp >= 0xF900 && cp <= 0xFAFF)
+            || (cp >= 0xFE30 && cp <= 0xFE4F)
+            || (cp >= 0xFF00 && cp <= 0xFF60)
+            || (cp >= 0xFFE0 && cp <= 0xFFE6)
+            || (cp >= 0x20000 && cp <= 0x3FFFD);
+    }
+}
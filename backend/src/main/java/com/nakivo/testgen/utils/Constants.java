@@ -6,4 +6,5 @@ public class Constants {
     public static final String TEST_DATA_FIELDS_CSV = "test-data-fields.csv";
     public static final String GITHUB_API_URL = "https://api.github.com/repos";
     public static final String MANUAL_SHEET = "manual";
+    public static final String DATA_INPUT_MANUAL_PATH = "propertyfiles/ui/dataInputManual.xlsx";
 }
@@ -0,0 +1,148 @@
+package com.nakivo.testgen.generator.service;
+
+import com.nakivo.testgen.config.GeneratorConfig;
+import com.nakivo.testgen.generator.model.TestGenRequest;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.generator.template.TestTemplateEngine;
+import com.nakivo.testgen.github.backend.InMemoryBackend;
+import com.nakivo.testgen.github.service.GitHubFileService;
+import com.nakivo.testgen.github.service.GithubExcelUpdaterService;
+import com.nakivo.testgen.github.service.WorkbookCache;
+import com.nakivo.testgen.config.GitHubConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Stress tests of the per-file locking: many concurrent read-modify-writes, none of them lost. */
+class GenerationExecutorTest {
+
+    private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentUpdatesOfOneFileAreNotLost() throws Exception {
+        GeneratorConfig config = new GeneratorConfig();
+        config.getExecution().setMaxConcurrency(8);
+        GenerationExecutor executor = new GenerationExecutor(config);
+
+        String[] paths = {"A.java", "B.java", "C.java", "D.java"};
+        int perPath = 250;
+        Map<String, Integer> values = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inside = new ConcurrentHashMap<>();
+        AtomicInteger maxInsideOnePath = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < perPath * paths.length; i++) {
+            String path = paths[i % paths.length];
+            futures.add(pool.submit(() -> {
+                start.await();
+                return executor.runLocked(path, () -> {
+                    maxInsideOnePath.accumulateAndGet(inside.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet(), Math::max);
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    // a plain read-modify-write: only the lock keeps two of them apart
+                    int value = values.getOrDefault(path, 0);
+                    Thread.sleep(1);
+                    values.put(path, value + 1);
+                    running.decrementAndGet();
+                    inside.get(path).decrementAndGet();
+                    return null;
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Object> f : futures) f.get(60, TimeUnit.SECONDS);
+
+        for (String path : paths) assertEquals(perPath, (long) values.get(path), path);
+        assertEquals(1, maxInsideOnePath.get(), "one task at a time per file");
+        assertTrue(maxRunning.get() > 1, "different files run in parallel");
+        assertTrue(maxRunning.get() <= 8, "at most max-concurrency tasks run at once, was " + maxRunning.get());
+    }
+
+    @Test
+    void overlappingPathSetsDoNotDeadlock() throws Exception {
+        GenerationExecutor executor = new GenerationExecutor(new GeneratorConfig());
+        AtomicInteger done = new AtomicInteger();
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // opposite orders of the same two paths
+            List<String> paths = i % 2 == 0 ? List.of("Class.java", "data.xlsx") : List.of("data.xlsx", "Class.java");
+            futures.add(pool.submit(() -> executor.runLocked(paths, () -> {
+                Thread.sleep(1);
+                return done.incrementAndGet();
+            })));
+        }
+        for (Future<Object> f : futures) f.get(60, TimeUnit.SECONDS);
+        assertEquals(200, done.get());
+    }
+
+    @Test
+    void concurrentGenerationsKeepEveryMethod() throws Exception {
+        GeneratorConfig config = new GeneratorConfig();
+        config.getPipeline().setCommit(true);
+        config.getExecution().setMaxConcurrency(16);
+        InMemoryBackend backend = new InMemoryBackend();
+        backend.setDelayMs(1); // widen the read -> commit window
+        TestFileGeneratorService generator = generator(config, backend);
+
+        String[] categories = {"VMwareBackup", "HyperVBackup"};
+        int perCategory = 40;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, String>>> futures = new ArrayList<>();
+        for (int i = 0; i < perCategory * categories.length; i++) {
+            TestGenRequest request = new TestGenRequest();
+            request.setDescription(description(String.format("TC_%05d", i), categories[i % categories.length]));
+            futures.add(pool.submit(() -> {
+                start.await();
+                return generator.generate(request);
+            }));
+        }
+        start.countDown();
+        for (Future<Map<String, String>> f : futures) f.get(120, TimeUnit.SECONDS);
+
+        for (int i = 0; i < perCategory * categories.length; i++) {
+            String content = backend.text("src/test/java/com/nakivo/tests/manual/" + categories[i % categories.length] + "ManualTest.java");
+            assertTrue(content.contains(String.format("TC_%05d", i)), "method of TC_" + i + " is in its class");
+        }
+        assertEquals(perCategory * categories.length, backend.getCommits());
+        assertEquals(0, backend.getConflicts(), "the file locks keep generations of one class apart");
+    }
+
+    static TestFileGeneratorService generator(GeneratorConfig config, InMemoryBackend backend) throws Exception {
+        GitHubConfig gitHubConfig = new GitHubConfig();
+        gitHubConfig.getWorkbookCache().setEnabled(false);
+        return new TestFileGeneratorService(new GitHubFileService(backend),
+            new GithubExcelUpdaterService(backend, new WorkbookCache(gitHubConfig, backend)),
+            new GenerationExecutor(config), new SourceIndexCache(), new TestTemplateEngine(config, null), null, config);
+    }
+
+    static String description(String id, String category) {
+        return "id: " + id + "\n"
+            + "title: Create and run backup job " + id + "\n"
+            + "groups: DIET_DEBUG, regression\n"
+            + "category: " + category + "\n"
+            + "feature: VMWARE\n"
+            + "step 1: Create VMware Backup job\n"
+            + "step 2: Run job\n"
+            + "step 3: Verify backup object\n";
+    }
+}
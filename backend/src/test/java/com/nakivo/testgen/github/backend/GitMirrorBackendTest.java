@@ -0,0 +1,187 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.RepoFile;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* The mirror backend end to end against a bare repository on disk (file:// remote). */
+class GitMirrorBackendTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path bare;
+    private Git seed;
+    private GitMirrorBackend mirror;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bare = tmp.resolve("origin.git");
+        Git.init().setBare(true).setInitialBranch("main").setDirectory(bare.toFile()).call().close();
+        seed = Git.init().setInitialBranch("main").setDirectory(tmp.resolve("seed").toFile()).call();
+        seed.remoteAdd().setName("origin").setUri(new URIish(remoteUrl())).call();
+        seedCommit("src/Tests.java", "class Tests {}\n");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (mirror != null) mirror.close();
+        seed.close();
+    }
+
+    @Test
+    void readsAndPushesCommits() throws Exception {
+        mirror = open(tmp.resolve("mirror"));
+        RepoFile read = mirror.readFile("src/Tests.java", 0);
+        assertEquals("class Tests {}\n", read.toText());
+        assertNull(mirror.readFile("src/Missing.java", 0));
+
+        byte[] workbook = {0x50, 0x4b, 0x03, 0x04, 0, 1, 2};
+        Map<String, Object> files = new HashMap<>();
+        files.put("src/Tests.java", "class Tests { void tc2() {} }\n");
+        files.put("data/book.xlsx", workbook);
+        Map<String, String> bases = new HashMap<>();
+        bases.put("src/Tests.java", read.getSha());
+        bases.put("data/book.xlsx", null);
+        String commit = mirror.commitFiles("Add TC_2", files, bases);
+
+        assertEquals(commit, originHead().name());
+        assertEquals("class Tests { void tc2() {} }\n", new String(originFile("src/Tests.java"), StandardCharsets.UTF_8));
+        assertArrayEquals(workbook, originFile("data/book.xlsx"));
+        assertEquals(mirror.fileSha("data/book.xlsx"), mirror.readFile("data/book.xlsx", 0).getSha());
+    }
+
+    @Test
+    void staleBaseShaFailsWithoutPushing() throws Exception {
+        mirror = open(tmp.resolve("mirror"));
+        RepoFile read = mirror.readFile("src/Tests.java", 0);
+        seedCommit("src/Tests.java", "class Tests { void other() {} }\n");
+        mirror.refresh();
+        ObjectId head = originHead();
+
+        GitHubApiException e = assertThrows(GitHubApiException.class, () -> mirror.commitFiles("Add TC_2",
+            Map.of("src/Tests.java", "class Tests { void tc2() {} }\n"), Map.of("src/Tests.java", read.getSha())));
+        assertEquals(409, e.getStatusCode());
+        assertEquals(head, originHead());
+        assertEquals("class Tests { void other() {} }\n", mirror.readFile("src/Tests.java", 0).toText());
+    }
+
+    @Test
+    void rejectedPushResyncsTheMirror() throws Exception {
+        mirror = open(tmp.resolve("mirror"));
+        RepoFile read = mirror.readFile("src/Tests.java", 0);
+        // the remote moves on another file before the mirror fetched it
+        seedCommit("src/Other.java", "class Other {}\n");
+
+        GitHubApiException e = assertThrows(GitHubApiException.class, () -> mirror.commitFiles("Add TC_2",
+            Map.of("src/Tests.java", "class Tests { void tc2() {} }\n"), Map.of("src/Tests.java", read.getSha())));
+        assertEquals(422, e.getStatusCode());
+
+        // the failed commit is dropped and the mirror is back on the remote branch, so a retry goes through
+        assertEquals("class Other {}\n", mirror.readFile("src/Other.java", 0).toText());
+        String commit = mirror.commitFiles("Add TC_2", Map.of("src/Tests.java", "class Tests { void tc2() {} }\n"),
+            Map.of("src/Tests.java", mirror.fileSha("src/Tests.java")));
+        assertEquals(commit, originHead().name());
+        assertEquals("class Other {}\n", new String(originFile("src/Other.java"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reusesItsOwnCloneAcrossRestarts() throws Exception {
+        Path dir = tmp.resolve("mirror");
+        open(dir).close();
+        seedCommit("src/Tests.java", "class Tests { void later() {} }\n");
+        // a leftover from a crash mid-commit is cleaned up on reopen
+        Files.writeString(dir.resolve("src/Tests.java"), "half written");
+
+        mirror = open(dir);
+        assertEquals("class Tests { void later() {} }\n", mirror.readFile("src/Tests.java", 0).toText());
+        assertEquals("class Tests { void later() {} }\n", Files.readString(dir.resolve("src/Tests.java")));
+    }
+
+    @Test
+    void refusesADirectoryItDidNotClone() throws Exception {
+        Path dir = tmp.resolve("checkout");
+        Git.cloneRepository().setURI(remoteUrl()).setDirectory(dir.toFile()).call().close();
+        Files.writeString(dir.resolve("src/Tests.java"), "local work");
+
+        assertThrows(IllegalStateException.class, () -> open(dir));
+        assertEquals("local work", Files.readString(dir.resolve("src/Tests.java")), "someone's checkout is left alone");
+    }
+
+    @Test
+    void refusesAMirrorOfAnotherRemote() throws Exception {
+        Path dir = tmp.resolve("mirror");
+        open(dir).close();
+        Path other = tmp.resolve("other.git");
+        Git.init().setBare(true).setInitialBranch("main").setDirectory(other.toFile()).call().close();
+
+        GitHubConfig config = config(dir);
+        config.getMirror().setRemoteUrl(other.toUri().toString());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new GitMirrorBackend(config));
+        assertTrue(e.getMessage().contains("a mirror of " + remoteUrl()), e.getMessage());
+    }
+
+    private GitMirrorBackend open(Path dir) {
+        return new GitMirrorBackend(config(dir));
+    }
+
+    private GitHubConfig config(Path dir) {
+        GitHubConfig config = new GitHubConfig();
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.getMirror().setDir(dir.toString());
+        config.getMirror().setRemoteUrl(remoteUrl());
+        return config;
+    }
+
+    private String remoteUrl() {
+        return bare.toUri().toString();
+    }
+
+    private void seedCommit(String path, String content) throws Exception {
+        Path file = seed.getRepository().getWorkTree().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        seed.add().addFilepattern(path).call();
+        seed.commit().setMessage("Seed " + path).setAuthor("seed", "seed@example.com").setCommitter("seed", "seed@example.com").call();
+        seed.push().setRemote("origin").add("main").call();
+    }
+
+    private ObjectId originHead() throws Exception {
+        try (Git origin = Git.open(bare.toFile())) {
+            return origin.getRepository().resolve("refs/heads/main");
+        }
+    }
+
+    private byte[] originFile(String path) throws Exception {
+        try (Git origin = Git.open(bare.toFile()); RevWalk walk = new RevWalk(origin.getRepository())) {
+            Repository repo = origin.getRepository();
+            try (TreeWalk tree = TreeWalk.forPath(repo, path, walk.parseCommit(repo.resolve("refs/heads/main")).getTree())) {
+                return tree == null ? null : repo.open(tree.getObjectId(0)).getBytes();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.nakivo.testgen.github.backend;
+
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.utils.GitBlobSha;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Repository backend over a map, with the same SHA guard as the real ones: a commit over a file changed since it
+   was read fails with 409. Reads and commits can be slowed down to widen the read -> commit window. */
+public class InMemoryBackend implements RepositoryBackend {
+
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger conflicts = new AtomicInteger();
+    private volatile long delayMs;
+
+    public void put(String path, String content) {
+        files.put(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void put(String path, byte[] content) {
+        files.put(path, content);
+    }
+
+    public String text(String path) {
+        byte[] content = files.get(path);
+        return content == null ? null : new String(content, StandardCharsets.UTF_8);
+    }
+
+    public byte[] bytes(String path) {
+        return files.get(path);
+    }
+
+    public void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    public int getCommits() {
+        return commits.get();
+    }
+
+    public int getConflicts() {
+        return conflicts.get();
+    }
+
+    @Override
+    public RepoFile readFile(String path, long maxBytes) throws InterruptedException {
+        pause();
+        byte[] content = files.get(path);
+        return content == null ? null : new RepoFile(path, GitBlobSha.of(content), ByteBuffer.wrap(content));
+    }
+
+    @Override
+    public InputStream openRaw(String path) throws InterruptedException {
+        RepoFile file = readFile(path, 0);
+        return file == null ? null : new ByteArrayInputStream(file.toBytes());
+    }
+
+    @Override
+    public synchronized String commitFiles(String message, Map<String, Object> changes, Map<String, String> baseShas)
+        throws IOException, InterruptedException {
+        pause();
+        for (Map.Entry<String, String> base : baseShas.entrySet()) {
+            byte[] current = files.get(base.getKey());
+            if (!Objects.equals(current == null ? null : GitBlobSha.of(current), base.getValue())) {
+                conflicts.incrementAndGet();
+                throw new GitHubApiException(409, base.getKey() + " changed since it was read");
+            }
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Object value = change.getValue();
+            files.put(change.getKey(), value instanceof byte[] b ? b
+                : value instanceof Path file ? Files.readAllBytes(file)
+                : String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        }
+        return "commit-" + commits.incrementAndGet();
+    }
+
+    @Override
+    public void refresh() {
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        return Map.of("backend", "memory", "files", files.size(), "commits", commits.get());
+    }
+
+    private void pause() throws InterruptedException {
+        if (delayMs > 0) Thread.sleep(delayMs);
+    }
+}
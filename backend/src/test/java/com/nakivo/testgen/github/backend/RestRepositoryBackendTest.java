@@ -0,0 +1,374 @@
+package com.nakivo.testgen.github.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.nakivo.testgen.github.client.ContentsCache;
+import com.nakivo.testgen.github.client.GitHubApiException;
+import com.nakivo.testgen.github.client.GitHubClient;
+import com.nakivo.testgen.github.client.RepoFile;
+import com.nakivo.testgen.utils.GitBlobSha;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/* Commits through the REST backend against a fake Git Data API: one tree, one commit and one ref update per commit,
+   and nothing written when a file changed since it was read. */
+class RestRepositoryBackendTest {
+
+    private static final String REPO = "/repos/owner/repo";
+
+    @TempDir
+    Path tmp;
+
+    private HttpServer server;
+    private final FakeGitHub github = new FakeGitHub();
+    private ContentsCache cache;
+    private RestRepositoryBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(REPO + "/", github::handle);
+        server.start();
+
+        GitHubConfig config = new GitHubConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.setPat("token");
+        config.getRateLimit().setEnabled(false);
+        config.getCache().setEnabled(true);
+        cache = new ContentsCache(config);
+        backend = new RestRepositoryBackend(new GitHubClient(config, HttpClient.newHttpClient(), new HttpConfig(), cache, null));
+
+        github.seed(Map.of("src/Tests.java", "class Tests {}\n", "data/cases.txt", "TC_1\n"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void commitCreatesOneTreeOneCommitAndOneRefUpdate() throws Exception {
+        RepoFile read = backend.readFile("src/Tests.java", 0);
+        assertEquals("class Tests {}\n", read.toText());
+        String parent = github.head;
+        github.calls.clear();
+
+        byte[] workbook = {0x50, 0x4b, 0x03, 0x04, 0, 1, 2};
+        Map<String, Object> files = new LinkedHashMap<>();
+        files.put("src/Tests.java", "class Tests { void tc2() {} }\n");
+        files.put("data/book.xlsx", workbook);
+        Map<String, String> bases = new HashMap<>();
+        bases.put("src/Tests.java", read.getSha());
+        bases.put("data/book.xlsx", null);
+        String commit = backend.commitFiles("Add TC_2", files, bases);
+
+        assertEquals(commit, github.head);
+        assertEquals(List.of(parent), github.parents.get(commit));
+        assertEquals(1, github.count("POST /git/blobs"), "binary content is stored as a blob, text goes inline");
+        assertEquals(1, github.count("POST /git/trees"));
+        assertEquals(1, github.count("POST /git/commits"));
+        assertEquals(1, github.count("PATCH /git/refs/heads/main"));
+
+        Map<String, String> tree = github.headTree();
+        assertEquals(GitBlobSha.of("class Tests { void tc2() {} }\n"), tree.get("src/Tests.java"));
+        assertEquals(GitBlobSha.of(workbook), tree.get("data/book.xlsx"));
+        assertEquals(GitBlobSha.of("TC_1\n"), tree.get("data/cases.txt"), "files not in the commit are kept");
+        assertArrayEquals(workbook, backend.readFile("data/book.xlsx", 0).toBytes());
+    }
+
+    @Test
+    void staleBaseShaFailsWithoutUpdatingTheBranch() throws Exception {
+        RepoFile read = backend.readFile("src/Tests.java", 0);
+        // someone else commits the file after it was read
+        github.seed(Map.of("src/Tests.java", "class Tests { void other() {} }\n"));
+        String head = github.head;
+        github.calls.clear();
+
+        GitHubApiException e = assertThrows(GitHubApiException.class, () -> backend.commitFiles("Add TC_2",
+            Map.of("src/Tests.java", "class Tests { void tc2() {} }\n"), Map.of("src/Tests.java", read.getSha())));
+
+        assertEquals(409, e.getStatusCode());
+        assertEquals(head, github.head);
+        assertEquals(0, github.count("POST /git/trees"));
+        assertEquals(0, github.count("POST /git/commits"));
+        assertEquals(0, github.count("PATCH /git/refs/heads/main"));
+        assertEquals("class Tests { void other() {} }\n", backend.readFile("src/Tests.java", 0).toText());
+    }
+
+    @Test
+    void fileCreatedSinceTheReadIsNotOverwritten() throws Exception {
+        assertNull(backend.readFile("src/New.java", 0));
+        github.seed(Map.of("src/New.java", "class New {}\n"));
+
+        Map<String, String> bases = new HashMap<>();
+        bases.put("src/New.java", null);
+        GitHubApiException e = assertThrows(GitHubApiException.class,
+            () -> backend.commitFiles("Add New", Map.of("src/New.java", "class New { void x() {} }\n"), bases));
+        assertEquals(409, e.getStatusCode());
+
+        // re-read and retry on the current content succeeds
+        RepoFile current = backend.readFile("src/New.java", 0);
+        String head = github.head;
+        String commit = backend.commitFiles("Add New", Map.of("src/New.java", "class New { void x() {} }\n"),
+            Map.of("src/New.java", current.getSha()));
+        assertNotEquals(head, commit);
+        assertEquals("class New { void x() {} }\n", backend.readFile("src/New.java", 0).toText());
+    }
+
+    @Test
+    void smallRawReadsAreConditional() throws Exception {
+        assertEquals("class Tests {}\n", raw("src/Tests.java"));
+        assertEquals("class Tests {}\n", raw("src/Tests.java"));
+        assertEquals(1, github.notModified.get(), "the second read is answered 304 from the cache");
+
+        github.seed(Map.of("src/Tests.java", "class Tests { void tc2() {} }\n"));
+        assertEquals("class Tests { void tc2() {} }\n", raw("src/Tests.java"));
+        assertEquals(1, github.notModified.get());
+        assertNull(backend.openRaw("src/Missing.java"));
+    }
+
+    @Test
+    void largeRawReadIsStreamedAndNotKept() throws Exception {
+        byte[] big = new byte[3 * 1024 * 1024];
+        for (int i = 0; i < big.length; i++) big[i] = (byte) (i * 31);
+        github.seedBytes("data/big.csv", big);
+        github.rawGate = new CountDownLatch(1);
+
+        try (InputStream in = backend.openRaw("data/big.csv")) {
+            // the stream is handed out while GitHub is still sending: the first chunk is readable before the rest exists
+            byte[] start = in.readNBytes(1024);
+            assertArrayEquals(Arrays.copyOf(big, 1024), start);
+            github.rawGate.countDown();
+            ByteArrayOutputStream rest = new ByteArrayOutputStream();
+            in.transferTo(rest);
+            assertArrayEquals(Arrays.copyOfRange(big, 1024, big.length), rest.toByteArray());
+        }
+        assertNull(cache.get(ContentsCache.key("data/big.csv", "main") + "#raw"), "large files are not cached");
+
+        try (InputStream in = backend.openRaw("data/big.csv")) {
+            assertEquals(big.length, in.transferTo(OutputStream.nullOutputStream()));
+        }
+        assertEquals(0, github.notModified.get(), "a large file is never read conditionally, there is no copy to serve");
+    }
+
+    @Test
+    void fileIsCommittedAndReadAsAStreamedBlob() throws Exception {
+        // several encoding chunks and a length that is not a multiple of 3, so the last chunk is padded
+        byte[] workbook = new byte[200_000];
+        for (int i = 0; i < workbook.length; i++) workbook[i] = (byte) (i * 7);
+        Path file = tmp.resolve("book.xlsx");
+        Files.write(file, workbook);
+        github.calls.clear();
+
+        backend.commitFiles("Add book", Map.of("data/book.xlsx", file), Collections.singletonMap("data/book.xlsx", null));
+
+        assertEquals(1, github.count("POST /git/blobs"));
+        String sha = github.headTree().get("data/book.xlsx");
+        assertEquals(GitBlobSha.of(workbook), sha);
+        try (InputStream in = backend.openBlob("data/book.xlsx", sha)) {
+            assertArrayEquals(workbook, in.readAllBytes());
+        }
+        assertNull(backend.openBlob("data/book.xlsx", GitBlobSha.of("other")));
+    }
+
+    private String raw(String path) throws Exception {
+        try (InputStream in = backend.openRaw(path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /* Flat trees (path -> blob SHA), commits with one parent and a single branch. */
+    private static final class FakeGitHub {
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final Map<String, byte[]> blobs = new HashMap<>();
+        private final Map<String, Map<String, String>> trees = new HashMap<>();
+        private final Map<String, String> commitTrees = new HashMap<>();
+        final Map<String, List<String>> parents = new HashMap<>();
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        volatile String head;
+        final AtomicInteger notModified = new AtomicInteger();
+        volatile CountDownLatch rawGate = new CountDownLatch(0);
+        private int sequence;
+
+        synchronized void seed(Map<String, String> files) {
+            Map<String, String> tree = head == null ? new TreeMap<>() : new TreeMap<>(headTree());
+            files.forEach((path, text) -> tree.put(path, storeBlob(text.getBytes(StandardCharsets.UTF_8))));
+            head = storeCommit(storeTree(tree), head);
+        }
+
+        synchronized void seedBytes(String path, byte[] content) {
+            Map<String, String> tree = new TreeMap<>(headTree());
+            tree.put(path, storeBlob(content));
+            head = storeCommit(storeTree(tree), head);
+        }
+
+        synchronized Map<String, String> headTree() {
+            return trees.get(commitTrees.get(head));
+        }
+
+        long count(String call) {
+            return calls.stream().filter(call::equals).count();
+        }
+
+        void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath().substring(REPO.length());
+            calls.add(method + " " + path);
+            JsonNode body = "GET".equals(method) ? null : mapper.readTree(exchange.getRequestBody());
+            Object answer;
+            int status = 200;
+            byte[] raw = null;
+            String etag = null;
+            synchronized (this) {
+                if (method.equals("GET") && path.equals("/git/ref/heads/main")) {
+                    answer = Map.of("object", Map.of("sha", head));
+                } else if (method.equals("GET") && path.startsWith("/git/commits/")) {
+                    String tree = commitTrees.get(path.substring("/git/commits/".length()));
+                    answer = tree == null ? null : Map.of("tree", Map.of("sha", tree));
+                } else if (method.equals("GET") && path.startsWith("/git/trees/")) {
+                    Map<String, String> tree = trees.get(path.substring("/git/trees/".length()));
+                    List<Map<String, Object>> entries = new ArrayList<>();
+                    if (tree != null) tree.forEach((p, sha) -> entries.add(Map.of("path", p, "type", "blob", "sha", sha)));
+                    answer = tree == null ? null : Map.of("tree", entries, "truncated", false);
+                } else if (method.equals("GET") && path.startsWith("/contents/") && raw(exchange)) {
+                    String sha = headTree().get(path.substring("/contents/".length()));
+                    raw = sha == null ? null : blobs.get(sha);
+                    etag = sha == null ? null : "\"" + sha + "\"";
+                    answer = null;
+                } else if (method.equals("GET") && path.startsWith("/git/blobs/") && raw(exchange)) {
+                    String sha = path.substring("/git/blobs/".length());
+                    raw = blobs.get(sha);
+                    etag = "\"" + sha + "\"";
+                    answer = null;
+                } else if (method.equals("GET") && path.startsWith("/contents/")) {
+                    String sha = headTree().get(path.substring("/contents/".length()));
+                    answer = sha == null ? null : Map.of("sha", sha, "size", blobs.get(sha).length, "encoding", "base64",
+                        "content", Base64.getEncoder().encodeToString(blobs.get(sha)));
+                } else if (method.equals("POST") && path.equals("/git/blobs")) {
+                    answer = Map.of("sha", storeBlob(Base64.getDecoder().decode(body.path("content").asText())));
+                    status = 201;
+                } else if (method.equals("POST") && path.equals("/git/trees")) {
+                    Map<String, String> tree = new TreeMap<>(trees.get(body.path("base_tree").asText()));
+                    for (JsonNode entry : body.path("tree")) {
+                        String sha = entry.has("content")
+                            ? storeBlob(entry.path("content").asText().getBytes(StandardCharsets.UTF_8))
+                            : entry.path("sha").asText();
+                        tree.put(entry.path("path").asText(), sha);
+                    }
+                    answer = Map.of("sha", storeTree(tree));
+                    status = 201;
+                } else if (method.equals("POST") && path.equals("/git/commits")) {
+                    answer = Map.of("sha", storeCommit(body.path("tree").asText(), body.path("parents").path(0).asText()));
+                    status = 201;
+                } else if (method.equals("PATCH") && path.equals("/git/refs/heads/main")) {
+                    String sha = body.path("sha").asText();
+                    if (!List.of(head).equals(parents.get(sha))) {
+                        answer = Map.of("message", "Update is not a fast forward");
+                        status = 422;
+                    } else {
+                        head = sha;
+                        answer = Map.of("object", Map.of("sha", sha));
+                    }
+                } else {
+                    answer = null;
+                }
+            }
+            if (raw != null) {
+                sendRaw(exchange, raw, etag);
+                return;
+            }
+            if (answer == null) {
+                answer = Map.of("message", "Not Found");
+                status = 404;
+            }
+            byte[] bytes = mapper.writeValueAsBytes(answer);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        }
+
+        private static boolean raw(HttpExchange exchange) {
+            return "application/vnd.github.raw".equals(exchange.getRequestHeaders().getFirst("Accept"));
+        }
+
+        // conditional on the ETag; the body goes out in chunks, the second one only once the test lets it
+        private void sendRaw(HttpExchange exchange, byte[] content, String etag) throws IOException {
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, content.length);
+            int first = Math.min(content.length, 64 * 1024);
+            exchange.getResponseBody().write(content, 0, first);
+            exchange.getResponseBody().flush();
+            try {
+                if (!rawGate.await(10, TimeUnit.SECONDS)) throw new IOException("raw gate not opened");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            exchange.getResponseBody().write(content, first, content.length - first);
+            exchange.close();
+        }
+
+        private String storeBlob(byte[] content) {
+            String sha = GitBlobSha.of(content);
+            blobs.put(sha, content);
+            return sha;
+        }
+
+        private String storeTree(Map<String, String> tree) {
+            String sha = "tree-" + (++sequence);
+            trees.put(sha, tree);
+            return sha;
+        }
+
+        private String storeCommit(String tree, String parent) {
+            String sha = "commit-" + (++sequence);
+            commitTrees.put(sha, tree);
+            parents.put(sha, parent == null ? List.of() : List.of(parent));
+            return sha;
+        }
+    }
+}
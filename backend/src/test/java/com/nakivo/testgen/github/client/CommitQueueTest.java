@@ -0,0 +1,136 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.github.backend.InMemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Write-behind commits against an in-memory backend: one commit per window, and replays when the file moved. */
+class CommitQueueTest {
+
+    private static final String PATH = "src/test/java/com/nakivo/tests/manual/VMwareBackupManualTest.java";
+
+    private CommitQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) queue.shutdown();
+    }
+
+    @Test
+    void editsWithinTheWindowLandAsOneCommit() throws Exception {
+        UpstreamBackend backend = new UpstreamBackend();
+        backend.put(PATH, "class T {\n");
+        queue = queue(backend, 3);
+
+        List<CommitQueue.QueuedEdit> edits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) edits.add(queue.submit(PATH, false, "Add TC_" + i, append("TC_" + i)));
+        // each caller sees its edit on top of the ones queued before it
+        assertEquals("class T {\nTC_0\nTC_1\nTC_2\n", new String(edits.get(2).getContent(), StandardCharsets.UTF_8));
+        assertEquals("queued", queue.status(edits.get(0).getId()).get("state"));
+
+        String commit = edits.get(0).getCommit().get(10, TimeUnit.SECONDS);
+        for (CommitQueue.QueuedEdit edit : edits) assertEquals(commit, edit.getCommit().get(10, TimeUnit.SECONDS));
+        assertEquals(1, backend.attempts.get(), "one commitFiles call for the whole window");
+        assertEquals("class T {\nTC_0\nTC_1\nTC_2\nTC_3\nTC_4\n", backend.text(PATH));
+        Map<String, Object> status = queue.status(edits.get(4).getId());
+        assertEquals("committed", status.get("state"));
+        assertEquals(commit, status.get("commit"));
+    }
+
+    @Test
+    void fileChangedBeforeTheFlushIsReplayed() throws Exception {
+        UpstreamBackend backend = new UpstreamBackend();
+        backend.put(PATH, "class T {\n");
+        queue = queue(backend, 3);
+
+        CommitQueue.QueuedEdit first = queue.submit(PATH, false, "Add TC_1", append("TC_1"));
+        CommitQueue.QueuedEdit second = queue.submit(PATH, false, "Add TC_2", append("TC_2"));
+        backend.put(PATH, "class T {\nUPSTREAM\n");
+
+        second.getCommit().get(10, TimeUnit.SECONDS);
+        assertEquals("class T {\nUPSTREAM\nTC_1\nTC_2\n", backend.text(PATH));
+        assertEquals(1, backend.attempts.get());
+        assertEquals(0, backend.getConflicts());
+        assertEquals("committed", queue.status(first.getId()).get("state"));
+    }
+
+    @Test
+    void commitRejectedAfterTheReadIsReplayed() throws Exception {
+        UpstreamBackend backend = new UpstreamBackend();
+        backend.put(PATH, "class T {\n");
+        backend.upstreamChanges = 1; // someone commits between the queue's read and its push, once
+        queue = queue(backend, 3);
+
+        CommitQueue.QueuedEdit edit = queue.submit(PATH, false, "Add TC_1", append("TC_1"));
+        edit.getCommit().get(10, TimeUnit.SECONDS);
+
+        assertEquals("class T {\nUPSTREAM-1\nTC_1\n", backend.text(PATH));
+        assertEquals(2, backend.attempts.get());
+        assertEquals(1, backend.getConflicts());
+        assertEquals(1L, queue.stats().get("retries"));
+    }
+
+    @Test
+    void giveUpAfterMaxAttempts() throws Exception {
+        UpstreamBackend backend = new UpstreamBackend();
+        backend.put(PATH, "class T {\n");
+        backend.upstreamChanges = Integer.MAX_VALUE;
+        queue = queue(backend, 2);
+
+        CommitQueue.QueuedEdit edit = queue.submit(PATH, false, "Add TC_1", append("TC_1"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> edit.getCommit().get(10, TimeUnit.SECONDS));
+
+        assertTrue(e.getCause() instanceof GitHubApiException, String.valueOf(e.getCause()));
+        assertEquals(409, ((GitHubApiException) e.getCause()).getStatusCode());
+        assertEquals(2, backend.attempts.get(), "max-attempts commit attempts");
+        assertEquals("failed", queue.status(edit.getId()).get("state"));
+        assertEquals(1L, queue.stats().get("failedFlushes"));
+    }
+
+    @Test
+    void unknownEditIdIsRejected() {
+        queue = queue(new UpstreamBackend(), 1);
+        assertThrows(IllegalArgumentException.class, () -> queue.status("edit-404"));
+    }
+
+    private static CommitQueue queue(InMemoryBackend backend, int maxAttempts) {
+        GitHubConfig config = new GitHubConfig();
+        config.getWriteBehind().setEnabled(true);
+        config.getWriteBehind().setWindowMs(200);
+        config.getWriteBehind().setMaxAttempts(maxAttempts);
+        return new CommitQueue(config, backend);
+    }
+
+    private static FileEdit append(String line) {
+        return current -> ((current == null ? "" : new String(current, StandardCharsets.UTF_8)) + line + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /* Counts commit attempts; can commit a change of its own right before the first ones, as a concurrent writer would. */
+    private static final class UpstreamBackend extends InMemoryBackend {
+        final AtomicInteger attempts = new AtomicInteger();
+        volatile int upstreamChanges;
+
+        @Override
+        public synchronized String commitFiles(String message, Map<String, Object> changes, Map<String, String> baseShas)
+            throws IOException, InterruptedException {
+            int attempt = attempts.incrementAndGet();
+            if (attempt <= upstreamChanges) put(PATH, "class T {\nUPSTREAM-" + attempt + "\n");
+            return super.commitFiles(message, changes, baseShas);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentsCacheTest {
+
+    private static ContentsCache cache(long maxBytes) {
+        GitHubConfig config = new GitHubConfig();
+        config.getCache().setEnabled(true);
+        config.getCache().setMaxBytes(maxBytes);
+        return new ContentsCache(config);
+    }
+
+    @Test
+    void oversizedVersionDropsTheCachedOne() {
+        ContentsCache cache = cache(100);
+        String key = ContentsCache.key("data/book.xlsx", "main");
+        cache.put(key, "\"v1\"", "sha1", new byte[50]);
+        assertNotNull(cache.get(key));
+
+        cache.put(key, "\"v2\"", "sha2", new byte[200]);
+        assertNull(cache.get(key), "the outdated version is not kept");
+    }
+
+    @Test
+    void versionWithoutEtagDropsTheCachedOne() {
+        ContentsCache cache = cache(0);
+        String key = ContentsCache.key("src/Tests.java", "main");
+        cache.put(key, "\"v1\"", "sha1", new byte[]{1});
+        cache.put(key, null, null, new byte[]{2});
+        assertNull(cache.get(key));
+
+        cache.put(key, "\"v3\"", "sha3", new byte[]{3});
+        assertArrayEquals(new byte[]{3}, cache.get(key).getBody());
+    }
+}
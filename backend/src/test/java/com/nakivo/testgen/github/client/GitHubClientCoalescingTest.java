@@ -0,0 +1,145 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.HttpConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/* Bursts of concurrent reads of one file against a local contents API stub: one upstream request per burst. */
+class GitHubClientCoalescingTest {
+
+    private static final int CALLERS = 50;
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    // the stub holds each answer until the test releases it, so the whole burst arrives while the read is in flight
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile int status = 200;
+    private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+    private GitHubClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/repos/owner/repo/contents/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"path\":\"" + path + "\",\"sha\":\"abc\",\"size\":0,\"content\":\"\",\"encoding\":\"base64\"}")
+                .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        GitHubConfig config = new GitHubConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setOwner("owner");
+        config.setRepo("repo");
+        config.setBranch("main");
+        config.setPat("token");
+        client = new GitHubClient(config, HttpClient.newHttpClient(), new HttpConfig(), null, new GitHubRateLimiter(config));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    void burstOfReadsOfOneFileSendsOneRequest() throws Exception {
+        release = new CountDownLatch(1);
+        List<Future<byte[]>> results = burst("data/Tests.java");
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        byte[] first = results.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<byte[]> result : results) assertSame(first, result.get(30, TimeUnit.SECONDS));
+        assertEquals(1, requests.get("/repos/owner/repo/contents/data/Tests.java").get());
+        assertEquals(1L, client.coalescingStats().get("contentsExecuted"));
+        assertEquals((long) CALLERS - 1, client.coalescingStats().get("contentsCoalesced"));
+
+        // nothing is kept once the read completes: the next read goes upstream again
+        client.getContentsBody("data/Tests.java");
+        assertEquals(2, requests.get("/repos/owner/repo/contents/data/Tests.java").get());
+    }
+
+    @Test
+    void readsOfDifferentFilesAreNotShared() throws Exception {
+        release = new CountDownLatch(1);
+        List<Future<byte[]>> a = burst("A.java");
+        List<Future<byte[]>> b = burst("B.java");
+        awaitCoalesced(2 * (CALLERS - 1));
+        release.countDown();
+
+        for (Future<byte[]> result : a) assertTrue(new String(result.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8).contains("A.java"));
+        for (Future<byte[]> result : b) assertTrue(new String(result.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8).contains("B.java"));
+        assertEquals(1, requests.get("/repos/owner/repo/contents/A.java").get());
+        assertEquals(1, requests.get("/repos/owner/repo/contents/B.java").get());
+    }
+
+    @Test
+    void failedReadFailsEveryCallerOfTheBurst() throws Exception {
+        status = 500;
+        release = new CountDownLatch(1);
+        List<Future<byte[]>> results = burst("Broken.java");
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<byte[]> result : results) {
+            try {
+                result.get(30, TimeUnit.SECONDS);
+                fail("a 500 must fail the shared read");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof GitHubApiException, "got " + e.getCause());
+            }
+        }
+        assertEquals(1, requests.get("/repos/owner/repo/contents/Broken.java").get());
+    }
+
+    private List<Future<byte[]>> burst(String path) {
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> client.getContentsBody(path)));
+        }
+        return results;
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while ((long) client.coalescingStats().get("contentsCoalesced") < expected) {
+            if (System.currentTimeMillis() > deadline) fail("callers did not join the read in flight: " + client.coalescingStats());
+            Thread.sleep(5);
+        }
+    }
+}
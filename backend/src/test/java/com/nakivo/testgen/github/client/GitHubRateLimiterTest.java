@@ -0,0 +1,209 @@
+package com.nakivo.testgen.github.client;
+
+import com.nakivo.testgen.config.GitHubConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/* The limiter against a simulated quota: GitHub's answers are fed to onResponse with the headers it would send. */
+class GitHubRateLimiterTest {
+
+    private static final String SECONDARY = "{\"message\":\"You have exceeded a secondary rate limit. Please wait a few minutes\","
+        + "\"documentation_url\":\"https://docs.github.com/rest/overview/rate-limits-for-the-rest-api#about-secondary-rate-limits\"}";
+
+    private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void interactiveRequestsGoBeforeWaitingBatchRequests() throws Exception {
+        GitHubRateLimiter limiter = limiter(settings -> {
+            settings.setRequestsPerSecond(5);
+            settings.setBurst(1);
+        });
+        limiter.acquire(GitHubRateLimiter.Lane.BATCH); // the bucket is empty now
+
+        List<String> granted = new CopyOnWriteArrayList<>();
+        List<Future<?>> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "batch-" + i;
+            batch.add(pool.submit(() -> {
+                limiter.acquire(GitHubRateLimiter.Lane.BATCH);
+                granted.add(name);
+                return null;
+            }));
+        }
+        awaitStat(limiter, "batchWaiting", 3);
+        Future<?> interactive = pool.submit(() -> {
+            limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE);
+            granted.add("interactive");
+            return null;
+        });
+
+        interactive.get(5, TimeUnit.SECONDS);
+        for (Future<?> f : batch) f.get(5, TimeUnit.SECONDS);
+        assertEquals("interactive", granted.get(0), "the interactive request takes the next token: " + granted);
+        assertEquals(4L, limiter.stats().get("batchGranted"));
+    }
+
+    @Test
+    void batchStopsAtTheReserveUntilTheReset() throws Exception {
+        GitHubRateLimiter limiter = limiter(settings -> settings.setBatchReserve(10));
+        long resetSeconds = System.currentTimeMillis() / 1000 + 2;
+        assertEquals(-1, limiter.onResponse(200, quota(10, resetSeconds), null));
+
+        Future<?> batch = pool.submit(() -> {
+            limiter.acquire(GitHubRateLimiter.Lane.BATCH);
+            return null;
+        });
+        Thread.sleep(300);
+        assertFalse(batch.isDone(), "batch waits while the quota is at the reserve");
+
+        // the reserve is there for interactive requests
+        limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE);
+        assertEquals(9, limiter.stats().get("remaining"));
+
+        batch.get(5, TimeUnit.SECONDS);
+        assertTrue(System.currentTimeMillis() >= (resetSeconds - 1) * 1000, "batch went on only after the reset");
+    }
+
+    @Test
+    void exhaustedQuotaHoldsInteractiveRequestsToo() {
+        GitHubRateLimiter limiter = limiter(settings -> settings.setMaxWaitMs(100));
+        limiter.onResponse(200, quota(0, System.currentTimeMillis() / 1000 + 60), null);
+
+        GitHubApiException e = assertThrows(GitHubApiException.class, () -> limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE));
+        assertEquals(429, e.getStatusCode());
+    }
+
+    @Test
+    void retryAfterPausesAllLanes() throws Exception {
+        GitHubRateLimiter limiter = limiter(settings -> { });
+        assertEquals(1000, limiter.onResponse(429, headers(Map.of("Retry-After", "1")), null));
+
+        long start = System.nanoTime();
+        Future<Long> batch = pool.submit(() -> {
+            limiter.acquire(GitHubRateLimiter.Lane.BATCH);
+            return (System.nanoTime() - start) / 1_000_000;
+        });
+        Future<Long> interactive = pool.submit(() -> {
+            limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE);
+            return (System.nanoTime() - start) / 1_000_000;
+        });
+        assertTrue(interactive.get(5, TimeUnit.SECONDS) >= 900, "interactive waited out Retry-After");
+        assertTrue(batch.get(5, TimeUnit.SECONDS) >= 900, "batch waited out Retry-After");
+    }
+
+    @Test
+    void secondaryLimitBacksOffDoublingAndPausesAllLanes() throws Exception {
+        GitHubRateLimiter limiter = limiter(settings -> {
+            settings.setSecondaryBackoffMs(100);
+            settings.setMaxBackoffMs(300);
+        });
+        HttpHeaders quotaLeft = quota(4000, System.currentTimeMillis() / 1000 + 3600);
+
+        assertEquals(100, limiter.onResponse(403, quotaLeft, SECONDARY));
+        assertEquals(200, limiter.onResponse(403, quotaLeft, SECONDARY));
+        assertEquals(300, limiter.onResponse(403, quotaLeft, SECONDARY), "capped at max-backoff-ms");
+        // a permission error is not a rate limit and is not retried
+        assertEquals(-1, limiter.onResponse(403, quotaLeft, "{\"message\":\"Resource not accessible by personal access token\"}"));
+
+        long start = System.nanoTime();
+        limiter.acquire(GitHubRateLimiter.Lane.BATCH);
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 200, "the pause holds the batch lane");
+
+        // a success ends the streak: the next secondary limit starts from the base again
+        assertEquals(-1, limiter.onResponse(200, quotaLeft, null));
+        assertEquals(100, limiter.onResponse(403, quotaLeft, SECONDARY));
+        start = System.nanoTime();
+        limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE);
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 80, "the pause holds the interactive lane");
+        assertEquals(4L, limiter.stats().get("rateLimited"));
+    }
+
+    @Test
+    void interactiveWaitOverMaxWaitIsRejected() {
+        GitHubRateLimiter limiter = limiter(settings -> settings.setMaxWaitMs(500));
+        limiter.onResponse(429, headers(Map.of("Retry-After", "30")), null);
+
+        GitHubApiException e = assertThrows(GitHubApiException.class, () -> limiter.acquire(GitHubRateLimiter.Lane.INTERACTIVE));
+        assertEquals(429, e.getStatusCode());
+        assertEquals(1L, limiter.stats().get("rejected"));
+    }
+
+    @Test
+    void laneRaisedThroughSingleFlightStopsYielding() throws Exception {
+        GitHubRateLimiter limiter = limiter(settings -> settings.setBatchReserve(10));
+        limiter.onResponse(200, quota(5, System.currentTimeMillis() / 1000 + 60), null);
+        SingleFlight<String, String> reads = new SingleFlight<>(limiter);
+        Callable<String> load = () -> {
+            limiter.acquire(GitHubRateLimiter.currentHolder());
+            return "content";
+        };
+
+        // a batch read is held back by the reserve...
+        Future<String> batch = pool.submit(() -> GitHubRateLimiter.callAs(GitHubRateLimiter.Lane.BATCH,
+            () -> reads.execute("src/Tests.java", load)));
+        awaitStat(limiter, "batchWaiting", 1);
+        Thread.sleep(100);
+        assertFalse(batch.isDone());
+
+        // ...until an interactive caller joins it; the shared request then runs in the interactive lane
+        Future<String> interactive = pool.submit(() -> reads.execute("src/Tests.java", load));
+        assertEquals("content", interactive.get(5, TimeUnit.SECONDS));
+        assertEquals("content", batch.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, reads.getExecuted());
+        assertEquals(1L, reads.getCoalesced());
+        assertEquals(1L, limiter.stats().get("interactiveGranted"));
+        assertEquals(0L, limiter.stats().get("batchGranted"));
+    }
+
+    private static GitHubRateLimiter limiter(Consumer<GitHubConfig.RateLimit> settings) {
+        GitHubConfig config = new GitHubConfig();
+        settings.accept(config.getRateLimit());
+        return new GitHubRateLimiter(config);
+    }
+
+    private static HttpHeaders quota(int remaining, long resetSeconds) {
+        Map<String, String> values = new HashMap<>();
+        values.put("X-RateLimit-Limit", "5000");
+        values.put("X-RateLimit-Remaining", String.valueOf(remaining));
+        values.put("X-RateLimit-Reset", String.valueOf(resetSeconds));
+        return headers(values);
+    }
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        Map<String, List<String>> map = new HashMap<>();
+        values.forEach((name, value) -> map.put(name, List.of(value)));
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+
+    private static void awaitStat(GitHubRateLimiter limiter, String name, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(expected).equals(limiter.stats().get(name))) {
+            if (System.currentTimeMillis() > deadline) fail(name + " never reached " + expected + ": " + limiter.stats());
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.nakivo.testgen.jira.service;
+
+import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.jira.model.JiraContentHash;
+import com.nakivo.testgen.jira.repository.JiraContentHashRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* A bulk update of a few hundred tickets against a local Jira stub that throttles and fails some of them. */
+class JiraBulkServiceTest {
+
+    private static final int PER_HOST = 4;
+    private static final int MAX_RETRIES = 3;
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Map<JiraContentHash.Key, JiraContentHash> hashes = new ConcurrentHashMap<>();
+    private JiraConfig config;
+    private HttpClient httpClient;
+    private JiraBulkService bulk;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/api/2/issue/", this::handle);
+        // more handler threads than permits, so the stub would see any request over the per-host limit
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        config = new JiraConfig();
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setUsername("user");
+        config.setToken("token");
+        config.getBulk().setMaxConcurrencyPerHost(PER_HOST);
+        config.getBulk().setMaxRetries(MAX_RETRIES);
+        config.getBulk().setBaseBackoffMs(5);
+        config.getBulk().setMaxBackoffMs(50);
+        httpClient = HttpClient.newHttpClient();
+        bulk = new JiraBulkService(config, new JiraService(config, httpClient, null), httpClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulk.shutdown();
+        server.stop(0);
+    }
+
+    /* OK-*: accepted; THROTTLED-*: description 429 once; FLAKY-*: attachment 503 twice; BROKEN-*: description
+       always 500; MISSING-*: description 404. A GET of an issue finds what add() sends already on it. */
+    private void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+            Thread.sleep(10);
+            String path = exchange.getRequestURI().getPath().substring("/rest/api/2/issue/".length());
+            boolean attachment = path.endsWith("/attachments");
+            String ticket = attachment ? path.substring(0, path.indexOf('/')) : path;
+            int call = calls.computeIfAbsent(exchange.getRequestMethod() + " " + path, k -> new AtomicInteger()).incrementAndGet();
+
+            boolean read = exchange.getRequestMethod().equals("GET");
+            int status = read || attachment ? 200 : 204;
+            if (read) {
+                // the fields asked for are all in one answer
+            } else if (ticket.startsWith("THROTTLED") && !attachment && call == 1) {
+                status = 429;
+                exchange.getResponseHeaders().set("Retry-After", "0");
+            } else if (ticket.startsWith("FLAKY") && attachment && call <= 2) {
+                status = 503;
+            } else if (ticket.startsWith("BROKEN") && !attachment) {
+                status = 500;
+            } else if (ticket.startsWith("MISSING") && !attachment) {
+                status = 404;
+            }
+            byte[] body = read
+                ? ("{\"fields\":{\"description\":\"h2. " + ticket + "\",\"attachment\":[{\"id\":\"" + ticket.hashCode() + "\"}]}}")
+                    .getBytes(StandardCharsets.UTF_8)
+                : attachment && status == 200
+                ? ("[{\"id\":\"" + ticket.hashCode() + "\"}]").getBytes(StandardCharsets.UTF_8)
+                : status >= 400 ? ("{\"errorMessages\":[\"" + status + " for " + ticket + "\"]}").getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Test
+    void reportsEveryTicketAndRetriesThrottledRequests() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        add(entries, "OK", 150);
+        add(entries, "THROTTLED", 20);
+        add(entries, "FLAKY", 20);
+        add(entries, "BROKEN", 5);
+        add(entries, "MISSING", 5);
+
+        Map<String, Object> report = bulk.update(entries);
+
+        assertEquals(200, report.get("total"));
+        assertEquals(190, report.get("updated"));
+        assertEquals(10, report.get("failed"));
+        // THROTTLED: 1 retry, FLAKY: 2, BROKEN: every retry
+        assertEquals(20L + 20 * 2 + 5 * MAX_RETRIES, report.get("retries"));
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> results = (List<Map<String, Object>>) report.get("results");
+        assertEquals(200, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Map<String, Object> result = results.get(i);
+            String ticket = (String) entries.get(i).get("ticket");
+            assertEquals(ticket, result.get("ticket"), "results are in the order given");
+            String kind = ticket.substring(0, ticket.indexOf('-'));
+            switch (kind) {
+                case "OK" -> assertTicket(result, "updated", "ok", "ok", 2);
+                case "THROTTLED" -> assertTicket(result, "updated", "ok", "ok", 3);
+                case "FLAKY" -> assertTicket(result, "updated", "ok", "ok", 4);
+                case "BROKEN" -> {
+                    assertTicket(result, "failed", "failed", "skipped", 1 + MAX_RETRIES);
+                    assertTrue(((String) result.get("error")).startsWith("description: 500"), String.valueOf(result.get("error")));
+                }
+                case "MISSING" -> {
+                    assertTicket(result, "failed", "failed", "skipped", 1);
+                    assertTrue(((String) result.get("error")).startsWith("description: 404"), String.valueOf(result.get("error")));
+                }
+                default -> throw new IllegalStateException(kind);
+            }
+        }
+
+        assertTrue(maxInFlight.get() <= PER_HOST, "at most " + PER_HOST + " requests in flight, was " + maxInFlight.get());
+        assertEquals(PER_HOST, maxInFlight.get(), "the permits are used in parallel");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> hostsInFlight = (Map<String, Object>) bulk.stats().get("inFlight");
+        hostsInFlight.values().forEach(n -> assertEquals(0, n, "every permit is given back"));
+    }
+
+    @Test
+    void entriesWithoutContentSkipRequests() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        entries.add(Map.of("ticket", "OK-1", "description", "only a description"));
+        entries.add(Map.of("ticket", "OK-2", "json", "[{\"testCaseId\":\"TC_2\"}]"));
+        entries.add(Map.of("description", "no ticket"));
+
+        Map<String, Object> report = bulk.update(entries);
+
+        assertEquals(2, report.get("updated"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> results = (List<Map<String, Object>>) report.get("results");
+        assertTicket(results.get(0), "updated", "ok", "skipped", 1);
+        assertTicket(results.get(1), "updated", "skipped", "ok", 1);
+        assertEquals("failed", results.get(2).get("status"));
+        assertEquals("Missing ticket", results.get(2).get("error"));
+        assertEquals(1, calls.get("PUT OK-1").get());
+        assertEquals(1, calls.get("POST OK-2/attachments").get());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void ledgerChecksTakeThePermitsToo() {
+        // every match is read back from the issue before it is trusted
+        config.getLedger().setVerifyAfterMs(0);
+        JiraContentLedger ledger = new JiraContentLedger(config, repository());
+        List<Map<String, Object>> entries = new ArrayList<>();
+        add(entries, "OK", 100);
+        for (Map<String, Object> entry : entries) {
+            String ticket = (String) entry.get("ticket");
+            String json = (String) entry.get("json");
+            ledger.record(ticket, JiraContentHash.DESCRIPTION, JiraContentLedger.hash((String) entry.get("description")), 0, null, null);
+            ledger.record(ticket, JiraContentHash.ATTACHMENT, JiraContentLedger.hash(json), json.length(),
+                String.valueOf(ticket.hashCode()), "testData_" + ticket + ".json");
+        }
+        JiraBulkService checked = new JiraBulkService(config, new JiraService(config, httpClient, ledger), httpClient);
+        Map<String, Object> report;
+        try {
+            report = checked.update(entries);
+        } finally {
+            checked.shutdown();
+        }
+
+        assertEquals(100, report.get("updated"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> results = (List<Map<String, Object>>) report.get("results");
+        results.forEach(result -> assertTicket(result, "updated", "unchanged", "unchanged", 0));
+        assertEquals(2, calls.get("GET OK-0").get(), "the description and the attachment list are read back");
+        assertTrue(calls.keySet().stream().allMatch(call -> call.startsWith("GET ")), calls.keySet().toString());
+        assertTrue(maxInFlight.get() <= PER_HOST, "at most " + PER_HOST + " requests in flight, was " + maxInFlight.get());
+    }
+
+    // save / findById / delete over a map; a proxy, so the other repository methods need no implementation
+    private JiraContentHashRepository repository() {
+        return (JiraContentHashRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{JiraContentHashRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "save" -> {
+                    JiraContentHash entry = (JiraContentHash) args[0];
+                    hashes.put(new JiraContentHash.Key(entry.getIssueKey(), entry.getField()), entry);
+                    yield entry;
+                }
+                case "findById" -> Optional.ofNullable(hashes.get((JiraContentHash.Key) args[0]));
+                case "delete" -> {
+                    JiraContentHash entry = (JiraContentHash) args[0];
+                    hashes.remove(new JiraContentHash.Key(entry.getIssueKey(), entry.getField()));
+                    yield null;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static void add(List<Map<String, Object>> entries, String kind, int count) {
+        for (int i = 0; i < count; i++) {
+            String ticket = kind + "-" + i;
+            entries.add(Map.of("ticket", ticket, "description", "h2. " + ticket,
+                "json", "[{\"testCaseId\":\"" + ticket + "\",\"field0\":\"value\"}]"));
+        }
+    }
+
+    private static void assertTicket(Map<String, Object> result, String status, String description, String attachment,
+                                     int attempts) {
+        String ticket = (String) result.get("ticket");
+        assertEquals(status, result.get("status"), ticket);
+        assertEquals(description, result.get("description"), ticket);
+        assertEquals(attachment, result.get("attachment"), ticket);
+        assertEquals(attempts, result.get("attempts"), ticket);
+    }
+}
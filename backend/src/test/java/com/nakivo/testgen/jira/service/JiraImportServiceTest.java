@@ -0,0 +1,254 @@
+package com.nakivo.testgen.jira.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakivo.testgen.config.GeneratorConfig;
+import com.nakivo.testgen.config.GitHubConfig;
+import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.generator.service.GenerationExecutor;
+import com.nakivo.testgen.generator.service.TestFileGeneratorService;
+import com.nakivo.testgen.generator.source.SourceIndexCache;
+import com.nakivo.testgen.generator.template.TestTemplateEngine;
+import com.nakivo.testgen.github.backend.InMemoryBackend;
+import com.nakivo.testgen.github.service.GitHubFileService;
+import com.nakivo.testgen.github.service.GithubExcelUpdaterService;
+import com.nakivo.testgen.github.service.WorkbookCache;
+import com.nakivo.testgen.jira.model.JiraImportJob;
+import com.nakivo.testgen.jira.repository.JiraImportJobRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/* A JQL import against a local Jira search stub: paging, progress, a failed page and the resume after it. */
+class JiraImportServiceTest {
+
+    private static final int ISSUES = 120;
+    private static final int PAGE_SIZE = 10;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private HttpServer server;
+    private final List<Integer> searches = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Integer> throttleOnce = new ConcurrentHashMap<>();
+    private volatile int brokenAt = -1;
+    private volatile String jql;
+
+    private final Map<String, JiraImportJob> jobs = new ConcurrentHashMap<>();
+    private final InMemoryBackend backend = new InMemoryBackend();
+    private JiraImportService importer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/api/2/search", this::search);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        JiraConfig jiraConfig = new JiraConfig();
+        jiraConfig.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        jiraConfig.setToken("token");
+        jiraConfig.getIssueImport().setPageSize(PAGE_SIZE);
+        jiraConfig.getIssueImport().setMaxInFlightPages(3);
+        jiraConfig.getBulk().setMaxRetries(2);
+        jiraConfig.getBulk().setBaseBackoffMs(5);
+        jiraConfig.getBulk().setMaxBackoffMs(20);
+
+        GeneratorConfig config = new GeneratorConfig();
+        config.getPipeline().setCommit(true);
+        GitHubConfig gitHubConfig = new GitHubConfig();
+        gitHubConfig.getWorkbookCache().setEnabled(false);
+        TestFileGeneratorService generator = new TestFileGeneratorService(new GitHubFileService(backend),
+            new GithubExcelUpdaterService(backend, new WorkbookCache(gitHubConfig, backend)),
+            new GenerationExecutor(config), new SourceIndexCache(), new TestTemplateEngine(config, null), null, config);
+
+        importer = new JiraImportService(jiraConfig, new JiraService(jiraConfig, HttpClient.newHttpClient(), null),
+            generator, repository());
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+        server.stop(0);
+    }
+
+    /* QA-<i>: every 15th issue has no description (skipped), every 20th one that cannot be parsed (failed). */
+    private void search(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+            String[] kv = pair.split("=", 2);
+            query.put(kv[0], URLDecoder.decode(kv[1], StandardCharsets.UTF_8));
+        }
+        jql = query.get("jql");
+        int startAt = Integer.parseInt(query.get("startAt"));
+        int maxResults = Integer.parseInt(query.get("maxResults"));
+        searches.add(startAt);
+
+        int status = 200;
+        Object answer;
+        if (startAt == brokenAt) {
+            status = 500;
+            answer = Map.of("errorMessages", List.of("search backend unavailable"));
+        } else if (throttleOnce.remove(startAt) != null) {
+            status = 429;
+            exchange.getResponseHeaders().set("Retry-After", "0");
+            answer = Map.of("errorMessages", List.of("rate limited"));
+        } else {
+            List<Map<String, Object>> issues = new ArrayList<>();
+            for (int i = startAt; i < Math.min(ISSUES, startAt + maxResults); i++) {
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("summary", "Backup job " + i);
+                fields.put("description", i % 15 == 0 ? null : i % 20 == 0 ? "no test case here" : description(i));
+                issues.add(Map.of("key", "QA-" + i, "fields", fields));
+            }
+            answer = Map.of("startAt", startAt, "maxResults", maxResults, "total", ISSUES, "issues", issues);
+        }
+        byte[] body = mapper.writeValueAsBytes(answer);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    @Test
+    void importsEveryPage() throws Exception {
+        throttleOnce.put(30, 1);
+
+        Map<String, Object> started = importer.start("project = QA");
+        Map<String, Object> progress = awaitFinished((String) started.get("id"));
+
+        assertEquals(JiraImportJob.DONE, progress.get("status"));
+        assertEquals(ISSUES, progress.get("total"));
+        assertEquals(ISSUES, progress.get("nextStartAt"));
+        assertEquals(expectedGenerated(), progress.get("generated"));
+        assertEquals(expectedFailed(), progress.get("failed"));
+        assertEquals(expectedSkipped(), progress.get("skipped"));
+        assertEquals(ISSUES / PAGE_SIZE, progress.get("pagesDone"));
+        assertEquals(0, progress.get("inFlightPages"));
+        assertEquals("project = QA ORDER BY key ASC", jql, "pages are read in a fixed order");
+        assertEquals(2, searches.stream().filter(s -> s == 30).count(), "the throttled page is asked for again");
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> errors = (List<Map<String, String>>) progress.get("recentErrors");
+        assertEquals(expectedFailed(), errors.size());
+        assertTrue(errors.get(0).get("issue").startsWith("QA-"), String.valueOf(errors.get(0)));
+        assertGeneratedInRepository();
+    }
+
+    @Test
+    void resumesAtTheFirstPageNotDone() throws Exception {
+        brokenAt = 60;
+
+        String id = (String) importer.start("project = QA ORDER BY created").get("id");
+        Map<String, Object> failed = awaitFinished(id);
+
+        assertEquals(JiraImportJob.FAILED, failed.get("status"));
+        assertTrue(((String) failed.get("error")).contains("500"), String.valueOf(failed.get("error")));
+        assertEquals(60, failed.get("nextStartAt"), "the cursor stops before the page that failed");
+        assertEquals(JiraImportJob.FAILED, jobs.get(id).getStatus(), "the failure is stored");
+        assertEquals("project = QA ORDER BY created", jql, "an ordered JQL is sent as is");
+
+        brokenAt = -1;
+        searches.clear();
+        importer.resume(id);
+        Map<String, Object> done = awaitFinished(id);
+
+        assertEquals(JiraImportJob.DONE, done.get("status"));
+        assertEquals(60, (int) searches.get(0), "the resumed search starts at the cursor");
+        // counts are those of the pages the cursor moved over, so pages generated twice are counted once
+        assertEquals(expectedGenerated(), done.get("generated"));
+        assertEquals(expectedFailed(), done.get("failed"));
+        assertEquals(expectedSkipped(), done.get("skipped"));
+        assertEquals(ISSUES, jobs.get(id).getNextStartAt());
+        assertGeneratedInRepository();
+
+        assertThrows(IllegalArgumentException.class, () -> importer.resume(id));
+        assertThrows(IllegalArgumentException.class, () -> importer.progress("no-such-import"));
+    }
+
+    private Map<String, Object> awaitFinished(String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60000;
+        while (true) {
+            Map<String, Object> progress = importer.progress(id);
+            assertTrue((int) progress.get("inFlightPages") <= 3, "at most max-in-flight-pages pages in flight");
+            if (!JiraImportJob.RUNNING.equals(progress.get("status")) && !"stopping".equals(progress.get("status"))) {
+                return progress;
+            }
+            if (System.currentTimeMillis() > deadline) fail("import did not finish: " + progress);
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertGeneratedInRepository() {
+        for (int i = 0; i < ISSUES; i++) {
+            if (i % 15 == 0 || i % 20 == 0) continue;
+            String content = backend.text("src/test/java/com/nakivo/tests/manual/" + category(i) + "ManualTest.java");
+            assertTrue(content.contains(String.format("TC_%05d", i)), "TC_" + i + " is generated");
+        }
+    }
+
+    private static int expectedSkipped() {
+        int skipped = 0;
+        for (int i = 0; i < ISSUES; i++) if (i % 15 == 0) skipped++;
+        return skipped;
+    }
+
+    private static int expectedFailed() {
+        int failed = 0;
+        for (int i = 0; i < ISSUES; i++) if (i % 15 != 0 && i % 20 == 0) failed++;
+        return failed;
+    }
+
+    private static int expectedGenerated() {
+        return ISSUES - expectedSkipped() - expectedFailed();
+    }
+
+    private static String category(int i) {
+        return i % 2 == 0 ? "VMwareBackup" : "HyperVBackup";
+    }
+
+    private static String description(int i) {
+        String id = String.format("TC_%05d", i);
+        return "id: " + id + "\n"
+            + "title: Create and run backup job " + id + "\n"
+            + "groups: DIET_DEBUG, regression\n"
+            + "category: " + category(i) + "\n"
+            + "feature: VMWARE\n"
+            + "step 1: Create VMware Backup job\n"
+            + "step 2: Run job\n";
+    }
+
+    // save / findById / findAll over a map; a proxy, so the other repository methods need no implementation
+    private JiraImportJobRepository repository() {
+        return (JiraImportJobRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{JiraImportJobRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "save" -> {
+                    JiraImportJob job = (JiraImportJob) args[0];
+                    jobs.put(job.getId(), job);
+                    yield job;
+                }
+                case "findById" -> Optional.ofNullable(jobs.get((String) args[0]));
+                case "findAll" -> new ArrayList<>(jobs.values());
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
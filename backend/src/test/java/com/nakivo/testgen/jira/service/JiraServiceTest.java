@@ -0,0 +1,240 @@
+package com.nakivo.testgen.jira.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakivo.testgen.config.JiraConfig;
+import com.nakivo.testgen.jira.model.JiraContentHash;
+import com.nakivo.testgen.jira.repository.JiraContentHashRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/* The content ledger's skip and reconcile paths of JiraService against a local Jira stub of one issue. */
+class JiraServiceTest {
+
+    private static final String ISSUE = "NBR-1";
+    private static final String JSON = "[{\"testCaseId\":\"TC_00001\",\"vmName\":\"vm-01\"}]";
+    private static final Pattern FILE_NAME = Pattern.compile("filename=\"([^\"]+)\"");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<JiraContentHash.Key, JiraContentHash> hashes = new ConcurrentHashMap<>();
+    // "METHOD path[?query]" of every request, in order
+    private final List<String> calls = new ArrayList<>();
+    private HttpServer server;
+    private JiraConfig config;
+    private HttpClient httpClient;
+
+    // the issue: its description and attachments (id -> file name and content)
+    private volatile String description = "";
+    private final Map<String, Attachment> attachments = new LinkedHashMap<>();
+    private int nextAttachmentId = 100;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        config = new JiraConfig();
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setUsername("user");
+        config.setToken("token");
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void freshMatchSendsNoRequest() {
+        JiraService jira = service(60_000);
+        jira.updateDescription(ISSUE, "h2. Steps");
+        jira.attachJsonFile(ISSUE, JSON);
+        // no entry yet: the attachment list is checked before the first upload
+        assertEquals(List.of("PUT /rest/api/2/issue/" + ISSUE, "GET /rest/api/2/issue/" + ISSUE + "?fields=attachment",
+            "POST /rest/api/2/issue/" + ISSUE + "/attachments"), calls());
+        calls.clear();
+
+        jira.updateDescription(ISSUE, "h2. Steps");
+        jira.attachJsonFile(ISSUE, JSON);
+
+        assertEquals(List.of(), calls());
+    }
+
+    @Test
+    void staleMatchIsCheckedWithOneGet() {
+        JiraService jira = service(0);
+        jira.updateDescription(ISSUE, "h2. Steps");
+        calls.clear();
+
+        jira.updateDescription(ISSUE, "h2. Steps");
+        assertEquals(List.of("GET /rest/api/2/issue/" + ISSUE + "?fields=description"), calls());
+        calls.clear();
+
+        // edited in Jira since: the check finds out and the description is sent again
+        description = "h2. Edited by hand";
+        jira.updateDescription(ISSUE, "h2. Steps");
+        assertEquals(List.of("GET /rest/api/2/issue/" + ISSUE + "?fields=description", "PUT /rest/api/2/issue/" + ISSUE), calls());
+        assertEquals("h2. Steps", description);
+    }
+
+    @Test
+    void deletedAttachmentIsUploadedAgain() {
+        JiraService jira = service(0);
+        jira.attachJsonFile(ISSUE, JSON);
+        String first = entry(JiraContentHash.ATTACHMENT).getAttachmentId();
+        synchronized (attachments) {
+            attachments.remove(first);
+        }
+        calls.clear();
+
+        jira.attachJsonFile(ISSUE, JSON);
+
+        assertEquals(List.of("GET /rest/api/2/issue/" + ISSUE + "?fields=attachment", "POST /rest/api/2/issue/" + ISSUE + "/attachments"), calls());
+        String second = entry(JiraContentHash.ATTACHMENT).getAttachmentId();
+        assertEquals(String.valueOf(Integer.parseInt(first) + 1), second, "the ledger follows the new attachment");
+    }
+
+    @Test
+    void afterALedgerResetAnAttachmentIsMatchedByNameAndSizeThenHash() {
+        byte[] content = JSON.getBytes(StandardCharsets.UTF_8);
+        String fileName = "testData_" + ISSUE + ".json";
+        attach(fileName, "[]".getBytes(StandardCharsets.UTF_8));
+        attach("notes.json", content);
+        String otherContent = attach(fileName, JSON.replace("vm-01", "vm-02").getBytes(StandardCharsets.UTF_8));
+        String same = attach(fileName, content);
+        JiraService jira = service(60_000);
+        assertNull(entry(JiraContentHash.ATTACHMENT));
+
+        jira.attachJsonFile(ISSUE, JSON);
+
+        // only the candidates of the right name and size are downloaded, and the one whose hash matches is taken
+        assertEquals(List.of("GET /rest/api/2/issue/" + ISSUE + "?fields=attachment",
+            "GET /secure/attachment/" + otherContent, "GET /secure/attachment/" + same), calls());
+        JiraContentHash entry = entry(JiraContentHash.ATTACHMENT);
+        assertEquals(same, entry.getAttachmentId());
+        assertEquals(JiraContentLedger.hash(JSON), entry.getContentHash());
+        assertEquals(fileName, entry.getFileName());
+        calls.clear();
+
+        jira.attachJsonFile(ISSUE, JSON);
+        assertEquals(List.of(), calls(), "the match is recorded, and fresh");
+    }
+
+    private JiraService service(long verifyAfterMs) {
+        config.getLedger().setVerifyAfterMs(verifyAfterMs);
+        return new JiraService(config, httpClient, new JiraContentLedger(config, repository()));
+    }
+
+    private JiraContentHash entry(String field) {
+        return hashes.get(new JiraContentHash.Key(ISSUE, field));
+    }
+
+    private List<String> calls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    private String attach(String fileName, byte[] content) {
+        synchronized (attachments) {
+            String id = String.valueOf(nextAttachmentId++);
+            attachments.put(id, new Attachment(fileName, content));
+            return id;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        synchronized (calls) {
+            calls.add(method + " " + path + (query == null ? "" : "?" + query));
+        }
+        byte[] request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = in.readAllBytes();
+        }
+
+        int status = 200;
+        byte[] body;
+        String issuePath = "/rest/api/2/issue/" + ISSUE;
+        if (method.equals("GET") && path.equals(issuePath)) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("description", description);
+            List<Map<String, Object>> list = new ArrayList<>();
+            synchronized (attachments) {
+                attachments.forEach((id, a) -> list.add(Map.of("id", id, "filename", a.fileName, "size", a.content.length,
+                    "content", config.getBaseUrl() + "/secure/attachment/" + id)));
+            }
+            fields.put("attachment", list);
+            body = mapper.writeValueAsBytes(Map.of("fields", fields));
+        } else if (method.equals("PUT") && path.equals(issuePath)) {
+            JsonNode update = mapper.readTree(request);
+            description = update.path("fields").path("description").asText();
+            status = 204;
+            body = new byte[0];
+        } else if (method.equals("POST") && path.equals(issuePath + "/attachments")) {
+            Matcher name = FILE_NAME.matcher(new String(request, StandardCharsets.UTF_8));
+            String id = attach(name.find() ? name.group(1) : "unknown", request);
+            body = mapper.writeValueAsBytes(List.of(Map.of("id", id)));
+        } else if (method.equals("GET") && path.startsWith("/secure/attachment/")) {
+            Attachment attachment;
+            synchronized (attachments) {
+                attachment = attachments.get(path.substring("/secure/attachment/".length()));
+            }
+            status = attachment == null ? 404 : 200;
+            body = attachment == null ? new byte[0] : attachment.content;
+        } else {
+            status = 404;
+            body = new byte[0];
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    // save / findById / delete over a map; a proxy, so the other repository methods need no implementation
+    private JiraContentHashRepository repository() {
+        return (JiraContentHashRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{JiraContentHashRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "save" -> {
+                    JiraContentHash entry = (JiraContentHash) args[0];
+                    hashes.put(new JiraContentHash.Key(entry.getIssueKey(), entry.getField()), entry);
+                    yield entry;
+                }
+                case "findById" -> Optional.ofNullable(hashes.get((JiraContentHash.Key) args[0]));
+                case "delete" -> {
+                    JiraContentHash entry = (JiraContentHash) args[0];
+                    hashes.remove(new JiraContentHash.Key(entry.getIssueKey(), entry.getField()));
+                    yield null;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private record Attachment(String fileName, byte[] content) {
+    }
+}